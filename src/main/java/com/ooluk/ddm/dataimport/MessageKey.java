@@ -47,12 +47,24 @@ public enum MessageKey {
 	WORKER_PARAM_INVALID,
 	WORKER_PARAM_EMPTY,
 	READ_IMPORTING,	
+	READ_RESUMING,
+	READ_RESUME_NOT_FOUND,
+	READ_UNCHANGED_SKIPPED,
+	
+	/*
+	 * Reference index
+	 */
+	REF_DANGLING,
+	REF_SUMMARY,
 	
 	/*
 	 * JDBC
 	 */
-	JDBC_TYPE_MODE_INVALID,
 	JDBC_READ_EXCP,
+	JDBC_TABLE_RETRY,
+	JDBC_TABLE_SKIPPED,
+	JDBC_TABLES_SKIPPED,
+	JDBC_RECONNECTING,
 	
 	/*
 	 * COBOL
@@ -63,9 +75,18 @@ public enum MessageKey {
 	COB_COPY_NOT_PRESENT,
 	COB_COPY_NOT_FILE,
 	COB_READER_NOT_INIT,
+	COB_COPY_MEMBER_NOT_FOUND,
+	COB_COPY_RECURSIVE,
+	COB_MEMBER_REMOVED,
+	COB_MEMBER_FAILED,
+	COB_WATCH_STARTED,
+	COB_WATCH_IMPORTED,
+	COB_WATCH_ARCHIVE,
 	
 	/*
 	 * XML
 	 */
 	XML_FILE_OPEN_ERR,
+	XML_INDEX_STALE,
+	XML_RESUME_MISMATCH,
 }
\ No newline at end of file
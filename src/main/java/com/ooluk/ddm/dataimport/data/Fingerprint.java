@@ -0,0 +1,260 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.data;
+
+import java.util.List;
+
+/**
+ * A 128-bit content fingerprint of a {@link ScannedDataObject} or {@link ScannedAttribute}. The fingerprint covers every
+ * field including attributes, attribute codes, sources, tags and extended properties, and is computed in a single pass
+ * over the field values. Two objects with equal content always have equal fingerprints irrespective of the iteration
+ * order of their extended property maps. The fingerprint does not depend on the JVM and can therefore be persisted and
+ * compared across runs.
+ * 
+ * <p>
+ * Fingerprints are immutable.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public final class Fingerprint {
+
+	private final long high;
+	private final long low;
+
+	/**
+	 * Constructs a Fingerprint from its two 64-bit halves.
+	 * 
+	 * @param high
+	 *            the high 64 bits
+	 * @param low
+	 *            the low 64 bits
+	 */
+	public Fingerprint(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * Computes the fingerprint of a data object including its attributes.
+	 * 
+	 * @param dObj
+	 *            the data object
+	 * 
+	 * @return the fingerprint of the data object.
+	 */
+	public static Fingerprint of(ScannedDataObject dObj) {
+		FingerprintHasher hasher = new FingerprintHasher();
+		putProperties(hasher, dObj);
+		List<ScannedAttribute> attributes = dObj.getAttributes();
+		if (attributes == null) {
+			hasher.putInt(-1);
+		} else {
+			hasher.putInt(attributes.size());
+			for (ScannedAttribute attr : attributes) {
+				putAttribute(hasher, attr);
+			}
+		}
+		return hasher.finish();
+	}
+
+	/**
+	 * Computes the fingerprint of the fields of a data object excluding its attributes.
+	 * 
+	 * @param dObj
+	 *            the data object
+	 * 
+	 * @return the fingerprint of the data object fields.
+	 */
+	public static Fingerprint ofProperties(ScannedDataObject dObj) {
+		FingerprintHasher hasher = new FingerprintHasher();
+		putProperties(hasher, dObj);
+		return hasher.finish();
+	}
+
+	/**
+	 * Adds all fields of a data object except the attributes to a hasher.
+	 * 
+	 * @param hasher
+	 *            the hasher
+	 * @param dObj
+	 *            the data object
+	 */
+	private static void putProperties(FingerprintHasher hasher, ScannedDataObject dObj) {
+		hasher.putString(dObj.getNamespace());
+		hasher.putString(dObj.getName());
+		hasher.putString(dObj.getLogicalName());
+		hasher.putString(dObj.getSource());
+		hasher.putString(dObj.getSummary());
+		hasher.putString(dObj.getDescription());
+		hasher.putStrings(dObj.getTags());
+		List<ScannedDataObjectSource> sources = dObj.getLocalSources();
+		if (sources == null) {
+			hasher.putInt(-1);
+		} else {
+			hasher.putInt(sources.size());
+			for (ScannedDataObjectSource source : sources) {
+				hasher.putString(source.getNamespace());
+				hasher.putString(source.getName());
+			}
+		}
+		hasher.putMap(dObj.getExtendedProperties());
+	}
+
+	/**
+	 * Computes the fingerprint of an attribute.
+	 * 
+	 * @param attr
+	 *            the attribute
+	 * 
+	 * @return the fingerprint of the attribute.
+	 */
+	public static Fingerprint of(ScannedAttribute attr) {
+		FingerprintHasher hasher = new FingerprintHasher();
+		putAttribute(hasher, attr);
+		return hasher.finish();
+	}
+
+	/**
+	 * Computes the fingerprint of the identity of an attribute, that is of the namespace and name of its data object
+	 * and its own name. This is the key used to resolve attribute references.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param objectName
+	 *            name of the data object
+	 * @param attributeName
+	 *            name of the attribute
+	 * 
+	 * @return the fingerprint of the attribute identity.
+	 */
+	public static Fingerprint ofIdentity(String namespace, String objectName, String attributeName) {
+		FingerprintHasher hasher = new FingerprintHasher();
+		hasher.putString(namespace);
+		hasher.putString(objectName);
+		hasher.putString(attributeName);
+		return hasher.finish();
+	}
+
+	/**
+	 * Adds all fields of an attribute to a hasher.
+	 * 
+	 * @param hasher
+	 *            the hasher
+	 * @param attr
+	 *            the attribute
+	 */
+	private static void putAttribute(FingerprintHasher hasher, ScannedAttribute attr) {
+		hasher.putString(attr.getName());
+		hasher.putString(attr.getLogicalName());
+		hasher.putInteger(attr.getSeqNo());
+		hasher.putString(attr.getDataType());
+		hasher.putString(attr.getCommonType());
+		hasher.putBoolean(attr.isKey());
+		hasher.putString(attr.getParentAttribute());
+		hasher.putBoolean(attr.isRequired());
+		hasher.putString(attr.getDefaultValue());
+		hasher.putString(attr.getSource());
+		hasher.putString(attr.getSummary());
+		hasher.putString(attr.getDescription());
+		hasher.putStrings(attr.getTags());
+		List<ScannedAttributeSource> sources = attr.getLocalSources();
+		if (sources == null) {
+			hasher.putInt(-1);
+		} else {
+			hasher.putInt(sources.size());
+			for (ScannedAttributeSource source : sources) {
+				hasher.putString(source.getNamespace());
+				hasher.putString(source.getObjectName());
+				hasher.putString(source.getAttributeName());
+			}
+		}
+		hasher.putMap(attr.getExtendedProperties());
+		List<ScannedAttributeCode> codes = attr.getCodes();
+		if (codes == null) {
+			hasher.putInt(-1);
+		} else {
+			hasher.putInt(codes.size());
+			for (ScannedAttributeCode code : codes) {
+				hasher.putString(code.getValue());
+				hasher.putString(code.getDescription());
+			}
+		}
+	}
+
+	/**
+	 * Parses a fingerprint from the 32 digit hexadecimal form returned by {@link #toString()}.
+	 * 
+	 * @param hex
+	 *            hexadecimal fingerprint
+	 * 
+	 * @return the fingerprint.
+	 * 
+	 * @throws NumberFormatException
+	 *             if the string is not a valid fingerprint
+	 */
+	public static Fingerprint parse(String hex) {
+		if (hex.length() != 32) {
+			throw new NumberFormatException("Invalid fingerprint: " + hex);
+		}
+		return new Fingerprint(Long.parseUnsignedLong(hex.substring(0, 16), 16), 
+				Long.parseUnsignedLong(hex.substring(16), 16));
+	}
+
+	/**
+	 * Returns the high 64 bits of the fingerprint.
+	 * 
+	 * @return high 64 bits.
+	 */
+	public long getHigh() {
+		return high;
+	}
+
+	/**
+	 * Returns the low 64 bits of the fingerprint.
+	 * 
+	 * @return low 64 bits.
+	 */
+	public long getLow() {
+		return low;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object)
+			return true;
+		if (object == null)
+			return false;
+		if (getClass() != object.getClass())
+			return false;
+		Fingerprint other = (Fingerprint) object;
+		return high == other.high && low == other.low;
+	}
+
+	/**
+	 * Returns the fingerprint as 32 hexadecimal digits.
+	 */
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+}
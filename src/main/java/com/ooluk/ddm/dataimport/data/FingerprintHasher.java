@@ -0,0 +1,230 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A streaming 128-bit hash based on MurmurHash3 (x64, 128-bit variant). Values are fed as UTF-16 code units directly
+ * from the source strings so that no intermediate strings or byte arrays are created. Strings and lists are length
+ * prefixed and null values are encoded distinctly so that different field boundaries never produce the same input.
+ * 
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+class FingerprintHasher {
+
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	private long h1 = 0;
+	private long h2 = 0;
+
+	// Block being filled: 8 code units, 4 per lane
+	private long k1 = 0;
+	private long k2 = 0;
+	private int filled = 0;
+
+	// Number of code units hashed
+	private long length = 0;
+
+	/**
+	 * Adds a UTF-16 code unit.
+	 * 
+	 * @param c
+	 *            the code unit
+	 */
+	void putChar(char c) {
+		if (filled < 4) {
+			k1 |= ((long) c) << (filled * 16);
+		} else {
+			k2 |= ((long) c) << ((filled - 4) * 16);
+		}
+		length++;
+		if (++filled == 8) {
+			mixBlock();
+			k1 = 0;
+			k2 = 0;
+			filled = 0;
+		}
+	}
+
+	/**
+	 * Adds an int value.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	void putInt(int value) {
+		putChar((char) (value >>> 16));
+		putChar((char) value);
+	}
+
+	/**
+	 * Adds a long value.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	void putLong(long value) {
+		putInt((int) (value >>> 32));
+		putInt((int) value);
+	}
+
+	/**
+	 * Adds a boolean value.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	void putBoolean(boolean value) {
+		putChar(value ? '1' : '0');
+	}
+
+	/**
+	 * Adds a nullable Integer value.
+	 * 
+	 * @param value
+	 *            the value
+	 */
+	void putInteger(Integer value) {
+		putBoolean(value != null);
+		if (value != null) {
+			putInt(value);
+		}
+	}
+
+	/**
+	 * Adds a string prefixed with its length. A null string is encoded with a length of -1.
+	 * 
+	 * @param value
+	 *            the string
+	 */
+	void putString(String value) {
+		if (value == null) {
+			putInt(-1);
+			return;
+		}
+		int len = value.length();
+		putInt(len);
+		for (int i = 0; i < len; i++) {
+			putChar(value.charAt(i));
+		}
+	}
+
+	/**
+	 * Adds a list of strings in list order.
+	 * 
+	 * @param values
+	 *            the strings
+	 */
+	void putStrings(List<String> values) {
+		if (values == null) {
+			putInt(-1);
+			return;
+		}
+		putInt(values.size());
+		for (String value : values) {
+			putString(value);
+		}
+	}
+
+	/**
+	 * Adds a string map. The entries are hashed individually and combined by addition so that the result does not
+	 * depend on the iteration order of the map.
+	 * 
+	 * @param map
+	 *            the map
+	 */
+	void putMap(Map<String, String> map) {
+		if (map == null) {
+			putInt(-1);
+			return;
+		}
+		long sum1 = 0;
+		long sum2 = 0;
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			FingerprintHasher entryHasher = new FingerprintHasher();
+			entryHasher.putString(entry.getKey());
+			entryHasher.putString(entry.getValue());
+			Fingerprint fp = entryHasher.finish();
+			sum1 += fp.getHigh();
+			sum2 += fp.getLow();
+		}
+		putInt(map.size());
+		putLong(sum1);
+		putLong(sum2);
+	}
+
+	/**
+	 * Completes the hash. The hasher must not be used afterwards.
+	 * 
+	 * @return the fingerprint of the values added.
+	 */
+	Fingerprint finish() {
+		if (filled > 0) {
+			k1 *= C1;
+			k1 = Long.rotateLeft(k1, 31);
+			k1 *= C2;
+			h1 ^= k1;
+			k2 *= C2;
+			k2 = Long.rotateLeft(k2, 33);
+			k2 *= C1;
+			h2 ^= k2;
+		}
+		h1 ^= length * 2;
+		h2 ^= length * 2;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+		return new Fingerprint(h1, h2);
+	}
+
+	private void mixBlock() {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, 31);
+		k1 *= C2;
+		h1 ^= k1;
+		h1 = Long.rotateLeft(h1, 27);
+		h1 += h2;
+		h1 = h1 * 5 + 0x52dce729;
+
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, 33);
+		k2 *= C1;
+		h2 ^= k2;
+		h2 = Long.rotateLeft(h2, 31);
+		h2 += h1;
+		h2 = h2 * 5 + 0x38495ab5;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
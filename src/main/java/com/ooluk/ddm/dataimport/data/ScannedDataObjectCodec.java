@@ -0,0 +1,333 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * ScannedDataObjectCodec converts data objects to and from a compact binary form. Every field of the data object and
+ * its attributes is encoded, including the namespace which is not part of the XML form. Strings are encoded as UTF-8
+ * with a length prefix so there is no limit on their length. Decoded objects use {@link com.ooluk.ddm.dataimport.CaseMode#MIXED}
+ * so values are restored exactly as encoded.
+ * 
+ * <p>
+ * The encoding is intended for temporary storage within a run (sort runs, spill files) and is not a stable interchange
+ * format; use DIF for that.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public final class ScannedDataObjectCodec {
+
+	private ScannedDataObjectCodec() {
+	}
+
+	/**
+	 * Encodes a data object.
+	 * 
+	 * @param out
+	 *            output to write to
+	 * @param dObj
+	 *            the data object
+	 * 
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	public static void write(DataOutput out, ScannedDataObject dObj) throws IOException {
+		writeProperties(out, dObj);
+		List<ScannedAttribute> attributes = dObj.getAttributes();
+		out.writeInt(attributes == null ? -1 : attributes.size());
+		if (attributes != null) {
+			for (ScannedAttribute attr : attributes) {
+				writeAttribute(out, attr);
+			}
+		}
+	}
+
+	/**
+	 * Encodes the fields of a data object excluding its attributes.
+	 * 
+	 * @param out
+	 *            output to write to
+	 * @param dObj
+	 *            the data object
+	 * 
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	public static void writeProperties(DataOutput out, ScannedDataObject dObj) throws IOException {
+		writeString(out, dObj.getNamespace());
+		writeString(out, dObj.getName());
+		writeString(out, dObj.getLogicalName());
+		writeString(out, dObj.getSource());
+		writeString(out, dObj.getSummary());
+		writeString(out, dObj.getDescription());
+		writeStrings(out, dObj.getTags());
+		List<ScannedDataObjectSource> sources = dObj.getLocalSources();
+		out.writeInt(sources == null ? -1 : sources.size());
+		if (sources != null) {
+			for (ScannedDataObjectSource source : sources) {
+				writeString(out, source.getNamespace());
+				writeString(out, source.getName());
+			}
+		}
+		writeMap(out, dObj.getExtendedProperties());
+	}
+
+	/**
+	 * Decodes a data object.
+	 * 
+	 * @param in
+	 *            input to read from
+	 * 
+	 * @return the data object.
+	 * 
+	 * @throws IOException
+	 *             if the input cannot be read
+	 */
+	public static ScannedDataObject read(DataInput in) throws IOException {
+		ScannedDataObject dObj = readProperties(in);
+		int count = in.readInt();
+		if (count < 0) {
+			dObj.setAttributes(null);
+		} else {
+			List<ScannedAttribute> attributes = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				attributes.add(readAttribute(in));
+			}
+			dObj.setAttributes(attributes);
+		}
+		return dObj;
+	}
+
+	/**
+	 * Decodes the fields of a data object written by {@link #writeProperties(DataOutput, ScannedDataObject)}. The
+	 * attribute list of the returned data object is empty.
+	 * 
+	 * @param in
+	 *            input to read from
+	 * 
+	 * @return the data object without attributes.
+	 * 
+	 * @throws IOException
+	 *             if the input cannot be read
+	 */
+	public static ScannedDataObject readProperties(DataInput in) throws IOException {
+		ScannedDataObject dObj = new ScannedDataObject();
+		dObj.setNamespace(readString(in));
+		dObj.setName(readString(in));
+		dObj.setLogicalName(readString(in));
+		dObj.setSource(readString(in));
+		dObj.setSummary(readString(in));
+		dObj.setDescription(readString(in));
+		dObj.setTags(readStrings(in));
+		int count = in.readInt();
+		if (count < 0) {
+			dObj.setLocalSources(null);
+		} else {
+			List<ScannedDataObjectSource> sources = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				ScannedDataObjectSource source = new ScannedDataObjectSource();
+				source.setNamespace(readString(in));
+				source.setName(readString(in));
+				sources.add(source);
+			}
+			dObj.setLocalSources(sources);
+		}
+		Map<String, String> props = readMap(in);
+		dObj.setExtendedProperties(props == null ? null : new TreeMap<>(props));
+		return dObj;
+	}
+
+	/**
+	 * Encodes an attribute.
+	 * 
+	 * @param out
+	 *            output to write to
+	 * @param attr
+	 *            the attribute
+	 * 
+	 * @throws IOException
+	 *             if the output cannot be written
+	 */
+	public static void writeAttribute(DataOutput out, ScannedAttribute attr) throws IOException {
+		writeString(out, attr.getName());
+		writeString(out, attr.getLogicalName());
+		out.writeBoolean(attr.getSeqNo() != null);
+		if (attr.getSeqNo() != null) {
+			out.writeInt(attr.getSeqNo());
+		}
+		writeString(out, attr.getDataType());
+		writeString(out, attr.getCommonType());
+		out.writeBoolean(attr.isKey());
+		writeString(out, attr.getParentAttribute());
+		out.writeBoolean(attr.isRequired());
+		writeString(out, attr.getDefaultValue());
+		writeString(out, attr.getSource());
+		writeString(out, attr.getSummary());
+		writeString(out, attr.getDescription());
+		writeStrings(out, attr.getTags());
+		List<ScannedAttributeSource> sources = attr.getLocalSources();
+		out.writeInt(sources == null ? -1 : sources.size());
+		if (sources != null) {
+			for (ScannedAttributeSource source : sources) {
+				writeString(out, source.getNamespace());
+				writeString(out, source.getObjectName());
+				writeString(out, source.getAttributeName());
+			}
+		}
+		writeMap(out, attr.getExtendedProperties());
+		List<ScannedAttributeCode> codes = attr.getCodes();
+		out.writeInt(codes == null ? -1 : codes.size());
+		if (codes != null) {
+			for (ScannedAttributeCode code : codes) {
+				writeString(out, code.getValue());
+				writeString(out, code.getDescription());
+			}
+		}
+	}
+
+	/**
+	 * Decodes an attribute.
+	 * 
+	 * @param in
+	 *            input to read from
+	 * 
+	 * @return the attribute.
+	 * 
+	 * @throws IOException
+	 *             if the input cannot be read
+	 */
+	public static ScannedAttribute readAttribute(DataInput in) throws IOException {
+		ScannedAttribute attr = new ScannedAttribute();
+		attr.setName(readString(in));
+		attr.setLogicalName(readString(in));
+		attr.setSeqNo(in.readBoolean() ? in.readInt() : null);
+		attr.setDataType(readString(in));
+		attr.setCommonType(readString(in));
+		attr.setKey(in.readBoolean());
+		attr.setParentAttribute(readString(in));
+		attr.setRequired(in.readBoolean());
+		attr.setDefaultValue(readString(in));
+		attr.setSource(readString(in));
+		attr.setSummary(readString(in));
+		attr.setDescription(readString(in));
+		attr.setTags(readStrings(in));
+		int count = in.readInt();
+		if (count < 0) {
+			attr.setLocalSources(null);
+		} else {
+			List<ScannedAttributeSource> sources = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				ScannedAttributeSource source = new ScannedAttributeSource();
+				source.setNamespace(readString(in));
+				source.setObjectName(readString(in));
+				source.setAttributeName(readString(in));
+				sources.add(source);
+			}
+			attr.setLocalSources(sources);
+		}
+		attr.setExtendedProperties(readMap(in));
+		count = in.readInt();
+		if (count < 0) {
+			attr.setCodes(null);
+		} else {
+			List<ScannedAttributeCode> codes = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				String value = readString(in);
+				codes.add(new ScannedAttributeCode(value, readString(in)));
+			}
+			attr.setCodes(codes);
+		}
+		return attr;
+	}
+
+	/**
+	 * Writes a string as a length prefixed UTF-8 byte sequence. A null string is written with a length of -1.
+	 */
+	private static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		int len = in.readInt();
+		if (len < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[len];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeStrings(DataOutput out, List<String> values) throws IOException {
+		out.writeInt(values == null ? -1 : values.size());
+		if (values != null) {
+			for (String value : values) {
+				writeString(out, value);
+			}
+		}
+	}
+
+	private static List<String> readStrings(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			return null;
+		}
+		List<String> values = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			values.add(readString(in));
+		}
+		return values;
+	}
+
+	private static void writeMap(DataOutput out, Map<String, String> map) throws IOException {
+		out.writeInt(map == null ? -1 : map.size());
+		if (map != null) {
+			for (Map.Entry<String, String> entry : map.entrySet()) {
+				writeString(out, entry.getKey());
+				writeString(out, entry.getValue());
+			}
+		}
+	}
+
+	private static Map<String, String> readMap(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			return null;
+		}
+		Map<String, String> map = new HashMap<>(count * 2);
+		for (int i = 0; i < count; i++) {
+			String key = readString(in);
+			map.put(key, readString(in));
+		}
+		return map;
+	}
+}
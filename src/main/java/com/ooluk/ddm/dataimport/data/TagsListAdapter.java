@@ -18,6 +18,7 @@ package com.ooluk.ddm.dataimport.data;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
 
@@ -32,6 +33,9 @@ import javax.xml.bind.annotation.adapters.XmlAdapter;
  */
 public class TagsListAdapter extends XmlAdapter<String, List<String>> {
 	
+	// Tag separator: a comma with any surrounding whitespace
+	private static final Pattern TAG_SEPARATOR = Pattern.compile("(\\s)*,(\\s)*");
+	
     public TagsListAdapter() {}
 
     @Override
@@ -46,7 +50,7 @@ public class TagsListAdapter extends XmlAdapter<String, List<String>> {
 
     @Override
 	public List<String> unmarshal(String tagsString) throws Exception {
-        String[] tagsArray = tagsString.split("(\\s)*,(\\s)*");
+        String[] tagsArray = TAG_SEPARATOR.split(tagsString);
         return new ArrayList<>(Arrays.asList(tagsArray));
     }
 }
\ No newline at end of file
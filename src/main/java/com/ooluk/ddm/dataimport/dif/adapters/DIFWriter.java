@@ -15,12 +15,24 @@
  */
 package com.ooluk.ddm.dataimport.dif.adapters;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.Flushable;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -29,26 +41,59 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.MessageKey;
+import com.ooluk.ddm.dataimport.Messages;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.ImportCheckpoint;
+import com.ooluk.ddm.dataimport.workers.xml.DIFIndex;
 import com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReader;
 
 /**
  * This class creates the DIF (Data Import Format) XML document for DDM data import. The output of this writer can
  * be fed to the XMLDataObjectReader.
  * 
+ * <p>
+ * Optionally the writer also creates an index of the byte range of each data object (see {@link DIFIndex}) that
+ * allows a single data object to be read from a large document with
+ * {@link XMLDataObjectReader#readIndexed(String, String)}.
+ * </p>
+ * 
+ * <p>
+ * An import interrupted after an {@link ImportCheckpoint} was saved is continued with
+ * {@link #resume(String, boolean, ImportCheckpoint)}, which keeps the data objects recorded by the checkpoint and
+ * appends after them. Register the writer with {@link ImportCheckpoint#setOutput(Flushable)} so that the checkpoint
+ * only records data objects that have reached the file.
+ * </p>
+ * 
  * @author Siddhesh Prabhu
  * @since 1.0
  * @see XMLDataObjectReader
  * 
  */
-public class DIFWriter {
+public class DIFWriter implements Flushable {
 
 	private JAXBContext jaxbContext;
 	private Marshaller marshaller;
 	private XMLStreamWriter xsw;
+	private Writer out;
 	private boolean initialized = false;
 	private boolean namespaceSet = false;
 	
+	// Byte count of the output
+	private CountingOutputStream counter;
+	
+	// Index of the data objects written; null unless indexing
+	private DIFIndex index;
+	private Path file;
+	private String namespace;
+	
+	/*
+	 * Elements left open by the interrupted run of a resumed writer (the root and the namespace element). The stream
+	 * writer does not know them, so their end tags are written directly.
+	 */
+	private int resumedDepth = 0;
+	
 	/**
 	 * Constructs a DIFWriter
 	 */
@@ -70,30 +115,268 @@ public class DIFWriter {
 	 *            the file to use to output the XML
 	 */
 	public void init(String fileName) {
-		Path file = Paths.get(fileName);
+		init(fileName, false);
+	}
+	
+	/**
+	 * Initializes the DIF writer to write the XML to the specified file and optionally an index of the data objects
+	 * to the index file of the XML file. The index is saved when the writer is closed.
+	 * 
+	 * @param fileName
+	 *            the file to use to output the XML
+	 * @param indexed
+	 *            true to write an index; false otherwise
+	 * 
+	 * @see DIFIndex#getIndexFile(String)
+	 */
+	public void init(String fileName, boolean indexed) {
+		file = Paths.get(fileName);
+		index = indexed ? new DIFIndex(DIFIndex.getIndexFile(fileName)) : null;
 		try {
-			BufferedWriter out = Files.newBufferedWriter(file, Charset.forName("UTF-8"));
-			XMLOutputFactory xof = XMLOutputFactory.newFactory();
-			xsw = xof.createXMLStreamWriter(out);
+			open(Files.newOutputStream(file), 0);
 			xsw.writeStartElement("ddm");
 		} catch(IOException | XMLStreamException e) {
 			throw new RuntimeException(e);
 		}
+		resumedDepth = 0;
+		initialized = true;
+	}
+	
+	/**
+	 * Initializes the DIF writer to continue the XML file of an import that was interrupted after the checkpoint was
+	 * saved. The file is truncated after the last data object recorded by the checkpoint and the writer continues
+	 * within the namespace of that data object, i.e. the namespace returned by
+	 * {@link ImportCheckpoint#getLastNamespace()} is the current namespace. Without a saved checkpoint the writer
+	 * starts a new file as {@link #init(String, boolean)} does.
+	 * 
+	 * <p>
+	 * The file must have been written by this class. If indexing, the index entries of the data objects kept are
+	 * recovered from the file.
+	 * </p>
+	 * 
+	 * @param fileName
+	 *            the file written by the interrupted import
+	 * @param indexed
+	 *            true to write an index; false otherwise
+	 * @param checkpoint
+	 *            the checkpoint the reader was resumed from
+	 * 
+	 * @throws ImportException
+	 *             if the file does not contain the data objects recorded by the checkpoint
+	 */
+	public void resume(String fileName, boolean indexed, ImportCheckpoint checkpoint) {
+		long written = checkpoint.getWrittenCount();
+		if (written == 0) {
+			init(fileName, indexed);
+			return;
+		}
+		file = Paths.get(fileName);
+		index = indexed ? new DIFIndex(DIFIndex.getIndexFile(fileName)) : null;
+		try {
+			long end = locate(written, checkpoint.getLastNamespace(), checkpoint.getLastName());
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+				channel.truncate(end);
+			}
+			open(Files.newOutputStream(file, StandardOpenOption.APPEND), end);
+		} catch(IOException | XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+		namespace = checkpoint.getLastNamespace();
+		namespaceSet = true;
+		resumedDepth = 2;
 		initialized = true;
 	}
 	
+	/**
+	 * Opens the stream writer on the output.
+	 * 
+	 * @param stream
+	 *            the file output
+	 * @param count
+	 *            number of bytes already in the file
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private void open(OutputStream stream, long count) throws XMLStreamException {
+		counter = new CountingOutputStream(new BufferedOutputStream(stream), count);
+		out = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8));
+		xsw = XMLOutputFactory.newFactory().createXMLStreamWriter(out);
+	}
+	
+	/**
+	 * Scans the file for the end of the specified number of data objects and verifies that the last of them is the
+	 * specified data object. The file is scanned as written by this class, where markup characters in text and
+	 * attribute values are always escaped. The data objects found are added to the index if indexing.
+	 * 
+	 * @param count
+	 *            number of data objects to keep
+	 * @param lastNamespace
+	 *            namespace of the last data object to keep
+	 * @param lastName
+	 *            name of the last data object to keep
+	 * 
+	 * @return the byte offset after the last data object to keep.
+	 * 
+	 * @throws IOException
+	 */
+	private long locate(long count, String lastNamespace, String lastName) throws IOException {
+		
+		ByteArrayOutputStream tag = new ByteArrayOutputStream();
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		String ns = null;
+		String name = null;
+		long start = -1;
+		long found = 0;
+		long pos = 0;
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			int b;
+			while ((b = in.read()) != -1) {
+				pos++;
+				if (b != '<') {
+					text.write(b);
+					continue;
+				}
+				long tagStart = pos - 1;
+				tag.reset();
+				while ((b = in.read()) != -1 && b != '>') {
+					pos++;
+					tag.write(b);
+				}
+				if (b == -1) {
+					break;
+				}
+				pos++;
+				String element = tag.toString("UTF-8");
+				if (element.startsWith("namespace ")) {
+					ns = unescape(element.substring(element.indexOf('"') + 1, element.lastIndexOf('"')));
+				} else if (element.equals("data-object") || element.startsWith("data-object ")) {
+					start = tagStart;
+					name = null;
+				} else if (element.equals("/name") && start >= 0 && name == null) {
+					// The first name element of a data object is its own name
+					name = unescape(text.toString("UTF-8"));
+				} else if (element.equals("/data-object") && start >= 0) {
+					found++;
+					if (index != null) {
+						index.add(ns, name, start, pos - start);
+					}
+					if (found == count) {
+						break;
+					}
+					start = -1;
+				}
+				text.reset();
+			}
+		}
+		if (found < count || !lastNamespace.equals(ns) || !lastName.equals(name)) {
+			throw new ImportException(Messages.getMessage(MessageKey.XML_RESUME_MISMATCH, file,
+					lastNamespace + "." + lastName));
+		}
+		return pos;
+	}
+	
+	/**
+	 * Replaces the predefined entities and character references in text written by the stream writer.
+	 * 
+	 * @param value
+	 *            escaped text
+	 * 
+	 * @return the text.
+	 */
+	private static String unescape(String value) {
+		if (value.indexOf('&') < 0) {
+			return value;
+		}
+		StringBuilder sb = new StringBuilder(value.length());
+		int i = 0;
+		while (i < value.length()) {
+			char ch = value.charAt(i);
+			int semi = ch == '&' ? value.indexOf(';', i) : -1;
+			if (semi < 0) {
+				sb.append(ch);
+				i++;
+				continue;
+			}
+			String entity = value.substring(i + 1, semi);
+			switch (entity) {
+				case "lt":
+					sb.append('<');
+					break;
+				case "gt":
+					sb.append('>');
+					break;
+				case "amp":
+					sb.append('&');
+					break;
+				case "quot":
+					sb.append('"');
+					break;
+				case "apos":
+					sb.append('\'');
+					break;
+				default:
+					if (entity.startsWith("#x")) {
+						sb.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+					} else if (entity.startsWith("#")) {
+						sb.appendCodePoint(Integer.parseInt(entity.substring(1)));
+					} else {
+						sb.append(value, i, semi + 1);
+					}
+			}
+			i = semi + 1;
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Writes the buffered output to the file. 
+	 */
+	@Override
+	public void flush() {
+		try {
+			xsw.flush();
+			counter.flushFile();
+		} catch (XMLStreamException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
 	/**
 	 * Closes the DIF writer.
 	 */
 	public void close() {
 		try {
 			xsw.writeEndDocument();
+			while (resumedDepth > 0) {
+				writeEndTag(resumedDepth == 2 ? "namespace" : "ddm");
+			}
 			xsw.close();
-		} catch (XMLStreamException e) {
+			out.close();
+			if (index != null) {
+				index.save(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+			}
+		} catch (XMLStreamException | IOException e) {
 			throw new RuntimeException(e);
 		}
+		index = null;
+		counter = null;
 		initialized = false;
 	}
+	
+	/**
+	 * Writes the end tag of an element left open by the interrupted run of a resumed writer.
+	 * 
+	 * @param element
+	 *            element name
+	 * 
+	 * @throws XMLStreamException
+	 * @throws IOException
+	 */
+	private void writeEndTag(String element) throws XMLStreamException, IOException {
+		xsw.flush();
+		out.write("\n</" + element + ">");
+		resumedDepth--;
+	}
 
 	/**
 	 * Creates a new namespace element. All data objects within this namespace element will be assigned this namespace.
@@ -111,6 +394,7 @@ public class DIFWriter {
 		} catch (XMLStreamException e) {
 			throw new RuntimeException(e);
 		}
+		this.namespace = namespace;
 		namespaceSet = true;
 	}
 	
@@ -119,8 +403,12 @@ public class DIFWriter {
 	 */
 	public void endNamespace() {
 		try {
-			xsw.writeEndElement();
-		} catch (XMLStreamException e) {
+			if (resumedDepth == 2) {
+				writeEndTag("namespace");
+			} else {
+				xsw.writeEndElement();
+			}
+		} catch (XMLStreamException | IOException e) {
 			throw new RuntimeException(e);
 		}
 		namespaceSet = false;
@@ -138,9 +426,119 @@ public class DIFWriter {
 			throw new RuntimeException("Please call beginNamespace() before calling writeDataObject()");
 		}
 		try {
-			marshaller.marshal(obj, xsw);
-		} catch (JAXBException e) {
+			marshal(obj);
+		} catch (JAXBException | XMLStreamException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Creates data object elements within the current namespace for each data object in the list.
+	 * 
+	 * @param objs
+	 *            data objects
+	 */
+	public void writeDataObjects(List<ScannedDataObject> objs) {
+		if (!namespaceSet) {
+			throw new RuntimeException("Please call beginNamespace() before calling writeDataObjects()");
+		}
+		try {
+			for (ScannedDataObject obj : objs) {
+				marshal(obj);
+			}
+		} catch (JAXBException | XMLStreamException e) {
 			throw new RuntimeException(e);
 		}
-	}	
-}
\ No newline at end of file
+	}
+
+	/**
+	 * Writes a data object element and records its byte range in the index if indexing.
+	 * 
+	 * @param obj
+	 *            data object
+	 * 
+	 * @throws JAXBException
+	 * @throws XMLStreamException
+	 */
+	private void marshal(ScannedDataObject obj) throws JAXBException, XMLStreamException {
+		if (index == null) {
+			writeElement(obj, xsw);
+			return;
+		}
+		long start = flushedCount();
+		writeElement(obj, xsw);
+		long end = flushedCount();
+		index.add(namespace, obj.getName(), start, end - start);
+	}
+
+	/**
+	 * Writes the data-object element of a data object. The element is marshalled with JAXB; subclasses may write it
+	 * differently but must write exactly one data-object element whose first name element is the data object name.
+	 * 
+	 * @param obj
+	 *            data object
+	 * @param writer
+	 *            the stream writer of the document
+	 * 
+	 * @throws JAXBException
+	 * @throws XMLStreamException
+	 */
+	protected void writeElement(ScannedDataObject obj, XMLStreamWriter writer) throws JAXBException,
+			XMLStreamException {
+		marshaller.marshal(obj, writer);
+	}
+
+	/**
+	 * Returns the number of bytes written after pushing all pending output through the character encoder. An empty
+	 * character event closes a pending start tag so that the count is the position of the next element.
+	 * 
+	 * @return number of bytes written.
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private long flushedCount() throws XMLStreamException {
+		xsw.writeCharacters("");
+		xsw.flush();
+		return counter.getCount();
+	}
+
+	/**
+	 * An output stream that counts the bytes written through it. Flushing is not passed on, so that the output can be
+	 * counted after every data object without writing it to the file each time; the stream below flushes on close or
+	 * on {@link #flushFile()}.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+		
+		private long count;
+		
+		CountingOutputStream(OutputStream out, long count) {
+			super(out);
+			this.count = count;
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+		
+		@Override
+		public void flush() {
+			// Flushed on close
+		}
+		
+		void flushFile() throws IOException {
+			out.flush();
+		}
+		
+		long getCount() {
+			return count;
+		}
+	}
+}
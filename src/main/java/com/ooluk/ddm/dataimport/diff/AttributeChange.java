@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.diff;
+
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+
+/**
+ * A difference in one attribute of a data object present in both snapshots. Attributes are matched by name.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class AttributeChange {
+
+	private final ChangeType type;
+	private final ScannedAttribute oldAttribute;
+	private final ScannedAttribute newAttribute;
+
+	/**
+	 * Constructs an AttributeChange.
+	 * 
+	 * @param type
+	 *            kind of change
+	 * @param oldAttribute
+	 *            the attribute in the old snapshot; null for ADDED
+	 * @param newAttribute
+	 *            the attribute in the new snapshot; null for REMOVED
+	 */
+	public AttributeChange(ChangeType type, ScannedAttribute oldAttribute, ScannedAttribute newAttribute) {
+		this.type = type;
+		this.oldAttribute = oldAttribute;
+		this.newAttribute = newAttribute;
+	}
+
+	public ChangeType getType() {
+		return type;
+	}
+
+	public ScannedAttribute getOldAttribute() {
+		return oldAttribute;
+	}
+
+	public ScannedAttribute getNewAttribute() {
+		return newAttribute;
+	}
+
+	/**
+	 * Returns the name of the changed attribute.
+	 * 
+	 * @return attribute name.
+	 */
+	public String getName() {
+		return newAttribute != null ? newAttribute.getName() : oldAttribute.getName();
+	}
+	
+	@Override
+	public String toString() {
+		return type + " " + getName();
+	}
+}
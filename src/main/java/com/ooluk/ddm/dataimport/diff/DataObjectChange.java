@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.diff;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * A difference in one data object between two snapshots. Data objects are matched by namespace and name.
+ * 
+ * <p>
+ * For a MODIFIED data object {@link #isPropertiesChanged()} indicates if any field other than the attributes differs and
+ * {@link #getAttributeChanges()} lists the attributes that were added, removed or modified. ADDED and REMOVED data
+ * objects carry no attribute changes.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class DataObjectChange {
+
+	private final ChangeType type;
+	private final ScannedDataObject oldObject;
+	private final ScannedDataObject newObject;
+	private final boolean propertiesChanged;
+	private final List<AttributeChange> attributeChanges;
+
+	/**
+	 * Constructs a DataObjectChange.
+	 * 
+	 * @param type
+	 *            kind of change
+	 * @param oldObject
+	 *            the data object in the old snapshot; null for ADDED
+	 * @param newObject
+	 *            the data object in the new snapshot; null for REMOVED
+	 * @param propertiesChanged
+	 *            true if fields other than the attributes differ
+	 * @param attributeChanges
+	 *            changes to individual attributes
+	 */
+	public DataObjectChange(ChangeType type, ScannedDataObject oldObject, ScannedDataObject newObject,
+			boolean propertiesChanged, List<AttributeChange> attributeChanges) {
+		this.type = type;
+		this.oldObject = oldObject;
+		this.newObject = newObject;
+		this.propertiesChanged = propertiesChanged;
+		this.attributeChanges = Collections.unmodifiableList(attributeChanges);
+	}
+
+	public ChangeType getType() {
+		return type;
+	}
+
+	public ScannedDataObject getOldObject() {
+		return oldObject;
+	}
+
+	public ScannedDataObject getNewObject() {
+		return newObject;
+	}
+
+	public boolean isPropertiesChanged() {
+		return propertiesChanged;
+	}
+
+	public List<AttributeChange> getAttributeChanges() {
+		return attributeChanges;
+	}
+
+	/**
+	 * Returns the data object from the newer snapshot if present, otherwise from the old snapshot.
+	 * 
+	 * @return the changed data object.
+	 */
+	public ScannedDataObject getDataObject() {
+		return newObject != null ? newObject : oldObject;
+	}
+	
+	@Override
+	public String toString() {
+		return type + " " + getDataObject().getNamespace() + "." + getDataObject().getName() + " " + attributeChanges;
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.diff;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.ooluk.ddm.dataimport.data.Fingerprint;
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.DataObjectReader;
+
+/**
+ * DataObjectDiff compares two metadata snapshots supplied by DataObjectReaders, for example two DIF files or a DIF file
+ * and a live database, and reports the data objects and attributes that were added, removed or modified.
+ * 
+ * <p>
+ * Both snapshots are brought into (namespace, name) order with {@link SortedDataObjectIterator} and compared in a
+ * single sort-merge pass, so memory use is bounded by the sort run size regardless of the snapshot size. Data objects
+ * present in both snapshots are first compared by {@link Fingerprint}; only data objects whose fingerprints differ are
+ * compared attribute by attribute. Attributes are matched by name.
+ * </p>
+ * 
+ * <p>
+ * Example:
+ * 
+ * <pre>
+ * DataObjectDiff diff = new DataObjectDiff();
+ * diff.diff(oldReader, newReader, new DiffListener() {
+ *     public void changed(DataObjectChange change) {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class DataObjectDiff {
+
+	// Default number of data objects held in memory per snapshot while sorting
+	private static final int DEFAULT_RUN_SIZE = 10000;
+
+	private final int runSize;
+	private final Path tempDir;
+
+	/**
+	 * Constructs a DataObjectDiff with the default run size using the system temporary directory for sort runs.
+	 */
+	public DataObjectDiff() {
+		this(DEFAULT_RUN_SIZE, Paths.get(System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * Constructs a DataObjectDiff.
+	 * 
+	 * @param runSize
+	 *            maximum number of data objects per snapshot held in memory while sorting
+	 * @param tempDir
+	 *            directory for temporary sort runs
+	 */
+	public DataObjectDiff(int runSize, Path tempDir) {
+		this.runSize = runSize;
+		this.tempDir = tempDir;
+	}
+
+	/**
+	 * Compares two snapshots. The readers must be initialized; they are not closed by this method.
+	 * 
+	 * @param oldReader
+	 *            reader for the old snapshot
+	 * @param newReader
+	 *            reader for the new snapshot
+	 * @param listener
+	 *            receives the differences in (namespace, name) order
+	 * 
+	 * @return the number of differences reported.
+	 * 
+	 * @throws com.ooluk.ddm.dataimport.ImportException
+	 *             if the snapshots cannot be read or sorted
+	 */
+	public long diff(DataObjectReader oldReader, DataObjectReader newReader, DiffListener listener) {
+
+		long changes = 0;
+		try (SortedDataObjectIterator oldIter = new SortedDataObjectIterator(oldReader, runSize, tempDir);
+				SortedDataObjectIterator newIter = new SortedDataObjectIterator(newReader, runSize, tempDir)) {
+
+			ScannedDataObject oldObj = oldIter.hasNext() ? oldIter.next() : null;
+			ScannedDataObject newObj = newIter.hasNext() ? newIter.next() : null;
+			while (oldObj != null || newObj != null) {
+				int order;
+				if (oldObj == null) {
+					order = 1;
+				} else if (newObj == null) {
+					order = -1;
+				} else {
+					order = SortedDataObjectIterator.ORDER.compare(oldObj, newObj);
+				}
+
+				if (order < 0) {
+					listener.changed(new DataObjectChange(ChangeType.REMOVED, oldObj, null, false, 
+							Collections.<AttributeChange> emptyList()));
+					changes++;
+					oldObj = oldIter.hasNext() ? oldIter.next() : null;
+				} else if (order > 0) {
+					listener.changed(new DataObjectChange(ChangeType.ADDED, null, newObj, false, 
+							Collections.<AttributeChange> emptyList()));
+					changes++;
+					newObj = newIter.hasNext() ? newIter.next() : null;
+				} else {
+					DataObjectChange change = compare(oldObj, newObj);
+					if (change != null) {
+						listener.changed(change);
+						changes++;
+					}
+					oldObj = oldIter.hasNext() ? oldIter.next() : null;
+					newObj = newIter.hasNext() ? newIter.next() : null;
+				}
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Compares two versions of a data object.
+	 * 
+	 * @param oldObj
+	 *            the old version
+	 * @param newObj
+	 *            the new version
+	 * 
+	 * @return the difference or null if the versions are equal.
+	 */
+	public DataObjectChange compare(ScannedDataObject oldObj, ScannedDataObject newObj) {
+
+		if (Fingerprint.of(oldObj).equals(Fingerprint.of(newObj))) {
+			return null;
+		}
+		boolean propertiesChanged = !Fingerprint.ofProperties(oldObj).equals(Fingerprint.ofProperties(newObj));
+		List<AttributeChange> attrChanges = compareAttributes(oldObj.getAttributes(), newObj.getAttributes());
+		if (!propertiesChanged && attrChanges.isEmpty()) {
+			// Only the attribute order differs
+			return null;
+		}
+		return new DataObjectChange(ChangeType.MODIFIED, oldObj, newObj, propertiesChanged, attrChanges);
+	}
+
+	/**
+	 * Compares the attributes of two versions of a data object by name. Changes are listed in the order of the new
+	 * attributes followed by the removed attributes in their old order.
+	 * 
+	 * @param oldAttrs
+	 *            attributes of the old version
+	 * @param newAttrs
+	 *            attributes of the new version
+	 * 
+	 * @return the attribute changes.
+	 */
+	private List<AttributeChange> compareAttributes(List<ScannedAttribute> oldAttrs, List<ScannedAttribute> newAttrs) {
+
+		List<AttributeChange> changes = new ArrayList<>();
+		Map<String, ScannedAttribute> unmatched = new LinkedHashMap<>();
+		if (oldAttrs != null) {
+			for (ScannedAttribute attr : oldAttrs) {
+				unmatched.put(attr.getName(), attr);
+			}
+		}
+		if (newAttrs != null) {
+			for (ScannedAttribute attr : newAttrs) {
+				ScannedAttribute old = unmatched.remove(attr.getName());
+				if (old == null) {
+					changes.add(new AttributeChange(ChangeType.ADDED, null, attr));
+				} else if (!Fingerprint.of(old).equals(Fingerprint.of(attr))) {
+					changes.add(new AttributeChange(ChangeType.MODIFIED, old, attr));
+				}
+			}
+		}
+		for (ScannedAttribute attr : unmatched.values()) {
+			changes.add(new AttributeChange(ChangeType.REMOVED, attr, null));
+		}
+		return changes;
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.diff;
+
+/**
+ * Receives the differences found by {@link DataObjectDiff} in (namespace, name) order. Unchanged data objects are not
+ * reported.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public interface DiffListener {
+
+	/**
+	 * Called for each data object that was added, removed or modified.
+	 * 
+	 * @param change
+	 *            the difference
+	 */
+	public void changed(DataObjectChange change);
+}
@@ -0,0 +1,295 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.diff;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.data.ScannedDataObjectCodec;
+import com.ooluk.ddm.dataimport.workers.DataObjectReader;
+
+/**
+ * Iterates over the data objects of a reader in (namespace, name) order using an external merge sort. Data objects are
+ * read in runs of at most {@code runSize} objects; each run is sorted in memory and, unless the whole input fits in a
+ * single run, spilled to a temporary file in the compact {@link ScannedDataObjectCodec} encoding. The runs are then
+ * merged holding one data object per run in memory.
+ * 
+ * <p>
+ * Temporary files are deleted by {@link #close()}. This class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class SortedDataObjectIterator implements Iterator<ScannedDataObject>, Closeable {
+
+	/**
+	 * Orders data objects by namespace and then by name.
+	 */
+	public static final Comparator<ScannedDataObject> ORDER = new Comparator<ScannedDataObject>() {
+		@Override
+		public int compare(ScannedDataObject o1, ScannedDataObject o2) {
+			int result = nullToEmpty(o1.getNamespace()).compareTo(nullToEmpty(o2.getNamespace()));
+			if (result == 0) {
+				result = nullToEmpty(o1.getName()).compareTo(nullToEmpty(o2.getName()));
+			}
+			return result;
+		}
+	};
+
+	private final DataObjectReader reader;
+	private final int runSize;
+	private final Path tempDir;
+
+	// Temporary run files and their open inputs
+	private final List<Path> runFiles = new ArrayList<>();
+	private final List<DataInputStream> runInputs = new ArrayList<>();
+
+	// Exactly one of the following sources is active once the sort is prepared
+	private Iterator<ScannedDataObject> memory;
+	private PriorityQueue<RunHead> heads;
+
+	private ScannedDataObject next;
+	private boolean prepared = false;
+
+	/**
+	 * Constructs a SortedDataObjectIterator. The reader must be initialized; it is not closed by this iterator.
+	 * 
+	 * @param reader
+	 *            the reader supplying the data objects
+	 * @param runSize
+	 *            maximum number of data objects held in memory while sorting
+	 * @param tempDir
+	 *            directory for temporary run files
+	 */
+	public SortedDataObjectIterator(DataObjectReader reader, int runSize, Path tempDir) {
+		if (runSize < 1) {
+			throw new IllegalArgumentException("Run size must be greater than zero: " + runSize);
+		}
+		this.reader = reader;
+		this.runSize = runSize;
+		this.tempDir = tempDir;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (!prepared) {
+			prepare();
+			prepared = true;
+			next = fetch();
+		}
+		return next != null;
+	}
+
+	@Override
+	public ScannedDataObject next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		ScannedDataObject current = next;
+		next = fetch();
+		return current;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Deletes the temporary run files.
+	 */
+	@Override
+	public void close() {
+		for (DataInputStream in : runInputs) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// Best effort
+			}
+		}
+		runInputs.clear();
+		for (Path file : runFiles) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				// Best effort
+			}
+		}
+		runFiles.clear();
+	}
+
+	/**
+	 * Reads the first run and sorts it in memory if it holds the whole input, otherwise sorts all runs externally.
+	 */
+	private void prepare() {
+		List<ScannedDataObject> run = new ArrayList<>();
+		ScannedDataObject dObj;
+		while (run.size() < runSize && (dObj = reader.read()) != null) {
+			run.add(dObj);
+		}
+		Collections.sort(run, ORDER);
+		if (run.size() < runSize) {
+			memory = run.iterator();
+			return;
+		}
+		spill(run);
+		spillRemaining();
+		merge();
+	}
+
+	/**
+	 * Returns the next data object in order or null at the end.
+	 */
+	private ScannedDataObject fetch() {
+		if (memory != null) {
+			return memory.hasNext() ? memory.next() : null;
+		}
+		return nextMerged();
+	}
+
+	/**
+	 * Reads the remaining data objects in runs and spills each sorted run.
+	 */
+	private void spillRemaining() {
+		List<ScannedDataObject> run = new ArrayList<>(runSize);
+		ScannedDataObject dObj;
+		while ((dObj = reader.read()) != null) {
+			run.add(dObj);
+			if (run.size() == runSize) {
+				Collections.sort(run, ORDER);
+				spill(run);
+				run.clear();
+			}
+		}
+		if (!run.isEmpty()) {
+			Collections.sort(run, ORDER);
+			spill(run);
+		}
+	}
+
+	/**
+	 * Writes a sorted run to a temporary file.
+	 */
+	private void spill(List<ScannedDataObject> run) {
+		try {
+			Path file = Files.createTempFile(tempDir, "dobj-run", ".tmp");
+			runFiles.add(file);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+				for (ScannedDataObject dObj : run) {
+					ScannedDataObjectCodec.write(out, dObj);
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * Opens all runs and primes the merge queue with the first data object of each.
+	 */
+	private void merge() {
+		heads = new PriorityQueue<>(Math.max(1, runFiles.size()), new Comparator<RunHead>() {
+			@Override
+			public int compare(RunHead h1, RunHead h2) {
+				int result = ORDER.compare(h1.dObj, h2.dObj);
+				// Keep the input order for equal keys
+				return result != 0 ? result : Integer.compare(h1.run, h2.run);
+			}
+		});
+		try {
+			for (int i = 0; i < runFiles.size(); i++) {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runFiles.get(i))));
+				runInputs.add(in);
+				RunHead head = new RunHead(i, in);
+				if (head.advance()) {
+					heads.add(head);
+				}
+			}
+		} catch (IOException e) {
+			close();
+			throw new ImportException(e);
+		}
+	}
+
+	private ScannedDataObject nextMerged() {
+		RunHead head = heads.poll();
+		if (head == null) {
+			return null;
+		}
+		ScannedDataObject dObj = head.dObj;
+		try {
+			if (head.advance()) {
+				heads.add(head);
+			}
+		} catch (IOException e) {
+			close();
+			throw new ImportException(e);
+		}
+		return dObj;
+	}
+
+	private static String nullToEmpty(String value) {
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * The current data object of one run during the merge.
+	 */
+	private static class RunHead {
+
+		private final int run;
+		private final DataInputStream in;
+		private ScannedDataObject dObj;
+
+		RunHead(int run, DataInputStream in) {
+			this.run = run;
+			this.in = in;
+		}
+
+		/**
+		 * Reads the next data object of the run.
+		 * 
+		 * @return true if a data object was read; false at the end of the run.
+		 */
+		boolean advance() throws IOException {
+			try {
+				dObj = ScannedDataObjectCodec.read(in);
+				return true;
+			} catch (EOFException e) {
+				dObj = null;
+				return false;
+			}
+		}
+	}
+}
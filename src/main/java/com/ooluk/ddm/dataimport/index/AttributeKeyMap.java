@@ -0,0 +1,175 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.index;
+
+import java.util.Arrays;
+
+import com.ooluk.ddm.dataimport.data.Fingerprint;
+
+/**
+ * An open addressing hash map from 128-bit {@link Fingerprint} keys to non-negative int values. Keys and values are
+ * held in parallel primitive arrays, so an entry costs 20 bytes at full load instead of an entry object, a boxed value
+ * and a key string. This makes it suitable for indexing millions of attribute identities.
+ * 
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class AttributeKeyMap {
+
+	// Value marking an empty slot
+	private static final int EMPTY = -1;
+
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] highs;
+	private long[] lows;
+	private int[] values;
+	private int mask;
+	private int size = 0;
+	private int threshold;
+
+	/**
+	 * Constructs an empty map.
+	 */
+	public AttributeKeyMap() {
+		this(1024);
+	}
+
+	/**
+	 * Constructs an empty map sized for the expected number of entries.
+	 * 
+	 * @param expected
+	 *            expected number of entries
+	 */
+	public AttributeKeyMap(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		highs = new long[capacity];
+		lows = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, EMPTY);
+		mask = capacity - 1;
+		threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Associates a value with a key.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            a non-negative value
+	 * 
+	 * @return the previous value or -1 if the key was not present.
+	 */
+	public int put(Fingerprint key, int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Value must not be negative: " + value);
+		}
+		if (size >= threshold) {
+			resize();
+		}
+		long high = key.getHigh();
+		long low = key.getLow();
+		int slot = slot(high, low);
+		while (values[slot] != EMPTY) {
+			if (highs[slot] == high && lows[slot] == low) {
+				int previous = values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+		highs[slot] = high;
+		lows[slot] = low;
+		values[slot] = value;
+		size++;
+		return EMPTY;
+	}
+
+	/**
+	 * Returns the value associated with a key.
+	 * 
+	 * @param key
+	 *            the key
+	 * 
+	 * @return the value or -1 if the key is not present.
+	 */
+	public int get(Fingerprint key) {
+		long high = key.getHigh();
+		long low = key.getLow();
+		int slot = slot(high, low);
+		while (values[slot] != EMPTY) {
+			if (highs[slot] == high && lows[slot] == low) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * Determines if a key is present.
+	 * 
+	 * @param key
+	 *            the key
+	 * 
+	 * @return true if the key is present; false otherwise.
+	 */
+	public boolean containsKey(Fingerprint key) {
+		return get(key) != EMPTY;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return number of entries.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int slot(long high, long low) {
+		// Fingerprint bits are well mixed so folding is sufficient
+		long h = high ^ low;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void resize() {
+		long[] oldHighs = highs;
+		long[] oldLows = lows;
+		int[] oldValues = values;
+		allocate(oldValues.length * 2);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != EMPTY) {
+				int slot = slot(oldHighs[i], oldLows[i]);
+				while (values[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				highs[slot] = oldHighs[i];
+				lows[slot] = oldLows[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.index;
+
+/**
+ * An attribute reference whose target attribute was not found in the import.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * @see ReferenceIndex
+ */
+public class DanglingReference {
+
+	/**
+	 * The attribute field holding the reference.
+	 */
+	public enum Type {
+		
+		/*
+		 * ScannedAttribute.getParentAttribute() - foreign key parent
+		 */
+		PARENT_ATTRIBUTE,
+		
+		/*
+		 * ScannedAttribute.getLocalSources() - attribute source
+		 */
+		SOURCE
+	}
+
+	private final Type type;
+	private final String namespace;
+	private final String objectName;
+	private final String attributeName;
+	private final String target;
+
+	/**
+	 * Constructs a DanglingReference.
+	 * 
+	 * @param type
+	 *            the attribute field holding the reference
+	 * @param namespace
+	 *            namespace of the data object holding the reference
+	 * @param objectName
+	 *            name of the data object holding the reference
+	 * @param attributeName
+	 *            name of the attribute holding the reference
+	 * @param target
+	 *            the unresolved target as namespace.object.attribute
+	 */
+	public DanglingReference(Type type, String namespace, String objectName, String attributeName, String target) {
+		this.type = type;
+		this.namespace = namespace;
+		this.objectName = objectName;
+		this.attributeName = attributeName;
+		this.target = target;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getNamespace() {
+		return namespace;
+	}
+
+	public String getObjectName() {
+		return objectName;
+	}
+
+	public String getAttributeName() {
+		return attributeName;
+	}
+
+	public String getTarget() {
+		return target;
+	}
+
+	@Override
+	public String toString() {
+		return namespace + "." + objectName + "." + attributeName + " -> " + target + " (" + type + ")";
+	}
+}
@@ -0,0 +1,240 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.ooluk.ddm.dataimport.data.Fingerprint;
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+import com.ooluk.ddm.dataimport.data.ScannedAttributeSource;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * ReferenceIndex indexes the identities of all attributes of an import and resolves the attribute references held in
+ * {@link ScannedAttribute#getParentAttribute()} and {@link ScannedAttribute#getLocalSources()} across data objects.
+ * 
+ * <p>
+ * Data objects are added as they stream through the import. Each attribute identity (namespace, data object name,
+ * attribute name) is stored as a 128-bit {@link Fingerprint} in an {@link AttributeKeyMap} and assigned a sequential
+ * id. A reference whose target has already been indexed is resolved immediately. Other references are kept pending as
+ * a fingerprint in primitive arrays plus a description packed into a shared character buffer, and are resolved by
+ * {@link #finish()} once the stream has ended. Only the references still unresolved then are turned into
+ * {@link DanglingReference} objects.
+ * </p>
+ * 
+ * <p>
+ * Parent attributes are specified as namespace.object.attribute where the namespace may itself contain dots. This
+ * class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class ReferenceIndex {
+
+	// Separates the packed fields of a pending reference
+	private static final char SEPARATOR = '\0';
+
+	private final AttributeKeyMap attributes;
+
+	// Pending references: target fingerprint, reference type and start of the packed description
+	private long[] pendingHighs = new long[256];
+	private long[] pendingLows = new long[256];
+	private byte[] pendingTypes = new byte[256];
+	private int[] pendingText = new int[256];
+	private int pendingCount = 0;
+	private StringBuilder pendingChars = new StringBuilder();
+
+	private long references = 0;
+	private long resolved = 0;
+	private List<DanglingReference> dangling;
+
+	/**
+	 * Constructs an empty ReferenceIndex.
+	 */
+	public ReferenceIndex() {
+		this(1024);
+	}
+
+	/**
+	 * Constructs an empty ReferenceIndex sized for the expected number of attributes.
+	 * 
+	 * @param expectedAttributes
+	 *            expected number of attributes in the import
+	 */
+	public ReferenceIndex(int expectedAttributes) {
+		attributes = new AttributeKeyMap(expectedAttributes);
+	}
+
+	/**
+	 * Indexes the attributes of a data object and resolves its references.
+	 * 
+	 * @param dObj
+	 *            the data object
+	 * 
+	 * @throws IllegalStateException
+	 *             if the index has been finished
+	 */
+	public void add(ScannedDataObject dObj) {
+		if (dangling != null) {
+			throw new IllegalStateException("Reference index already finished");
+		}
+		List<ScannedAttribute> attrs = dObj.getAttributes();
+		if (attrs == null) {
+			return;
+		}
+		// Index all attributes first so references within the data object resolve immediately
+		for (ScannedAttribute attr : attrs) {
+			attributes.put(Fingerprint.ofIdentity(dObj.getNamespace(), dObj.getName(), attr.getName()), 
+					attributes.size());
+		}
+		for (ScannedAttribute attr : attrs) {
+			String parent = attr.getParentAttribute();
+			if (parent != null && !parent.isEmpty()) {
+				int attrDot = parent.lastIndexOf('.');
+				int objDot = attrDot > 0 ? parent.lastIndexOf('.', attrDot - 1) : -1;
+				String namespace = objDot < 0 ? "" : parent.substring(0, objDot);
+				String object = attrDot < 0 ? "" : parent.substring(objDot + 1, attrDot);
+				String name = parent.substring(attrDot + 1);
+				reference(DanglingReference.Type.PARENT_ATTRIBUTE, dObj, attr, 
+						Fingerprint.ofIdentity(namespace, object, name), parent);
+			}
+			List<ScannedAttributeSource> sources = attr.getLocalSources();
+			if (sources != null) {
+				for (ScannedAttributeSource source : sources) {
+					Fingerprint target = Fingerprint.ofIdentity(source.getNamespace(), source.getObjectName(), 
+							source.getAttributeName());
+					reference(DanglingReference.Type.SOURCE, dObj, attr, target, 
+							source.getNamespace() + "." + source.getObjectName() + "." + source.getAttributeName());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolves a reference immediately or keeps it pending.
+	 */
+	private void reference(DanglingReference.Type type, ScannedDataObject dObj, ScannedAttribute attr,
+			Fingerprint target, String targetText) {
+		references++;
+		if (attributes.containsKey(target)) {
+			resolved++;
+			return;
+		}
+		if (pendingCount == pendingHighs.length) {
+			int capacity = pendingCount * 2;
+			pendingHighs = Arrays.copyOf(pendingHighs, capacity);
+			pendingLows = Arrays.copyOf(pendingLows, capacity);
+			pendingTypes = Arrays.copyOf(pendingTypes, capacity);
+			pendingText = Arrays.copyOf(pendingText, capacity);
+		}
+		pendingHighs[pendingCount] = target.getHigh();
+		pendingLows[pendingCount] = target.getLow();
+		pendingTypes[pendingCount] = (byte) type.ordinal();
+		pendingText[pendingCount] = pendingChars.length();
+		pendingChars.append(dObj.getNamespace()).append(SEPARATOR)
+				.append(dObj.getName()).append(SEPARATOR)
+				.append(attr.getName()).append(SEPARATOR)
+				.append(targetText);
+		pendingCount++;
+	}
+
+	/**
+	 * Resolves the pending references against all attributes indexed and releases the pending storage. No data objects
+	 * can be added afterwards.
+	 * 
+	 * @return the references whose target attribute is not part of the import.
+	 */
+	public List<DanglingReference> finish() {
+		if (dangling != null) {
+			return dangling;
+		}
+		List<DanglingReference> result = new ArrayList<>();
+		DanglingReference.Type[] types = DanglingReference.Type.values();
+		for (int i = 0; i < pendingCount; i++) {
+			if (attributes.containsKey(new Fingerprint(pendingHighs[i], pendingLows[i]))) {
+				resolved++;
+				continue;
+			}
+			int end = i + 1 < pendingCount ? pendingText[i + 1] : pendingChars.length();
+			String[] parts = pendingChars.substring(pendingText[i], end).split(String.valueOf(SEPARATOR), 4);
+			result.add(new DanglingReference(types[pendingTypes[i]], parts[0], parts[1], parts[2], parts[3]));
+		}
+		pendingHighs = null;
+		pendingLows = null;
+		pendingTypes = null;
+		pendingText = null;
+		pendingChars = null;
+		pendingCount = 0;
+		dangling = Collections.unmodifiableList(result);
+		return dangling;
+	}
+
+	/**
+	 * Returns the id of an attribute. Ids are assigned sequentially from zero in the order attributes are indexed.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param objectName
+	 *            name of the data object
+	 * @param attributeName
+	 *            name of the attribute
+	 * 
+	 * @return the attribute id or -1 if the attribute has not been indexed.
+	 */
+	public int resolve(String namespace, String objectName, String attributeName) {
+		return attributes.get(Fingerprint.ofIdentity(namespace, objectName, attributeName));
+	}
+
+	/**
+	 * Returns the number of attributes indexed.
+	 * 
+	 * @return number of attributes.
+	 */
+	public int getAttributeCount() {
+		return attributes.size();
+	}
+
+	/**
+	 * Returns the number of references found.
+	 * 
+	 * @return number of references.
+	 */
+	public long getReferenceCount() {
+		return references;
+	}
+
+	/**
+	 * Returns the number of references resolved so far.
+	 * 
+	 * @return number of resolved references.
+	 */
+	public long getResolvedCount() {
+		return resolved;
+	}
+
+	/**
+	 * Returns the dangling references found by {@link #finish()}.
+	 * 
+	 * @return dangling references, or null if the index has not been finished.
+	 */
+	public List<DanglingReference> getDanglingReferences() {
+		return dangling;
+	}
+}
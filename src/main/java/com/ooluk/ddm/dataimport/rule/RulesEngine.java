@@ -18,6 +18,7 @@ package com.ooluk.ddm.dataimport.rule;
 import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.regex.Pattern;
 
 /**
  * The rules engine processes a rule by evaluating the embedded expressions. Expressions are specified between [! and
@@ -41,6 +42,10 @@ public final class RulesEngine {
 	private static final String EXPR_BEGIN = "[!";
 	private static final String EXPR_END = "!]";	
 	
+	// Operators of an arithmetic expression and the grammar of a valid expression (see isValid())
+	private static final Pattern OPERATOR = Pattern.compile("\\+|-");
+	private static final Pattern VALID_EXPR = Pattern.compile("(\\d)+((\\+|-)(\\d)+)*");
+	
 	/**
 	 * Make the class uninstantiable.
 	 */
@@ -101,7 +106,7 @@ public final class RulesEngine {
     		throw new RuntimeException(MessageFormat.format("Invalid expression \"{0}\"", expr));
     	}
     	
-    	LinkedList<String> numbers = new LinkedList<>(Arrays.asList(expr.split("\\+|-")));
+    	LinkedList<String> numbers = new LinkedList<>(Arrays.asList(OPERATOR.split(expr)));
     	int result = Integer.parseInt(numbers.poll().trim());
     	for (int i = 0; i < expr.length(); i++) {
     		char ch = expr.charAt(i);
@@ -140,6 +145,6 @@ public final class RulesEngine {
 	 * @return true if the expression is valid, false otherwise.
 	 */
     public static boolean isValid(String expr) {
-    	return expr.matches("(\\d)+((\\+|-)(\\d)+)*");
+    	return VALID_EXPR.matcher(expr).matches();
     }
 }
\ No newline at end of file
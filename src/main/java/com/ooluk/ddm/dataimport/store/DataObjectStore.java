@@ -0,0 +1,415 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.data.ScannedDataObjectCodec;
+import com.ooluk.ddm.dataimport.workers.DataObjectReader;
+
+/**
+ * DataObjectStore holds the data objects of an import outside the Java heap. Data objects are appended to a
+ * memory-mapped file in the compact {@link ScannedDataObjectCodec} encoding and located through an index from
+ * (namespace, name) to file offset. Only the index lives on the heap; the operating system pages the data in and out as
+ * required, so catalogs much larger than the heap can be accessed randomly.
+ * 
+ * <p>
+ * Data objects are read back through {@link DataObjectView}s that decode the data object fields on first use and
+ * individual attributes on request. A view can be repositioned on another data object so that a single instance can
+ * serve a whole scan.
+ * </p>
+ * 
+ * <p>
+ * Each record has the following layout:
+ * 
+ * <pre>
+ * int   length of the encoded data object fields
+ * byte  encoded data object fields
+ * int   number of attributes (-1 for a null attribute list)
+ * int   offset of each attribute relative to the first attribute
+ * byte  encoded attributes
+ * </pre>
+ * 
+ * <p>
+ * The file is mapped in segments; a record never spans two segments. Storing a data object with the namespace and name
+ * of a stored data object replaces it in the index. This class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class DataObjectStore implements Closeable {
+
+	// Default size of each mapped segment
+	private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private final Path file;
+	private final boolean deleteOnClose;
+	private final int segmentSize;
+	private final FileChannel channel;
+
+	// Mapped segments keyed by their file offset
+	private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+	private MappedByteBuffer current;
+	private long currentBase = 0;
+	private long mappedEnd = 0;
+
+	// (namespace, name) -> record offset
+	private final Map<String, Map<String, Long>> index = new HashMap<>();
+
+	// Record offsets in the order stored
+	private long[] offsets = new long[1024];
+	private int count = 0;
+
+	// Reusable encoding buffers
+	private final Buffer propsBuf = new Buffer();
+	private final DataOutputStream propsOut = new DataOutputStream(propsBuf);
+	private final Buffer attrsBuf = new Buffer();
+	private final DataOutputStream attrsOut = new DataOutputStream(attrsBuf);
+
+	/**
+	 * Constructs a DataObjectStore backed by the specified file. An existing file is truncated.
+	 * 
+	 * @param file
+	 *            the backing file
+	 * 
+	 * @throws ImportException
+	 *             if the file cannot be opened
+	 */
+	public DataObjectStore(Path file) {
+		this(file, DEFAULT_SEGMENT_SIZE, false);
+	}
+
+	/**
+	 * Constructs a DataObjectStore backed by the specified file. An existing file is truncated.
+	 * 
+	 * @param file
+	 *            the backing file
+	 * @param segmentSize
+	 *            size in bytes of each mapped segment
+	 * @param deleteOnClose
+	 *            true to delete the file when the store is closed
+	 * 
+	 * @throws ImportException
+	 *             if the file cannot be opened
+	 */
+	public DataObjectStore(Path file, int segmentSize, boolean deleteOnClose) {
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException("Segment size must be greater than zero: " + segmentSize);
+		}
+		this.file = file;
+		this.segmentSize = segmentSize;
+		this.deleteOnClose = deleteOnClose;
+		try {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * Creates a store backed by a temporary file that is deleted when the store is closed.
+	 * 
+	 * @param dir
+	 *            directory for the temporary file
+	 * 
+	 * @return a new store.
+	 * 
+	 * @throws ImportException
+	 *             if the file cannot be created
+	 */
+	public static DataObjectStore createTemporary(Path dir) {
+		try {
+			return new DataObjectStore(Files.createTempFile(dir, "dobj-store", ".tmp"), DEFAULT_SEGMENT_SIZE, true);
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * Appends a data object to the store.
+	 * 
+	 * @param dObj
+	 *            the data object
+	 * 
+	 * @return the offset of the stored record.
+	 * 
+	 * @throws ImportException
+	 *             if the file cannot be extended
+	 */
+	public long put(ScannedDataObject dObj) {
+
+		List<ScannedAttribute> attributes = dObj.getAttributes();
+		int attrCount = attributes == null ? -1 : attributes.size();
+		int[] attrOffsets = new int[Math.max(attrCount, 0)];
+		try {
+			propsBuf.reset();
+			ScannedDataObjectCodec.writeProperties(propsOut, dObj);
+			propsOut.flush();
+			attrsBuf.reset();
+			for (int i = 0; i < attrOffsets.length; i++) {
+				attrOffsets[i] = attrsBuf.size();
+				ScannedDataObjectCodec.writeAttribute(attrsOut, attributes.get(i));
+			}
+			attrsOut.flush();
+		} catch (IOException e) {
+			// Not expected for in-memory buffers
+			throw new ImportException(e);
+		}
+
+		int length = 4 + propsBuf.size() + 4 + 4 * attrOffsets.length + attrsBuf.size();
+		reserve(length);
+		long offset = currentBase + current.position();
+		current.putInt(propsBuf.size());
+		current.put(propsBuf.array(), 0, propsBuf.size());
+		current.putInt(attrCount);
+		for (int attrOffset : attrOffsets) {
+			current.putInt(attrOffset);
+		}
+		current.put(attrsBuf.array(), 0, attrsBuf.size());
+
+		Map<String, Long> names = index.get(dObj.getNamespace());
+		if (names == null) {
+			names = new HashMap<>();
+			index.put(dObj.getNamespace(), names);
+		}
+		names.put(dObj.getName(), offset);
+		if (count == offsets.length) {
+			offsets = Arrays.copyOf(offsets, count * 2);
+		}
+		offsets[count++] = offset;
+		return offset;
+	}
+
+	/**
+	 * Appends all data objects of a reader to the store. The reader must be initialized; it is not closed by this
+	 * method.
+	 * 
+	 * @param reader
+	 *            the reader
+	 * 
+	 * @return the number of data objects stored.
+	 */
+	public long putAll(DataObjectReader reader) {
+		long stored = 0;
+		ScannedDataObject dObj;
+		while ((dObj = reader.read()) != null) {
+			put(dObj);
+			stored++;
+		}
+		return stored;
+	}
+
+	/**
+	 * Ensures the current segment has room for a record, mapping a new segment if required.
+	 * 
+	 * @param length
+	 *            record length in bytes
+	 */
+	private void reserve(int length) {
+		if (current != null && current.remaining() >= length) {
+			return;
+		}
+		int size = Math.max(segmentSize, length);
+		try {
+			current = channel.map(FileChannel.MapMode.READ_WRITE, mappedEnd, size);
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+		currentBase = mappedEnd;
+		segments.put(currentBase, current);
+		mappedEnd += size;
+	}
+
+	/**
+	 * Determines if the store holds a data object.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param name
+	 *            name of the data object
+	 * 
+	 * @return true if the data object is stored; false otherwise.
+	 */
+	public boolean contains(String namespace, String name) {
+		return getOffset(namespace, name) >= 0;
+	}
+
+	/**
+	 * Returns a view of a stored data object.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param name
+	 *            name of the data object
+	 * 
+	 * @return a view of the data object or null if it is not stored.
+	 */
+	public DataObjectView get(String namespace, String name) {
+		return get(namespace, name, null);
+	}
+
+	/**
+	 * Positions a view on a stored data object. The view passed in is reused if not null, avoiding an allocation per
+	 * lookup.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param name
+	 *            name of the data object
+	 * @param reuse
+	 *            a view to reposition, or null to create a new view
+	 * 
+	 * @return the positioned view or null if the data object is not stored.
+	 */
+	public DataObjectView get(String namespace, String name, DataObjectView reuse) {
+		long offset = getOffset(namespace, name);
+		return offset < 0 ? null : get(offset, reuse);
+	}
+
+	/**
+	 * Positions a view on the record at the specified offset.
+	 * 
+	 * @param offset
+	 *            record offset returned by {@link #put(ScannedDataObject)}
+	 * @param reuse
+	 *            a view to reposition, or null to create a new view
+	 * 
+	 * @return the positioned view.
+	 */
+	public DataObjectView get(long offset, DataObjectView reuse) {
+		Map.Entry<Long, MappedByteBuffer> segment = segments.floorEntry(offset);
+		if (segment == null || offset >= mappedEnd) {
+			throw new IllegalArgumentException("Invalid record offset: " + offset);
+		}
+		DataObjectView view = reuse != null ? reuse : new DataObjectView();
+		view.position(segment.getValue(), (int) (offset - segment.getKey()), offset);
+		return view;
+	}
+
+	private long getOffset(String namespace, String name) {
+		Map<String, Long> names = index.get(namespace);
+		if (names == null) {
+			return -1;
+		}
+		Long offset = names.get(name);
+		return offset == null ? -1 : offset;
+	}
+
+	/**
+	 * Returns the views of all stored records in the order stored. The iterator repositions and returns the same view
+	 * instance on each call to next(); copy what is needed before advancing.
+	 * 
+	 * @return an iterable over flyweight views.
+	 */
+	public Iterable<DataObjectView> views() {
+		return new Iterable<DataObjectView>() {
+			@Override
+			public Iterator<DataObjectView> iterator() {
+				return new Iterator<DataObjectView>() {
+					private final DataObjectView view = new DataObjectView();
+					private int next = 0;
+
+					@Override
+					public boolean hasNext() {
+						return next < count;
+					}
+
+					@Override
+					public DataObjectView next() {
+						if (next >= count) {
+							throw new NoSuchElementException();
+						}
+						return get(offsets[next++], view);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of records stored, including data objects replaced by a later record with the same namespace
+	 * and name.
+	 * 
+	 * @return number of records.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Returns the backing file.
+	 * 
+	 * @return backing file path.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Closes the backing file and deletes it if the store is temporary. Views must not be used after the store is
+	 * closed.
+	 */
+	@Override
+	public void close() {
+		segments.clear();
+		current = null;
+		index.clear();
+		count = 0;
+		try {
+			channel.close();
+			if (deleteOnClose) {
+				Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * A ByteArrayOutputStream exposing its buffer to avoid a copy per record.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+		byte[] array() {
+			return buf;
+		}
+	}
+
+}
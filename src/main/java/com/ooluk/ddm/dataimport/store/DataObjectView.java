@@ -0,0 +1,229 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.store;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.data.ScannedDataObjectCodec;
+
+/**
+ * A lazy, repositionable view of a data object held in a {@link DataObjectStore}. The data object fields are decoded on
+ * first access; attributes are decoded individually on each request and are not retained. Views are obtained from the
+ * store and are only valid while the store is open.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class DataObjectView {
+
+	// Segment holding the record. Only absolute reads are made on it; decoding uses a duplicate.
+	private ByteBuffer buffer;
+
+	// Record position within the segment and within the file
+	private int start;
+	private long offset;
+
+	// Decoded data object fields, without attributes
+	private ScannedDataObject properties;
+
+	/**
+	 * Views are created by {@link DataObjectStore}.
+	 */
+	DataObjectView() {
+	}
+
+	/**
+	 * Positions the view on a record.
+	 * 
+	 * @param segment
+	 *            the segment holding the record
+	 * @param start
+	 *            record position within the segment
+	 * @param offset
+	 *            record offset within the file
+	 */
+	void position(ByteBuffer segment, int start, long offset) {
+		this.buffer = segment;
+		this.start = start;
+		this.offset = offset;
+		this.properties = null;
+	}
+
+	/**
+	 * Returns the offset of the record within the store.
+	 * 
+	 * @return record offset.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Returns the namespace of the data object.
+	 * 
+	 * @return namespace.
+	 */
+	public String getNamespace() {
+		return getProperties().getNamespace();
+	}
+
+	/**
+	 * Returns the name of the data object.
+	 * 
+	 * @return name.
+	 */
+	public String getName() {
+		return getProperties().getName();
+	}
+
+	/**
+	 * Returns the data object fields. The attribute list of the returned data object is empty; use
+	 * {@link #getAttribute(int)} or {@link #toDataObject()} for attributes. The returned object is shared by the view
+	 * until it is repositioned and must not be modified.
+	 * 
+	 * @return the data object without attributes.
+	 */
+	public ScannedDataObject getProperties() {
+		if (properties == null) {
+			properties = decode(start + 4, new Decoder<ScannedDataObject>() {
+				@Override
+				public ScannedDataObject decode(DataInputStream in) throws IOException {
+					return ScannedDataObjectCodec.readProperties(in);
+				}
+			});
+		}
+		return properties;
+	}
+
+	/**
+	 * Returns the number of attributes of the data object.
+	 * 
+	 * @return number of attributes, or -1 if the data object had a null attribute list.
+	 */
+	public int getAttributeCount() {
+		return buffer.getInt(attributeTable() - 4);
+	}
+
+	/**
+	 * Decodes an attribute of the data object.
+	 * 
+	 * @param index
+	 *            zero based attribute index
+	 * 
+	 * @return a new instance of the attribute.
+	 */
+	public ScannedAttribute getAttribute(int index) {
+		int attrCount = getAttributeCount();
+		if (index < 0 || index >= attrCount) {
+			throw new IndexOutOfBoundsException("Attribute index " + index + " of " + attrCount);
+		}
+		int table = attributeTable();
+		int position = table + 4 * attrCount + buffer.getInt(table + 4 * index);
+		return decode(position, new Decoder<ScannedAttribute>() {
+			@Override
+			public ScannedAttribute decode(DataInputStream in) throws IOException {
+				return ScannedDataObjectCodec.readAttribute(in);
+			}
+		});
+	}
+
+	/**
+	 * Decodes the complete data object including its attributes.
+	 * 
+	 * @return a new instance of the data object.
+	 */
+	public ScannedDataObject toDataObject() {
+		ScannedDataObject dObj = decode(start + 4, new Decoder<ScannedDataObject>() {
+			@Override
+			public ScannedDataObject decode(DataInputStream in) throws IOException {
+				return ScannedDataObjectCodec.readProperties(in);
+			}
+		});
+		int attrCount = getAttributeCount();
+		if (attrCount < 0) {
+			dObj.setAttributes(null);
+		} else {
+			List<ScannedAttribute> attributes = new ArrayList<>(attrCount);
+			for (int i = 0; i < attrCount; i++) {
+				attributes.add(getAttribute(i));
+			}
+			dObj.setAttributes(attributes);
+		}
+		return dObj;
+	}
+
+	/**
+	 * Returns the segment position of the attribute offset table.
+	 */
+	private int attributeTable() {
+		return start + 4 + buffer.getInt(start) + 4;
+	}
+
+	private <T> T decode(int position, Decoder<T> decoder) {
+		ByteBuffer in = buffer.duplicate();
+		in.position(position);
+		try {
+			return decoder.decode(new DataInputStream(new ByteBufferInputStream(in)));
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * Decodes a value from a record.
+	 */
+	private interface Decoder<T> {
+		T decode(DataInputStream in) throws IOException;
+	}
+
+	/**
+	 * An InputStream reading from the current position of a ByteBuffer.
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(bytes, off, n);
+			return n;
+		}
+	}
+}
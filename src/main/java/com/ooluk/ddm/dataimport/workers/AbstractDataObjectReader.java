@@ -17,6 +17,10 @@ package com.ooluk.ddm.dataimport.workers;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -24,6 +28,7 @@ import org.apache.logging.log4j.Logger;
 import com.ooluk.ddm.dataimport.ImportException;
 import com.ooluk.ddm.dataimport.MessageKey;
 import com.ooluk.ddm.dataimport.Messages;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 
 /**
  * An abstract implementation of DataObjectReader to provide common functionality. 
@@ -36,6 +41,9 @@ public abstract class AbstractDataObjectReader implements DataObjectReader {
 	
 	private static final String NEW_LINE = System.getProperty("line.separator");
 	
+	// Initial capacity limit of a batch list
+	private static final int MAX_BATCH_CAPACITY = 1024;
+	
 	private final Logger log = LogManager.getLogger();
     
 	// Reader name
@@ -62,6 +70,66 @@ public abstract class AbstractDataObjectReader implements DataObjectReader {
     	this.writer = writer;
     }
 
+	/**
+	 * Creates an empty list to hold a batch of data objects after validating the batch size. The initial capacity is
+	 * capped since {@code max} is only an upper bound. This method is shared with {@link DataObjectReader#read(int)}.
+	 * 
+	 * @param max
+	 *            maximum number of data objects in the batch
+	 * 
+	 * @return an empty list for the batch.
+	 */
+	protected static List<ScannedDataObject> createBatch(int max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("Batch size must be greater than zero: " + max);
+		}
+		return new ArrayList<>(Math.min(max, MAX_BATCH_CAPACITY));
+	}
+
+	@Override
+	public Stream<ScannedDataObject> stream() {
+		final DataObjectSpliterator spliterator = new DataObjectSpliterator(this);
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				spliterator.closeSplits();
+			}
+		});
+	}
+
+	/**
+	 * Splits off the data objects this reader would return next into a new, initialized reader, leaving this reader to
+	 * continue after them. The part handed over must be a prefix of the remaining data objects so that the encounter
+	 * order of a stream is preserved. Readers that cannot split their source, or can no longer split it because reading
+	 * has started, return null, which is the default.
+	 * 
+	 * @return a reader for the split off part, or null if this reader cannot be split.
+	 */
+	protected AbstractDataObjectReader trySplit() {
+		return null;
+	}
+
+	/**
+	 * Returns an estimate of the number of data objects not yet read, or {@link Long#MAX_VALUE} if unknown.
+	 * 
+	 * @return estimated number of remaining data objects.
+	 */
+	protected long estimateRemaining() {
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * Copies the worker settings (name and status log) of this reader to a reader created by {@link #trySplit()}.
+	 * Subclasses that add settings must extend this method.
+	 * 
+	 * @param split
+	 *            the reader created by splitting this reader
+	 */
+	protected void copySettings(AbstractDataObjectReader split) {
+		split.name = name;
+		split.writer = writer;
+	}
+
 	/**
 	 * Appends a new status message to the status log. Status messages are not created for TypeMode. The method silently
 	 * ignores status messages for TypeMode.
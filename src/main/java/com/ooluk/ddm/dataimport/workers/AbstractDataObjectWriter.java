@@ -22,6 +22,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 
 /**
  * An abstract implementation of DataObjectWriter to provide common functionality. 
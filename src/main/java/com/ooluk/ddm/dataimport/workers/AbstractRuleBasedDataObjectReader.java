@@ -65,4 +65,13 @@ public abstract class AbstractRuleBasedDataObjectReader
     public void setRuleStore(RuleStore ruleStore) {
 		this.ruleStore = ruleStore;
 	}
+
+	@Override
+	protected void copySettings(AbstractDataObjectReader split) {
+		super.copySettings(split);
+		AbstractRuleBasedDataObjectReader ruleBased = (AbstractRuleBasedDataObjectReader) split;
+		ruleBased.namespacePrefix = namespacePrefix;
+		ruleBased.ruleGroup = ruleGroup;
+		ruleBased.ruleStore = ruleStore;
+	}
 }
\ No newline at end of file
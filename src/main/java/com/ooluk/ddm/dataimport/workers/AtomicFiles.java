@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * AtomicFiles replaces the content of state files, such as checkpoints, manifests and indexes, so that a reader of the
+ * file sees either the previous or the new content but never a partly written file. The content is written to a
+ * temporary file in the same directory which is then moved over the target, atomically where the file system allows
+ * it.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public final class AtomicFiles {
+
+	/**
+	 * Writes content to an output stream.
+	 * 
+	 * @param <T>
+	 *            the type of the output
+	 */
+	public interface IOConsumer<T> {
+
+		/**
+		 * Writes the content.
+		 * 
+		 * @param out
+		 *            the output to write to
+		 * 
+		 * @throws IOException
+		 */
+		void accept(T out) throws IOException;
+	}
+
+	private AtomicFiles() {
+	}
+
+	/**
+	 * Replaces the content of a file. The temporary file is named after the target with the suffix ".tmp" and is
+	 * deleted if writing fails.
+	 * 
+	 * @param file
+	 *            the file to replace
+	 * @param content
+	 *            writes the new content of the file
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void replace(Path file, IOConsumer<OutputStream> content) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				content.accept(out);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.io.Writer;
+import java.util.Map;
+
+import com.ooluk.ddm.dataimport.MessageKey;
+import com.ooluk.ddm.dataimport.Messages;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * ChangedOnlyDataObjectReader wraps another DataObjectReader and returns only the data objects that are new or have
+ * changed since the previous run according to a {@link FingerprintIndex}. Unchanged data objects are dropped at the
+ * start of the pipeline so they are neither transformed nor written.
+ * 
+ * <p>
+ * Typical usage:
+ * 
+ * <pre>
+ * FingerprintIndex index = new FingerprintIndex("import.fpi");
+ * DataObjectReader reader = new ChangedOnlyDataObjectReader(jdbcReader, index);
+ * reader.setLogWriter(logWriter);
+ * reader.init(params);
+ * ScannedDataObject dObj;
+ * while ((dObj = reader.read()) != null) {
+ *     transformer.transform(dObj);
+ *     writer.write(dObj);
+ * }
+ * reader.close();
+ * index.save();
+ * </pre>
+ * 
+ * <p>
+ * The index is loaded by init() but never saved by this reader; save it once all data objects have been written.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class ChangedOnlyDataObjectReader extends AbstractDataObjectReader {
+
+	private final DataObjectReader reader;
+	private final FingerprintIndex index;
+
+	// Number of unchanged data objects skipped
+	private long unchanged = 0;
+
+	// Set once End of Data has been reported
+	private boolean finished = false;
+
+	/**
+	 * Constructs a ChangedOnlyDataObjectReader.
+	 * 
+	 * @param reader
+	 *            the reader supplying all data objects
+	 * @param index
+	 *            fingerprint index of the previous run
+	 */
+	public ChangedOnlyDataObjectReader(DataObjectReader reader, FingerprintIndex index) {
+		this.reader = reader;
+		this.index = index;
+	}
+
+	/**
+	 * Sets the log writer for this reader and the wrapped reader.
+	 */
+	@Override
+	public void setLogWriter(Writer writer) {
+		super.setLogWriter(writer);
+		reader.setLogWriter(writer);
+	}
+
+	/**
+	 * Loads the fingerprint index. The wrapped reader must already be initialized.
+	 */
+	@Override
+	public void init() {
+		index.load();
+	}
+
+	/**
+	 * Initializes the wrapped reader with the parameters and loads the fingerprint index.
+	 */
+	@Override
+	public void init(Map<String, Object> params) {
+		reader.init(params);
+		init();
+	}
+
+	@Override
+	public ScannedDataObject read() {
+		ScannedDataObject dObj;
+		while ((dObj = reader.read()) != null) {
+			if (index.isChanged(dObj)) {
+				return dObj;
+			}
+			unchanged++;
+		}
+		if (!finished) {
+			finished = true;
+			super.appendStatusLine(Messages.getMessage(MessageKey.READ_UNCHANGED_SKIPPED, unchanged));
+		}
+		return null;
+	}
+
+	@Override
+	public void close() {
+		reader.close();
+	}
+
+	@Override
+	public void enableForTypeMode() {
+		super.enableForTypeMode();
+		reader.enableForTypeMode();
+	}
+
+	@Override
+	public TypeMetaData getTypeMetaData() {
+		return reader.getTypeMetaData();
+	}
+
+	/**
+	 * Returns the number of unchanged data objects skipped so far.
+	 * 
+	 * @return number of unchanged data objects.
+	 */
+	public long getUnchangedCount() {
+		return unchanged;
+	}
+
+	/**
+	 * Returns the wrapped reader.
+	 * 
+	 * @return the reader supplying all data objects.
+	 */
+	public DataObjectReader getReader() {
+		return reader;
+	}
+
+	/**
+	 * Returns the fingerprint index.
+	 * 
+	 * @return the fingerprint index.
+	 */
+	public FingerprintIndex getIndex() {
+		return index;
+	}
+}
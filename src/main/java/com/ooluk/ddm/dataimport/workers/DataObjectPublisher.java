@@ -0,0 +1,200 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * DataObjectPublisher adapts a {@link DataObjectReader} to a {@link Flow.Publisher}. Data objects are only read from
+ * the reader when the subscriber has requested them, so a slow subscriber throttles the reader instead of data objects
+ * accumulating in memory.
+ *
+ * <p>
+ * Reads run as tasks on the executor and no thread is held while there is no outstanding demand. Signals to the
+ * subscriber are serialized. The reader must have been initialized and supports a single subscriber; further
+ * subscribers receive an IllegalStateException through onError(). Exceptions thrown by the reader are passed to
+ * onError(). The publisher does not close the reader.
+ * </p>
+ *
+ * <p>
+ * Typical usage:
+ *
+ * <pre>
+ * reader.init(readerParams);
+ * writer.init(writerParams);
+ * DataObjectSubscriber subscriber = new DataObjectSubscriber(writer, 100);
+ * new DataObjectPublisher(reader, executor).subscribe(subscriber);
+ * subscriber.getCompletion().whenComplete(...);
+ * </pre>
+ *
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * @see DataObjectSubscriber
+ */
+public class DataObjectPublisher implements Flow.Publisher<ScannedDataObject> {
+
+	private final DataObjectReader reader;
+	private final Executor executor;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/**
+	 * Constructs a DataObjectPublisher that reads on the common fork-join pool.
+	 *
+	 * @param reader
+	 *            an initialized reader supplying the data objects
+	 */
+	public DataObjectPublisher(DataObjectReader reader) {
+		this(reader, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructs a DataObjectPublisher.
+	 *
+	 * @param reader
+	 *            an initialized reader supplying the data objects
+	 * @param executor
+	 *            executor to read on
+	 */
+	public DataObjectPublisher(DataObjectReader reader, Executor executor) {
+		this.reader = Objects.requireNonNull(reader);
+		this.executor = Objects.requireNonNull(executor);
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super ScannedDataObject> subscriber) {
+		Objects.requireNonNull(subscriber);
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+
+				@Override
+				public void request(long n) {
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("DataObjectPublisher supports a single subscriber"));
+			return;
+		}
+		ReaderSubscription subscription = new ReaderSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+	}
+
+	/**
+	 * The subscription reads data objects as long as there is outstanding demand. A drain task is scheduled when demand
+	 * is added and none is running; a running task picks up demand added while it runs.
+	 */
+	private final class ReaderSubscription implements Flow.Subscription, Runnable {
+
+		private final Flow.Subscriber<? super ScannedDataObject> subscriber;
+
+		// Outstanding demand, Long.MAX_VALUE denotes unbounded demand
+		private final AtomicLong demand = new AtomicLong();
+
+		// Number of drain requests not yet processed by the drain task
+		private final AtomicInteger pending = new AtomicInteger();
+
+		private volatile boolean cancelled = false;
+		private volatile long invalidRequest = 0;
+		private boolean done = false;
+
+		ReaderSubscription(Flow.Subscriber<? super ScannedDataObject> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = n;
+			} else {
+				long current;
+				do {
+					current = demand.get();
+					if (current == Long.MAX_VALUE) {
+						break;
+					}
+				} while (!demand.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+		}
+
+		private void schedule() {
+			if (pending.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				} catch (RuntimeException ex) {
+					terminate(ex);
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				if (done || cancelled) {
+					return;
+				}
+				if (invalidRequest != 0) {
+					terminate(new IllegalArgumentException("Non-positive request: " + invalidRequest));
+					return;
+				}
+				long requested = demand.get();
+				long emitted = 0;
+				while (emitted != requested && !cancelled) {
+					ScannedDataObject dObj;
+					try {
+						dObj = reader.read();
+					} catch (RuntimeException ex) {
+						terminate(ex);
+						return;
+					}
+					if (dObj == null) {
+						done = true;
+						subscriber.onComplete();
+						return;
+					}
+					subscriber.onNext(dObj);
+					emitted++;
+				}
+				if (requested != Long.MAX_VALUE) {
+					demand.addAndGet(-emitted);
+				}
+				missed = pending.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void terminate(Throwable ex) {
+			done = true;
+			cancelled = true;
+			subscriber.onError(ex);
+		}
+	}
+}
@@ -15,6 +15,13 @@
  */
 package com.ooluk.ddm.dataimport.workers;
 
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 import com.ooluk.ddm.dataimport.ImportException;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 
@@ -73,6 +80,63 @@ public interface DataObjectReader extends ImportWorker {
 	 */
 	public ScannedDataObject read();
 
+	/**
+	 * Reads up to {@code max} data objects from the data source in a single call. The default implementation repeatedly
+	 * calls {@link #read()}; readers that can fetch several data objects at once should override it.
+	 * 
+	 * <p>
+	 * End of Data is indicated by an empty list. A list with fewer than {@code max} data objects does not by itself
+	 * indicate End of Data.
+	 * </p>
+	 * 
+	 * @param max
+	 *            maximum number of data objects to read; must be greater than zero
+	 * 
+	 * @return the data objects read
+	 * 
+	 * @throws ImportException
+	 *             if any exceptional conditions or checked exceptions arise during processing
+	 */
+	public default List<ScannedDataObject> read(int max) {
+		// max is an upper bound only; read(Integer.MAX_VALUE) is a valid request for all data objects
+		List<ScannedDataObject> batch = AbstractDataObjectReader.createBatch(max);
+		ScannedDataObject dObj;
+		while (batch.size() < max && (dObj = read()) != null) {
+			batch.add(dObj);
+		}
+		return batch;
+	}
+
+	/**
+	 * Returns the remaining data objects of this reader as a stream. The stream is sequential; call
+	 * {@link Stream#parallel()} to process it with the fork-join pool. A parallel stream splits the source where the
+	 * reader supports it, each split being read by a separate reader instance, so the encounter order is preserved but
+	 * the status log lines of different splits may interleave. The default implementation calls {@link #read()} and
+	 * cannot be split; {@link AbstractDataObjectReader} supports splitting.
+	 * 
+	 * <p>
+	 * The stream must not be used together with {@link #read()} on the same reader. Closing the stream closes any split
+	 * readers that are still open; this reader itself must still be closed with {@link #close()}.
+	 * </p>
+	 * 
+	 * @return a stream of the data objects not yet read
+	 */
+	public default Stream<ScannedDataObject> stream() {
+		Spliterator<ScannedDataObject> spliterator = new Spliterators.AbstractSpliterator<ScannedDataObject>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super ScannedDataObject> action) {
+				ScannedDataObject dObj = read();
+				if (dObj == null) {
+					return false;
+				}
+				action.accept(dObj);
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false);
+	}
+
 	/**
 	 * Enables the reader for type metadata retrieval
 	 */
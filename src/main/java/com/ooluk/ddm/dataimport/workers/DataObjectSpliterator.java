@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * A Spliterator over the data objects of an {@link AbstractDataObjectReader}. Splitting is delegated to
+ * {@link AbstractDataObjectReader#trySplit()} which hands a disjoint part of the remaining source (a set of PDS
+ * members, schemas or byte regions of a file) to a new, independently initialized reader.
+ *
+ * <p>
+ * Readers created by splitting are owned by the spliterator family. A split reader is closed as soon as it reaches End
+ * of Data; {@link #closeSplits()} closes any split readers left open when a stream is abandoned early. The reader the
+ * spliterator was originally created for is never closed by the spliterator.
+ * </p>
+ *
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+class DataObjectSpliterator implements Spliterator<ScannedDataObject> {
+
+	private final AbstractDataObjectReader reader;
+
+	// True if the reader was created by a split and must be closed by the spliterator
+	private final boolean owned;
+
+	// Split readers shared by all spliterators of one stream
+	private final List<AbstractDataObjectReader> splits;
+
+	private boolean exhausted = false;
+
+	/**
+	 * Constructs a spliterator for the specified reader.
+	 *
+	 * @param reader
+	 *            the reader supplying the data objects
+	 */
+	DataObjectSpliterator(AbstractDataObjectReader reader) {
+		this(reader, false, Collections.synchronizedList(new ArrayList<AbstractDataObjectReader>()));
+	}
+
+	private DataObjectSpliterator(AbstractDataObjectReader reader, boolean owned, List<AbstractDataObjectReader> splits) {
+		this.reader = reader;
+		this.owned = owned;
+		this.splits = splits;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super ScannedDataObject> action) {
+		if (exhausted) {
+			return false;
+		}
+		ScannedDataObject dObj = reader.read();
+		if (dObj == null) {
+			exhausted = true;
+			if (owned) {
+				reader.close();
+				splits.remove(reader);
+			}
+			return false;
+		}
+		action.accept(dObj);
+		return true;
+	}
+
+	@Override
+	public Spliterator<ScannedDataObject> trySplit() {
+		if (exhausted) {
+			return null;
+		}
+		AbstractDataObjectReader split = reader.trySplit();
+		if (split == null) {
+			return null;
+		}
+		splits.add(split);
+		return new DataObjectSpliterator(split, true, splits);
+	}
+
+	@Override
+	public long estimateSize() {
+		return exhausted ? 0 : reader.estimateRemaining();
+	}
+
+	@Override
+	public int characteristics() {
+		return ORDERED | NONNULL;
+	}
+
+	/**
+	 * Closes all split readers that have not reached End of Data.
+	 */
+	void closeSplits() {
+		synchronized (splits) {
+			for (AbstractDataObjectReader split : splits) {
+				split.close();
+			}
+			splits.clear();
+		}
+	}
+}
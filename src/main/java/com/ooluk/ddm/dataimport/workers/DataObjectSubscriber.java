@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * DataObjectSubscriber adapts a {@link DataObjectWriter} to a {@link Flow.Subscriber}. The subscriber requests a batch
+ * of data objects, writes the batch with {@link DataObjectWriter#writeAll(List)} once it has been received and only
+ * then requests the next batch. At most one batch of data objects is therefore held in memory and the rate at which
+ * data objects are read is bounded by the rate at which they are written.
+ *
+ * <p>
+ * The outcome of the import is available from {@link #getCompletion()}, which completes with the number of data
+ * objects written when the publisher completes, or exceptionally when the publisher or the writer fails. A writer
+ * failure cancels the subscription. The subscriber does not close the writer.
+ * </p>
+ *
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * @see DataObjectPublisher
+ */
+public class DataObjectSubscriber implements Flow.Subscriber<ScannedDataObject> {
+
+	private final DataObjectWriter writer;
+	private final int batchSize;
+	private final List<ScannedDataObject> batch;
+	private final CompletableFuture<Long> completion = new CompletableFuture<>();
+
+	private Flow.Subscription subscription;
+	private volatile long written = 0;
+
+	/**
+	 * Constructs a DataObjectSubscriber.
+	 *
+	 * @param writer
+	 *            an initialized writer to write the data objects to
+	 * @param batchSize
+	 *            number of data objects requested and written at a time; must be greater than zero
+	 */
+	public DataObjectSubscriber(DataObjectWriter writer, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be greater than zero: " + batchSize);
+		}
+		this.writer = Objects.requireNonNull(writer);
+		this.batchSize = batchSize;
+		this.batch = new ArrayList<>(batchSize);
+	}
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.subscription != null) {
+			subscription.cancel();
+			return;
+		}
+		this.subscription = subscription;
+		subscription.request(batchSize);
+	}
+
+	@Override
+	public void onNext(ScannedDataObject dObj) {
+		if (completion.isDone()) {
+			return;
+		}
+		batch.add(dObj);
+		if (batch.size() == batchSize && flush()) {
+			subscription.request(batchSize);
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		batch.clear();
+		completion.completeExceptionally(throwable);
+	}
+
+	@Override
+	public void onComplete() {
+		if (flush()) {
+			completion.complete(written);
+		}
+	}
+
+	/**
+	 * Writes the received data objects.
+	 *
+	 * @return true if the data objects were written; false if the writer failed.
+	 */
+	private boolean flush() {
+		if (completion.isDone()) {
+			return false;
+		}
+		try {
+			if (!batch.isEmpty()) {
+				writer.writeAll(batch);
+				written += batch.size();
+			}
+			return true;
+		} catch (RuntimeException ex) {
+			subscription.cancel();
+			completion.completeExceptionally(ex);
+			return false;
+		} finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Returns a future that completes with the number of data objects written once all data objects have been written,
+	 * or exceptionally if reading or writing fails.
+	 *
+	 * @return the completion of the import.
+	 */
+	public CompletableFuture<Long> getCompletion() {
+		return completion;
+	}
+
+	/**
+	 * Returns the number of data objects written so far.
+	 *
+	 * @return number of data objects written.
+	 */
+	public long getWrittenCount() {
+		return written;
+	}
+}
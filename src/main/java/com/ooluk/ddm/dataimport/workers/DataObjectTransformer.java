@@ -15,6 +15,8 @@
  */
 package com.ooluk.ddm.dataimport.workers;
 
+import java.util.List;
+
 import com.ooluk.ddm.dataimport.ImportException;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 
@@ -50,4 +52,20 @@ public interface DataObjectTransformer extends ImportWorker {
 	 *             if any exceptional conditions or checked exceptions arise during processing
 	 */
 	public void transform(ScannedDataObject dObj);
+
+	/**
+	 * Transforms a batch of scanned data objects. The transformation must be performed on the objects not on copies.
+	 * The default implementation calls {@link #transform(ScannedDataObject)} for each data object.
+	 * 
+	 * @param dObjs
+	 *            the data objects to be transformed
+	 * 
+	 * @throws ImportException
+	 *             if any exceptional conditions or checked exceptions arise during processing
+	 */
+	public default void transformAll(List<ScannedDataObject> dObjs) {
+		for (ScannedDataObject dObj : dObjs) {
+			transform(dObj);
+		}
+	}
 }
\ No newline at end of file
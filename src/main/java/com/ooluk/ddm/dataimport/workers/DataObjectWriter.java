@@ -15,6 +15,8 @@
  */
 package com.ooluk.ddm.dataimport.workers;
 
+import java.util.List;
+
 import com.ooluk.ddm.dataimport.ImportException;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 
@@ -37,4 +39,20 @@ public interface DataObjectWriter extends ImportWorker {
 	 *             in case of any handled exceptions
 	 */
 	public void write(ScannedDataObject dObj);
+
+	/**
+	 * Writes a batch of ScannedDataObjects in the order of the list. The default implementation calls
+	 * {@link #write(ScannedDataObject)} for each data object.
+	 * 
+	 * @param dObjs
+	 *            the ScannedDataObjects to be written
+	 * 
+	 * @throws ImportException
+	 *             in case of any handled exceptions
+	 */
+	public default void writeAll(List<ScannedDataObject> dObjs) {
+		for (ScannedDataObject dObj : dObjs) {
+			write(dObj);
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.Fingerprint;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * FingerprintIndex persists the {@link Fingerprint} of every data object imported, keyed by namespace and name, so
+ * that the next run can detect which data objects have changed.
+ * 
+ * <p>
+ * The fingerprints of the previous run are loaded with {@link #load()}. Each data object of the current run is then
+ * checked with {@link #isChanged(ScannedDataObject)}, which also records its current fingerprint. Once all data objects
+ * have been written successfully the current fingerprints are persisted with {@link #save()}. Saving only after a
+ * successful write ensures that a failed run never causes a data object to be treated as unchanged.
+ * </p>
+ * 
+ * <p>
+ * The index is stored as a compact binary file which each save replaces (see {@link AtomicFiles}). This class is not
+ * thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * @see ChangedOnlyDataObjectReader
+ */
+public class FingerprintIndex {
+
+	// Identifies the file format
+	private static final int MAGIC = 0x44444d46;
+	private static final int VERSION = 1;
+
+	private final Path file;
+
+	// Fingerprints of the previous run: namespace -> name -> fingerprint
+	private Map<String, Map<String, Fingerprint>> previous = new HashMap<>();
+
+	// Fingerprints of the current run
+	private final Map<String, Map<String, Fingerprint>> current = new HashMap<>();
+
+	/**
+	 * Constructs a FingerprintIndex.
+	 * 
+	 * @param file
+	 *            path of the index file
+	 */
+	public FingerprintIndex(String file) {
+		this.file = Paths.get(file);
+	}
+
+	/**
+	 * Loads the fingerprints saved by the previous run. If there is no index file every data object is treated as
+	 * changed.
+	 * 
+	 * @throws ImportException
+	 *             if the index file cannot be read
+	 */
+	public void load() {
+		previous = new HashMap<>();
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new ImportException("Invalid fingerprint index " + file);
+			}
+			int namespaces = in.readInt();
+			for (int i = 0; i < namespaces; i++) {
+				String namespace = in.readUTF();
+				int names = in.readInt();
+				Map<String, Fingerprint> fps = new HashMap<>(names * 2);
+				for (int j = 0; j < names; j++) {
+					String name = in.readUTF();
+					fps.put(name, new Fingerprint(in.readLong(), in.readLong()));
+				}
+				previous.put(namespace, fps);
+			}
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * Determines if a data object differs from the data object with the same namespace and name in the previous run.
+	 * Data objects that did not exist in the previous run are changed. The current fingerprint is recorded for
+	 * {@link #save()}.
+	 * 
+	 * @param dObj
+	 *            the data object
+	 * 
+	 * @return true if the data object is new or has changed; false otherwise.
+	 */
+	public boolean isChanged(ScannedDataObject dObj) {
+		Fingerprint fp = Fingerprint.of(dObj);
+		Map<String, Fingerprint> fps = current.get(dObj.getNamespace());
+		if (fps == null) {
+			fps = new HashMap<>();
+			current.put(dObj.getNamespace(), fps);
+		}
+		fps.put(dObj.getName(), fp);
+		return !fp.equals(getPrevious(dObj.getNamespace(), dObj.getName()));
+	}
+
+	/**
+	 * Returns the fingerprint of a data object from the previous run.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param name
+	 *            name of the data object
+	 * 
+	 * @return the previous fingerprint or null if the data object was not present in the previous run.
+	 */
+	public Fingerprint getPrevious(String namespace, String name) {
+		Map<String, Fingerprint> fps = previous.get(namespace);
+		return fps == null ? null : fps.get(name);
+	}
+
+	/**
+	 * Returns the data objects present in the previous run that have not been checked in the current run. After a
+	 * complete read these are the data objects removed from the source.
+	 * 
+	 * @return names of the removed data objects grouped by namespace, both in sorted order.
+	 */
+	public Map<String, Set<String>> getRemoved() {
+		Map<String, Set<String>> removed = new TreeMap<>();
+		for (Map.Entry<String, Map<String, Fingerprint>> ns : previous.entrySet()) {
+			Map<String, Fingerprint> seen = current.get(ns.getKey());
+			for (String name : ns.getValue().keySet()) {
+				if (seen == null || !seen.containsKey(name)) {
+					Set<String> names = removed.get(ns.getKey());
+					if (names == null) {
+						names = new TreeSet<>();
+						removed.put(ns.getKey(), names);
+					}
+					names.add(name);
+				}
+			}
+		}
+		return Collections.unmodifiableMap(removed);
+	}
+
+	/**
+	 * Saves the fingerprints recorded in the current run replacing the previous index. Data objects not checked in the
+	 * current run are dropped from the index.
+	 * 
+	 * @throws ImportException
+	 *             if the index file cannot be written
+	 */
+	public void save() {
+		try {
+			AtomicFiles.replace(file, new AtomicFiles.IOConsumer<OutputStream>() {
+				
+				@Override
+				public void accept(OutputStream stream) throws IOException {
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(current.size());
+					for (Map.Entry<String, Map<String, Fingerprint>> ns : current.entrySet()) {
+						out.writeUTF(ns.getKey());
+						out.writeInt(ns.getValue().size());
+						for (Map.Entry<String, Fingerprint> entry : ns.getValue().entrySet()) {
+							out.writeUTF(entry.getKey());
+							out.writeLong(entry.getValue().getHigh());
+							out.writeLong(entry.getValue().getLow());
+						}
+					}
+					out.flush();
+				}
+			});
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+}
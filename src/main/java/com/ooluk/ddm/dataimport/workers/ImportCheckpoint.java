@@ -0,0 +1,308 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * ImportCheckpoint periodically persists the position of a {@link ResumableDataObjectReader} together with the number
+ * of data objects written so far, so that a failed import can be resumed without reprocessing the data objects that
+ * have already been written.
+ *
+ * <p>
+ * Typical usage:
+ *
+ * <pre>
+ * ImportCheckpoint checkpoint = new ImportCheckpoint("import.ckp", 100);
+ * reader.init(params);
+ * checkpoint.resume(reader);
+ * difWriter.resume("import.xml", false, checkpoint);
+ * checkpoint.setOutput(difWriter);
+ * ScannedDataObject dObj;
+ * while ((dObj = reader.read()) != null) {
+ *     transformer.transform(dObj);
+ *     // begin or end namespaces as the namespace changes
+ *     difWriter.writeDataObject(dObj);
+ *     checkpoint.written(reader, dObj);
+ * }
+ * difWriter.close();
+ * checkpoint.complete();
+ * </pre>
+ *
+ * <p>
+ * Resuming the reader only skips the data objects already read; the output must be resumed as well. A writer that
+ * appends to a file must continue after the last data object recorded by the checkpoint, as
+ * {@link com.ooluk.ddm.dataimport.dif.adapters.DIFWriter#resume(String, boolean, ImportCheckpoint)} does, and must be
+ * flushed before each save with {@link #setOutput(Flushable)}. Only writers whose writes are idempotent, such as
+ * writers that store data objects by namespace and name, may be resumed without positioning them.
+ * </p>
+ *
+ * <p>
+ * The position is taken from the reader when a data object is recorded as written. The reader must therefore not have
+ * read ahead: record each data object before the next call to read(), or a whole batch after writing all data objects
+ * returned by read(int).
+ * </p>
+ *
+ * <p>
+ * The checkpoint is stored as a properties file which each save replaces (see {@link AtomicFiles}). This class is not
+ * thread safe.
+ * </p>
+ *
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * @see ResumableDataObjectReader
+ */
+public class ImportCheckpoint {
+
+	private static final String WRITTEN = "written";
+	private static final String LAST_NAMESPACE = "last.namespace";
+	private static final String LAST_NAME = "last.name";
+	private static final String POSITION_PREFIX = "position.";
+
+	private final Path file;
+
+	// Number of data objects written between saves
+	private final int interval;
+
+	// Number of data objects written including those written before a resume
+	private long written = 0;
+
+	// Number of data objects written since the last save
+	private int unsaved = 0;
+
+	private String lastNamespace = "";
+	private String lastName = "";
+
+	// Output flushed before each save; null if not set
+	private Flushable output;
+
+	/**
+	 * Constructs an ImportCheckpoint.
+	 *
+	 * @param file
+	 *            path of the checkpoint file
+	 * @param interval
+	 *            number of data objects written between saves; must be greater than zero
+	 */
+	public ImportCheckpoint(String file, int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be greater than zero: " + interval);
+		}
+		this.file = Paths.get(file);
+		this.interval = interval;
+	}
+
+	/**
+	 * Determines if a checkpoint from a previous run exists.
+	 *
+	 * @return true if the checkpoint file exists; false otherwise.
+	 */
+	public boolean exists() {
+		return Files.exists(file);
+	}
+
+	/**
+	 * Resumes the reader from the saved checkpoint. If there is no checkpoint the reader is left at the beginning. The
+	 * reader must have been initialized and must not have been read from.
+	 *
+	 * @param reader
+	 *            the reader to position
+	 *
+	 * @return the number of data objects written before the checkpoint was saved.
+	 *
+	 * @throws ImportException
+	 *             if the checkpoint cannot be read
+	 */
+	public long resume(ResumableDataObjectReader reader) {
+		if (!exists()) {
+			return 0;
+		}
+		Properties props = new Properties();
+		try (InputStream in = Files.newInputStream(file)) {
+			props.load(in);
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+		Map<String, String> position = new HashMap<>();
+		for (String key : props.stringPropertyNames()) {
+			if (key.startsWith(POSITION_PREFIX)) {
+				position.put(key.substring(POSITION_PREFIX.length()), props.getProperty(key));
+			}
+		}
+		try {
+			written = Long.parseLong(props.getProperty(WRITTEN, "0"));
+		} catch (NumberFormatException e) {
+			throw new ImportException(e);
+		}
+		lastNamespace = props.getProperty(LAST_NAMESPACE, "");
+		lastName = props.getProperty(LAST_NAME, "");
+		reader.resume(position);
+		return written;
+	}
+
+	/**
+	 * Sets the output of the import. The output is flushed before each save so that the checkpoint does not record
+	 * data objects that are still buffered and would be lost if the import failed.
+	 *
+	 * @param output
+	 *            the output the data objects are written to
+	 */
+	public void setOutput(Flushable output) {
+		this.output = output;
+	}
+
+	/**
+	 * Records a data object as written and saves the checkpoint if the save interval has been reached.
+	 *
+	 * @param reader
+	 *            the reader that returned the data object
+	 * @param dObj
+	 *            the data object written
+	 *
+	 * @throws ImportException
+	 *             if the checkpoint cannot be saved
+	 */
+	public void written(ResumableDataObjectReader reader, ScannedDataObject dObj) {
+		written++;
+		unsaved++;
+		lastNamespace = dObj.getNamespace();
+		lastName = dObj.getName();
+		if (unsaved >= interval) {
+			save(reader);
+		}
+	}
+
+	/**
+	 * Records a batch of data objects as written and saves the checkpoint if the save interval has been reached.
+	 *
+	 * @param reader
+	 *            the reader that returned the data objects
+	 * @param dObjs
+	 *            the data objects written
+	 *
+	 * @throws ImportException
+	 *             if the checkpoint cannot be saved
+	 */
+	public void written(ResumableDataObjectReader reader, List<ScannedDataObject> dObjs) {
+		if (dObjs.isEmpty()) {
+			return;
+		}
+		ScannedDataObject last = dObjs.get(dObjs.size() - 1);
+		written += dObjs.size();
+		unsaved += dObjs.size();
+		lastNamespace = last.getNamespace();
+		lastName = last.getName();
+		if (unsaved >= interval) {
+			save(reader);
+		}
+	}
+
+	/**
+	 * Saves the checkpoint immediately with the reader's current position.
+	 *
+	 * @param reader
+	 *            the reader to take the position from
+	 *
+	 * @throws ImportException
+	 *             if the checkpoint cannot be saved
+	 */
+	public void save(ResumableDataObjectReader reader) {
+		if (output != null) {
+			try {
+				output.flush();
+			} catch (IOException e) {
+				throw new ImportException(e);
+			}
+		}
+		final Properties props = new Properties();
+		props.setProperty(WRITTEN, String.valueOf(written));
+		props.setProperty(LAST_NAMESPACE, lastNamespace);
+		props.setProperty(LAST_NAME, lastName);
+		for (Map.Entry<String, String> entry : reader.getPosition().entrySet()) {
+			props.setProperty(POSITION_PREFIX + entry.getKey(), entry.getValue());
+		}
+		try {
+			AtomicFiles.replace(file, new AtomicFiles.IOConsumer<OutputStream>() {
+				
+				@Override
+				public void accept(OutputStream out) throws IOException {
+					props.store(out, "Data import checkpoint");
+				}
+			});
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+		unsaved = 0;
+	}
+
+	/**
+	 * Marks the import as complete by deleting the checkpoint file. A subsequent run starts from the beginning.
+	 *
+	 * @throws ImportException
+	 *             if the checkpoint file cannot be deleted
+	 */
+	public void complete() {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+		written = 0;
+		unsaved = 0;
+		lastNamespace = "";
+		lastName = "";
+	}
+
+	/**
+	 * Returns the number of data objects written including those written before the import was resumed.
+	 *
+	 * @return number of data objects written.
+	 */
+	public long getWrittenCount() {
+		return written;
+	}
+
+	/**
+	 * Returns the namespace of the last data object recorded as written.
+	 *
+	 * @return namespace of the last data object written.
+	 */
+	public String getLastNamespace() {
+		return lastNamespace;
+	}
+
+	/**
+	 * Returns the name of the last data object recorded as written.
+	 *
+	 * @return name of the last data object written.
+	 */
+	public String getLastName() {
+		return lastName;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.util.Map;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.MessageKey;
+import com.ooluk.ddm.dataimport.Messages;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.index.DanglingReference;
+import com.ooluk.ddm.dataimport.index.ReferenceIndex;
+
+/**
+ * ReferenceIndexTransformer is a pipeline stage that leaves data objects unchanged while building a
+ * {@link ReferenceIndex} of all attributes passing through it. When the transformer is closed the index is finished
+ * and the parent attribute and attribute source references that could not be resolved are reported in the status log.
+ * 
+ * <p>
+ * The expected number of attributes may be specified with the optional parameter "expectedAttributes" to size the
+ * index up front.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class ReferenceIndexTransformer extends AbstractDataObjectTransformer {
+
+	private ReferenceIndex index = new ReferenceIndex();
+
+	@Override
+	public void init() {
+	}
+
+	@Override
+	public void init(Map<String, Object> params) {
+		Object expected = params.get("expectedAttributes");
+		if (expected != null) {
+			try {
+				index = new ReferenceIndex(Integer.parseInt(expected.toString().trim()));
+			} catch (NumberFormatException ex) {
+				String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, "expectedAttributes");
+				super.appendStatusLine(msg);
+				throw new ImportException(msg);
+			}
+		}
+		init();
+	}
+
+	@Override
+	public void transform(ScannedDataObject dObj) {
+		index.add(dObj);
+	}
+
+	/**
+	 * Finishes the index and reports the dangling references.
+	 */
+	@Override
+	public void close() {
+		for (DanglingReference ref : index.finish()) {
+			super.appendStatusLine(Messages.getMessage(MessageKey.REF_DANGLING, ref.getNamespace() + "." 
+					+ ref.getObjectName() + "." + ref.getAttributeName(), ref.getTarget()));
+		}
+		super.appendStatusLine(Messages.getMessage(MessageKey.REF_SUMMARY, index.getAttributeCount(), 
+				index.getResolvedCount(), index.getReferenceCount()));
+	}
+
+	/**
+	 * Returns the reference index built by this transformer.
+	 * 
+	 * @return the reference index.
+	 */
+	public ReferenceIndex getIndex() {
+		return index;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.util.Map;
+
+import com.ooluk.ddm.dataimport.ImportException;
+
+/**
+ * ResumableDataObjectReader adds checkpoint support to the DataObjectReader interface. A reader reports its position
+ * after the last data object returned by read() as a property-value map. The map can be persisted (see
+ * {@link ImportCheckpoint}) and passed back to a newly initialized reader for the same source to skip the data objects
+ * that have already been processed.
+ *
+ * <p>
+ * Positions are only meaningful for the reader class and configuration that produced them. Readers that have been
+ * split for a parallel stream do not support positions.
+ * </p>
+ *
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * @see ImportCheckpoint
+ */
+public interface ResumableDataObjectReader {
+
+	/**
+	 * Returns the position after the last data object returned by read(). The position of a reader that has not
+	 * returned any data objects is an empty map.
+	 *
+	 * @return the reader position as a property-value map.
+	 */
+	public abstract Map<String, String> getPosition();
+
+	/**
+	 * Positions the reader after the data object identified by the specified position. This method must be called
+	 * after init() and before the first call to read(). An empty position leaves the reader at the beginning.
+	 *
+	 * @param position
+	 *            a position previously returned by {@link #getPosition()}
+	 *
+	 * @throws ImportException
+	 *             if any exceptional conditions or checked exceptions arise during processing
+	 */
+	public abstract void resume(Map<String, String> position);
+}
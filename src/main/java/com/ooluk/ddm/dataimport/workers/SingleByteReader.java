@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * SingleByteReader decodes a stream in a single-byte character set, such as an EBCDIC code page (Cp037, Cp1047) or
+ * ISO-8859-1, through a 256 entry table. Each byte read is translated by a table lookup, which avoids the per-call
+ * overhead of a CharsetDecoder and allows files to be read in their original encoding without a separate conversion
+ * pass.
+ * 
+ * <p>
+ * The table for a character set is built once by decoding each byte value with the character set and is shared by
+ * all readers. Bytes the character set does not map decode to U+FFFD. This class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class SingleByteReader extends Reader {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final char REPLACEMENT = '\uFFFD';
+
+	// Decoding tables by character set name
+	private static final ConcurrentMap<String, char[]> TABLES = new ConcurrentHashMap<>();
+
+	private final InputStream in;
+	private final char[] table;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	/**
+	 * Constructs a SingleByteReader.
+	 * 
+	 * @param in
+	 *            the input stream
+	 * @param charset
+	 *            single-byte character set of the stream
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the character set is not a single-byte character set
+	 */
+	public SingleByteReader(InputStream in, Charset charset) {
+		this.in = Objects.requireNonNull(in);
+		this.table = table(charset);
+	}
+
+	/**
+	 * Determines if a character set maps every character to a single byte and every byte to at most one character.
+	 * 
+	 * @param charset
+	 *            the character set
+	 * 
+	 * @return true if the character set is a single-byte character set; false otherwise.
+	 */
+	public static boolean isSingleByte(Charset charset) {
+		return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f
+				&& charset.newDecoder().maxCharsPerByte() == 1.0f;
+	}
+
+	/**
+	 * Returns the decoding table for a single-byte character set.
+	 * 
+	 * @param charset
+	 *            the character set
+	 * 
+	 * @return a copy of the table of 256 characters indexed by the unsigned byte value.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the character set is not a single-byte character set
+	 */
+	public static char[] createTable(Charset charset) {
+		return table(charset).clone();
+	}
+
+	private static char[] table(Charset charset) {
+		char[] table = TABLES.get(charset.name());
+		if (table == null) {
+			if (!isSingleByte(charset)) {
+				throw new IllegalArgumentException("Not a single-byte character set: " + charset.name());
+			}
+			CharsetDecoder decoder = charset.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT);
+			table = new char[256];
+			byte[] bytes = new byte[1];
+			for (int b = 0; b < table.length; b++) {
+				bytes[0] = (byte) b;
+				try {
+					String decoded = decoder.reset().decode(ByteBuffer.wrap(bytes)).toString();
+					table[b] = decoded.length() == 1 ? decoded.charAt(0) : REPLACEMENT;
+				} catch (CharacterCodingException e) {
+					table[b] = REPLACEMENT;
+				}
+			}
+			TABLES.putIfAbsent(charset.name(), table);
+		}
+		return table;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		return b < 0 ? -1 : table[b];
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		int n = in.read(buffer, 0, Math.min(len, buffer.length));
+		if (n < 0) {
+			return -1;
+		}
+		for (int i = 0; i < n; i++) {
+			cbuf[off + i] = table[buffer[i] & 0xFF];
+		}
+		return n;
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		return in.available() > 0;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
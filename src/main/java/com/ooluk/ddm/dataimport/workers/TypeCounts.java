@@ -0,0 +1,314 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TypeCounts collects the distinct combinations of type metadata property values together with the number of times
+ * each combination was added. It is used for type scans over many data objects where only the distinct types are of
+ * interest, for example the distinct (type, size, scale) combinations of all columns of a database when authoring data
+ * type rules.
+ * 
+ * <p>
+ * The combinations are stored in columns, one int array per property. Each property value is dictionary encoded, so a
+ * value occurring in many combinations is stored once and a combination costs one int per property plus its count.
+ * Combinations are looked up through an open addressing hash table over the encoded values.
+ * </p>
+ * 
+ * <p>
+ * Example: adding the combinations ("VARCHAR", "10", "0"), ("INT4", "10", "0") and ("VARCHAR", "10", "0") results in
+ * 
+ * <pre>
+ * properties = {"type", "size", "scale"}
+ * dictionaries = {["VARCHAR", "INT4"], ["10"], ["0"]}
+ * columns = {[0, 1], [0, 0], [0, 0]}
+ * counts = [2, 1]
+ * </pre>
+ * 
+ * <p>
+ * This class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class TypeCounts {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final String[] properties;
+
+	// Per property: value to code and code to value
+	private final List<Map<String, Integer>> codes;
+	private final List<List<String>> values;
+
+	// Per property: the value codes of each combination
+	private int[][] columns;
+	private long[] counts;
+	private int size = 0;
+
+	// Hash table of combination index + 1; zero marks an empty slot
+	private int[] slots;
+
+	/**
+	 * Constructs a TypeCounts instance.
+	 * 
+	 * @param properties
+	 *            names of the type metadata properties forming a combination
+	 */
+	public TypeCounts(String... properties) {
+		if (properties.length == 0) {
+			throw new IllegalArgumentException("At least one property is required");
+		}
+		this.properties = properties.clone();
+		codes = new ArrayList<>(properties.length);
+		values = new ArrayList<>(properties.length);
+		for (int i = 0; i < properties.length; i++) {
+			codes.add(new HashMap<String, Integer>());
+			values.add(new ArrayList<String>());
+		}
+		columns = new int[properties.length][INITIAL_CAPACITY];
+		counts = new long[INITIAL_CAPACITY];
+		slots = new int[INITIAL_CAPACITY * 2];
+	}
+
+	/**
+	 * Adds one occurrence of a combination of property values.
+	 * 
+	 * @param values
+	 *            the property values in the order of the properties
+	 */
+	public void add(String... values) {
+		add(1, values);
+	}
+
+	/**
+	 * Adds occurrences of a combination of property values.
+	 * 
+	 * @param count
+	 *            number of occurrences
+	 * @param values
+	 *            the property values in the order of the properties
+	 */
+	public void add(long count, String... values) {
+		if (values.length != properties.length) {
+			throw new IllegalArgumentException("Expected " + properties.length + " values: " + Arrays.toString(values));
+		}
+		int[] key = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			key[i] = encode(i, values[i]);
+		}
+		int slot = find(key);
+		if (slots[slot] != 0) {
+			counts[slots[slot] - 1] += count;
+			return;
+		}
+		if (size == counts.length) {
+			grow();
+			slot = find(key);
+		}
+		for (int i = 0; i < key.length; i++) {
+			columns[i][size] = key[i];
+		}
+		counts[size] = count;
+		slots[slot] = ++size;
+	}
+
+	/**
+	 * Adds all combinations of another instance with the same properties.
+	 * 
+	 * @param other
+	 *            the combinations to add
+	 */
+	public void addAll(TypeCounts other) {
+		if (!Arrays.equals(properties, other.properties)) {
+			throw new IllegalArgumentException("Properties differ: " + Arrays.toString(other.properties));
+		}
+		String[] row = new String[properties.length];
+		for (int r = 0; r < other.size; r++) {
+			for (int i = 0; i < row.length; i++) {
+				row[i] = other.getValue(r, i);
+			}
+			add(other.counts[r], row);
+		}
+	}
+
+	private int encode(int property, String value) {
+		String v = value == null ? "" : value;
+		Integer code = codes.get(property).get(v);
+		if (code == null) {
+			code = values.get(property).size();
+			codes.get(property).put(v, code);
+			values.get(property).add(v);
+		}
+		return code;
+	}
+
+	// Returns the slot holding the combination or the empty slot where it is to be inserted
+	private int find(int[] key) {
+		int mask = slots.length - 1;
+		int slot = hash(key) & mask;
+		while (slots[slot] != 0) {
+			int row = slots[slot] - 1;
+			boolean equal = true;
+			for (int i = 0; i < key.length && equal; i++) {
+				equal = columns[i][row] == key[i];
+			}
+			if (equal) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(int[] key) {
+		int h = 1;
+		for (int code : key) {
+			h = 31 * h + code;
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private void grow() {
+		int capacity = counts.length * 2;
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = Arrays.copyOf(columns[i], capacity);
+		}
+		counts = Arrays.copyOf(counts, capacity);
+		slots = new int[capacity * 2];
+		int[] key = new int[columns.length];
+		for (int row = 0; row < size; row++) {
+			for (int i = 0; i < key.length; i++) {
+				key[i] = columns[i][row];
+			}
+			slots[find(key)] = row + 1;
+		}
+	}
+
+	/**
+	 * Returns the number of distinct combinations.
+	 * 
+	 * @return number of distinct combinations.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a property value of a combination.
+	 * 
+	 * @param row
+	 *            index of the combination in the order the combinations were first added
+	 * @param property
+	 *            index of the property
+	 * 
+	 * @return the property value.
+	 */
+	public String getValue(int row, int property) {
+		checkRow(row);
+		return values.get(property).get(columns[property][row]);
+	}
+
+	/**
+	 * Returns the number of occurrences of a combination.
+	 * 
+	 * @param row
+	 *            index of the combination in the order the combinations were first added
+	 * 
+	 * @return number of occurrences.
+	 */
+	public long getCount(int row) {
+		checkRow(row);
+		return counts[row];
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+		}
+	}
+
+	/**
+	 * Returns the number of occurrences of a combination of property values.
+	 * 
+	 * @param values
+	 *            the property values in the order of the properties
+	 * 
+	 * @return number of occurrences; zero if the combination has not been added.
+	 */
+	public long getCount(String... values) {
+		if (values.length != properties.length) {
+			return 0;
+		}
+		int[] key = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			Integer code = codes.get(i).get(values[i] == null ? "" : values[i]);
+			if (code == null) {
+				return 0;
+			}
+			key[i] = code;
+		}
+		int slot = find(key);
+		return slots[slot] == 0 ? 0 : counts[slots[slot] - 1];
+	}
+
+	/**
+	 * Returns the property names.
+	 * 
+	 * @return property names.
+	 */
+	public List<String> getProperties() {
+		return Arrays.asList(properties.clone());
+	}
+
+	/**
+	 * Returns the combinations as a TypeMetaData instance with one property-value mapping per combination. The number
+	 * of occurrences is added as an additional property.
+	 * 
+	 * @param countProperty
+	 *            name of the property holding the number of occurrences
+	 * 
+	 * @return type metadata for the distinct combinations.
+	 */
+	public TypeMetaData toTypeMetaData(String countProperty) {
+		TypeMetaData typeMetaData = new TypeMetaData();
+		for (String property : properties) {
+			typeMetaData.addProperty(property);
+		}
+		typeMetaData.addProperty(countProperty);
+		for (int row = 0; row < size; row++) {
+			Map<String, String> map = new LinkedHashMap<>();
+			for (int i = 0; i < properties.length; i++) {
+				map.put(properties[i], values.get(i).get(columns[i][row]));
+			}
+			map.put(countProperty, String.valueOf(counts[row]));
+			typeMetaData.add(map);
+		}
+		return typeMetaData;
+	}
+
+	@Override
+	public String toString() {
+		return toTypeMetaData("count").toString();
+	}
+}
@@ -15,9 +15,17 @@
  */
 package com.ooluk.ddm.dataimport.workers;
 
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * TypeMetaData provides metadata information that can be used to create data import rules. The type metadata
@@ -36,7 +44,7 @@ import java.util.Map;
  * 
  * <p>
  * It provides the values of the 4 properties for each column in the table passed to the JDBCDataObjectReader. The
- * TypeMode is only valid for TABLE scope of the JDBC DataObjectReader. The type metadata could be stored as
+ * type metadata could be stored as
  * 
  * <pre>
  * properties = {"name", "type", "size", "decimal" }
@@ -48,6 +56,13 @@ import java.util.Map;
  * </pre>
  * 
  * <p>
+ * Internally the type metadata is stored in columns, one int array per property holding a code for each data element.
+ * The values of each property are dictionary encoded so a value shared by many data elements, such as a type name or
+ * a size, is stored once. {@link #getTypeMetaData()} returns a list view of the columns in which each element is a
+ * read-only map view of one data element, so the property keys are not repeated per element.
+ * </p>
+ * 
+ * <p>
  * This class is not thread safe.
  * </p>
  * 
@@ -57,19 +72,39 @@ import java.util.Map;
  */
 public class TypeMetaData  {
 	
+	// Code for a property not present for a data element
+	private static final int ABSENT = -1;
+	
+	private static final int INITIAL_CAPACITY = 16;
+	
 	// Properties are the keys for each map in the typeMetadata list.	
 	private List<String> properties;
 	
-	// List of mappings of metadata properties
-	private List<Map<String, String>> typeMetaData;
+	// Names of the stored property columns in the order they were first added and their index
+	private final List<String> columnNames = new ArrayList<>();
+	private final Map<String, Integer> columnIndex = new HashMap<>();
+	
+	// Per column: value to code and code to value
+	private final List<Map<String, Integer>> codes = new ArrayList<>();
+	private final List<List<String>> values = new ArrayList<>();
+	
+	// Per column: the value code of each data element
+	private int[][] columns = new int[0][];
+	
+	private int size = 0;
+	private int capacity = INITIAL_CAPACITY;
+	
+	// List view of the type metadata
+	private final List<Map<String, String>> typeMetaData = new TypeMetaDataList();
 
 	public TypeMetaData() {
 		properties = new ArrayList<>();
-		typeMetaData = new ArrayList<>();
 	}
 	
 	/**
-	 * Returns the type metadata represented as a list of property-value mappings.
+	 * Returns the type metadata represented as a list of property-value mappings. The list is a view of this instance's
+	 * storage: it reflects later additions, supports adding, replacing and removing elements, and its elements are
+	 * read-only maps.
 	 * 
 	 * @return list of property-value mappings.
 	 */
@@ -83,7 +118,15 @@ public class TypeMetaData  {
 	 * @param typeMetaData list of property-value mappings.
 	 */
 	public void setTypeMetaData(List<Map<String, String>> typeMetaData) {
-		this.typeMetaData = typeMetaData;
+		// The list may be a view of this instance
+		List<Map<String, String>> copy = new ArrayList<>(typeMetaData.size());
+		for (Map<String, String> propMap : typeMetaData) {
+			copy.add(new HashMap<>(propMap));
+		}
+		size = 0;
+		for (Map<String, String> propMap : copy) {
+			add(propMap);
+		}
 	}
 	
 	/**
@@ -92,7 +135,64 @@ public class TypeMetaData  {
 	 * @param propMap property-value map for each component of type metadata
 	 */
 	public void add(Map<String, String> propMap) {
-		typeMetaData.add(propMap);
+		insert(size, propMap);
+	}
+	
+	/**
+	 * Puts the type metadata of a data element specified as property values. This avoids creating a map per data
+	 * element.
+	 * 
+	 * @param props property names
+	 * @param propValues property values in the order of the property names
+	 */
+	public void add(List<String> props, String... propValues) {
+		if (props.size() != propValues.length) {
+			throw new IllegalArgumentException("Expected " + props.size() + " values: " + Arrays.toString(propValues));
+		}
+		ensureCapacity();
+		for (int[] column : columns) {
+			column[size] = ABSENT;
+		}
+		for (int i = 0; i < propValues.length; i++) {
+			int column = column(props.get(i));
+			columns[column][size] = encode(column, propValues[i]);
+		}
+		size++;
+	}
+	
+	/**
+	 * Returns the number of data elements.
+	 * 
+	 * @return number of data elements.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Removes the type metadata of all data elements from the specified index onwards.
+	 * 
+	 * @param newSize number of data elements to retain
+	 */
+	public void truncate(int newSize) {
+		if (newSize < 0 || newSize > size) {
+			throw new IndexOutOfBoundsException("Size: " + newSize);
+		}
+		size = newSize;
+	}
+	
+	/**
+	 * Returns the value of a property for a data element.
+	 * 
+	 * @param index index of the data element
+	 * @param property property name
+	 * 
+	 * @return the property value or null if the data element has no value for the property.
+	 */
+	public String getValue(int index, String property) {
+		checkIndex(index);
+		Integer column = columnIndex.get(property);
+		return column == null ? null : decode(column, columns[column][index]);
 	}
 
 	/**
@@ -126,4 +226,207 @@ public class TypeMetaData  {
     public String toString() {
 		return typeMetaData.toString();
 	}
-}
\ No newline at end of file
+	
+	/*
+	 * Columnar storage
+	 */
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+	
+	private void ensureCapacity() {
+		if (size == capacity) {
+			capacity *= 2;
+			for (int i = 0; i < columns.length; i++) {
+				columns[i] = Arrays.copyOf(columns[i], capacity);
+			}
+		}
+	}
+	
+	// Returns the column for a property adding it if required
+	private int column(String property) {
+		Integer column = columnIndex.get(property);
+		if (column == null) {
+			column = columnNames.size();
+			columnNames.add(property);
+			columnIndex.put(property, column);
+			codes.add(new HashMap<String, Integer>());
+			values.add(new ArrayList<String>());
+			int[] columnCodes = new int[capacity];
+			Arrays.fill(columnCodes, ABSENT);
+			columns = Arrays.copyOf(columns, column + 1);
+			columns[column] = columnCodes;
+		}
+		return column;
+	}
+	
+	private int encode(int column, String value) {
+		Integer code = codes.get(column).get(value);
+		if (code == null) {
+			code = values.get(column).size();
+			codes.get(column).put(value, code);
+			values.get(column).add(value);
+		}
+		return code;
+	}
+	
+	private String decode(int column, int code) {
+		return code == ABSENT ? null : values.get(column).get(code);
+	}
+	
+	private void insert(int index, Map<String, String> propMap) {
+		ensureCapacity();
+		for (int[] column : columns) {
+			System.arraycopy(column, index, column, index + 1, size - index);
+			column[index] = ABSENT;
+		}
+		size++;
+		for (Map.Entry<String, String> entry : propMap.entrySet()) {
+			int column = column(entry.getKey());
+			columns[column][index] = encode(column, entry.getValue());
+		}
+	}
+	
+	private void replace(int index, Map<String, String> propMap) {
+		for (int[] column : columns) {
+			column[index] = ABSENT;
+		}
+		for (Map.Entry<String, String> entry : propMap.entrySet()) {
+			int column = column(entry.getKey());
+			columns[column][index] = encode(column, entry.getValue());
+		}
+	}
+	
+	private void remove(int from, int to) {
+		for (int[] column : columns) {
+			System.arraycopy(column, to, column, from, size - to);
+		}
+		size -= to - from;
+	}
+	
+	/**
+	 * List view of the columnar storage.
+	 */
+	private class TypeMetaDataList extends AbstractList<Map<String, String>> {
+
+		@Override
+		public Map<String, String> get(int index) {
+			checkIndex(index);
+			return new TypeMetaDataMap(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public void add(int index, Map<String, String> propMap) {
+			if (index < 0 || index > size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			// The map may be a view of the element being moved
+			Map<String, String> copy = new HashMap<>(propMap);
+			insert(index, copy);
+			modCount++;
+		}
+
+		@Override
+		public Map<String, String> set(int index, Map<String, String> propMap) {
+			checkIndex(index);
+			Map<String, String> previous = new HashMap<>(get(index));
+			replace(index, new HashMap<>(propMap));
+			return previous;
+		}
+
+		@Override
+		public Map<String, String> remove(int index) {
+			checkIndex(index);
+			Map<String, String> previous = new HashMap<>(get(index));
+			TypeMetaData.this.remove(index, index + 1);
+			modCount++;
+			return previous;
+		}
+
+		@Override
+		protected void removeRange(int fromIndex, int toIndex) {
+			TypeMetaData.this.remove(fromIndex, toIndex);
+			modCount++;
+		}
+	}
+	
+	/**
+	 * Read-only map view of the type metadata of one data element.
+	 */
+	private class TypeMetaDataMap extends AbstractMap<String, String> {
+		
+		private final int index;
+		
+		TypeMetaDataMap(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public String get(Object key) {
+			Integer column = columnIndex.get(key);
+			return column == null ? null : decode(column, columns[column][index]);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			Integer column = columnIndex.get(key);
+			return column != null && columns[column][index] != ABSENT;
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			return new AbstractSet<Map.Entry<String, String>>() {
+
+				@Override
+				public Iterator<Map.Entry<String, String>> iterator() {
+					return new Iterator<Map.Entry<String, String>>() {
+						
+						private int next = advance(0);
+						
+						private int advance(int column) {
+							while (column < columns.length && columns[column][index] == ABSENT) {
+								column++;
+							}
+							return column;
+						}
+
+						@Override
+						public boolean hasNext() {
+							return next < columns.length;
+						}
+
+						@Override
+						public Map.Entry<String, String> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int column = next;
+							next = advance(column + 1);
+							return new AbstractMap.SimpleImmutableEntry<>(columnNames.get(column), 
+									decode(column, columns[column][index]));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					int count = 0;
+					for (int[] column : columns) {
+						if (column[index] != ABSENT) {
+							count++;
+						}
+					}
+					return count;
+				}
+			};
+		}
+	}
+}
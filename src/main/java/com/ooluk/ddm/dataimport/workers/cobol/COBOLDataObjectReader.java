@@ -15,15 +15,30 @@
  */
 package com.ooluk.ddm.dataimport.workers.cobol;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,7 +51,9 @@ import com.ooluk.ddm.dataimport.data.ScannedAttributeCode;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 import com.ooluk.ddm.dataimport.rule.RuleStore;
 import com.ooluk.ddm.dataimport.rule.RulesEngine;
+import com.ooluk.ddm.dataimport.workers.AbstractDataObjectReader;
 import com.ooluk.ddm.dataimport.workers.AbstractRuleBasedDataObjectReader;
+import com.ooluk.ddm.dataimport.workers.ResumableDataObjectReader;
 import com.ooluk.ddm.dataimport.workers.TypeMetaData;
 
 /**
@@ -54,7 +71,19 @@ import com.ooluk.ddm.dataimport.workers.TypeMetaData;
  * <p>
  * This implementation is not designed to directly work with the mainframe. You would need to download the copybooks to
  * a file system accessible to this reader. A single copybook should be specified as a file and a PDS should be
- * specified as a directory in which all copybooks are present as files.
+ * specified as a directory in which all copybooks are present as files, or as a zip or jar archive of the copybooks.
+ * </p>
+ * 
+ * <p>
+ * The PDS directory is traversed with a directory stream and only regular files are members. The optional parameters
+ * for PDS scope are:
+ * <ul>
+ * <li>memberPattern : a glob the member path relative to the PDS directory must match, such as "*.cpy" or "**.cpy"
+ * <li>recursive : "Yes" to include the members in subdirectories
+ * <li>archives : "Yes" to read the members of the zip and jar archives in the PDS directory without extracting them.
+ * The path of such a member is the archive path followed by "!/" and the path of the entry.
+ * </ul>
+ * Members are read in the order of their paths.
  * </p>
  * 
  * <p>
@@ -66,6 +95,30 @@ import com.ooluk.ddm.dataimport.workers.TypeMetaData;
  * </ul>
  * 
  * <p>
+ * COPY statements are resolved against the PDS directory, or the directory of the copybook for COPYBOOK scope, and
+ * the declarations of the copied member, with any REPLACING phrase applied, take the place of the statement. The
+ * declarations of copied members are cached so that a member copied by many copybooks is read once (see
+ * {@link CopybookCache}). The optional parameter "copybookCacheSize" sets the number of members cached (default 256). A
+ * member that cannot be found is reported and the COPY statement ignored.
+ * </p>
+ * 
+ * <p>
+ * For PDS scope the optional parameter "manifest" names a {@link PdsManifest} file, typically next to the import
+ * output. Only the members that are new or have changed since the manifest was saved, including the members that copy
+ * a member that has changed, are then read and the members deleted since are reported. The manifest is never saved by
+ * this reader; save it with {@code getManifest().save()} once all data objects have been written.
+ * </p>
+ * 
+ * <p>
+ * With the parameter "recordLayout" set to "Yes" the physical record layout is computed (see {@link RecordLayout}).
+ * Each attribute then carries the extended properties "offset" (the byte offset of its first occurrence from the
+ * beginning of the record) and "length" (the byte length of one occurrence) and, where applicable, "occurs" and
+ * "stride" (the occurrences and the byte distance between occurrences of each enclosing table, outermost first,
+ * separated by commas) and "redefines" (the item redefined by the attribute or its group). The data object carries
+ * the extended property "recordLength".
+ * </p>
+ * 
+ * <p>
  * The COBOLDataObjectReader can also be used to obtain COBOL type information. This is only valid for COPYBOOK scope.
  * Enable the reader for type information using {@link #enableForTypeMode}. To get type information use the usual
  * {@link #read} method and then call {@link #getTypeMetaData}. {@link #enableForTypeMode} should be called before
@@ -79,9 +132,13 @@ import com.ooluk.ddm.dataimport.workers.TypeMetaData;
  * @since 1.0
  * 
  */
-public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
+public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader implements ResumableDataObjectReader {
 	
 	private final Logger log = LogManager.getLogger();
+	
+	// Type metadata properties
+	private static final List<String> TYPE_PROPERTIES = Arrays.asList("attribute", "declaration", "type", "size", "scale",
+			"usage");
 
     /*
      * Parameters passed on call to init(...) that need to be saved.
@@ -98,6 +155,15 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	// The copybook file is mandatory for scope COPYBOOK. 
 	// For PDS scope this represents the copybook currently being processed
 	private String copybookFile;
+	
+	// The character set of the copybooks is optional and defaults to the platform default character set
+	private Charset charset = Charset.defaultCharset();
+	
+	// The number of copied members cached is optional
+	private int copybookCacheSize = 256;
+	
+	// Computing the record layout is optional
+	private boolean recordLayout = false;
 
 	/*
      * Member variables
@@ -117,17 +183,49 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	 * it is shared among methods. This could be passed on the stack as well as an argument to every method call but we
 	 * keep it simple.
 	 */
-	private BufferedReader reader;
+	private CopybookReader reader;
+	
+	// Declarations of copied members not yet returned for the in-process copybook
+	private final Deque<String> included = new ArrayDeque<>();
+	
+	// Cache of copied members, shared with the readers split off this reader
+	private CopybookCache copybookCache;
+	
+	// Members copied, directly or indirectly, by the last copybook read
+	private final Set<String> copiedMembers = new HashSet<>();
+	
+	// Layout of the in-process copybook if the record layout is computed
+	private RecordLayout layout;
+	
+	// The PDS directory, or the root directory of the PDS archive, for PDS scope
+	private Path library;
+	
+	// The member files (copybooks) of the PDS for PDS scope and their paths relative to the PDS directory
+	private Path[] members;
+	private String[] memberNames;
 	
-	// Tracks the current copybook line
-	private String currline = null;
+	// All files of the PDS, including those not matching the member pattern, by path relative to the PDS directory
+	private Map<String, Path> libraryFiles;
 	
-	// List of files (copybook members) in the PDS directory for PDS scope
-	private File[] members;
+	// The file currently being processed and, for PDS scope, its path relative to the PDS directory
+	private Path copybookPath;
+	private String memberName;
+	
+	// The member pattern, recursion and archive traversal are optional
+	private PathMatcher memberMatcher;
+	private boolean recursive = false;
+	private boolean readArchives = false;
+	
+	// Archives opened by this reader, closed when the reader is closed
+	private final List<FileSystem> archives = new ArrayList<>();
 	
 	// Index counter into the list of files (copybooks)
 	private int memberIdx = 0;
 	
+	// Manifest of the PDS members read in the previous run, if configured
+	private String manifestFile;
+	private PdsManifest manifest;
+	
 	TypeMetaData typeMetaData;
 
 	/**
@@ -149,6 +247,10 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
     	extractNamespacePrefix(params);
     	extractRulesParameters(params);
     	extractCaseMode(params);    	
+    	extractCharset(params);
+    	extractCopybookCacheSize(params);
+    	Object layoutParam = params.get("recordLayout");
+    	recordLayout = layoutParam != null && layoutParam.toString().equalsIgnoreCase("Yes");
 		configured = true;
 		init();
 	}
@@ -159,6 +261,17 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 			throwImportException(Messages.getMessage(
 					MessageKey.READ_NOT_CONFIG, "COBOLDataObjectReader"));
 		}
+		Path copyLibrary = scope == COBOLMetaDataScope.PDS ? library 
+				: Paths.get(copybookFile).toAbsolutePath().getParent();
+		copybookCache = new CopybookCache(copyLibrary, scope == COBOLMetaDataScope.PDS ? libraryFiles : null, charset, 
+				copybookCacheSize);
+		if (scope == COBOLMetaDataScope.PDS && manifestFile != null) {
+			// Copied members are resolved through the cache to tell whether they have changed
+			manifest = new PdsManifest(manifestFile);
+			manifest.setCopybookCache(copybookCache);
+			manifest.load();
+			selectChangedMembers();
+		}
 	}
 
     /**
@@ -223,12 +336,171 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 			throwImportException(msg);
 		}
 		
-		if (!dir.isDirectory()) {
+		if (dir.isFile() && isArchive(dir.toPath())) {
+			library = openArchive(dir.toPath());
+		} else if (!dir.isDirectory()) {
 			String msg = Messages.getMessage(MessageKey.COB_NOT_A_DIR, copybookDirectory);
 			super.appendStatusLine(msg);
 			throwImportException(msg);
+		} else {
+			library = dir.toPath();
+		}
+		
+		String pattern = (String) params.get("memberPattern");
+		if (pattern != null) {
+			try {
+				memberMatcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern.trim());
+			} catch (IllegalArgumentException ex) {
+				String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, "memberPattern");
+				super.appendStatusLine(msg);
+				throwImportException(msg);
+			}
+		}
+		Object recursiveParam = params.get("recursive");
+		recursive = recursiveParam != null && recursiveParam.toString().equalsIgnoreCase("Yes");
+		Object archivesParam = params.get("archives");
+		readArchives = archivesParam != null && archivesParam.toString().equalsIgnoreCase("Yes");
+		manifestFile = (String) params.get("manifest");
+		
+		// Sort the members so that the member order, and therefore a resume position, is stable across runs
+		TreeMap<String, Path> files = new TreeMap<>();
+		try {
+			collectFiles(library, "", files, new HashSet<Path>());
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+			throwImportException(e);
+		}
+		// COPY statements are resolved against all files so that a copied member need not match the member pattern
+		libraryFiles = files;
+		TreeMap<String, Path> found = new TreeMap<>();
+		for (Map.Entry<String, Path> file : files.entrySet()) {
+			if (isMember(file.getKey(), file.getValue())) {
+				found.put(file.getKey(), file.getValue());
+			}
+		}
+		members = found.values().toArray(new Path[found.size()]);
+		memberNames = found.keySet().toArray(new String[found.size()]);
+	}
+
+	/**
+	 * Collects the files of a directory of the PDS, descending into subdirectories and archives if enabled. A
+	 * directory is read once, so a symbolic link to a directory already read, such as a parent directory, is skipped.
+	 * 
+	 * @param dir
+	 *            the directory
+	 * @param prefix
+	 *            the path of the directory relative to the PDS directory, empty or ending with a separator
+	 * @param found
+	 *            the files found by path relative to the PDS directory
+	 * @param visited
+	 *            the real paths of the directories read
+	 * 
+	 * @throws IOException
+	 *             if the directory cannot be read
+	 */
+	private void collectFiles(Path dir, String prefix, Map<String, Path> found, Set<Path> visited) 
+			throws IOException {
+		if (!visited.add(dir.toRealPath())) {
+			return;
+		}
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path entry : stream) {
+				String fileName = entry.getFileName().toString();
+				if (fileName.endsWith("/")) {
+					fileName = fileName.substring(0, fileName.length() - 1);
+				}
+				String name = prefix + fileName;
+				BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+				if (attrs.isDirectory()) {
+					if (recursive) {
+						collectFiles(entry, name + "/", found, visited);
+					}
+				} else if (attrs.isRegularFile()) {
+					if (readArchives && isArchive(entry) && entry.getFileSystem() == FileSystems.getDefault()) {
+						collectFiles(openArchive(entry), name + "!/", found, visited);
+					} else {
+						found.put(name, entry);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines if a file of the PDS is a member. A member matches the member pattern, if any, and is neither the
+	 * manifest nor one of the temporary files written while the manifest is saved.
+	 * 
+	 * @param name
+	 *            path of the file relative to the PDS directory
+	 * @param file
+	 *            the file
+	 * 
+	 * @return true if the file is a member; false otherwise.
+	 */
+	boolean isMember(String name, Path file) {
+		if (memberMatcher != null && !memberMatcher.matches(Paths.get(name))) {
+			return false;
+		}
+		if (manifestFile == null || file.getFileSystem() != FileSystems.getDefault()) {
+			return true;
+		}
+		Path manifestPath = Paths.get(manifestFile).toAbsolutePath();
+		Path path = file.toAbsolutePath();
+		if (path.equals(manifestPath)) {
+			return false;
 		}
-		members = dir.listFiles();
+		String fileName = path.getFileName().toString();
+		return !(Objects.equals(path.getParent(), manifestPath.getParent()) 
+				&& fileName.startsWith(manifestPath.getFileName().toString()) && fileName.endsWith(".tmp"));
+	}
+
+	/**
+	 * Determines if a file is a zip or jar archive by its extension.
+	 */
+	private static boolean isArchive(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		return name.endsWith(".zip") || name.endsWith(".jar");
+	}
+
+	/**
+	 * Opens an archive as a file system.
+	 * 
+	 * @param file
+	 *            the archive
+	 * 
+	 * @return the root directory of the archive.
+	 */
+	private Path openArchive(Path file) {
+		FileSystem fs = null;
+		try {
+			fs = FileSystems.newFileSystem(file, (ClassLoader) null);
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+			throwImportException(e);
+		}
+		archives.add(fs);
+		return fs.getRootDirectories().iterator().next();
+	}
+
+	/**
+	 * Selects the PDS members that are new or have changed according to the manifest and reports the deleted members.
+	 * The members not selected are removed from the member list.
+	 */
+	private void selectChangedMembers() {
+		List<Path> changed = new ArrayList<>();
+		List<String> changedNames = new ArrayList<>();
+		for (int i = 0; i < members.length; i++) {
+			if (manifest.isChanged(memberNames[i], members[i])) {
+				changed.add(members[i]);
+				changedNames.add(memberNames[i]);
+			}
+		}
+		for (String removed : manifest.getRemoved()) {
+			super.appendStatusLine(Messages.getMessage(MessageKey.COB_MEMBER_REMOVED, removed));
+		}
+		super.appendStatusLine(Messages.getMessage(MessageKey.READ_UNCHANGED_SKIPPED, members.length - changed.size()));
+		members = changed.toArray(new Path[changed.size()]);
+		memberNames = changedNames.toArray(new String[changedNames.size()]);
 	}
 
 	/**
@@ -326,6 +598,57 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 		}
    }
 
+	/**
+	 * Extracts the character set of the copybooks from the initialization parameters. The character set is optional.
+	 * Copybooks in an EBCDIC code page such as "Cp037" or "Cp1047" are decoded while they are read.
+	 * 
+	 * @param params
+	 *            initialization parameters
+	 */
+	private void extractCharset(Map<String, Object> params) {
+
+		String name = (String) params.get("charset");
+		if (name != null) {
+			Charset cs = null;
+			try {
+				cs = Charset.forName(name.trim());
+			} catch (IllegalArgumentException ex) {
+				// Reported below
+			}
+			if (cs == null || !CopybookReader.isSupported(cs)) {
+				String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, "charset");
+				super.appendStatusLine(msg);
+				throwImportException(msg);
+			}
+			charset = cs;
+		}
+	}
+
+	/**
+	 * Extracts the number of copied members cached from the initialization parameters. The parameter is optional.
+	 * 
+	 * @param params
+	 *            initialization parameters
+	 */
+	private void extractCopybookCacheSize(Map<String, Object> params) {
+
+		Object value = params.get("copybookCacheSize");
+		if (value != null) {
+			int size = 0;
+			try {
+				size = Integer.parseInt(value.toString().trim());
+			} catch (NumberFormatException ex) {
+				// Reported below
+			}
+			if (size < 1) {
+				String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, "copybookCacheSize");
+				super.appendStatusLine(msg);
+				throwImportException(msg);
+			}
+			copybookCacheSize = size;
+		}
+	}
+
 	@Override
 	public ScannedDataObject read() {
 
@@ -336,7 +659,8 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 					dObj = null;
 					break;
 				}
-				copybookFile = members[memberIdx++].getPath();
+				setMember(members[memberIdx], memberNames[memberIdx]);
+				memberIdx++;
 				dObj = processCopybook();
 				break;
 			case COPYBOOK:
@@ -346,6 +670,137 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 		return dObj;
 	}
 
+	/**
+	 * Reads up to {@code max} copybooks. For PDS scope the batch is filled directly from the member list; COPYBOOK scope
+	 * yields at most one data object.
+	 */
+	@Override
+	public List<ScannedDataObject> read(int max) {
+
+		List<ScannedDataObject> batch = createBatch(max);
+		switch (scope) {
+			case PDS:
+				int end = Math.min(members.length, memberIdx + max);
+				while (memberIdx < end) {
+					setMember(members[memberIdx], memberNames[memberIdx]);
+					memberIdx++;
+					batch.add(processCopybook());
+				}
+				break;
+			case COPYBOOK:
+				if (!processed) {
+					batch.add(processCopybook());
+				}
+				break;
+		}
+		return batch;
+	}
+
+	/**
+	 * Returns the position after the last copybook read. The position comprises the number of PDS members read
+	 * ("memberIndex") and the name of the last copybook read ("member").
+	 */
+	@Override
+	public Map<String, String> getPosition() {
+		Map<String, String> position = new HashMap<>();
+		switch (scope) {
+			case PDS:
+				if (memberIdx > 0) {
+					position.put("memberIndex", String.valueOf(memberIdx));
+					position.put("member", memberNames[memberIdx - 1]);
+				}
+				break;
+			case COPYBOOK:
+				if (processed) {
+					position.put("member", Paths.get(copybookFile).getFileName().toString());
+				}
+				break;
+		}
+		return position;
+	}
+
+	/**
+	 * Positions the reader after the copybook identified by the position. For PDS scope the member index is used if it
+	 * is valid and still refers to the same member; otherwise the member is located by name. If the member no longer
+	 * exists the reader starts from the first member.
+	 */
+	@Override
+	public void resume(Map<String, String> position) {
+		String member = position.get("member");
+		if (member == null) {
+			return;
+		}
+		super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUMING, member));
+		switch (scope) {
+			case PDS:
+				String index = position.get("memberIndex");
+				int idx = 0;
+				if (index != null) {
+					try {
+						idx = Integer.parseInt(index);
+					} catch (NumberFormatException ex) {
+						// A corrupt index is ignored and the member is located by name
+					}
+				}
+				if (idx > 0 && idx <= members.length && memberNames[idx - 1].equals(member)) {
+					memberIdx = idx;
+					return;
+				}
+				for (int i = 0; i < members.length; i++) {
+					if (memberNames[i].equals(member)) {
+						memberIdx = i + 1;
+						return;
+					}
+				}
+				super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUME_NOT_FOUND, member));
+				memberIdx = 0;
+				break;
+			case COPYBOOK:
+				processed = true;
+				break;
+		}
+	}
+
+	/**
+	 * Splits off the lower half of the PDS members not yet read. Only PDS scope can be split and type mode is never
+	 * split because the type metadata is collected per reader.
+	 */
+	@Override
+	protected AbstractDataObjectReader trySplit() {
+		if (scope != COBOLMetaDataScope.PDS || super.isEnabledForTypeMode()) {
+			return null;
+		}
+		int remaining = members.length - memberIdx;
+		if (remaining < 2) {
+			return null;
+		}
+		int mid = memberIdx + remaining / 2;
+		COBOLDataObjectReader split = new COBOLDataObjectReader();
+		copySettings(split);
+		split.caseMode = caseMode;
+		split.scope = scope;
+		split.copybookDirectory = copybookDirectory;
+		split.charset = charset;
+		split.copybookCacheSize = copybookCacheSize;
+		split.copybookCache = copybookCache;
+		split.manifest = manifest;
+		split.recordLayout = recordLayout;
+		split.library = library;
+		split.members = Arrays.copyOfRange(members, memberIdx, mid);
+		split.memberNames = Arrays.copyOfRange(memberNames, memberIdx, mid);
+		split.configured = true;
+		memberIdx = mid;
+		return split;
+	}
+
+	@Override
+	protected long estimateRemaining() {
+		if (scope == COBOLMetaDataScope.PDS) {
+			return members.length - memberIdx;
+		}
+		return processed ? 0 : 1;
+	}
+
 	/**
 	 * Scans a copybook.
 	 * 
@@ -354,9 +809,66 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	private ScannedDataObject processCopybook() {
 		ScannedDataObject dObj = createDataObject();
 		processed = true;
+		if (manifest != null && memberName != null) {
+			manifest.setCopiedMembers(memberName, copiedMembers);
+		}
 		return dObj;
 	}
 
+	/**
+	 * Scans a single PDS member. This method is used by the {@link CopybookWatcher} to scan the members that have
+	 * changed.
+	 * 
+	 * @param name
+	 *            path of the member relative to the PDS directory
+	 * @param member
+	 *            the member file
+	 * 
+	 * @return scanned data object.
+	 */
+	ScannedDataObject readMember(String name, Path member) {
+		setMember(member, name);
+		return processCopybook();
+	}
+
+	/**
+	 * Sets the PDS member to be processed next.
+	 */
+	private void setMember(Path member, String name) {
+		copybookPath = member;
+		copybookFile = member.toString();
+		memberName = name;
+	}
+
+	/**
+	 * Returns the path relative to the PDS directory of the last member read. This method is applicable to the PDS
+	 * scope only.
+	 * 
+	 * @return the member path.
+	 */
+	String getMemberName() {
+		return memberName;
+	}
+
+	/**
+	 * Returns the names of the members copied by the last copybook read, in upper case.
+	 * 
+	 * @return the copied member names.
+	 */
+	Set<String> getCopiedMembers() {
+		return new HashSet<>(copiedMembers);
+	}
+
+	/**
+	 * Appends a status line to the log of this reader on behalf of the {@link CopybookWatcher}.
+	 * 
+	 * @param msg
+	 *            the status line
+	 */
+	void reportStatus(String msg) {
+		super.appendStatusLine(msg);
+	}
+
 	/**
 	 * Creates a ScannedDataObject from the current copybook.
 	 * 
@@ -373,8 +885,8 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 		}
 
 		// Name
-		File fCopy = new File(copybookFile);
-		String oName = fCopy.getName();
+		Path fCopy = copybookPath != null ? copybookPath : Paths.get(copybookFile);
+		String oName = fCopy.getFileName().toString();
 		String msg = Messages.getMessage(MessageKey.READ_IMPORTING, oName);
 		super.appendStatusLine("-------------------------------------------");
 		super.appendStatusLine(msg);
@@ -383,19 +895,21 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 
 		// Attributes
 		reader = openFile(fCopy);
+		included.clear();
+		copiedMembers.clear();
+		layout = recordLayout && !super.isEnabledForTypeMode() ? new RecordLayout() : null;
 		List<ScannedAttribute> attributes = createAttributes(oName);
-		try {
-	        reader.close();
-        } catch (IOException e) {
-	        log.error(e.getMessage(), e);
-	        // Don't throw exception if error occurs on close(). Do log it though.
-        }
+		reader = null;
 
 		// Create ScannedDataObject
 		ScannedDataObject dObj = new ScannedDataObject(caseMode);
 		dObj.setNamespace(oNamepsace);
 		dObj.setName(oName);
 		dObj.setAttributes(attributes);
+		if (layout != null) {
+			dObj.getExtendedProperties().put("recordLength", String.valueOf(layout.getRecordLength()));
+			layout = null;
+		}
 		return dObj;
 	}
 
@@ -411,6 +925,8 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 
 		List<ScannedAttribute> attributes = new ArrayList<>();
 		ScannedAttribute attr = null;
+		List<ScannedAttribute> layoutAttributes = new ArrayList<>();
+		List<RecordLayout.Field> layoutFields = new ArrayList<>();
 
 		String line = getNextDeclaration();
 		while (line != null) {
@@ -420,6 +936,7 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 			}
 			
 			COBOLMetaData cbmd = new COBOLMetaData(line);
+			RecordLayout.Field field = layout == null ? null : layout.add(cbmd);
 			if (cbmd.getLevel() == 88) {
 				String codeValue = cbmd.getValue();
 				String valueDesc = cbmd.getDataName();
@@ -438,8 +955,32 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 			
 			attr = createAttribute(cbmd, attributes.size() + 1);
 			attributes.add(attr);
+			if (field != null) {
+				// Lengths and the strides of enclosing tables are known once the record has been laid out
+				layoutAttributes.add(attr);
+				layoutFields.add(field);
+			}
 			line = getNextDeclaration();
 		}
+		if (layout != null) {
+			layout.finish();
+			for (int i = 0; i < layoutAttributes.size(); i++) {
+				RecordLayout.Field field = layoutFields.get(i);
+				if (field.isGroup()) {
+					continue;
+				}
+				Map<String, String> props = layoutAttributes.get(i).getExtendedProperties();
+				props.put("offset", String.valueOf(field.getOffset()));
+				props.put("length", String.valueOf(field.getLength()));
+				if (!field.getRedefines().isEmpty()) {
+					props.put("redefines", field.getRedefines());
+				}
+				if (!field.getOccurs().isEmpty()) {
+					props.put("occurs", field.getOccurs());
+					props.put("stride", field.getStrides());
+				}
+			}
+		}
 		return attributes;
 	}
 
@@ -512,16 +1053,16 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	}
 
 	/**
-	 * Opens the specified file for reading.
+	 * Opens the specified file for reading in the configured character set.
 	 * 
 	 * @param file
 	 *            the file path
 	 */
-	private BufferedReader openFile(File file) {
-		BufferedReader fReader = null;
+	private CopybookReader openFile(Path file) {
+		CopybookReader fReader = null;
 		try {
-			fReader = new BufferedReader(new FileReader(file));
-		} catch (FileNotFoundException e) {
+			fReader = new CopybookReader(file, charset);
+		} catch (IOException e) {
 	        log.error(e.getMessage(), e);
 			throwImportException(e);
 		}
@@ -529,68 +1070,86 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	}
 
 	/**
-	 * Returns the next declaration from the copybook. A declaration could span multiple physical lines. This method
-	 * concatenates all such lines to extract a complete declaration.
+	 * Returns the next declaration from the copybook. A declaration could span multiple physical lines. The copybook
+	 * reader concatenates all such lines to extract a complete declaration. A COPY statement is replaced by the
+	 * declarations of the copied member.
 	 * 
 	 * @return a field declaration.
 	 */
 	private String getNextDeclaration() {
-		StringBuilder sentence = new StringBuilder();
-		currline = currline == null ? readLine(reader) : currline;
-		while (currline != null) {
-			int length = currline.length() > 72 ? 72 : currline.length(); 
-			currline = currline.substring(7, length);
-			sentence.append(currline);
-			String nextline = readLine(reader);
-			if (COBOLSyntax.isContinued(currline)) {
-				currline = nextline;
-				continue;
+		while (included.isEmpty()) {
+			String declaration = reader.nextDeclaration();
+			CopyStatement copy = declaration == null ? null : CopyStatement.parse(declaration);
+			if (copy == null) {
+				return declaration;
 			}
-			currline = nextline;
-			String str = sentence.toString().trim();
-			if (str.endsWith(".")) {
-				str = str.substring(0, str.length() - 1);
-			}
-			return str;
+			included.addAll(expandCopy(copy, new HashSet<String>()));
 		}
-		return currline;
+		return included.poll();
 	}
 
 	/**
-	 * Reads a declaration line from the copybook. This method just reads a physical line. A declaration could span
-	 * multiple physical lines.
+	 * Returns the declarations of a copied member. COPY statements in the member are expanded recursively and the
+	 * REPLACING phrase of the statement is applied to the result.
 	 * 
-	 * @param reader
-	 *            reader for the copybook.
+	 * @param copy
+	 *            the COPY statement
+	 * @param active
+	 *            the members being expanded, used to detect recursive COPY statements
 	 * 
-	 * @return next declaration line.
+	 * @return the declarations of the copied member.
 	 */
-	private String readLine(BufferedReader reader) {
-		String line = "";
+	private List<String> expandCopy(CopyStatement copy, Set<String> active) {
+		String member = copy.getMember();
+		String key = member.toUpperCase(Locale.ROOT);
+		if (!active.add(key)) {
+			super.appendStatusLine(Messages.getMessage(MessageKey.COB_COPY_RECURSIVE, member));
+			return Collections.emptyList();
+		}
+		copiedMembers.add(key);
+		List<String> declarations = null;
 		try {
-			line = reader.readLine();
-			int length = line == null ? 0 : line.length() > 72 ? 72 : line.length(); 
-			// Skip short lines, blank lines and comments
-			while (line != null && 
-					(line.length() < 7 || line.substring(7, length).isEmpty() || COBOLSyntax.isComment(line))) {
-				line = reader.readLine();
-				length = line == null ? 0 : line.length() > 72 ? 72 : line.length(); 
-			}			
+			declarations = copybookCache.getDeclarations(member);
 		} catch (IOException e) {
-	        log.error(e.getMessage(), e);
+			log.error(e.getMessage(), e);
 			throwImportException(e);
 		}
-		return line;
+		if (declarations == null) {
+			super.appendStatusLine(Messages.getMessage(MessageKey.COB_COPY_MEMBER_NOT_FOUND, member));
+			active.remove(key);
+			return Collections.emptyList();
+		}
+		List<String> expanded = new ArrayList<>(declarations.size());
+		for (String declaration : declarations) {
+			CopyStatement nested = CopyStatement.parse(declaration);
+			if (nested != null) {
+				expanded.addAll(expandCopy(nested, active));
+			} else {
+				expanded.add(declaration);
+			}
+		}
+		active.remove(key);
+		if (copy.isReplacing()) {
+			for (int i = 0; i < expanded.size(); i++) {
+				expanded.set(i, copy.replace(expanded.get(i)));
+			}
+		}
+		return expanded;
 	}
 
 	@Override
 	public void close() {
-		try {
-			if (reader != null)
-				reader.close();
-        } catch (IOException e) {
-	        log.error(e.getMessage(), e);
-        }
+		// The copybook is read completely while creating its data object, so only the archives need to be released
+		reader = null;
+		included.clear();
+		for (FileSystem archive : archives) {
+			try {
+				archive.close();
+			} catch (IOException e) {
+				log.error(e.getMessage(), e);
+			}
+		}
+		archives.clear();
 	}
 
 	@Override
@@ -621,14 +1180,7 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	 *            the usage clause if applicable
 	 */
 	private void addTypeData(String col, String declaration, String type, String size, String scale, String usage) {
-		Map<String, String> typeMap = new HashMap<>();
-		typeMap.put("attribute", col);
-		typeMap.put("declaration", declaration);
-		typeMap.put("type", type);
-		typeMap.put("size", size);
-		typeMap.put("scale", scale);
-		typeMap.put("usage", usage);
-		typeMetaData.add(typeMap);
+		typeMetaData.add(TYPE_PROPERTIES, col, declaration, type, size, scale, usage);
 	}
 
 	/**
@@ -666,4 +1218,68 @@ public class COBOLDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	public String getCopybookFile() {
 		return copybookFile;
 	}
+
+	/**
+	 * Returns the character set of the copybooks.
+	 * 
+	 * @return the character set the copybooks are read in.
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Returns the maximum number of copied members cached.
+	 * 
+	 * @return the copybook cache size.
+	 */
+	public int getCopybookCacheSize() {
+		return copybookCacheSize;
+	}
+
+	/**
+	 * Returns the manifest of the PDS members. This method is applicable to the PDS scope only.
+	 * 
+	 * @return the manifest or null if no manifest has been configured.
+	 */
+	public PdsManifest getManifest() {
+		return manifest;
+	}
+
+	/**
+	 * Determines if the subdirectories of the PDS directory are read. This method is applicable to the PDS scope only.
+	 * 
+	 * @return true if members in subdirectories are read; false otherwise.
+	 */
+	public boolean isRecursive() {
+		return recursive;
+	}
+
+	/**
+	 * Determines if the zip and jar archives in the PDS directory are read. This method is applicable to the PDS scope
+	 * only.
+	 * 
+	 * @return true if members in archives are read; false otherwise.
+	 */
+	public boolean isReadArchives() {
+		return readArchives;
+	}
+
+	/**
+	 * Determines if the record layout is computed.
+	 * 
+	 * @return true if attributes carry their offset and length; false otherwise.
+	 */
+	public boolean isRecordLayout() {
+		return recordLayout;
+	}
+
+	/**
+	 * Returns the cache of copied members. This method is provided for testing.
+	 * 
+	 * @return the copybook cache.
+	 */
+	CopybookCache getCopybookCache() {
+		return copybookCache;
+	}
 }
\ No newline at end of file
@@ -17,6 +17,9 @@ package com.ooluk.ddm.dataimport.workers.cobol;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -33,14 +36,45 @@ import org.apache.logging.log4j.Logger;
  * <li>Decimal digits
  * <li>Usage
  * <li>Value
+ * <li>Picture, OCCURS, REDEFINES and SIGN SEPARATE, which determine the storage layout (see {@link RecordLayout})
  * </ul>
  * 
+ * <p>
+ * The type, size and decimal digits depend only on the picture string and the USAGE phrase. They are classified once
+ * per distinct combination and shared through a bounded cache by all instances on all threads. Once the cache is full
+ * further combinations are classified on every use.
+ * 
  * @author Siddhesh Prabhu
  * @since 1.0
  */
 public class COBOLMetaData {
 	
-	private final Logger log = LogManager.getLogger();
+	// Shared by all instances as an instance is created for every declaration
+	private static final Logger log = LogManager.getLogger();
+	
+	// Maximum number of distinct picture string and usage combinations cached
+	private static final int TYPE_CACHE_SIZE = 4096;
+	
+	// Classified types by picture string and usage phrase
+	private static final ConcurrentMap<String, PictureType> typeCache = new ConcurrentHashMap<>();
+	
+	// Token delimiter in a declaration
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	
+	/**
+	 * The classification of a picture string and usage phrase.
+	 */
+	private static final class PictureType {
+		private final String type;
+		private final int size;
+		private final int decimalDigits;
+
+		private PictureType(String type, int size, int decimalDigits) {
+			this.type = type;
+			this.size = size;
+			this.decimalDigits = decimalDigits;
+		}
+	}
 	
 	private int level;
 	private String dataName;
@@ -50,6 +84,10 @@ public class COBOLMetaData {
 	private String usage;
 	private String value;
 	private String declaredType;
+	private String picture;
+	private int occurs;
+	private String redefines;
+	private boolean signSeparate;
 	
 	public COBOLMetaData(String line) {
 		List<String> tokens = tokenize(line);
@@ -88,6 +126,22 @@ public class COBOLMetaData {
 		return declaredType;
 	}
 
+	public String getPicture() {
+		return picture;
+	}
+
+	public int getOccurs() {
+		return occurs;
+	}
+
+	public String getRedefines() {
+		return redefines;
+	}
+
+	public boolean isSignSeparate() {
+		return signSeparate;
+	}
+
 	/**
 	 * Tokenizes the specified string using whitespace delimiters.
 	 * 
@@ -97,7 +151,7 @@ public class COBOLMetaData {
 	 * @return list of tokens
 	 */
     private List<String> tokenize(String line) {
-        String[] tokenArray = line.trim().split("[\\s]+");
+        String[] tokenArray = WHITESPACE.split(line.trim());
         List<String> tokens = Arrays.asList(tokenArray);
         return tokens;
 	}
@@ -116,14 +170,55 @@ public class COBOLMetaData {
         // Data-Name
         dataName = COBOLSyntax.getDataName(tokens);
         
+        // Clause positions, located in a single pass
+        int[] clauses = COBOLSyntax.indexClauses(tokens);
+        
         // PICTURE string
-        String pictureString = COBOLSyntax.getPictureString(tokens); 
+        String pictureString = COBOLSyntax.getPictureString(tokens, clauses); 
+        picture = pictureString;
         
         // USAGE         
-        String usagePhrase = COBOLSyntax.getUsagePhrase(tokens);
+        String usagePhrase = COBOLSyntax.getUsagePhrase(tokens, clauses);
         createInterfaceUsage(usagePhrase);
         
         // Type, Size and Decimal Digits
+        String key = pictureString + '\u0000' + usagePhrase;
+        PictureType cached = typeCache.get(key);
+        if (cached != null) {
+        	type = cached.type;
+        	size = cached.size;
+        	decimalDigits = cached.decimalDigits;
+        } else {
+        	classify(pictureString, usagePhrase);
+        	if (typeCache.size() < TYPE_CACHE_SIZE) {
+        		typeCache.putIfAbsent(key, new PictureType(type, size, decimalDigits));
+        	}
+        }
+        
+        // Declared Type
+        declaredType = pictureString + (usagePhrase.isEmpty() ? "" : (pictureString.isEmpty() ? "" : " ") + usagePhrase);
+        if (log.isTraceEnabled()) {
+        	log.trace(declaredType + " = " + type, this, "");
+        }
+        
+        // VALUE
+        value = COBOLSyntax.getValue(tokens, clauses);
+        
+        // Storage layout
+        occurs = COBOLSyntax.getOccurs(tokens, clauses);
+        redefines = COBOLSyntax.getRedefinedName(tokens, clauses);
+        signSeparate = COBOLSyntax.isSignSeparate(clauses);
+	}
+
+	/**
+	 * Classifies a picture string and usage phrase into the type, size and decimal digits.
+	 * 
+	 * @param pictureString
+	 *            the picture character string
+	 * @param usagePhrase
+	 *            the usage phrase
+	 */
+    private void classify(String pictureString, String usagePhrase) {
         String eType = COBOLSyntax.expandDeclaration(pictureString);
         type = "";            
         if (COBOLSyntax.isNumericPlus(eType)) {
@@ -141,14 +236,7 @@ public class COBOLMetaData {
         } else {
         	type = "";
         }
-        
-        // Declared Type
-        declaredType = pictureString + (usagePhrase.isEmpty() ? "" : (pictureString.isEmpty() ? "" : " ") + usagePhrase);
-        log.trace(declaredType + " = " + type, this, "");
-        
-        // VALUE
-        value = COBOLSyntax.getValue(tokens);
-	}
+    }
 
 	/**
 	 * Creates the interface type for the alphabetic type.
@@ -171,7 +259,13 @@ public class COBOLMetaData {
     private void createInterfaceTypeForAlphanumericPlus(String picture) {
         String eType = COBOLSyntax.expandDeclaration(picture);
         type = "ALPHANUM";
-        size = eType.replaceAll("[B0/]", "").length();
+        size = 0;
+        for (int i = 0; i < eType.length(); i++) {
+        	char ch = eType.charAt(i);
+        	if (ch != 'B' && ch != '0' && ch != '/') {
+        		size++;
+        	}
+        }
     }
 
 	/**
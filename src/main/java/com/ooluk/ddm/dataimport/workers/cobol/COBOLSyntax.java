@@ -28,22 +28,30 @@ import java.util.List;
  * 
  */
 public final class COBOLSyntax {
-		
-	// List of keywords that can directly follow a level-number in a data description.
-	private static String[] keywords = {
-            "FILLER", "RENAMES", "REDEFINES", "BLANK", "EXTERNAL", "GLOBAL", "GROUP-USAGE", "JUSTIFIED", 
-            "JUST", "PICTURE", "PIC", "SIGN", "SYNCHRONIZED", "SYNC", "USAGE", "VALUE", "VALUES"
-     };
 	
-	// Supported USAGE phrases
-	private static String[] usages = {
+	// Supported USAGE phrases in order of precedence when an entry has more than one
+	private static final String[] usages = {
 			"BINARY", "COMP", "COMP-1", "COMP-2", "COMP-3", "COMP-4", "COMP-5",
 			"COMPUTATIONAL", "COMPUTATIONAL-1", "COMPUTATIONAL-2", 
 			"COMPUTATIONAL-3", "COMPUTATIONAL-4", "COMPUTATIONAL-5",
+			"PACKED-DECIMAL", "NATIONAL", "DISPLAY-1", "INDEX", "POINTER", "FUNCTION-POINTER", "PROCEDURE-POINTER",
 	};
 	
-     private static List<String> keywordList = Arrays.asList(keywords);
-     private static List<String> usageList = Arrays.asList(usages);
+	/*
+	 * Slots of the clause index built by indexClauses(). Each slot holds the position of the first token of the kind
+	 * or -1 if the entry has none. The USAGE_PHRASE slot holds the position of the USAGE phrase written without the
+	 * USAGE keyword.
+	 */
+	static final int PIC = 0;
+	static final int PICTURE = 1;
+	static final int USAGE = 2;
+	static final int VALUE = 3;
+	static final int VALUES = 4;
+	static final int OCCURS = 5;
+	static final int REDEFINES = 6;
+	static final int SEPARATE = 7;
+	static final int USAGE_PHRASE = 8;
+	private static final int CLAUSE_SLOTS = 9;
      
      /**
       * Make the class uninstantiable.
@@ -190,7 +198,131 @@ public final class COBOLSyntax {
 	 * @return true if the token is a keyword that can follow a level-number; false otherwise.
 	 */
     private static boolean isKeyword(String token) {
-        return keywordList.contains(token);                        
+    	switch (token) {
+    	case "FILLER": case "RENAMES": case "REDEFINES": case "BLANK": case "EXTERNAL": case "GLOBAL":
+    	case "GROUP-USAGE": case "JUSTIFIED": case "JUST": case "PICTURE": case "PIC": case "SIGN":
+    	case "SYNCHRONIZED": case "SYNC": case "USAGE": case "VALUE": case "VALUES":
+    		return true;
+    	default:
+    		return false;
+    	}
+	}
+
+	/**
+	 * Gets the clause index slot of a token.
+	 * 
+	 * @param token
+	 *            the token to be examined
+	 *            
+	 * @return the slot of the clause keyword or -1 if the token is not one of the clause keywords indexed.
+	 */
+    private static int getClauseSlot(String token) {
+    	switch (token) {
+    	case "PIC":
+    		return PIC;
+    	case "PICTURE":
+    		return PICTURE;
+    	case "USAGE":
+    		return USAGE;
+    	case "VALUE":
+    		return VALUE;
+    	case "VALUES":
+    		return VALUES;
+    	case "OCCURS":
+    		return OCCURS;
+    	case "REDEFINES":
+    		return REDEFINES;
+    	case "SEPARATE":
+    		return SEPARATE;
+    	default:
+    		return -1;
+    	}
+	}
+
+	/**
+	 * Gets the precedence of a USAGE phrase.
+	 * 
+	 * @param token
+	 *            the token to be examined
+	 *            
+	 * @return the position of the phrase in the supported USAGE phrases or -1 if the token is not a USAGE phrase.
+	 */
+    private static int getUsageRank(String token) {
+    	switch (token) {
+    	case "BINARY":
+    		return 0;
+    	case "COMP":
+    		return 1;
+    	case "COMP-1":
+    		return 2;
+    	case "COMP-2":
+    		return 3;
+    	case "COMP-3":
+    		return 4;
+    	case "COMP-4":
+    		return 5;
+    	case "COMP-5":
+    		return 6;
+    	case "COMPUTATIONAL":
+    		return 7;
+    	case "COMPUTATIONAL-1":
+    		return 8;
+    	case "COMPUTATIONAL-2":
+    		return 9;
+    	case "COMPUTATIONAL-3":
+    		return 10;
+    	case "COMPUTATIONAL-4":
+    		return 11;
+    	case "COMPUTATIONAL-5":
+    		return 12;
+    	case "PACKED-DECIMAL":
+    		return 13;
+    	case "NATIONAL":
+    		return 14;
+    	case "DISPLAY-1":
+    		return 15;
+    	case "INDEX":
+    		return 16;
+    	case "POINTER":
+    		return 17;
+    	case "FUNCTION-POINTER":
+    		return 18;
+    	case "PROCEDURE-POINTER":
+    		return 19;
+    	default:
+    		return -1;
+    	}
+	}
+
+	/**
+	 * Indexes the clauses of a data description entry in a single pass over its tokens. The index can be passed to
+	 * the extraction methods to avoid scanning the tokens once per clause.
+	 * 
+	 * @param tokens
+	 *            list of tokens in the data description entry
+	 *            
+	 * @return the position of the first token of each clause by slot, -1 for clauses that are absent.
+	 */
+    static int[] indexClauses(List<String> tokens) {
+    	int[] clauses = new int[CLAUSE_SLOTS];
+    	Arrays.fill(clauses, -1);
+    	int usageRank = usages.length;
+    	for (int i = 0; i < tokens.size(); i++) {
+    		String token = tokens.get(i);
+    		int slot = getClauseSlot(token);
+    		if (slot >= 0) {
+    			if (clauses[slot] < 0) {
+    				clauses[slot] = i;
+    			}
+    			continue;
+    		}
+    		int rank = getUsageRank(token);
+    		if (rank >= 0 && rank < usageRank) {
+    			usageRank = rank;
+    			clauses[USAGE_PHRASE] = i;
+    		}
+    	}
+    	return clauses;
 	}
 
 	/**
@@ -224,18 +356,6 @@ public final class COBOLSyntax {
         return isKeyword(possibleDataName) ? "" : possibleDataName;
 	}
 
-	/**
-	 * Determines if a data description entry has a picture clause.
-	 * 
-	 * @param tokens
-	 *            list of tokens in the data description entry
-	 *            
-	 * @return true if picture clause is present; false otherwise.
-	 */
-    private static boolean hasPictureClause(List<String> tokens) {
-    	return tokens.contains("PIC") || tokens.contains("PICTURE");
-	}
-
 	/**
 	 * Extracts the picture character string from a data description entry.
 	 * 
@@ -254,24 +374,28 @@ public final class COBOLSyntax {
 	 * @return the picture character string of the data description entry.
 	 */
     public static String getPictureString(List<String> tokens) {
-        String chStr = "";
-        if (hasPictureClause(tokens)) {
-            int idx = tokens.contains("PIC") ? tokens.indexOf("PIC") : tokens.indexOf("PICTURE");
-            chStr = tokens.get(idx + 1).equals("IS") ? tokens.get(idx + 2) : tokens.get(idx + 1);
-        }
-        return chStr;
+        return getPictureString(tokens, indexClauses(tokens));
 	}
 
 	/**
-	 * Determines if a data description entry has a usage clause.
+	 * Extracts the picture character string from a data description entry using its clause index.
 	 * 
 	 * @param tokens
 	 *            list of tokens in the data description entry
+	 * @param clauses
+	 *            the clause index of the tokens
 	 *            
-	 * @return true if usage clause is present; false otherwise.
+	 * @return the picture character string of the data description entry.
+	 * 
+	 * @see #getPictureString(List)
 	 */
-    private static boolean hasUsageClause(List<String> tokens) {
-    	return tokens.contains("USAGE");
+    static String getPictureString(List<String> tokens, int[] clauses) {
+        String chStr = "";
+        int idx = clauses[PIC] >= 0 ? clauses[PIC] : clauses[PICTURE];
+        if (idx >= 0) {
+            chStr = tokens.get(idx + 1).equals("IS") ? tokens.get(idx + 2) : tokens.get(idx + 1);
+        }
+        return chStr;
 	}
 
 	/**
@@ -293,43 +417,31 @@ public final class COBOLSyntax {
 	 * @return the USAGE string of the data description entry.
 	 */
     public static String getUsagePhrase(List<String> tokens) {
-        String phrase = "";
-        if (hasUsageClause(tokens)) {
-            int idx = tokens.indexOf("USAGE");
-            phrase = tokens.get(idx + 1).equals("IS") ? tokens.get(idx + 2) : tokens.get(idx + 1);
-        } else {
-        	for(String usage : usageList) {
-        		if (tokens.contains(usage)) {
-        			return usage;
-        		}
-        	}
-        }
-        return phrase;
+        return getUsagePhrase(tokens, indexClauses(tokens));
 	}
 
 	/**
-	 * Determines if a data description entry has a VALUE clause.
+	 * Extracts the USAGE phrase from a data description entry using its clause index.
 	 * 
 	 * @param tokens
-	 *            list of tokens in the data description entry
+	 *            list of tokens from a data description entry
+	 * @param clauses
+	 *            the clause index of the tokens
 	 *            
-	 * @return true if VALUE clause is present; false otherwise.
-	 */
-	private static boolean hasValueClause(List<String> tokens) {
-		return tokens.contains("VALUE");
-	}
-
-	/**
-	 * Determines if a data description entry has a VALUES clause.
+	 * @return the USAGE string of the data description entry.
 	 * 
-	 * @param tokens
-	 *            list of tokens in the data description entry
-	 *            
-	 * @return true if VALUES clause is present; false otherwise.
+	 * @see #getUsagePhrase(List)
 	 */
-    private static boolean hasValuesClause(List<String> tokens) {
-    	return tokens.contains("VALUES");
-    }
+    static String getUsagePhrase(List<String> tokens, int[] clauses) {
+        String phrase = "";
+        int idx = clauses[USAGE];
+        if (idx >= 0) {
+            phrase = tokens.get(idx + 1).equals("IS") ? tokens.get(idx + 2) : tokens.get(idx + 1);
+        } else if (clauses[USAGE_PHRASE] >= 0) {
+        	phrase = tokens.get(clauses[USAGE_PHRASE]);
+        }
+        return phrase;
+	}
 
     /**
      * This method assume values are always at the end.
@@ -341,12 +453,12 @@ public final class COBOLSyntax {
      * @return
      */
     private static String getValues(List<String> tokens, int idx) {
-    	String values= "";
+    	StringBuilder joined = new StringBuilder();
     	int i = idx;
     	for ( ; i < tokens.size(); i++) {
-    		values += " " + tokens.get(i);
+    		joined.append(' ').append(tokens.get(i));
     	}
-    	values = values.trim();
+    	String values = joined.toString().trim();
     	
     	// Single value
     	if (i == idx + 1) {
@@ -374,17 +486,138 @@ public final class COBOLSyntax {
 	 * @return the VALUE of the data description entry.
 	 */
     public static String getValue(List<String> tokens) {
+        return getValue(tokens, indexClauses(tokens));
+	}
+
+	/**
+	 * Extracts the value from a data description entry using its clause index.
+	 * 
+	 * @param tokens
+	 *            list of tokens from a data description entry
+	 * @param clauses
+	 *            the clause index of the tokens
+	 *            
+	 * @return the VALUE of the data description entry.
+	 * 
+	 * @see #getValue(List)
+	 */
+    static String getValue(List<String> tokens, int[] clauses) {
         String value = "";
-        if (hasValueClause(tokens)) {
-            int idx = tokens.indexOf("VALUE");
+        if (clauses[VALUE] >= 0) {
+            int idx = clauses[VALUE];
             value = tokens.get(idx + 1).equals("IS") ? getValues(tokens, (idx + 2)) : getValues(tokens, (idx + 1));
-        } else if (hasValuesClause(tokens)) {
-            int idx = tokens.indexOf("VALUES");
+        } else if (clauses[VALUES] >= 0) {
+            int idx = clauses[VALUES];
             value = tokens.get(idx + 1).equals("ARE") ? getValues(tokens, (idx + 2)) : getValues(tokens, (idx + 1));
         }
         return value;
 	}
 
+	/**
+	 * Extracts the maximum number of occurrences from a data description entry.
+	 * 
+	 * <p>
+     * Syntax
+     * <ul> 
+     * <li>OCCURS n [TIMES] 
+     * <li>OCCURS m TO n [TIMES] [DEPENDING ON data-name]
+     * </ul>
+	 * 
+	 * @param tokens
+	 *            list of tokens from a data description entry
+	 *            
+	 * @return the maximum number of occurrences or 1 if the entry has no OCCURS clause.
+	 */
+    public static int getOccurs(List<String> tokens) {
+        return getOccurs(tokens, indexClauses(tokens));
+	}
+
+	/**
+	 * Extracts the maximum number of occurrences from a data description entry using its clause index.
+	 * 
+	 * @param tokens
+	 *            list of tokens from a data description entry
+	 * @param clauses
+	 *            the clause index of the tokens
+	 *            
+	 * @return the maximum number of occurrences or 1 if the entry has no OCCURS clause.
+	 * 
+	 * @see #getOccurs(List)
+	 */
+    static int getOccurs(List<String> tokens, int[] clauses) {
+        int idx = clauses[OCCURS];
+        if (idx < 0 || idx + 1 >= tokens.size()) {
+        	return 1;
+        }
+        String count = tokens.get(idx + 1);
+        if (idx + 3 < tokens.size() && tokens.get(idx + 2).equals("TO")) {
+        	count = tokens.get(idx + 3);
+        }
+        try {
+        	return Integer.parseInt(count);
+        } catch (NumberFormatException ex) {
+        	return 1;
+        }
+	}
+
+	/**
+	 * Extracts the name of the redefined data item from a data description entry.
+	 * 
+	 * <p>
+	 * Syntax: REDEFINES data-name
+	 * 
+	 * @param tokens
+	 *            list of tokens from a data description entry
+	 *            
+	 * @return the redefined data name or an empty string if the entry has no REDEFINES clause.
+	 */
+    public static String getRedefinedName(List<String> tokens) {
+        return getRedefinedName(tokens, indexClauses(tokens));
+	}
+
+	/**
+	 * Extracts the name of the redefined data item from a data description entry using its clause index.
+	 * 
+	 * @param tokens
+	 *            list of tokens from a data description entry
+	 * @param clauses
+	 *            the clause index of the tokens
+	 *            
+	 * @return the redefined data name or an empty string if the entry has no REDEFINES clause.
+	 * 
+	 * @see #getRedefinedName(List)
+	 */
+    static String getRedefinedName(List<String> tokens, int[] clauses) {
+        int idx = clauses[REDEFINES];
+        return idx < 0 || idx + 1 >= tokens.size() ? "" : tokens.get(idx + 1);
+	}
+
+	/**
+	 * Determines if a data description entry has a SIGN clause with the SEPARATE phrase.
+	 * 
+	 * @param tokens
+	 *            list of tokens from a data description entry
+	 *            
+	 * @return true if the sign is stored separately; false otherwise.
+	 */
+    public static boolean isSignSeparate(List<String> tokens) {
+    	return tokens.contains("SEPARATE");
+	}
+
+	/**
+	 * Determines if a data description entry has a SIGN clause with the SEPARATE phrase using its clause index.
+	 * 
+	 * @param clauses
+	 *            the clause index of the entry
+	 *            
+	 * @return true if the sign is stored separately; false otherwise.
+	 * 
+	 * @see #isSignSeparate(List)
+	 */
+    static boolean isSignSeparate(int[] clauses) {
+    	return clauses[SEPARATE] >= 0;
+	}
+
 	/**
 	 * Determines if the declaration is numeric or numeric-edited (certain combinations only). This method must be
 	 * called on a expanded declaration only.
@@ -395,8 +628,23 @@ public final class COBOLSyntax {
 	 * @return true if the declaration is of the type; false otherwise.
 	 */
     public static boolean isNumericPlus(String decl) {
-        String uDecl = decl.toUpperCase();
-        return uDecl.matches("([S+-]?)([0Z9.V])+[+-]?");
+    	// Hand-coded equivalent of ([S+-]?)([0Z9.V])+[+-]? on the upper-cased declaration
+    	int len = decl.length();
+    	int i = 0;
+    	if (i < len && isSignIndicator(Character.toUpperCase(decl.charAt(i)))) {
+    		i++;
+    	}
+    	int start = i;
+    	while (i < len && isNumericSymbol(Character.toUpperCase(decl.charAt(i)))) {
+    		i++;
+    	}
+    	if (i == start) {
+    		return false;
+    	}
+    	if (i < len && (decl.charAt(i) == '+' || decl.charAt(i) == '-')) {
+    		i++;
+    	}
+    	return i == len;
 	}
 
 	/**
@@ -408,8 +656,15 @@ public final class COBOLSyntax {
 	 * @return true if the declaration is of the type; false otherwise.
 	 */
     public static boolean isAlphabetic(String decl) {
-        String uDecl = decl.toUpperCase();
-        return uDecl.matches("A+");
+    	if (decl.isEmpty()) {
+    		return false;
+    	}
+    	for (int i = 0; i < decl.length(); i++) {
+    		if (Character.toUpperCase(decl.charAt(i)) != 'A') {
+    			return false;
+    		}
+    	}
+    	return true;
 	}
 
 	/**
@@ -434,8 +689,17 @@ public final class COBOLSyntax {
 	 * @return true if the declaration is of the type; false otherwise.
 	 */
     public static boolean isAlphanumeric(String decl) {
-    	String uDecl = decl.toUpperCase();
-        return uDecl.matches("[AX9]*X{1}[AX9]*");
+    	// Hand-coded equivalent of [AX9]*X{1}[AX9]* on the upper-cased declaration
+    	boolean hasX = false;
+    	for (int i = 0; i < decl.length(); i++) {
+    		char ch = Character.toUpperCase(decl.charAt(i));
+    		if (ch == 'X') {
+    			hasX = true;
+    		} else if (ch != 'A' && ch != '9') {
+    			return false;
+    		}
+    	}
+    	return hasX;
 	}
 
 	/**
@@ -448,8 +712,26 @@ public final class COBOLSyntax {
 	 * @return true if the declaration is of the type; false otherwise.
 	 */
     public static boolean isAlphanumericEdited(String decl) {
-    	String uDecl = decl.toUpperCase();
-        return uDecl.matches("[AX90B/]*(([AX]{1}9*[B0/]{1})|([B0/]{1}9*[AX]{1}))[AX90B/]*");
+    	/*
+    	 * Hand-coded equivalent of [AX90B/]*(([AX]{1}9*[B0/]{1})|([B0/]{1}9*[AX]{1}))[AX90B/]* on the upper-cased
+    	 * declaration: every symbol is one of AX90B/ and an A or X is adjacent to an insertion symbol, ignoring any
+    	 * 9s in between. 
+    	 */
+    	boolean edited = false;
+    	char prev = ' ';
+    	for (int i = 0; i < decl.length(); i++) {
+    		char ch = Character.toUpperCase(decl.charAt(i));
+    		if (ch == 'A' || ch == 'X') {
+    			edited |= prev == 'B';
+    			prev = 'A';
+    		} else if (ch == 'B' || ch == '0' || ch == '/') {
+    			edited |= prev == 'A';
+    			prev = 'B';
+    		} else if (ch != '9') {
+    			return false;
+    		}
+    	}
+    	return edited;
 	}
 
 	/**
@@ -490,6 +772,30 @@ public final class COBOLSyntax {
         return (ch == 'X' || ch == 'A' || ch == '9' || ch == 'Z');
 	}
 
+	/**
+	 * Determines if the character is a sign indicator in a numeric PIC character string.
+	 * 
+	 * @param ch
+	 *            the character to check
+	 *            
+	 * @return true if the character is S, + or -; false otherwise.
+	 */
+    private static boolean isSignIndicator(char ch) {
+        return (ch == 'S' || ch == '+' || ch == '-');
+	}
+
+	/**
+	 * Determines if the character can appear in the digit positions of a numeric PIC character string.
+	 * 
+	 * @param ch
+	 *            the character to check
+	 *            
+	 * @return true if the character is 0, Z, 9, . or V; false otherwise.
+	 */
+    private static boolean isNumericSymbol(char ch) {
+        return (ch == '0' || ch == 'Z' || ch == '9' || ch == '.' || ch == 'V');
+	}
+
 	/**
 	 * Determines if the "numeric plus" declaration if signed. This method must be called on a expanded declaration
 	 * only.
@@ -503,9 +809,11 @@ public final class COBOLSyntax {
         if (!isNumericPlus(decl)) {
             throw new RuntimeException("Invalid Call");
         }
-        if (decl.matches("(.)*[S+-](.)*")) {
-        	return true;
-        } 
+        for (int i = 0; i < decl.length(); i++) {
+        	if (isSignIndicator(decl.charAt(i))) {
+        		return true;
+        	}
+        }
         return false;
 	}
 
@@ -541,15 +849,8 @@ public final class COBOLSyntax {
         if (isSigned(type)) {
             type = removeSignIndicator(type);
         }
-        int cDigits = 0;
-        if (!type.matches("(.)*[V.]+(.)*")) {
-        	cDigits = type.length();
-        } else if (type.matches("(.)*[.]+(.)*")) {
-        	cDigits = type.indexOf('.');
-        } else if (type.matches("(.)*[V]+(.)*")) {
-        	cDigits = type.indexOf('V');
-        }
-        return cDigits;
+        int dec_pos = getDecimalPosition(type);
+        return dec_pos < 0 ? type.length() : dec_pos;
 	}
 
 	/**
@@ -564,15 +865,25 @@ public final class COBOLSyntax {
         if (isSigned(type)) {
             type = removeSignIndicator(type);
         }
-        int dec_pos = 0;
-        if (!type.matches("(.)*[V.]+(.)*")) {
+        int dec_pos = getDecimalPosition(type);
+        if (dec_pos < 0) {
             return 0;
-        } else if (type.matches("(.)*[.]+(.)*")) {
-            dec_pos = type.indexOf('.');
-        } else if (type.matches("(.)*[V]+(.)*")) {
-            dec_pos = type.indexOf('V');
         }
         int mDigits = type.length() - dec_pos - 1;
         return mDigits;
     }
+
+	/**
+	 * Gets the position of the decimal point in a numeric declaration. An actual decimal point takes precedence over
+	 * an assumed decimal point.
+	 * 
+	 * @param type
+	 *            the numeric declaration without the sign indicator
+	 *            
+	 * @return position of the first '.' if present, else of the first 'V' if present, else -1.
+	 */
+    private static int getDecimalPosition(String type) {
+        int dec_pos = type.indexOf('.');
+        return dec_pos < 0 ? type.indexOf('V') : dec_pos;
+    }
 }
\ No newline at end of file
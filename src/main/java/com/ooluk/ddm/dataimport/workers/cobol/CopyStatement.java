@@ -0,0 +1,241 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>
+ * CopyStatement represents a COPY statement found in a copybook:
+ * 
+ * <pre>
+ * COPY member [OF|IN library] [SUPPRESS] [REPLACING [LEADING|TRAILING] operand BY operand ...]
+ * </pre>
+ * 
+ * <p>
+ * The member name may be a word or a literal. The library is ignored; members are always resolved against the
+ * directory of the copybooks. An operand is pseudo-text (==text==), a literal or a word. Operands are matched
+ * ignoring case and differences in white space. An operand that begins or ends with a character that cannot be part
+ * of a COBOL word, such as ==:TAG:==, also matches inside a word, which allows the common prefix substitution
+ * idiom. LEADING and TRAILING operands match the beginning or the end of a word.
+ * 
+ * <p>
+ * All replacements are applied in a single pass: at each position the first operand that matches is replaced and
+ * the replacement text is not scanned again.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+final class CopyStatement {
+
+	private static final String WORD_CHAR = "[A-Za-z0-9_-]";
+	private static final String WORD_BEGIN = "(?<!" + WORD_CHAR + ")";
+	private static final String WORD_END = "(?!" + WORD_CHAR + ")";
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private final String member;
+
+	// Replacement texts in the order of the matching groups of the pattern; null if there is no REPLACING phrase
+	private final List<String> replacements;
+	private final Pattern pattern;
+
+	private CopyStatement(String member, List<String> operands, List<String> replacements) {
+		this.member = member;
+		if (operands.isEmpty()) {
+			this.replacements = null;
+			this.pattern = null;
+		} else {
+			StringBuilder regex = new StringBuilder();
+			for (String operand : operands) {
+				if (regex.length() > 0) {
+					regex.append('|');
+				}
+				regex.append('(').append(operand).append(')');
+			}
+			this.replacements = replacements;
+			this.pattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+		}
+	}
+
+	/**
+	 * Parses a declaration as a COPY statement.
+	 * 
+	 * @param declaration
+	 *            a declaration without the terminating period
+	 * 
+	 * @return the COPY statement or null if the declaration is not a COPY statement.
+	 */
+	static CopyStatement parse(String declaration) {
+		if (!declaration.regionMatches(true, 0, "COPY", 0, 4)
+				|| (declaration.length() > 4 && !Character.isWhitespace(declaration.charAt(4)))) {
+			return null;
+		}
+		List<String> tokens = tokenize(declaration);
+		if (tokens.size() < 2) {
+			return null;
+		}
+		String member = tokens.get(1);
+		if (member.startsWith("\"") || member.startsWith("'")) {
+			member = member.substring(1, member.length() - 1);
+		}
+		List<String> operands = new ArrayList<>();
+		List<String> replacements = new ArrayList<>();
+		int idx = 2;
+		while (idx < tokens.size() && !tokens.get(idx).equalsIgnoreCase("REPLACING")) {
+			idx++;
+		}
+		idx++;
+		while (idx < tokens.size()) {
+			String mode = tokens.get(idx);
+			boolean leading = mode.equalsIgnoreCase("LEADING");
+			boolean trailing = mode.equalsIgnoreCase("TRAILING");
+			if (leading || trailing) {
+				idx++;
+			}
+			if (idx + 2 >= tokens.size() || !tokens.get(idx + 1).equalsIgnoreCase("BY")) {
+				break;
+			}
+			String from = operandText(tokens.get(idx));
+			if (!from.isEmpty()) {
+				operands.add(toRegex(from, !trailing, !leading));
+				replacements.add(operandText(tokens.get(idx + 2)));
+			}
+			idx += 3;
+		}
+		return new CopyStatement(member, operands, replacements);
+	}
+
+	/**
+	 * Splits a COPY statement into words, literals and pseudo-text. Pseudo-text tokens keep their delimiters.
+	 */
+	private static List<String> tokenize(String statement) {
+		List<String> tokens = new ArrayList<>();
+		int length = statement.length();
+		int idx = 0;
+		while (idx < length) {
+			char ch = statement.charAt(idx);
+			if (Character.isWhitespace(ch) || ch == ',' || ch == ';') {
+				idx++;
+				continue;
+			}
+			int end;
+			if (statement.startsWith("==", idx)) {
+				end = statement.indexOf("==", idx + 2);
+				end = end < 0 ? length : end + 2;
+			} else if (ch == '"' || ch == '\'') {
+				end = statement.indexOf(ch, idx + 1);
+				end = end < 0 ? length : end + 1;
+			} else {
+				end = idx;
+				while (end < length && !Character.isWhitespace(statement.charAt(end)) && statement.charAt(end) != ','
+						&& statement.charAt(end) != ';') {
+					end++;
+				}
+			}
+			tokens.add(statement.substring(idx, end));
+			idx = end;
+		}
+		return tokens;
+	}
+
+	/**
+	 * Returns the text of an operand with the pseudo-text delimiters removed and white space collapsed.
+	 */
+	private static String operandText(String operand) {
+		String text = operand;
+		if (text.startsWith("==")) {
+			text = text.substring(2, text.endsWith("==") && text.length() >= 4 ? text.length() - 2 : text.length());
+		}
+		return WHITESPACE.matcher(text.trim()).replaceAll(" ");
+	}
+
+	/**
+	 * Builds the regular expression for an operand. A word boundary is required at either end of the operand where
+	 * the operand begins or ends with a word character.
+	 */
+	private static String toRegex(String text, boolean boundaryBefore, boolean boundaryAfter) {
+		StringBuilder regex = new StringBuilder();
+		if (boundaryBefore && isWordChar(text.charAt(0))) {
+			regex.append(WORD_BEGIN);
+		}
+		String[] words = text.split(" ");
+		for (int i = 0; i < words.length; i++) {
+			if (i > 0) {
+				regex.append("\\s+");
+			}
+			regex.append(Pattern.quote(words[i]));
+		}
+		if (boundaryAfter && isWordChar(text.charAt(text.length() - 1))) {
+			regex.append(WORD_END);
+		}
+		return regex.toString();
+	}
+
+	private static boolean isWordChar(char ch) {
+		return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9') || ch == '-'
+				|| ch == '_';
+	}
+
+	/**
+	 * Returns the name of the copied member.
+	 * 
+	 * @return the member name.
+	 */
+	String getMember() {
+		return member;
+	}
+
+	/**
+	 * Determines if the statement has a REPLACING phrase.
+	 * 
+	 * @return true if text is replaced; false otherwise.
+	 */
+	boolean isReplacing() {
+		return pattern != null;
+	}
+
+	/**
+	 * Applies the REPLACING phrase to a declaration.
+	 * 
+	 * @param declaration
+	 *            a declaration of the copied member
+	 * 
+	 * @return the declaration with the operands replaced.
+	 */
+	String replace(String declaration) {
+		if (pattern == null) {
+			return declaration;
+		}
+		Matcher matcher = pattern.matcher(declaration);
+		if (!matcher.find()) {
+			return declaration;
+		}
+		StringBuffer result = new StringBuffer(declaration.length() + 16);
+		do {
+			int group = 1;
+			while (matcher.group(group) == null) {
+				group++;
+			}
+			matcher.appendReplacement(result, Matcher.quoteReplacement(replacements.get(group - 1)));
+		} while (matcher.find());
+		matcher.appendTail(result);
+		return result.toString();
+	}
+}
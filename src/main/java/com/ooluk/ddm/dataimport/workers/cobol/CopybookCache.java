@@ -0,0 +1,286 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>
+ * CopybookCache resolves the members named in COPY statements against a copybook directory and keeps the
+ * declarations of recently used members in a least recently used cache. A member included by many copybooks is
+ * therefore read and split into declarations once. The declarations are cached as text and are still parsed at each
+ * COPY statement, as the REPLACING phrase of the statement may change them. An entry is keyed by the member name and is
+ * only used while the last modified time and length of the member file are unchanged.
+ * 
+ * <p>
+ * A member is located by its file name, or by its file name without the extension, ignoring case. The directory, which
+ * may be the root directory of an archive, is listed once, on the first lookup. Alternatively the files to look members
+ * up in are supplied, such as the files of the subdirectories and archives of a PDS; a file closer to the directory
+ * then takes precedence over a file with the same name deeper down.
+ * 
+ * <p>
+ * The cached declarations are those of the member itself; COPY statements in the member are not expanded and no
+ * replacing is applied. This class is thread safe so that a cache can be shared by the readers split off for a
+ * parallel stream.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+final class CopybookCache {
+
+	// Extensions tried, in order, when a member is named without its extension
+	private static final String[] EXTENSIONS = { ".cpy", ".cbl", ".cob", ".copy" };
+
+	private final Path directory;
+	private final Map<String, Path> files;
+	private final Charset charset;
+	private final Map<String, CachedMember> entries;
+
+	// Member files by upper case file name and file name without extension
+	private Map<String, Path> index;
+
+	private long hits = 0;
+	private long misses = 0;
+
+	private static final class CachedMember {
+		private final long modified;
+		private final long length;
+		private final List<String> declarations;
+
+		private CachedMember(long modified, long length, List<String> declarations) {
+			this.modified = modified;
+			this.length = length;
+			this.declarations = declarations;
+		}
+	}
+
+	/**
+	 * Constructs a CopybookCache.
+	 * 
+	 * @param directory
+	 *            the directory containing the members
+	 * @param charset
+	 *            character set of the members
+	 * @param capacity
+	 *            maximum number of members cached
+	 */
+	CopybookCache(Path directory, Charset charset, int capacity) {
+		this(directory, null, charset, capacity);
+	}
+
+	/**
+	 * Constructs a CopybookCache that looks members up in the specified files.
+	 * 
+	 * @param directory
+	 *            the directory containing the members
+	 * @param files
+	 *            the files by path relative to the directory, with '/' separators; null to list the directory
+	 * @param charset
+	 *            character set of the members
+	 * @param capacity
+	 *            maximum number of members cached
+	 */
+	CopybookCache(Path directory, Map<String, Path> files, Charset charset, final int capacity) {
+		this.directory = directory;
+		this.files = files;
+		this.charset = charset;
+		this.entries = new LinkedHashMap<String, CachedMember>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedMember> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the declarations of a member.
+	 * 
+	 * @param member
+	 *            the member name as specified in the COPY statement
+	 * 
+	 * @return an unmodifiable list of the declarations of the member or null if the member cannot be found.
+	 * 
+	 * @throws IOException
+	 *             if the member cannot be read
+	 */
+	List<String> getDeclarations(String member) throws IOException {
+		Path file = resolve(member);
+		if (file == null) {
+			return null;
+		}
+		String key = member.toUpperCase(Locale.ROOT);
+		BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+		long modified = attrs.lastModifiedTime().toMillis();
+		long length = attrs.size();
+		synchronized (this) {
+			CachedMember cached = entries.get(key);
+			if (cached != null && cached.modified == modified && cached.length == length) {
+				hits++;
+				return cached.declarations;
+			}
+			misses++;
+		}
+		// Read outside the lock; a member read concurrently by two readers is simply cached twice
+		List<String> declarations = new ArrayList<>();
+		CopybookReader reader = new CopybookReader(file, charset);
+		String declaration;
+		while ((declaration = reader.nextDeclaration()) != null) {
+			if (!declaration.isEmpty()) {
+				declarations.add(declaration);
+			}
+		}
+		declarations = Collections.unmodifiableList(declarations);
+		synchronized (this) {
+			entries.put(key, new CachedMember(modified, length, declarations));
+		}
+		return declarations;
+	}
+
+	/**
+	 * Locates the file of a member.
+	 * 
+	 * @param member
+	 *            the member name
+	 * 
+	 * @return the member file or null if there is no such file.
+	 * 
+	 * @throws IOException
+	 *             if the directory cannot be listed
+	 */
+	Path resolve(String member) throws IOException {
+		Path file;
+		synchronized (this) {
+			if (index == null) {
+				index = buildIndex();
+			}
+			file = index.get(member.toUpperCase(Locale.ROOT));
+		}
+		if (file != null && Files.isRegularFile(file)) {
+			return file;
+		}
+		// The member may have been added after the directory was listed
+		file = directory.resolve(member);
+		if (Files.isRegularFile(file)) {
+			return file;
+		}
+		for (String extension : EXTENSIONS) {
+			file = directory.resolve(member + extension);
+			if (Files.isRegularFile(file)) {
+				return file;
+			}
+		}
+		return null;
+	}
+
+	private Map<String, Path> buildIndex() throws IOException {
+		// Files closer to the directory first, then by path
+		TreeMap<String, Path> list = new TreeMap<>(new Comparator<String>() {
+
+			@Override
+			public int compare(String a, String b) {
+				int depth = Integer.compare(depth(a), depth(b));
+				return depth != 0 ? depth : a.compareTo(b);
+			}
+		});
+		if (files != null) {
+			list.putAll(files);
+		} else {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+				for (Path entry : stream) {
+					if (Files.isRegularFile(entry)) {
+						list.put(entry.getFileName().toString(), entry);
+					}
+				}
+			}
+		}
+		Map<String, Path> found = new HashMap<>();
+		for (Map.Entry<String, Path> file : list.entrySet()) {
+			String name = fileName(file.getKey()).toUpperCase(Locale.ROOT);
+			if (!found.containsKey(name)) {
+				found.put(name, file.getValue());
+			}
+		}
+		for (Map.Entry<String, Path> file : list.entrySet()) {
+			String name = fileName(file.getKey());
+			int dot = name.lastIndexOf('.');
+			if (dot > 0) {
+				String base = name.substring(0, dot).toUpperCase(Locale.ROOT);
+				if (!found.containsKey(base)) {
+					found.put(base, file.getValue());
+				}
+			}
+		}
+		return found;
+	}
+
+	private static int depth(String path) {
+		int depth = 0;
+		for (int i = 0; i < path.length(); i++) {
+			if (path.charAt(i) == '/') {
+				depth++;
+			}
+		}
+		return depth;
+	}
+
+	private static String fileName(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 * 
+	 * @return number of cache hits.
+	 */
+	synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups for which the member was read.
+	 * 
+	 * @return number of cache misses.
+	 */
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of members cached.
+	 * 
+	 * @return number of cache entries.
+	 */
+	synchronized int size() {
+		return entries.size();
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.ooluk.ddm.dataimport.workers.SingleByteReader;
+
+/**
+ * <p>
+ * CopybookReader reads the declarations of a COBOL copybook directly from the bytes of the memory-mapped file. A
+ * copybook that is not on the default file system, such as a member of a zip archive, is read into memory. For a
+ * single-byte character set such as ASCII, ISO-8859-1 or an EBCDIC code page (Cp037, Cp1047) each byte is decoded
+ * through a 256 entry table, so EBCDIC copybooks are read without a separate conversion pass.
+ * 
+ * <p>
+ * Lines are terminated by LF, CR or CR LF and, for a single-byte character set, NEL (the EBCDIC line terminator). The
+ * reader works on the fixed columns of the reference format: lines with no program text beyond the sequence and
+ * indicator areas (columns 1-7) and comment lines ('*' or '/' in column 7) are skipped, and only program text in
+ * columns 8-72 is considered. Skipped lines and the sequence and identification areas are never decoded; only the text
+ * of a declaration is turned into a String.
+ * 
+ * <p>
+ * Multi-byte character sets that are ASCII compatible, such as UTF-8, are also supported. The copybook is then decoded
+ * with a CharsetDecoder before it is read and columns are counted in characters; a byte of a multi-byte character
+ * never ends a line. Malformed input is replaced.
+ * 
+ * <p>
+ * A declaration could span multiple physical lines. Lines are joined until a line that ends with a period. The
+ * declaration is returned trimmed and without the period. A declaration not terminated before the end of the file is
+ * discarded.
+ * 
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+final class CopybookReader {
+
+	// Columns 1-6 sequence area, column 7 indicator area, columns 8-72 program text (zero based offsets)
+	private static final int INDICATOR = 6;
+	private static final int TEXT_BEGIN = 7;
+	private static final int TEXT_END = 72;
+
+	private static final char NEL = '\u0085';
+
+	// Characters whose encoding must match ASCII for a multi-byte character set
+	private static final String ASCII_PROBE = "\n\r *-/.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+
+	// The bytes of a single-byte character set and their decoding table
+	private final ByteBuffer buffer;
+	private final char[] table;
+
+	// The decoded copybook for a multi-byte character set; null for a single-byte character set
+	private final CharBuffer chars;
+
+	private final int limit;
+
+	// Position of the next unread byte or character
+	private int pos = 0;
+
+	// Bounds of the line read ahead of the next declaration, valid if pending is true
+	private int lineBegin;
+	private int lineEnd;
+	private boolean pending = false;
+
+	private final StringBuilder sentence = new StringBuilder(TEXT_END);
+
+	/**
+	 * Constructs a CopybookReader.
+	 * 
+	 * @param file
+	 *            path of the copybook
+	 * @param charset
+	 *            character set of the copybook
+	 * 
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws IllegalArgumentException
+	 *             if the character set is not supported
+	 */
+	CopybookReader(Path file, Charset charset) throws IOException {
+		boolean singleByte = SingleByteReader.isSingleByte(charset);
+		if (!singleByte && !isAsciiCompatible(charset)) {
+			throw new IllegalArgumentException("Unsupported copybook character set: " + charset.name());
+		}
+		ByteBuffer bytes = read(file);
+		if (singleByte) {
+			buffer = bytes;
+			table = SingleByteReader.createTable(charset);
+			chars = null;
+			limit = buffer.limit();
+		} else {
+			buffer = null;
+			table = null;
+			chars = decode(bytes, charset);
+			limit = chars.limit();
+		}
+	}
+
+	private static ByteBuffer read(Path file) throws IOException {
+		if (file.getFileSystem() != FileSystems.getDefault()) {
+			// A member of an archive cannot be mapped
+			return ByteBuffer.wrap(Files.readAllBytes(file));
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping remains valid after the channel has been closed
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	private static CharBuffer decode(ByteBuffer bytes, Charset charset) throws IOException {
+		try {
+			return charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE).decode(bytes);
+		} catch (CharacterCodingException ex) {
+			// Cannot happen as errors are replaced
+			throw new IOException(ex);
+		}
+	}
+
+	/**
+	 * Determines if a character set can be read by a CopybookReader. Single-byte character sets and character sets that
+	 * encode the characters relevant to the reference format (line terminators, space, digits, letters and the '*',
+	 * '/', '-' and '.' characters) as the corresponding single ASCII bytes, such as UTF-8, are supported.
+	 * 
+	 * @param charset
+	 *            the character set
+	 * 
+	 * @return true if the character set is supported; false otherwise.
+	 */
+	static boolean isSupported(Charset charset) {
+		return SingleByteReader.isSingleByte(charset) || isAsciiCompatible(charset);
+	}
+
+	private static boolean isAsciiCompatible(Charset charset) {
+		return charset.canEncode() && Arrays.equals(ASCII_PROBE.getBytes(charset), 
+				ASCII_PROBE.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Returns the next declaration from the copybook.
+	 * 
+	 * @return a field declaration or null if there are no more declarations.
+	 */
+	String nextDeclaration() {
+		sentence.setLength(0);
+		if (!pending && !nextLine()) {
+			return null;
+		}
+		while (true) {
+			int end = Math.min(lineEnd, lineBegin + TEXT_END);
+			boolean continued = !endsWithPeriod(lineBegin + TEXT_BEGIN, end);
+			appendText(lineBegin + TEXT_BEGIN, end);
+			pending = nextLine();
+			if (!continued) {
+				return toDeclaration();
+			}
+			if (!pending) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Reads the next line with program text.
+	 * 
+	 * @return true if the line bounds have been set; false at end of file.
+	 */
+	private boolean nextLine() {
+		while (pos < limit) {
+			int begin = pos;
+			int end = begin;
+			char ch = 0;
+			while (end < limit) {
+				ch = decode(end);
+				if (ch == '\n' || ch == '\r' || (ch == NEL && chars == null)) {
+					break;
+				}
+				end++;
+			}
+			pos = end + 1;
+			if (ch == '\r' && pos < limit && decode(pos) == '\n') {
+				pos++;
+			}
+			// Skip short lines, blank lines and comments
+			if (end - begin > TEXT_BEGIN) {
+				char indicator = decode(begin + INDICATOR);
+				if (indicator != '*' && indicator != '/') {
+					lineBegin = begin;
+					lineEnd = end;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Determines if the text in the specified range ends with a period ignoring trailing white space.
+	 */
+	private boolean endsWithPeriod(int begin, int end) {
+		for (int i = end - 1; i >= begin; i--) {
+			char ch = decode(i);
+			if (ch > ' ') {
+				return ch == '.';
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Appends the text in the specified range to the declaration.
+	 */
+	private void appendText(int begin, int end) {
+		for (int i = begin; i < end; i++) {
+			sentence.append(decode(i));
+		}
+	}
+
+	private char decode(int index) {
+		return chars == null ? table[buffer.get(index) & 0xFF] : chars.get(index);
+	}
+
+	/**
+	 * Returns the collected sentence trimmed and without a terminating period.
+	 */
+	private String toDeclaration() {
+		int begin = 0;
+		int end = sentence.length();
+		while (begin < end && sentence.charAt(begin) <= ' ') {
+			begin++;
+		}
+		while (end > begin && sentence.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		if (end > begin && sentence.charAt(end - 1) == '.') {
+			end--;
+		}
+		return sentence.substring(begin, end);
+	}
+}
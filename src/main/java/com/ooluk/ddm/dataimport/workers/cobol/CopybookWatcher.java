@@ -0,0 +1,441 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.MessageKey;
+import com.ooluk.ddm.dataimport.Messages;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.DataObjectWriter;
+
+/**
+ * CopybookWatcher keeps a data dictionary continuously up to date with a PDS directory. It first imports the members
+ * read by a {@link COBOLDataObjectReader} configured for PDS scope, which with a manifest are only the members changed
+ * since the previous run, and then watches the directory with a {@link WatchService}. Changes are collected until the
+ * directory has been quiet for the debounce interval, so that a burst of changes such as a library refresh is imported
+ * as one batch. Only the members that have changed, and the members that copy a changed member, are parsed again and
+ * written.
+ * 
+ * <p>
+ * Typical usage:
+ * 
+ * <pre>
+ * reader.init(params);
+ * CopybookWatcher watcher = new CopybookWatcher(reader, writer, 2000);
+ * Thread thread = new Thread(watcher);
+ * thread.start();
+ * ...
+ * watcher.close();
+ * thread.join();
+ * </pre>
+ * 
+ * <p>
+ * With recursion enabled on the reader the subdirectories, including those created while watching, are watched as
+ * well. Only files matching the member pattern of the reader are imported. Members in zip or jar archives cannot be
+ * watched, so a reader for an archive, or reading the archives in the PDS directory, is rejected.
+ * 
+ * <p>
+ * A member that cannot be parsed is reported and skipped; it is parsed again when it next changes. A failure of the
+ * writer ends the watch and is rethrown by {@link #run()}. Deleted members are reported. With a manifest, a member that
+ * has only been touched is not imported, a member that cannot be parsed is removed from the manifest so that it is
+ * parsed again, and the manifest is saved once the initial import, or an import of changes, has been written.
+ * Dependencies on copied members are only known for members parsed since the watcher started. The watcher does not
+ * close the reader or the writer.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class CopybookWatcher implements Runnable {
+
+	private final Logger log = LogManager.getLogger();
+
+	// Maximum number of data objects held before they are written
+	private static final int BATCH_SIZE = 256;
+
+	private final COBOLDataObjectReader reader;
+	private final DataObjectWriter writer;
+	private final long debounce;
+	private final File directory;
+	private final boolean recursive;
+	private final WatchService watchService;
+
+	// Path relative to the PDS directory, empty or ending with a separator, of each directory watched
+	private final Map<WatchKey, String> keys = new HashMap<>();
+
+	// Members that copy a member, by the upper case name used in the COPY statement
+	private final Map<String, Set<String>> dependents = new HashMap<>();
+
+	// Members copied by a member, by the member path relative to the PDS directory
+	private final Map<String, Set<String>> dependencies = new HashMap<>();
+
+	private volatile boolean closed = false;
+	private volatile long imported = 0;
+
+	/**
+	 * Constructs a CopybookWatcher.
+	 * 
+	 * @param reader
+	 *            a reader initialized for PDS scope
+	 * @param writer
+	 *            an initialized writer to write the data objects to
+	 * @param debounce
+	 *            milliseconds the directory must be quiet before changes are imported; must not be negative
+	 * 
+	 * @throws ImportException
+	 *             if the directory cannot be watched or the members are read from archives
+	 */
+	public CopybookWatcher(COBOLDataObjectReader reader, DataObjectWriter writer, long debounce) {
+		if (reader.getScope() != COBOLMetaDataScope.PDS) {
+			throw new IllegalArgumentException("Only a reader for PDS scope can be watched");
+		}
+		if (debounce < 0) {
+			throw new IllegalArgumentException("Debounce interval must not be negative: " + debounce);
+		}
+		this.reader = reader;
+		this.writer = Objects.requireNonNull(writer);
+		this.debounce = debounce;
+		this.directory = new File(reader.getCopybookDirectory());
+		if (directory.isFile() || reader.isReadArchives()) {
+			throw new ImportException(Messages.getMessage(MessageKey.COB_WATCH_ARCHIVE, directory.getPath()));
+		}
+		this.recursive = reader.isRecursive();
+		try {
+			Path dir = directory.toPath();
+			watchService = dir.getFileSystem().newWatchService();
+			register(dir, "");
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * Watches a directory and, with recursion, its subdirectories. A directory already watched, reached through a
+	 * symbolic link, is skipped.
+	 * 
+	 * @param dir
+	 *            the directory
+	 * @param prefix
+	 *            the path of the directory relative to the PDS directory, empty or ending with a separator
+	 * 
+	 * @return true if the directory has been registered; false if it is already watched.
+	 */
+	private boolean register(Path dir, String prefix) throws IOException {
+		// The watch service returns the same key for a directory registered again
+		WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		if (keys.containsKey(key)) {
+			return false;
+		}
+		keys.put(key, prefix);
+		if (!recursive) {
+			return true;
+		}
+		File[] files = dir.toFile().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isDirectory()) {
+					register(file.toPath(), prefix + file.getName() + "/");
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Imports the members read by the reader and then imports changed members until the watcher is closed.
+	 * 
+	 * @throws ImportException
+	 *             if a data object cannot be written
+	 */
+	@Override
+	public void run() {
+		try {
+			importInitial();
+			reader.reportStatus(Messages.getMessage(MessageKey.COB_WATCH_STARTED, directory.getPath()));
+			watch();
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Imports the members read by the reader, recording the members they copy. The data objects are written in batches
+	 * of at most {@link #BATCH_SIZE}.
+	 */
+	private void importInitial() {
+		List<ScannedDataObject> batch = new ArrayList<>();
+		ScannedDataObject dObj;
+		while (!closed && (dObj = reader.read()) != null) {
+			recordDependencies(reader.getMemberName(), reader.getCopiedMembers());
+			add(batch, dObj);
+		}
+		write(batch);
+		// The manifest already records the members not read if the watcher has been closed
+		PdsManifest manifest = reader.getManifest();
+		if (manifest != null && !closed) {
+			manifest.save();
+		}
+	}
+
+	/**
+	 * Collects change events and imports the changes once the directory has been quiet for the debounce interval.
+	 */
+	private void watch() {
+		Set<String> changed = new TreeSet<>();
+		try {
+			while (!closed) {
+				WatchKey key = changed.isEmpty() ? watchService.take() 
+						: watchService.poll(debounce, TimeUnit.MILLISECONDS);
+				if (key == null) {
+					importChanges(changed);
+					changed.clear();
+					continue;
+				}
+				String prefix = keys.get(key);
+				for (WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == OVERFLOW) {
+						// Events have been lost; treat every member as changed
+						addAll(directory, "", changed, new HashSet<Path>());
+						continue;
+					}
+					String name = prefix + ((Path) event.context()).toString();
+					File file = new File(directory, name);
+					if (event.kind() == ENTRY_CREATE && recursive && file.isDirectory()) {
+						// The members of a new subdirectory may have been created before it was watched
+						if (register(file.toPath(), name + "/")) {
+							addAll(file, name + "/", changed, new HashSet<Path>());
+						}
+						continue;
+					}
+					addChanged(name, changed);
+				}
+				if (!key.reset()) {
+					keys.remove(key);
+					if (prefix.isEmpty()) {
+						// The PDS directory is no longer accessible
+						break;
+					}
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// Closed by close()
+		} catch (IOException e) {
+			throw new ImportException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Adds the files of a directory and, with recursion, of its subdirectories to the changes to be imported. A symbolic
+	 * link to a directory already added is skipped.
+	 */
+	private void addAll(File dir, String prefix, Set<String> changed, Set<Path> visited) {
+		try {
+			if (!visited.add(dir.toPath().toRealPath())) {
+				return;
+			}
+		} catch (IOException e) {
+			// Deleted since the event
+			return;
+		}
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.isDirectory()) {
+				if (recursive) {
+					addAll(file, prefix + file.getName() + "/", changed, visited);
+				}
+			} else {
+				addChanged(prefix + file.getName(), changed);
+			}
+		}
+	}
+
+	/**
+	 * Adds a changed file to the changes to be imported if it is a member of the PDS. Files not matching the member
+	 * pattern, the manifest and the temporary files written while the manifest is saved are ignored.
+	 */
+	private void addChanged(String name, Set<String> changed) {
+		if (reader.isMember(name, new File(directory, name).toPath())) {
+			changed.add(name);
+		}
+	}
+
+	/**
+	 * Parses and writes the changed members and the members that copy them.
+	 * 
+	 * @param changed
+	 *            paths of the members changed relative to the PDS directory
+	 */
+	private void importChanges(Set<String> changed) {
+		PdsManifest manifest = reader.getManifest();
+		Set<String> affected = new TreeSet<>();
+		for (String name : changed) {
+			File member = new File(directory, name);
+			if (member.isFile()) {
+				if (manifest == null || manifest.isChanged(name, member.toPath())) {
+					affected.add(name);
+				}
+			} else if (!member.exists()) {
+				reader.reportStatus(Messages.getMessage(MessageKey.COB_MEMBER_REMOVED, name));
+				recordDependencies(name, new HashSet<String>());
+				if (manifest != null) {
+					manifest.remove(name);
+				}
+			} else {
+				continue;
+			}
+			// A member is copied by its file name in the COPY statement, with or without its extension
+			String key = name.substring(name.lastIndexOf('/') + 1).toUpperCase(Locale.ROOT);
+			addDependents(key, affected);
+			int dot = key.lastIndexOf('.');
+			if (dot > 0) {
+				addDependents(key.substring(0, dot), affected);
+			}
+		}
+		List<ScannedDataObject> batch = new ArrayList<>();
+		for (String name : affected) {
+			File member = new File(directory, name);
+			if (!member.isFile()) {
+				continue;
+			}
+			ScannedDataObject dObj;
+			try {
+				dObj = reader.readMember(name, member.toPath());
+				recordDependencies(name, reader.getCopiedMembers());
+			} catch (ImportException e) {
+				log.error(e.getMessage(), e);
+				reader.reportStatus(Messages.getMessage(MessageKey.COB_MEMBER_FAILED, name, e.getMessage()));
+				// isChanged() has recorded the new state; forget it so that the member is parsed again
+				if (manifest != null) {
+					manifest.remove(name);
+				}
+				continue;
+			}
+			// A failure of the writer is not a failure of the member
+			add(batch, dObj);
+		}
+		write(batch);
+		if (manifest != null) {
+			manifest.save();
+		}
+	}
+
+	private void addDependents(String key, Set<String> affected) {
+		Set<String> members = dependents.get(key);
+		if (members != null) {
+			affected.addAll(members);
+		}
+	}
+
+	/**
+	 * Replaces the members recorded as copied by a member.
+	 */
+	private void recordDependencies(String member, Set<String> copied) {
+		Set<String> previous = dependencies.remove(member);
+		if (previous != null) {
+			for (String key : previous) {
+				Set<String> members = dependents.get(key);
+				members.remove(member);
+				if (members.isEmpty()) {
+					dependents.remove(key);
+				}
+			}
+		}
+		if (copied.isEmpty()) {
+			return;
+		}
+		dependencies.put(member, copied);
+		for (String key : copied) {
+			Set<String> members = dependents.get(key);
+			if (members == null) {
+				members = new HashSet<>();
+				dependents.put(key, members);
+			}
+			members.add(member);
+		}
+	}
+
+	/**
+	 * Adds a data object to a batch, writing the batch once it is full.
+	 */
+	private void add(List<ScannedDataObject> batch, ScannedDataObject dObj) {
+		batch.add(dObj);
+		if (batch.size() >= BATCH_SIZE) {
+			write(batch);
+		}
+	}
+
+	private void write(List<ScannedDataObject> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		writer.writeAll(batch);
+		imported += batch.size();
+		reader.reportStatus(Messages.getMessage(MessageKey.COB_WATCH_IMPORTED, batch.size()));
+		batch.clear();
+	}
+
+	/**
+	 * Stops watching. A batch being imported is completed first. This method may be called from any thread.
+	 */
+	public void close() {
+		closed = true;
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the number of data objects written so far.
+	 * 
+	 * @return number of data objects written.
+	 */
+	public long getImportedCount() {
+		return imported;
+	}
+}
@@ -0,0 +1,401 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.Fingerprint;
+import com.ooluk.ddm.dataimport.workers.AtomicFiles;
+
+/**
+ * PdsManifest records the path, size, last modified time and content hash of every member of a PDS, and the members it
+ * copies, so that the next run only parses the members that are new or have changed.
+ * 
+ * <p>
+ * The manifest of the previous run is loaded with {@link #load()}. Each member of the current run is then checked with
+ * {@link #isChanged(String, Path)}, which also records its current state. A member whose size and last modified time
+ * are unchanged is unchanged without being read. Otherwise its content is hashed, so that a member that has only been
+ * touched is still recognized as unchanged. Once all data objects have been written successfully the current state is
+ * persisted with {@link #save()}.
+ * </p>
+ * 
+ * <p>
+ * The members copied by a member, directly or through other copied members, are recorded when the member is read. A
+ * member is also changed when a member it copies has changed, has been removed or, having been missing, now exists.
+ * The copied members are resolved as the COPY statements are, by the name used in the statement, and their state is
+ * recorded alongside the members of the PDS.
+ * </p>
+ * 
+ * <p>
+ * The manifest is stored as a compact binary file, typically next to the import output, which each save replaces
+ * (see {@link AtomicFiles}). A manifest saved by an earlier version does not record copied members and is ignored, so
+ * that every member is read once more. The methods of this class are synchronized so that the readers split off a
+ * {@link COBOLDataObjectReader} can record the members they copy.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * @see COBOLDataObjectReader
+ */
+public class PdsManifest {
+
+	// Identifies the file format
+	private static final int MAGIC = 0x44444d50;
+	private static final int VERSION = 2;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// State of a copied member that could not be found
+	private static final MemberState MISSING = new MemberState(-1, -1, null, Collections.<String>emptySet());
+
+	private final Path file;
+
+	// Member state of the previous run by member path
+	private Map<String, MemberState> previous = new HashMap<>();
+
+	// Member state of the current run
+	private final Map<String, MemberState> current = new HashMap<>();
+
+	// Copied member state of the previous and the current run by the upper case name used in the COPY statement
+	private Map<String, MemberState> previousCopies = new HashMap<>();
+	private final Map<String, MemberState> copies = new HashMap<>();
+
+	// Resolves copied members; if not set every member that copies another is changed
+	private CopybookCache copybookCache;
+
+	private ByteBuffer buffer;
+
+	private static final class MemberState {
+		private final long size;
+		private final long modified;
+		private final Fingerprint hash;
+		private final Set<String> copied;
+
+		private MemberState(long size, long modified, Fingerprint hash, Set<String> copied) {
+			this.size = size;
+			this.modified = modified;
+			this.hash = hash;
+			this.copied = copied;
+		}
+	}
+
+	/**
+	 * Constructs a PdsManifest.
+	 * 
+	 * @param file
+	 *            path of the manifest file
+	 */
+	public PdsManifest(String file) {
+		this.file = Paths.get(file);
+	}
+
+	/**
+	 * Sets the cache through which the copied members are resolved.
+	 * 
+	 * @param copybookCache
+	 *            the cache of the copied members
+	 */
+	void setCopybookCache(CopybookCache copybookCache) {
+		this.copybookCache = copybookCache;
+	}
+
+	/**
+	 * Loads the manifest saved by the previous run. If there is no manifest file, or the manifest was saved by an
+	 * earlier version, every member is treated as changed.
+	 * 
+	 * @throws ImportException
+	 *             if the manifest file cannot be read
+	 */
+	public synchronized void load() {
+		previous = new HashMap<>();
+		previousCopies = new HashMap<>();
+		if (!Files.exists(file)) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC) {
+				throw new ImportException("Invalid PDS manifest " + file);
+			}
+			int version = in.readInt();
+			if (version < VERSION) {
+				return;
+			}
+			if (version != VERSION) {
+				throw new ImportException("Invalid PDS manifest " + file);
+			}
+			int members = in.readInt();
+			previous = new HashMap<>(members * 2);
+			for (int i = 0; i < members; i++) {
+				String member = in.readUTF();
+				previous.put(member, readState(in));
+			}
+			int copied = in.readInt();
+			previousCopies = new HashMap<>(copied * 2);
+			for (int i = 0; i < copied; i++) {
+				String copy = in.readUTF();
+				previousCopies.put(copy, in.readBoolean() ? readState(in) : MISSING);
+			}
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	private static MemberState readState(DataInputStream in) throws IOException {
+		long size = in.readLong();
+		long modified = in.readLong();
+		Fingerprint hash = new Fingerprint(in.readLong(), in.readLong());
+		int count = in.readInt();
+		Set<String> copied = count == 0 ? Collections.<String>emptySet() : new HashSet<String>(count * 2);
+		for (int i = 0; i < count; i++) {
+			copied.add(in.readUTF());
+		}
+		return new MemberState(size, modified, hash, copied);
+	}
+
+	private static void writeState(DataOutputStream out, MemberState state) throws IOException {
+		out.writeLong(state.size);
+		out.writeLong(state.modified);
+		out.writeLong(state.hash.getHigh());
+		out.writeLong(state.hash.getLow());
+		out.writeInt(state.copied.size());
+		for (String copy : state.copied) {
+			out.writeUTF(copy);
+		}
+	}
+
+	/**
+	 * Determines if a member differs from the member with the same path in the previous run. The member may be a member
+	 * of an archive. Members that did not exist in the previous run are changed, as are members that copy a member that
+	 * has changed. The current state is recorded for {@link #save()}.
+	 * 
+	 * @param member
+	 *            path of the member relative to the PDS directory
+	 * @param memberFile
+	 *            the member file
+	 * 
+	 * @return true if the member or a member it copies is new or has changed; false otherwise.
+	 * 
+	 * @throws ImportException
+	 *             if the member or a member it copies cannot be read
+	 */
+	public synchronized boolean isChanged(String member, Path memberFile) {
+		MemberState entry = previous.get(member);
+		MemberState state = checkState(entry, memberFile);
+		boolean changed = entry == null || !entry.hash.equals(state.hash);
+		if (entry == null) {
+			current.put(member, state);
+			return true;
+		}
+		current.put(member, new MemberState(state.size, state.modified, state.hash, entry.copied));
+		for (String copy : entry.copied) {
+			// Every copied member is checked so that its current state is recorded
+			changed |= isCopyChanged(copy);
+		}
+		return changed;
+	}
+
+	/**
+	 * Records the members copied by a member that has been read. The state of each copied member is recorded for
+	 * {@link #save()}.
+	 * 
+	 * @param member
+	 *            path of the member relative to the PDS directory
+	 * @param copied
+	 *            the upper case names of the members copied, directly or indirectly
+	 * 
+	 * @throws ImportException
+	 *             if a copied member cannot be read
+	 */
+	synchronized void setCopiedMembers(String member, Set<String> copied) {
+		MemberState state = current.get(member);
+		if (state == null) {
+			return;
+		}
+		Set<String> members = copied.isEmpty() ? Collections.<String>emptySet() : new HashSet<>(copied);
+		current.put(member, new MemberState(state.size, state.modified, state.hash, members));
+		for (String copy : members) {
+			// The member may have been read long after the copied member was checked, as by a CopybookWatcher
+			MemberState known = copies.get(copy);
+			copies.put(copy, getCopyState(copy, known == null ? previousCopies.get(copy) : known));
+		}
+	}
+
+	/**
+	 * Determines if a copied member differs from the previous run. Its current state is recorded the first time it is
+	 * checked in a run.
+	 */
+	private boolean isCopyChanged(String copy) {
+		MemberState entry = previousCopies.get(copy);
+		MemberState state = copies.get(copy);
+		if (state == null) {
+			state = getCopyState(copy, entry);
+			copies.put(copy, state);
+		}
+		return copybookCache == null || entry == null || !Objects.equals(entry.hash, state.hash);
+	}
+
+	/**
+	 * Returns the current state of a copied member.
+	 */
+	private MemberState getCopyState(String copy, MemberState entry) {
+		Path copyFile = null;
+		if (copybookCache != null) {
+			try {
+				copyFile = copybookCache.resolve(copy);
+			} catch (IOException e) {
+				throw new ImportException(e);
+			}
+		}
+		return copyFile == null ? MISSING : checkState(entry, copyFile);
+	}
+
+	/**
+	 * Returns the state of a file, which is the previous state if the size and last modified time are unchanged.
+	 */
+	private MemberState checkState(MemberState entry, Path path) {
+		long size;
+		long modified;
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+			size = attrs.size();
+			modified = attrs.lastModifiedTime().toMillis();
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+		if (entry != null && entry.size == size && entry.modified == modified) {
+			return entry;
+		}
+		return new MemberState(size, modified, hash(path), Collections.<String>emptySet());
+	}
+
+	/**
+	 * Removes a member deleted during the current run, or a member that could not be read, from the state to be saved.
+	 * A member removed is changed in the next run.
+	 * 
+	 * @param member
+	 *            path of the member relative to the PDS directory
+	 */
+	public synchronized void remove(String member) {
+		current.remove(member);
+	}
+
+	/**
+	 * Hashes the content of a member.
+	 */
+	private Fingerprint hash(Path path) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new ImportException(e);
+		}
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+			buffer.clear();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+		ByteBuffer md5 = ByteBuffer.wrap(digest.digest());
+		return new Fingerprint(md5.getLong(), md5.getLong());
+	}
+
+	/**
+	 * Returns the members present in the previous run that have not been checked in the current run. After all members
+	 * have been checked these are the members deleted from the PDS.
+	 * 
+	 * @return paths of the deleted members in sorted order.
+	 */
+	public synchronized Set<String> getRemoved() {
+		Set<String> removed = new TreeSet<>();
+		for (String member : previous.keySet()) {
+			if (!current.containsKey(member)) {
+				removed.add(member);
+			}
+		}
+		return Collections.unmodifiableSet(removed);
+	}
+
+	/**
+	 * Saves the state recorded in the current run replacing the previous manifest. Members not checked in the current
+	 * run, and copied members no longer copied by any member, are dropped from the manifest.
+	 * 
+	 * @throws ImportException
+	 *             if the manifest file cannot be written
+	 */
+	public synchronized void save() {
+		try {
+			AtomicFiles.replace(file, new AtomicFiles.IOConsumer<OutputStream>() {
+				
+				@Override
+				public void accept(OutputStream stream) throws IOException {
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeInt(current.size());
+					Set<String> copied = new TreeSet<>();
+					for (Map.Entry<String, MemberState> member : current.entrySet()) {
+						out.writeUTF(member.getKey());
+						writeState(out, member.getValue());
+						copied.addAll(member.getValue().copied);
+					}
+					// A copied member whose state has not been recorded is changed in the next run
+					copied.retainAll(copies.keySet());
+					out.writeInt(copied.size());
+					for (String copy : copied) {
+						MemberState state = copies.get(copy);
+						out.writeUTF(copy);
+						out.writeBoolean(state != MISSING);
+						if (state != MISSING) {
+							writeState(out, state);
+						}
+					}
+					out.flush();
+				}
+			});
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ * RecordLayout computes the physical storage layout of the records described by a copybook in a single pass over its
+ * data description entries. Entries are added in the order they are declared; the offset of an elementary item is
+ * known when it is added, and the length of a group, and therefore the stride of an OCCURS on a group, is known when
+ * the group ends. Whether an entry is a group or an elementary item is decided by the level-number of the next entry,
+ * since a group may declare a USAGE, such as COMP-1 or INDEX, that would give an elementary item its storage.
+ * 
+ * <p>
+ * Storage lengths follow the USAGE of the item, or the USAGE of the nearest group declaring one:
+ * <ul>
+ * <li>DISPLAY : one byte per character position; S, V and P take no space unless the sign is SEPARATE
+ * <li>NATIONAL, DISPLAY-1 : two bytes per character position
+ * <li>COMP, COMP-4, COMP-5, BINARY : 2, 4 or 8 bytes for up to 4, 9 and 18 digits
+ * <li>COMP-3, PACKED-DECIMAL : digits / 2 + 1 bytes
+ * <li>COMP-1 : 4 bytes, COMP-2 : 8 bytes
+ * <li>INDEX, POINTER, FUNCTION-POINTER : 4 bytes, PROCEDURE-POINTER : 8 bytes
+ * </ul>
+ * 
+ * <p>
+ * An item that REDEFINES another starts at the offset of the redefined item and the item following it starts after
+ * the longer of the two. Each level 01 and 77 entry starts a new record at offset 0, so that several 01 entries
+ * describe alternative layouts of the same record. An OCCURS DEPENDING ON table is laid out for its maximum number of
+ * occurrences. SYNCHRONIZED alignment is not applied and level 66 and 88 entries take no storage.
+ * 
+ * <p>
+ * This class is not thread safe.
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+final class RecordLayout {
+
+	/**
+	 * A data item, group or elementary. The length is that of one occurrence and is set when the item ends.
+	 */
+	private static final class Item {
+		private final int level;
+		private final Item parent;
+		private final int occurs;
+		private final String usage;
+		// Storage length of the item if it turns out to be elementary
+		private final int storage;
+		private boolean group = false;
+		private int start;
+		private int length;
+		private String redefines = "";
+		// Offset at which the redefined storage ends, or -1 if the item does not redefine another
+		private int redefinedEnd = -1;
+
+		private Item(int level, Item parent, int occurs, String usage, int storage) {
+			this.level = level;
+			this.parent = parent;
+			this.occurs = occurs;
+			this.usage = usage;
+			this.storage = storage;
+		}
+	}
+
+	/**
+	 * The layout of a data item. The offset is known when the item is added. Whether the item is a group and its length
+	 * are known once the next entry has been added, and the length of a group and the stride of an enclosing group
+	 * once the group has ended, that is after the next entry at the same or a higher level or after
+	 * {@link RecordLayout#finish()}.
+	 */
+	static final class Field {
+		private final Item item;
+
+		private Field(Item item) {
+			this.item = item;
+		}
+
+		/**
+		 * Returns the byte offset of the first occurrence of the item from the beginning of the record.
+		 * 
+		 * @return the offset.
+		 */
+		int getOffset() {
+			return item.start;
+		}
+
+		/**
+		 * Returns the number of bytes of one occurrence of the item.
+		 * 
+		 * @return the length.
+		 */
+		int getLength() {
+			return item.length;
+		}
+
+		/**
+		 * Determines if the item is a group, that is if the next entry has a greater level-number.
+		 * 
+		 * @return true if the item is a group; false if it is an elementary item.
+		 */
+		boolean isGroup() {
+			return item.group;
+		}
+
+		/**
+		 * Returns the item and enclosing groups with an OCCURS clause, outermost first.
+		 */
+		private List<Item> getDimensions() {
+			List<Item> dimensions = new ArrayList<>();
+			for (Item i = item; i != null; i = i.parent) {
+				if (i.occurs > 1) {
+					dimensions.add(0, i);
+				}
+			}
+			return dimensions;
+		}
+
+		/**
+		 * Returns the number of occurrences of the item and of each enclosing table, outermost first, separated by
+		 * commas.
+		 * 
+		 * @return the occurrences or an empty string if the item is not in a table.
+		 */
+		String getOccurs() {
+			StringBuilder occurs = new StringBuilder();
+			for (Item i : getDimensions()) {
+				occurs.append(occurs.length() == 0 ? "" : ",").append(i.occurs);
+			}
+			return occurs.toString();
+		}
+
+		/**
+		 * Returns the distance in bytes between successive occurrences for each dimension listed by
+		 * {@link #getOccurs()}.
+		 * 
+		 * @return the strides or an empty string if the item is not in a table.
+		 */
+		String getStrides() {
+			StringBuilder strides = new StringBuilder();
+			for (Item i : getDimensions()) {
+				strides.append(strides.length() == 0 ? "" : ",").append(i.length);
+			}
+			return strides.toString();
+		}
+
+		/**
+		 * Returns the name of the item redefined by this item or its nearest enclosing group that redefines one.
+		 * 
+		 * @return the redefined name or an empty string.
+		 */
+		String getRedefines() {
+			for (Item i = item; i != null; i = i.parent) {
+				if (!i.redefines.isEmpty()) {
+					return i.redefines;
+				}
+			}
+			return "";
+		}
+	}
+
+	private final Deque<Item> groups = new ArrayDeque<>();
+	private final Map<String, Item> items = new HashMap<>();
+	// The last item added, until the next entry tells whether it is a group or an elementary item
+	private Item pending;
+	private int offset = 0;
+	private int recordLength = 0;
+
+	/**
+	 * Adds the next data description entry.
+	 * 
+	 * @param cbmd
+	 *            the entry
+	 * 
+	 * @return the layout of the item or null for an entry without storage (level 66 or 88).
+	 */
+	Field add(COBOLMetaData cbmd) {
+		int level = cbmd.getLevel();
+		if (level == 66 || level == 88) {
+			return null;
+		}
+		if (pending != null) {
+			endPending(level != 1 && level != 77 && level > pending.level);
+		}
+		if (level == 1 || level == 77) {
+			closeGroups(0);
+			offset = 0;
+		} else {
+			closeGroups(level);
+		}
+		Item parent = groups.peek();
+		String usage = cbmd.getUsage();
+		if (usage.isEmpty() && parent != null) {
+			usage = parent.usage;
+		}
+		int storage = storageLength(cbmd.getPicture(), usage, cbmd.isSignSeparate());
+		Item item = new Item(level, parent, Math.max(cbmd.getOccurs(), 1), usage, storage);
+		item.start = offset;
+		Item redefined = cbmd.getRedefines().isEmpty() ? null 
+				: items.get(cbmd.getRedefines().toUpperCase(Locale.ROOT));
+		if (redefined != null) {
+			item.redefines = cbmd.getRedefines();
+			item.redefinedEnd = offset;
+			item.start = redefined.start;
+			offset = redefined.start;
+		}
+		if (!cbmd.getDataName().isEmpty()) {
+			items.put(cbmd.getDataName().toUpperCase(Locale.ROOT), item);
+		}
+		pending = item;
+		return new Field(item);
+	}
+
+	/**
+	 * Ends all open groups.
+	 * 
+	 * @return the length in bytes of the longest record.
+	 */
+	int finish() {
+		if (pending != null) {
+			endPending(false);
+		}
+		closeGroups(0);
+		return recordLength;
+	}
+
+	/**
+	 * Returns the length in bytes of the longest record laid out so far.
+	 * 
+	 * @return the record length.
+	 */
+	int getRecordLength() {
+		return recordLength;
+	}
+
+	/**
+	 * Opens the pending item as a group or ends it as an elementary item.
+	 */
+	private void endPending(boolean group) {
+		Item item = pending;
+		pending = null;
+		if (group) {
+			item.group = true;
+			groups.push(item);
+		} else {
+			item.length = item.storage;
+			end(item);
+		}
+	}
+
+	/**
+	 * Ends the open groups at or below the specified level.
+	 */
+	private void closeGroups(int level) {
+		while (!groups.isEmpty() && groups.peek().level >= level) {
+			Item group = groups.pop();
+			group.length = offset - group.start;
+			end(group);
+		}
+	}
+
+	/**
+	 * Advances the offset past all occurrences of an item whose length is known.
+	 */
+	private void end(Item item) {
+		offset = item.start + item.length * item.occurs;
+		if (item.redefinedEnd > offset) {
+			offset = item.redefinedEnd;
+		}
+		recordLength = Math.max(recordLength, offset);
+	}
+
+	/**
+	 * Returns the number of bytes of storage for an elementary item.
+	 * 
+	 * @param picture
+	 *            the PICTURE character string; empty if the item has no PICTURE clause
+	 * @param usage
+	 *            the usage of the item
+	 * @param signSeparate
+	 *            true if the item has a SIGN SEPARATE clause
+	 * 
+	 * @return the storage length or zero if the entry does not describe an elementary item.
+	 */
+	static int storageLength(String picture, String usage, boolean signSeparate) {
+		if (picture.isEmpty()) {
+			switch (usage) {
+				case "COMP-1":
+				case "INDEX":
+				case "POINTER":
+				case "FUNCTION-POINTER":
+					return 4;
+				case "COMP-2":
+				case "PROCEDURE-POINTER":
+					return 8;
+				default:
+					return 0;
+			}
+		}
+		String expanded = COBOLSyntax.expandDeclaration(picture).toUpperCase(Locale.ROOT);
+		int digits = 0;
+		int positions = 0;
+		boolean signed = false;
+		for (int i = 0; i < expanded.length(); i++) {
+			char ch = expanded.charAt(i);
+			if (ch == '9') {
+				digits++;
+			}
+			if (ch == 'S') {
+				signed = true;
+			} else if (ch != 'V' && ch != 'P') {
+				positions++;
+			}
+		}
+		switch (usage) {
+			case "COMP":
+			case "COMPUTATIONAL":
+			case "COMP-4":
+			case "COMP-5":
+			case "BINARY":
+				return digits <= 4 ? 2 : (digits <= 9 ? 4 : 8);
+			case "COMP-3":
+			case "PACKED-DECIMAL":
+				return digits / 2 + 1;
+			case "COMP-1":
+				return 4;
+			case "COMP-2":
+				return 8;
+			case "NATIONAL":
+			case "DISPLAY-1":
+				return 2 * positions;
+			default:
+				return positions + (signed && signSeparate ? 1 : 0);
+		}
+	}
+}
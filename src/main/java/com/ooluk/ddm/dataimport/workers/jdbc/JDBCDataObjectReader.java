@@ -22,12 +22,30 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -39,7 +57,10 @@ import com.ooluk.ddm.dataimport.data.ScannedAttribute;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 import com.ooluk.ddm.dataimport.rule.RuleStore;
 import com.ooluk.ddm.dataimport.rule.RulesEngine;
+import com.ooluk.ddm.dataimport.workers.AbstractDataObjectReader;
 import com.ooluk.ddm.dataimport.workers.AbstractRuleBasedDataObjectReader;
+import com.ooluk.ddm.dataimport.workers.ResumableDataObjectReader;
+import com.ooluk.ddm.dataimport.workers.TypeCounts;
 import com.ooluk.ddm.dataimport.workers.TypeMetaData;
 
 /**
@@ -65,9 +86,27 @@ import com.ooluk.ddm.dataimport.workers.TypeMetaData;
  * </p>
  * 
  * <p>
- * The JDBCDataObjectReader can also be used to obtain JDBC type information. This is only valid for TABLE scope. Enable
- * the reader for type information using {@link #enableForTypeMode}. To get type information use the usual {@link #read}
- * method and then call {@link #getTypeMetaData}. {@link #enableForTypeMode} should be called before {@link #init(Map)}.
+ * The JDBCDataObjectReader can also be used to obtain JDBC type information. Enable the reader for type information
+ * using {@link #enableForTypeMode}. To get type information use the usual {@link #read} method and then call
+ * {@link #getTypeMetaData}. {@link #enableForTypeMode} should be called before {@link #init(Map)}. For TABLE scope the
+ * type information lists the type, size and scale of each column. For SCHEMA and DATABASE scope it lists the distinct
+ * (type, size, scale) combinations over all columns read together with the number of columns having each combination
+ * ("count"), which is what is needed to author data type rules.
+ * 
+ * <p>
+ * By default any error reading a table aborts the read. With the parameter "isolateTableErrors" set to "Yes" an error
+ * reading the metadata of a table only skips that table. Transient errors (lost connections, timeouts, lock and
+ * deadlock conditions) are first retried "tableRetries" times (default 3) with an exponential backoff starting at
+ * "retryDelay" milliseconds (default 500), reconnecting to the database if the connection has been lost. Skipped tables
+ * are reported in the status log and are available from {@link #getSkippedTables()}.
+ * 
+ * <p>
+ * Reading the metadata of a table takes several round trips to the database, most of which is spent waiting. With the
+ * parameter "concurrency" set to a value greater than one the metadata of that many tables is fetched concurrently,
+ * each on its own connection from a pool of "concurrency" connections. The tables are listed on the main connection and
+ * are returned by read() in the same order as for a sequential read. The fetches run on virtual threads where the Java
+ * runtime provides them and on a fixed pool of platform threads otherwise. Concurrent fetches are not used in type
+ * mode. With fault isolation enabled a table whose concurrent fetch fails is read again on the main connection.
  * 
  * <p>
  * While initializing this reader do not call {@link #init()} instead call {@link #init(Map)}.
@@ -75,9 +114,24 @@ import com.ooluk.ddm.dataimport.workers.TypeMetaData;
  * @author Siddhesh Prabhu
  * @since 1.0
  */
-public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
+public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader implements ResumableDataObjectReader {
 	
 	private final Logger log = LogManager.getLogger();
+	
+	// Upper bound for the delay between retries of a table
+	private static final long MAX_RETRY_DELAY = 30000;
+	
+	// Seconds to wait for the driver to validate the connection after an error
+	private static final int VALIDATION_TIMEOUT = 5;
+	
+	// Type metadata properties for TABLE scope
+	private static final List<String> TYPE_PROPERTIES = Arrays.asList("attribute", "type", "size", "scale");
+	
+	// Schema list separator: a comma with any surrounding whitespace
+	private static final Pattern SCHEMA_SEPARATOR = Pattern.compile("(\\s)*,(\\s)*");
+	
+	// Upper bound of the fetch size hint; drivers may allocate row buffers for the whole fetch size
+	private static final int MAX_FETCH_SIZE = 1000;
 	        
     /*
      * Parameters passed on call to init(...) that need to be saved.
@@ -98,6 +152,18 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	// The objectTypes parameters specified as import#XXX=Yes|No are optional but their absence will result in no
 	// metadata being extracted.
     private String[] objectTypes;
+    
+    // The JDBC URL and connection properties are retained to open additional connections for split readers
+    private String url;
+    private Properties connectionProps;
+    
+	// Per-table fault isolation is optional. Transient errors are retried with a delay that doubles on each attempt.
+    private boolean isolateTableErrors = false;
+    private int tableRetries = 3;
+    private long retryDelay = 500;
+    
+    // Number of tables whose metadata is fetched concurrently. One reads the tables sequentially.
+    private int concurrency = 1;
         
     /*
      * Member variables
@@ -114,15 +180,44 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	// For SCHEMA scope we need to process each schema individually. This index is used to track the current schema.
     private int schemaIdx = 0;
     
+    // Schema, name and schema index of the last table read. These form the resume position.
+    private String lastSchema;
+    private String lastTable;
+    private int lastSchemaIdx;
+    
+    // Schema and name of the table the result set is positioned on. Ahead of the last table read in concurrent mode.
+    private String currentSchema;
+    private String currentTable;
+    
+    // Set once a table of the current result set has been read. A reader is only split before that.
+    private boolean schemaStarted = false;
+    
+    // Fetch size hint for the table result set. Zero leaves the driver default in place.
+    private int fetchSize = 0;
+    
+    // Tables skipped due to errors mapped to the error message, in the order they were skipped
+    private final Map<String, String> skippedTables = new LinkedHashMap<>();
+    
+    // Set once the skipped tables have been reported at End of Data
+    private boolean skipsReported = false;
+    
     // A flag used to signal the completion of initial configuration
     private boolean configured = false;
     
+    // Concurrent mode: executor for the metadata fetches, pool of connections they use and the fetches in read order
+    private ExecutorService executor;
+    private BlockingQueue<Connection> pool;
+    private final Deque<PendingTable> pending = new ArrayDeque<>();
+    
     // Flags to indicate the database for database specific processing
     private boolean isOracle = false;
     private boolean isSQLServer = false;
     
     TypeMetaData typeMetaData;
     
+    // Distinct types for SCHEMA and DATABASE scope type mode. Types of a table are added once the table has been read.
+    TypeCounts typeCounts;
+    
     /**
      * Constructs a JDBCDataObjectReader.
      */
@@ -133,6 +228,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     public void enableForTypeMode() {
     	super.enableForTypeMode();
     	typeMetaData = new TypeMetaData();
+    	typeCounts = new TypeCounts("type", "size", "scale");
     }
     
     @Override
@@ -144,6 +240,8 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     	extractRulesParameters(params);
     	extractCaseMode(params);
     	extractObjectTypes(params);    	
+    	extractFaultIsolation(params);
+    	extractConcurrency(params);
     	configured = true;
 		init();
     }
@@ -164,6 +262,9 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
             dbmd = conn.getMetaData();
             flagDatabases();
             openResultSet();
+            if (concurrency > 1 && !super.isEnabledForTypeMode()) {
+            	openPool();
+            }
         } catch(SQLException ex) {
         	String msg = ex.getMessage();
             log.error(msg, ex);
@@ -212,7 +313,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     	props.remove(driver);
     	
     	// Extract the JDBC URL
-    	String url = props.getProperty("url");
+    	url = props.getProperty("url");
     	if (url == null) {
     		String msg ="JDBC URL missing";
         	super.appendStatusLine(msg);
@@ -220,6 +321,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     	}
     	// Remove the URL property. It is no longer required.
     	props.remove(url);
+    	connectionProps = props;
     	
     	try {
 	        conn = DriverManager.getConnection(url, props);
@@ -254,11 +356,6 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
         	throwImportException(msg);
     	}
     	
-       	// Type Mode is only valid for TABLE scope
-    	if (super.isEnabledForTypeMode() && scope != MetaDataScope.TABLE) {
-    		throwImportException(Messages.getMessage(MessageKey.JDBC_TYPE_MODE_INVALID));  			
-    	}
-    	
     	/*
     	 * Read scope specific parameters
     	 * For SCHEMA scope: list of schemas as a comma separated list
@@ -290,7 +387,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 			super.appendStatusLine(msg);
 			throwImportException(msg);
 		}
-		schemas = Arrays.asList(csList.split("(\\s)*,(\\s)*"));
+		schemas = Arrays.asList(SCHEMA_SEPARATOR.split(csList));
 	}
 
 	/**
@@ -402,6 +499,77 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     	fetchObjectTypes(types);
     }
 
+	/**
+	 * Extracts the per-table fault isolation settings from the initialization parameters. All settings are optional.
+	 * 
+	 * <p>
+	 * Fault isolation is enabled with the parameter "isolateTableErrors" set to "Yes". The number of retries for
+	 * transient errors is specified with the parameter "tableRetries" and the initial delay between retries in
+	 * milliseconds with the parameter "retryDelay".
+	 * </p>
+	 * 
+	 * @param params
+	 *            initialization parameters
+	 */
+	private void extractFaultIsolation(Map<String, Object> params) {
+
+		Object isolate = params.get("isolateTableErrors");
+		if (isolate != null) {
+			isolateTableErrors = isolate.toString().equalsIgnoreCase("Yes");
+		}
+		Object retries = params.get("tableRetries");
+		if (retries != null) {
+			tableRetries = (int) extractNumber("tableRetries", retries, 0);
+		}
+		Object delay = params.get("retryDelay");
+		if (delay != null) {
+			retryDelay = extractNumber("retryDelay", delay, 0);
+		}
+	}
+
+	/**
+	 * Extracts the number of tables read concurrently from the initialization parameters. The parameter "concurrency"
+	 * is optional and defaults to one, i.e. a sequential read.
+	 * 
+	 * @param params
+	 *            initialization parameters
+	 */
+	private void extractConcurrency(Map<String, Object> params) {
+
+		Object value = params.get("concurrency");
+		if (value != null) {
+			concurrency = (int) extractNumber("concurrency", value, 1);
+		}
+	}
+
+	/**
+	 * Parses an integer parameter value.
+	 * 
+	 * @param param
+	 *            parameter name
+	 * @param value
+	 *            parameter value
+	 * @param min
+	 *            smallest valid value
+	 * 
+	 * @return the parsed value.
+	 */
+	private long extractNumber(String param, Object value, long min) {
+
+		long number = Long.MIN_VALUE;
+		try {
+			number = Long.parseLong(value.toString().trim());
+		} catch (NumberFormatException ex) {
+			// Reported below
+		}
+		if (number < min || number > Integer.MAX_VALUE) {
+			String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, param);
+			super.appendStatusLine(msg);
+			throwImportException(msg);
+		}
+		return number;
+	}
+
 	/**
 	 * Creates array of database object types. The types are specified as a list of "import#XXX". This method extracts
 	 * the XXXs into an array.
@@ -460,6 +628,84 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 				rs = dbmd.getTables(null, schema, table, objectTypes);
 				break;
 		}
+		schemaStarted = false;
+		if (fetchSize > 0) {
+			rs.setFetchSize(fetchSize);
+		}
+	}
+	
+	/**
+	 * Opens the connection pool and the executor for concurrent metadata fetches.
+	 * 
+	 * @throws SQLException
+	 */
+	private void openPool() throws SQLException {
+		pool = new ArrayBlockingQueue<>(concurrency);
+		try {
+			for (int i = 0; i < concurrency; i++) {
+				pool.add(DriverManager.getConnection(url, connectionProps));
+			}
+		} catch (SQLException ex) {
+			closePool();
+			throw ex;
+		}
+		executor = createExecutor();
+	}
+	
+	/**
+	 * Creates the executor for concurrent metadata fetches. A metadata fetch mostly waits on the database, so virtual
+	 * threads are used where the runtime provides them. They are looked up reflectively as they are not available on
+	 * all supported Java versions. Otherwise a fixed pool of daemon platform threads, one per pooled connection, is
+	 * used. With virtual threads the number of fetches in progress is bounded by the connection pool.
+	 * 
+	 * @return an executor service.
+	 */
+	private ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			log.debug("Virtual threads not available, using platform threads");
+		}
+		return Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "jdbc-metadata-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Cancels pending metadata fetches, shuts down the executor and closes the pooled connections.
+	 */
+	private void closePool() {
+		for (PendingTable table : pending) {
+			table.future.cancel(true);
+		}
+		pending.clear();
+		if (executor != null) {
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(VALIDATION_TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+		}
+		if (pool != null) {
+			for (Connection pooled : pool) {
+				try {
+					pooled.close();
+				} catch (SQLException ex) {
+					log.error(ex.getMessage(), ex);
+				}
+			}
+			pool = null;
+		}
 	}
 	
 	/**
@@ -470,6 +716,10 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	 * @throws SQLException
 	 */
 	private boolean hasMore() throws SQLException {
+		if (rs == null) {
+			return false;
+		}
+		schemaStarted = true;
 		return rs.next();
 	}
   
@@ -478,17 +728,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
         
         ScannedDataObject dObj = null;
         try {
-            if (hasMore()) {                
-                dObj = createDataObject();
-            } else {
-            	// For SCHEMA scope if current schema has no more data process next schema
-                if (scope == MetaDataScope.SCHEMA && schemaIdx < schemas.size()) {
-                    openResultSet();
-                    dObj = hasMore() ? createDataObject() : null;
-                } else {
-                	dObj = null;
-                }
-            }
+        	dObj = nextDataObject();
         } catch (SQLException ex) {
         	String msg = Messages.getMessage(MessageKey.JDBC_READ_EXCP, ex.getMessage()); 
         	super.appendStatusLine(msg);
@@ -496,10 +736,342 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
         }   
     	return dObj;
     }
+
+	/**
+	 * Reads up to {@code max} data objects. The batch size, capped at {@value #MAX_FETCH_SIZE}, is passed to the driver
+	 * as the fetch size of the table result set so that the tables for the whole batch are retrieved in as few round
+	 * trips as the driver allows.
+	 */
+    @Override
+    public List<ScannedDataObject> read(int max) {
+    	
+    	List<ScannedDataObject> batch = createBatch(max);
+    	try {
+    		if (fetchSize != Math.min(max, MAX_FETCH_SIZE)) {
+    			fetchSize = Math.min(max, MAX_FETCH_SIZE);
+    			if (rs != null) {
+    				rs.setFetchSize(fetchSize);
+    			}
+    		}
+    		while (batch.size() < max) {
+    			ScannedDataObject dObj = nextDataObject();
+    			if (dObj == null) {
+    				break;
+    			}
+    			batch.add(dObj);
+    		}
+        } catch (SQLException ex) {
+        	String msg = Messages.getMessage(MessageKey.JDBC_READ_EXCP, ex.getMessage()); 
+        	super.appendStatusLine(msg);
+        	throwImportException("Exception reading data object", ex);
+        }   
+    	return batch;
+    }
+
+	/**
+	 * Creates a ScannedDataObject for the next unprocessed table. Tables skipped due to errors are passed over.
+	 * 
+	 * @return the next data object or null if there are no more tables.
+	 * 
+	 * @throws SQLException
+	 */
+    private ScannedDataObject nextDataObject() throws SQLException {
+    	
+    	if (executor != null) {
+    		ScannedDataObject dObj = nextConcurrent();
+    		if (dObj != null) {
+    			return dObj;
+    		}
+    	} else {
+    		while (nextTable()) {
+    			ScannedDataObject dObj = createDataObject();
+    			if (dObj != null) {
+    				return dObj;
+    			}
+    		}
+    	}
+    	if (!skippedTables.isEmpty() && !skipsReported) {
+    		super.appendStatusLine(Messages.getMessage(MessageKey.JDBC_TABLES_SKIPPED, skippedTables.size()));
+    		for (Map.Entry<String, String> skipped : skippedTables.entrySet()) {
+    			super.appendStatusLine(Messages.getMessage(MessageKey.JDBC_TABLE_SKIPPED, skipped.getKey(), 
+    					skipped.getValue()));
+    		}
+    		skipsReported = true;
+    	}
+        return null;
+    }
+
+	/**
+	 * Returns the next data object in concurrent mode. Metadata fetches are submitted for up to twice as many tables as
+	 * there are pooled connections so that a connection freed by a fetch can start on the next table while read()
+	 * waits for an earlier one. The data objects are returned in the order of the table result set.
+	 * 
+	 * @return the next data object or null if there are no more tables.
+	 * 
+	 * @throws SQLException
+	 */
+	private ScannedDataObject nextConcurrent() throws SQLException {
+
+		fillPending();
+		while (!pending.isEmpty()) {
+			PendingTable table = pending.poll();
+			beginTable(table.schema, table.name, table.schemaIndex);
+			ScannedDataObject dObj;
+			try {
+				dObj = table.future.get();
+				addTypeData(table.types);
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (!(cause instanceof SQLException)) {
+					throw new SQLException(cause.getMessage(), cause);
+				}
+				if (!isolateTableErrors) {
+					throw (SQLException) cause;
+				}
+				log.error(cause.getMessage(), cause);
+				// Read the table again on the main connection, retrying or skipping it as configured
+				dObj = fetchDataObject(table.schema, table.name, table.remarks);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new SQLException("Interrupted while reading table " + table.schema + "." + table.name, ex);
+			}
+			fillPending();
+			if (dObj != null) {
+				return dObj;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Submits metadata fetches for the next tables in the table result set until the read-ahead limit is reached.
+	 * 
+	 * @throws SQLException
+	 */
+	private void fillPending() throws SQLException {
+
+		final BlockingQueue<Connection> connections = pool;
+		while (pending.size() < concurrency * 2 && nextTable()) {
+			final String schema = rs.getString("TABLE_SCHEM");
+			final String oName = rs.getString("TABLE_NAME");
+			final String remarks = rs.getString("REMARKS");
+			currentSchema = schema;
+			currentTable = oName;
+			final List<String[]> types = new ArrayList<>();
+			Future<ScannedDataObject> future = executor.submit(new Callable<ScannedDataObject>() {
+				
+				@Override
+				public ScannedDataObject call() throws Exception {
+					Connection pooled = connections.take();
+					try {
+						if (!isConnectionValid(pooled)) {
+							pooled.close();
+							pooled = DriverManager.getConnection(url, connectionProps);
+						}
+						return createDataObject(pooled, pooled.getMetaData(), schema, oName, remarks, types);
+					} finally {
+						connections.add(pooled);
+					}
+				}
+			});
+			pending.add(new PendingTable(schema, oName, remarks, schemaIdx - 1, types, future));
+		}
+	}
+
+	/**
+	 * Moves the table result set to the next unprocessed table moving on to the next schema for SCHEMA scope when the
+	 * current schema has no more tables.
+	 * 
+	 * @return true if the result set is positioned on a table; false if there are no more tables.
+	 * 
+	 * @throws SQLException
+	 */
+    private boolean nextTable() throws SQLException {
+    	
+        if (hasMore()) {                
+            return true;
+        }
+		// For SCHEMA scope if current schema has no more data process next schema. Empty schemas are skipped so that
+		// they do not signal End of Data while other schemas remain.
+        while (scope == MetaDataScope.SCHEMA && schemaIdx < schemas.size()) {
+        	if (rs != null) {
+        		rs.close();
+        	}
+            openResultSet();
+            if (hasMore()) {
+            	return true;
+            }
+        }
+        return false;
+    }
     
+	/**
+	 * Returns the position after the last table read. The position comprises the schema ("schema") and name ("table")
+	 * of the last table read and, for SCHEMA scope, the index of its schema in the schema list ("schemaIndex").
+	 */
+    @Override
+    public Map<String, String> getPosition() {
+    	Map<String, String> position = new HashMap<>();
+    	if (lastTable != null) {
+    		if (lastSchema != null) {
+    			position.put("schema", lastSchema);
+    		}
+    		position.put("table", lastTable);
+    		if (scope == MetaDataScope.SCHEMA) {
+    			position.put("schemaIndex", String.valueOf(lastSchemaIdx));
+    		}
+    	}
+    	return position;
+    }
+
+	/**
+	 * Positions the reader after the table identified by the position. Tables up to and including the last table read
+	 * are skipped using the table result set only, so no per-table metadata is fetched for them. If the table no longer
+	 * exists the reader starts from the beginning of the schema (SCHEMA scope) or the database (DATABASE scope). For
+	 * SCHEMA scope a schema that is no longer in the schema list is not found and the reader starts from the beginning.
+	 */
+    @Override
+    public void resume(Map<String, String> position) {
+    	
+    	String table = position.get("table");
+    	if (table == null) {
+    		return;
+    	}
+    	String schema = position.get("schema");
+    	String fullName = (schema == null ? "" : schema + ".") + table;
+    	super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUMING, fullName));
+    	try {
+    		if (scope == MetaDataScope.SCHEMA) {
+    			int idx = findSchemaIndex(schema, position.get("schemaIndex"));
+    			if (idx < 0) {
+    				super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUME_NOT_FOUND, fullName));
+    				return;
+    			}
+    			rs.close();
+    			schemaIdx = idx;
+    			openResultSet();
+    		}
+    		if (skipTo(schema, table)) {
+    			lastSchema = schema;
+    			lastTable = table;
+    			lastSchemaIdx = schemaIdx - 1;
+    			currentSchema = schema;
+    			currentTable = table;
+    			return;
+    		}
+    		super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUME_NOT_FOUND, fullName));
+    		rs.close();
+    		if (scope == MetaDataScope.SCHEMA) {
+    			schemaIdx--;
+    		}
+    		openResultSet();
+    	} catch (SQLException ex) {
+        	String msg = Messages.getMessage(MessageKey.JDBC_READ_EXCP, ex.getMessage()); 
+        	super.appendStatusLine(msg);
+        	throwImportException("Exception resuming read", ex);
+    	}
+    }
+
+	/**
+	 * Returns the index in the schema list of the schema of a resume position. The saved index is used if it still
+	 * refers to the schema. Otherwise, for example for a position saved in TABLE or DATABASE scope, by an older version
+	 * or with a different schema list, the schema is located by name.
+	 * 
+	 * @param schema
+	 *            schema of the last table read
+	 * @param savedIndex
+	 *            the saved schema index or null if the position has none
+	 * 
+	 * @return the index of the schema or -1 if the schema is not in the schema list.
+	 */
+    private int findSchemaIndex(String schema, String savedIndex) {
+    	if (savedIndex != null) {
+    		try {
+    			int idx = Integer.parseInt(savedIndex);
+    			if (idx >= 0 && idx < schemas.size() && schemas.get(idx).equals(schema)) {
+    				return idx;
+    			}
+    		} catch (NumberFormatException ex) {
+    			// Locate the schema by name
+    		}
+    	}
+    	return schema == null ? -1 : schemas.indexOf(schema);
+    }
+
+	/**
+	 * Advances the table result set to the specified table.
+	 * 
+	 * @param schema
+	 *            schema of the table
+	 * @param table
+	 *            table name
+	 * 
+	 * @return true if the result set is positioned on the table; false if the table was not found.
+	 * 
+	 * @throws SQLException
+	 */
+    private boolean skipTo(String schema, String table) throws SQLException {
+    	while (rs.next()) {
+    		if (table.equals(rs.getString("TABLE_NAME")) && Objects.equals(schema, rs.getString("TABLE_SCHEM"))) {
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+
+	/**
+	 * Splits off the lower half of the schemas not yet read for SCHEMA scope. The split reader opens its own database
+	 * connection. A reader that has started reading tables of its current schema is not split. A reader in type mode is
+	 * never split as the type information is collected by a single reader.
+	 */
+    @Override
+    protected AbstractDataObjectReader trySplit() {
+    	
+    	if (scope != MetaDataScope.SCHEMA || schemaStarted || super.isEnabledForTypeMode()) {
+    		return null;
+    	}
+    	// The current schema's result set may already be open without any table having been read
+    	int from = rs != null ? schemaIdx - 1 : schemaIdx;
+    	int remaining = schemas.size() - from;
+    	if (remaining < 2) {
+    		return null;
+    	}
+    	int mid = from + remaining / 2;
+    	JDBCDataObjectReader split = new JDBCDataObjectReader();
+    	copySettings(split);
+    	split.caseMode = caseMode;
+    	split.scope = scope;
+    	split.schemas = new ArrayList<>(schemas.subList(from, mid));
+    	split.objectTypes = objectTypes;
+    	split.url = url;
+    	split.connectionProps = connectionProps;
+    	split.fetchSize = fetchSize;
+    	split.isolateTableErrors = isolateTableErrors;
+    	split.tableRetries = tableRetries;
+    	split.retryDelay = retryDelay;
+    	split.concurrency = concurrency;
+    	try {
+    		split.conn = DriverManager.getConnection(url, connectionProps);
+    		split.configured = true;
+    		split.init();
+    		if (rs != null) {
+    			rs.close();
+    			rs = null;
+    		}
+        } catch (SQLException ex) {
+        	log.error(ex.getMessage(), ex);
+        	split.close();
+        	// Keep reading the schemas on this reader's connection
+        	return null;
+        }
+    	schemaIdx = mid;
+    	return split;
+    }
+
     @Override
     public void close() {        
 
+    	closePool();
         try {
         	if (rs != null) {
         		rs.close();
@@ -516,29 +1088,207 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	/**
 	 * Creates a ScannedDataObject from the current table.
 	 * 
-	 * Refer to: http://docs.oracle.com/javase/7/docs/api/java/sql/DatabaseMetaData.html
-	 * 
-	 * @return a ScannedDataObject instance for the the current table.
+	 * @return a ScannedDataObject instance for the the current table or null if the table was skipped due to an error.
 	 * 
 	 * @throws SQLException
 	 */
     private ScannedDataObject createDataObject() throws SQLException {
     	
-    	// Namespace
         String schema = rs.getString("TABLE_SCHEM");
-        String nspaceRule = ruleStore.getRule("namespace", "name");
-        String oNamespace = getNamespace(namespacePrefix, schema, nspaceRule);
-        
-        // Table name
         String oName = rs.getString("TABLE_NAME");
+        String remarks = rs.getString("REMARKS");
+        currentSchema = schema;
+        currentTable = oName;
+        beginTable(schema, oName, schemaIdx - 1);
+        return fetchDataObject(schema, oName, remarks);
+    }
+    
+	/**
+	 * Records a table as the last table read and reports it in the status log.
+	 * 
+	 * @param schema
+	 *            schema of the table
+	 * @param oName
+	 *            table name
+	 * @param schemaIndex
+	 *            index of the schema in the schema list for SCHEMA scope
+	 */
+    private void beginTable(String schema, String oName, int schemaIndex) {
+    	
+        lastSchema = schema;
+        lastTable = oName;
+        lastSchemaIdx = schemaIndex;
         String msg = Messages.getMessage(MessageKey.READ_IMPORTING, oName);
         super.appendStatusLine("-------------------------------------------");
         super.appendStatusLine(msg);
         super.appendStatusLine("-------------------------------------------");
         log.trace(msg);
+    }
+    
+	/**
+	 * Creates a ScannedDataObject for the specified table on the main connection. With per-table fault isolation
+	 * transient errors are retried and a table that cannot be read is skipped.
+	 * 
+	 * @param schema
+	 *            schema of the table
+	 * @param oName
+	 *            table name
+	 * @param remarks
+	 *            remarks from the table result set
+	 * 
+	 * @return a ScannedDataObject instance for the table or null if the table was skipped due to an error.
+	 * 
+	 * @throws SQLException
+	 */
+    private ScannedDataObject fetchDataObject(String schema, String oName, String remarks) throws SQLException {
+        
+        if (!isolateTableErrors) {
+        	List<String[]> types = new ArrayList<>();
+        	ScannedDataObject dObj = createDataObject(conn, dbmd, schema, oName, remarks, types);
+        	addTypeData(types);
+        	return dObj;
+        }
+        
+        String fullTableName = schema + "." + oName;
+        long delay = retryDelay;
+        for (int attempt = 1; ; attempt++) {
+        	try {
+        		if (attempt > 1 && !isConnectionValid(conn)) {
+        			reconnect();
+        		}
+        		// Types collected by a failed attempt are discarded
+        		List<String[]> types = new ArrayList<>();
+        		ScannedDataObject dObj = createDataObject(conn, dbmd, schema, oName, remarks, types);
+        		addTypeData(types);
+        		return dObj;
+        	} catch (SQLException ex) {
+        		log.error(ex.getMessage(), ex);
+        		if (attempt > tableRetries || !isTransient(ex)) {
+        			// Without a working connection no further table can be read
+        			if (!isConnectionValid(conn)) {
+        				throw ex;
+        			}
+        			skippedTables.put(fullTableName, ex.getMessage());
+        			super.appendStatusLine(Messages.getMessage(MessageKey.JDBC_TABLE_SKIPPED, fullTableName, 
+        					ex.getMessage()));
+        			return null;
+        		}
+        		super.appendStatusLine(Messages.getMessage(MessageKey.JDBC_TABLE_RETRY, fullTableName, attempt, 
+        				ex.getMessage(), delay));
+        		try {
+        			Thread.sleep(delay);
+        		} catch (InterruptedException ie) {
+        			Thread.currentThread().interrupt();
+        			throw ex;
+        		}
+        		delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+        	}
+        }
+    }
+    
+	/**
+	 * Determines if an exception denotes a transient condition that may succeed on retry. Besides the JDBC transient
+	 * and recoverable exception types, SQL states for connection errors (08), transaction rollbacks and deadlocks
+	 * (40), timeouts (HYT), cancelled statements (57014) and lock timeouts (55P03) are treated as transient. Drivers
+	 * that report a lost connection with a generic exception are covered by validating the connection.
+	 * 
+	 * @param ex
+	 *            the exception
+	 * 
+	 * @return true if the operation should be retried; false otherwise.
+	 */
+    private boolean isTransient(SQLException ex) {
+    	for (SQLException e = ex; e != null; e = e.getNextException()) {
+    		if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+    			return true;
+    		}
+    		String state = e.getSQLState();
+    		if (state != null && (state.startsWith("08") || state.startsWith("40") || state.startsWith("HYT")
+    				|| state.equals("57014") || state.equals("55P03"))) {
+    			return true;
+    		}
+    	}
+    	return !isConnectionValid(conn);
+    }
+    
+	/**
+	 * Determines if a database connection is still usable.
+	 * 
+	 * @param connection
+	 *            the connection to validate
+	 * 
+	 * @return true if the connection is valid; false otherwise.
+	 */
+    private boolean isConnectionValid(Connection connection) {
+    	try {
+    		return connection != null && !connection.isClosed() && connection.isValid(VALIDATION_TIMEOUT);
+    	} catch (SQLException ex) {
+    		log.error(ex.getMessage(), ex);
+    		return false;
+    	}
+    }
+    
+	/**
+	 * Replaces a lost database connection and repositions the table result set on the table it was positioned on.
+	 * 
+	 * @throws SQLException
+	 */
+    private void reconnect() throws SQLException {
+    	
+    	super.appendStatusLine(Messages.getMessage(MessageKey.JDBC_RECONNECTING));
+    	try {
+    		rs.close();
+    		conn.close();
+    	} catch (SQLException ex) {
+    		// The connection is already broken
+    		log.error(ex.getMessage(), ex);
+    	}
+    	conn = DriverManager.getConnection(url, connectionProps);
+    	dbmd = conn.getMetaData();
+    	if (scope == MetaDataScope.SCHEMA) {
+    		schemaIdx--;
+    	}
+    	openResultSet();
+    	schemaStarted = true;
+    	if (!skipTo(currentSchema, currentTable)) {
+    		log.warn("Table " + currentSchema + "." + currentTable + " not found after reconnecting");
+    	}
+    }
+
+	/**
+	 * Creates a ScannedDataObject for the specified table reading the primary keys, foreign keys and columns from the
+	 * database metadata. In concurrent mode this method runs on the executor's threads and must therefore only use the
+	 * connection passed to it. In type mode the column types are collected in the list passed in; the caller adds them
+	 * to the reader's type metadata with {@link #addTypeData(List)}.
+	 * 
+	 * Refer to: http://docs.oracle.com/javase/7/docs/api/java/sql/DatabaseMetaData.html
+	 * 
+	 * @param connection
+	 *            database connection
+	 * @param md
+	 *            metadata of the database connection
+	 * @param schema
+	 *            schema of the table
+	 * @param oName
+	 *            table name
+	 * @param remarks
+	 *            remarks from the table result set
+	 * @param types
+	 *            list the column types are added to in type mode
+	 * 
+	 * @return a ScannedDataObject instance for the table.
+	 * 
+	 * @throws SQLException
+	 */
+    private ScannedDataObject createDataObject(Connection connection, DatabaseMetaData md, String schema, String oName,
+    		String remarks, List<String[]> types) throws SQLException {
+    	
+    	// Namespace
+        String nspaceRule = ruleStore.getRule("namespace", "name");
+        String oNamespace = getNamespace(namespacePrefix, schema, nspaceRule);
         
         // Primary Keys
-        ResultSet keys = dbmd.getPrimaryKeys(null, schema, oName);
+        ResultSet keys = md.getPrimaryKeys(null, schema, oName);
         List<String> pkKeys = new ArrayList<>();
         while (keys.next()) {
         	pkKeys.add(keys.getString("COLUMN_NAME"));
@@ -552,7 +1302,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 		 * possible that the PK data was imported using a different namespace rule. In such a case the FK relationships
 		 * will not be populated or may be incorrectly mapped.
 		 */
-        ResultSet foreignKeys = dbmd.getImportedKeys(null, schema, oName);
+        ResultSet foreignKeys = md.getImportedKeys(null, schema, oName);
         HashMap<String, String> fkMap = new HashMap<>();
         while (foreignKeys.next()) {
         	String pkSchema = foreignKeys.getString("PKTABLE_SCHEM");
@@ -566,16 +1316,16 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
         
         // Comments / Remarks / Description
         String fullTableName = schema + "." + oName;
-        String oComment = rs.getString("REMARKS");
+        String oComment = remarks;
         if (isSQLServer) {
-        	oComment = getSQLServerTableDescription(fullTableName);
+        	oComment = getSQLServerTableDescription(connection, fullTableName);
         }
         if (oComment == null)
         	oComment = "";
         
         // Columns
-        ResultSet columns = dbmd.getColumns(null, schema, oName, null);
-        List<ScannedAttribute> attributes = createAttributes(columns, pkKeys, fkMap, fullTableName);
+        ResultSet columns = md.getColumns(null, schema, oName, null);
+        List<ScannedAttribute> attributes = createAttributes(connection, columns, pkKeys, fkMap, fullTableName, types);
         columns.close();
         
         // Create ScannedDataObject
@@ -614,6 +1364,8 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	/**
 	 * Creates the attributes for the current ScannedDataObject.
 	 * 
+	 * @param connection
+	 *            database connection
 	 * @param columns
 	 *            the columns of the table
 	 * @param pkKeys
@@ -622,14 +1374,18 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	 *            the foreign key map
 	 * @param fullTableName
 	 *            full table name
+	 * @param types
+	 *            list the column types are added to in type mode
 	 * 
 	 * @throws SQLException
 	 */
 	private List<ScannedAttribute> createAttributes(
+			Connection connection, 
 			ResultSet columns, 
 			List<String> pkKeys, 
 			Map<String, String> fkMap, 
-			String fullTableName) throws SQLException {
+			String fullTableName,
+			List<String[]> types) throws SQLException {
         
         List<ScannedAttribute> attributes = new ArrayList<>();
         
@@ -668,7 +1424,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
             if (_decimal == null) { _decimal = "0"; }
             
             if (super.isEnabledForTypeMode()) {
-            	addTypeData(aName, _type, _size, _decimal);
+            	types.add(new String[] { aName, _type, _size, _decimal });
             	// We do not require the remaining logic in the while loop for metadata type information
             	continue;
             }
@@ -721,7 +1477,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
             // Comments
             String comment = columns.getString("REMARKS");
             if (isSQLServer) {
-            	comment = getSQLServerColumnDescription(fullTableName, aName);
+            	comment = getSQLServerColumnDescription(connection, fullTableName, aName);
             }
             if (comment == null)
             	comment = "";
@@ -744,30 +1500,28 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	}
 
 	/**
-	 * Adds JDBC type information.
+	 * Adds the JDBC type information of a table that has been read to the type metadata. This method is only called by
+	 * the thread calling read().
 	 * 
-	 * @param col
-	 *            column name
-	 * @param type
-	 *            JDBC metadata "TYPE_NAME"
-	 * @param size
-	 *            JDBC metadata "COLUMN_SIZE"
-	 * @param scale
-	 *            JDBC metadata "DECIMAL_DIGITS"
-	 */
-    private void addTypeData(String col, String type, String size, String scale) {
-    	Map<String, String> typeMap = new HashMap<>();
-    	typeMap.put("attribute", col);
-    	typeMap.put("type", type);
-    	typeMap.put("size", size);
-    	typeMap.put("scale", scale);
-    	typeMetaData.add(typeMap);
+	 * @param types
+	 *            column name, "TYPE_NAME", "COLUMN_SIZE" and "DECIMAL_DIGITS" of each column
+	 */
+    private void addTypeData(List<String[]> types) {
+    	for (String[] type : types) {
+    		if (scope != MetaDataScope.TABLE) {
+    			typeCounts.add(type[1], type[2], type[3]);
+    		} else {
+    			typeMetaData.add(TYPE_PROPERTIES, type[0], type[1], type[2], type[3]);
+    		}
+    	}
 	}
 
 	/**
 	 * Fetches the description from extended properties for SQL Server tables. DatabaseMetaData doesn't return remarks
 	 * for SQL Server.
 	 * 
+	 * @param connection
+	 *            database connection
 	 * @param table
 	 *            full table name
 	 * 
@@ -775,7 +1529,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	 * 
 	 * @throws SQLException
 	 */
-    private String getSQLServerTableDescription(String table) throws SQLException {    	
+    private String getSQLServerTableDescription(Connection connection, String table) throws SQLException {    	
     	String remarks = "";
     	String query = 
     			  "SELECT  	cast(td.value as varchar) AS [table_desc]"
@@ -789,7 +1543,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     			+ "	  AND 	td.minor_id = 0 "
     			+ "   AND   td.name = 'MS_Description' "
     			+ "	WHERE 	u.name + '.' + t.name = ?";
-    	try (PreparedStatement stmt = conn.prepareStatement(query)) {
+    	try (PreparedStatement stmt = connection.prepareStatement(query)) {
     		stmt.setString(1, table);
         	try (ResultSet rs = stmt.executeQuery()) {
 	        	if (rs.next()) {
@@ -804,6 +1558,8 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	 * Fetches the description from extended properties for SQL Server columns. DatabaseMetaData doesn't return remarks
 	 * for SQL Server.
 	 * 
+	 * @param connection
+	 *            database connection
 	 * @param table
 	 *            full table name
 	 * 
@@ -814,7 +1570,8 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	 * 
 	 * @throws SQLException
 	 */
-    private String getSQLServerColumnDescription(String table, String column) throws SQLException {    	
+    private String getSQLServerColumnDescription(Connection connection, String table, String column) 
+    		throws SQLException {    	
     	String remarks = "";
     	String query = 
     			  "SELECT  	cast(cd.value as varchar) AS [column_desc]"
@@ -832,7 +1589,7 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     			+ "   AND   cd.name = 'MS_Description' "
     			+ "	WHERE 	u.name + '.' + t.name = ?"
     			+ "	  AND 	c.name = ?";
-		try (PreparedStatement stmt = conn.prepareStatement(query)) {
+		try (PreparedStatement stmt = connection.prepareStatement(query)) {
 			stmt.setString(1, table);
 			stmt.setString(2, column);
 			try (ResultSet rs = stmt.executeQuery()) {
@@ -844,8 +1601,15 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
     	return remarks;    	
     }
 	    
+	/**
+	 * Returns the type information. For SCHEMA and DATABASE scope the type information lists the distinct combinations
+	 * of type, size and scale with the number of columns having each combination.
+	 */
 	@Override
 	public TypeMetaData getTypeMetaData() {
+		if (scope != MetaDataScope.TABLE) {
+			return typeCounts.toTypeMetaData("count");
+		}
 		typeMetaData.addProperty("attribute");
 		typeMetaData.addProperty("type");
 		typeMetaData.addProperty("size");
@@ -904,4 +1668,75 @@ public class JDBCDataObjectReader extends AbstractRuleBasedDataObjectReader {
 	public String getTable() {
 		return table;
 	}
+
+	/**
+	 * Determines if errors reading a table skip the table instead of aborting the read.
+	 * 
+	 * @return true if per-table fault isolation is enabled; false otherwise.
+	 */
+	public boolean isIsolatingTableErrors() {
+		return isolateTableErrors;
+	}
+
+	/**
+	 * Returns the number of times a table is retried after a transient error.
+	 * 
+	 * @return number of retries per table.
+	 */
+	public int getTableRetries() {
+		return tableRetries;
+	}
+
+	/**
+	 * Returns the delay in milliseconds before the first retry of a table. The delay doubles on each further retry.
+	 * 
+	 * @return initial retry delay in milliseconds.
+	 */
+	public long getRetryDelay() {
+		return retryDelay;
+	}
+
+	/**
+	 * Returns the number of tables whose metadata is fetched concurrently. A value of one denotes a sequential read.
+	 * 
+	 * @return number of concurrent table reads.
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Returns the tables skipped due to errors when per-table fault isolation is enabled. The tables are identified as
+	 * schema.table and mapped to the message of the error that caused them to be skipped.
+	 * 
+	 * @return skipped tables mapped to error messages in the order they were skipped.
+	 */
+	public Map<String, String> getSkippedTables() {
+		return Collections.unmodifiableMap(skippedTables);
+	}
+
+	/**
+	 * A table whose metadata is being fetched concurrently.
+	 */
+	private static final class PendingTable {
+		
+		private final String schema;
+		private final String name;
+		private final String remarks;
+		private final int schemaIndex;
+		
+		// Column types collected by the fetch for type mode, added to the reader's type data once the table is read
+		private final List<String[]> types;
+		private final Future<ScannedDataObject> future;
+		
+		PendingTable(String schema, String name, String remarks, int schemaIndex, List<String[]> types, 
+				Future<ScannedDataObject> future) {
+			this.schema = schema;
+			this.name = name;
+			this.remarks = remarks;
+			this.schemaIndex = schemaIndex;
+			this.types = types;
+			this.future = future;
+		}
+	}
 }
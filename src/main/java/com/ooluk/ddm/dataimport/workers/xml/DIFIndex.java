@@ -0,0 +1,262 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.xml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.workers.AtomicFiles;
+
+/**
+ * DIFIndex records the byte range of every data-object element of a DIF file by namespace and name, so that a single
+ * data object can be read without scanning the file from the start.
+ * 
+ * <p>
+ * The index is written by the DIFWriter alongside the DIF file it creates, in a file named after the DIF file with
+ * the suffix {@value #SUFFIX}. It is read by {@link XMLDataObjectReader#readIndexed(String, String)}. The size and
+ * last modified time of the DIF file are recorded with the ranges so that an index that no longer matches its DIF
+ * file is detected, even if the DIF file has been rewritten with the same size. A DIF file copied without preserving
+ * its last modified time must therefore be indexed again.
+ * </p>
+ * 
+ * <p>
+ * The index is stored as a compact binary file which each save replaces (see {@link AtomicFiles}). If a DIF file has
+ * several data objects with the same namespace and name the first one is indexed. This class is not thread safe.
+ * </p>
+ * 
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+public class DIFIndex {
+
+	/**
+	 * Suffix appended to the name of a DIF file to name its index file.
+	 */
+	public static final String SUFFIX = ".idx";
+
+	// Identifies the file format
+	private static final int MAGIC = 0x44494649;
+	private static final int VERSION = 2;
+
+	private final Path file;
+
+	// Size and last modified time in milliseconds of the indexed DIF file
+	private long difSize = -1;
+	private long difModified = -1;
+
+	// Byte ranges by namespace and name in document order
+	private Map<String, Range> ranges = new LinkedHashMap<>();
+
+	/**
+	 * The byte range of a data-object element.
+	 */
+	static final class Range {
+		private final long offset;
+		private final long length;
+
+		private Range(long offset, long length) {
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/**
+		 * Returns the file position where the element begins.
+		 */
+		long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * Returns the number of bytes up to the end of the element.
+		 */
+		long getLength() {
+			return length;
+		}
+	}
+
+	/**
+	 * Constructs a DIFIndex.
+	 * 
+	 * @param file
+	 *            path of the index file
+	 */
+	public DIFIndex(String file) {
+		this.file = Paths.get(file);
+	}
+
+	/**
+	 * Returns the path of the index file for a DIF file.
+	 * 
+	 * @param difFile
+	 *            path of the DIF file
+	 * 
+	 * @return path of the index file.
+	 */
+	public static String getIndexFile(String difFile) {
+		return difFile + SUFFIX;
+	}
+
+	/**
+	 * Records the byte range of a data object. The range may include white space before and after the data-object
+	 * element.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param name
+	 *            name of the data object
+	 * @param offset
+	 *            file position where the data object begins
+	 * @param length
+	 *            number of bytes up to the end of the data object
+	 */
+	public void add(String namespace, String name, long offset, long length) {
+		String key = key(namespace, name);
+		if (!ranges.containsKey(key)) {
+			ranges.put(key, new Range(offset, length));
+		}
+	}
+
+	/**
+	 * Determines if a data object is indexed.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object
+	 * @param name
+	 *            name of the data object
+	 * 
+	 * @return true if the data object is indexed; false otherwise.
+	 */
+	public boolean contains(String namespace, String name) {
+		return ranges.containsKey(key(namespace, name));
+	}
+
+	/**
+	 * Returns the byte range of a data object.
+	 * 
+	 * @return the byte range or null if the data object is not indexed.
+	 */
+	Range get(String namespace, String name) {
+		return ranges.get(key(namespace, name));
+	}
+
+	/**
+	 * Returns the number of data objects indexed.
+	 * 
+	 * @return number of data objects.
+	 */
+	public int size() {
+		return ranges.size();
+	}
+
+	/**
+	 * Returns the size of the DIF file recorded when the index was saved.
+	 * 
+	 * @return size of the DIF file or -1 if the index has been neither saved nor loaded.
+	 */
+	public long getDifSize() {
+		return difSize;
+	}
+
+	/**
+	 * Returns the last modified time of the DIF file recorded when the index was saved.
+	 * 
+	 * @return last modified time of the DIF file in milliseconds since the epoch or -1 if the index has been neither
+	 *         saved nor loaded.
+	 */
+	public long getDifModified() {
+		return difModified;
+	}
+
+	private static String key(String namespace, String name) {
+		return namespace + '\u0000' + name;
+	}
+
+	/**
+	 * Loads the index file.
+	 * 
+	 * @throws ImportException
+	 *             if the index file cannot be read
+	 */
+	public void load() {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new ImportException("Invalid DIF index " + file);
+			}
+			difSize = in.readLong();
+			difModified = in.readLong();
+			int count = in.readInt();
+			ranges = new LinkedHashMap<>(count * 2);
+			for (int i = 0; i < count; i++) {
+				String namespace = in.readUTF();
+				String name = in.readUTF();
+				ranges.put(key(namespace, name), new Range(in.readLong(), in.readLong()));
+			}
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+
+	/**
+	 * Saves the index replacing any previous index file.
+	 * 
+	 * @param difSize
+	 *            size of the DIF file indexed
+	 * @param difModified
+	 *            last modified time of the DIF file indexed in milliseconds since the epoch
+	 * 
+	 * @throws ImportException
+	 *             if the index file cannot be written
+	 */
+	public void save(long difSize, long difModified) {
+		this.difSize = difSize;
+		this.difModified = difModified;
+		try {
+			AtomicFiles.replace(file, new AtomicFiles.IOConsumer<OutputStream>() {
+				
+				@Override
+				public void accept(OutputStream stream) throws IOException {
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+					out.writeInt(MAGIC);
+					out.writeInt(VERSION);
+					out.writeLong(difSize);
+					out.writeLong(difModified);
+					out.writeInt(ranges.size());
+					for (Map.Entry<String, Range> entry : ranges.entrySet()) {
+						String key = entry.getKey();
+						int sep = key.indexOf('\u0000');
+						out.writeUTF(key.substring(0, sep));
+						out.writeUTF(key.substring(sep + 1));
+						out.writeLong(entry.getValue().offset);
+						out.writeLong(entry.getValue().length);
+					}
+					out.flush();
+				}
+			});
+		} catch (IOException e) {
+			throw new ImportException(e);
+		}
+	}
+}
@@ -0,0 +1,490 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * DataObjectRegions divides a DIF file into byte regions that can be parsed independently. Each region holds a run of
+ * whole data-object elements of a single namespace. A region is parsed as a small document made of the root element,
+ * the start tag of its namespace, the bytes of the region and the matching end tags.
+ *
+ * <p>
+ * The boundaries are found by a byte scan of the memory-mapped file that only looks at markup: comments, CDATA
+ * sections, processing instructions and the document type declaration are skipped and quoted attribute values are
+ * honoured. The scan therefore requires a character set in which the markup characters are encoded as in ASCII (see
+ * {@link #isSupported(Charset)}). The document is not otherwise validated; errors are reported when the regions are
+ * parsed.
+ *
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+final class DataObjectRegions {
+
+	// Size of the file window mapped at a time during the scan
+	private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private static final byte[] COMMENT = ascii("<!--");
+	private static final byte[] COMMENT_END = ascii("-->");
+	private static final byte[] CDATA = ascii("<![CDATA[");
+	private static final byte[] CDATA_END = ascii("]]>");
+	private static final byte[] PI_END = ascii("?>");
+	private static final byte[] NAMESPACE = ascii("<namespace");
+	private static final byte[] NAMESPACE_END = ascii("</namespace");
+	private static final byte[] DATA_OBJECT = ascii("<data-object");
+	private static final byte[] ROOT = ascii("<ddm>");
+	private static final byte[] REGION_END = ascii("</namespace></ddm>");
+
+	private final Path file;
+	private final Charset charset;
+	private final List<Region> regions;
+
+	/*
+	 * Scan state: the mapped window of the file, the file position of its first byte and the file size
+	 */
+	private FileChannel channel;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long size;
+
+	/**
+	 * Scans a DIF file for data object regions.
+	 *
+	 * @param file
+	 *            the DIF file
+	 * @param charset
+	 *            the character set of the file
+	 * @param regionSize
+	 *            the number of bytes after which a region is ended at the next data object
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read
+	 * @throws XMLStreamException
+	 *             if a namespace start tag cannot be parsed
+	 */
+	DataObjectRegions(Path file, Charset charset, long regionSize) throws IOException, XMLStreamException {
+		this.file = file;
+		this.charset = charset;
+		List<Region> found = new ArrayList<>();
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			channel = fc;
+			size = fc.size();
+			scan(found, regionSize);
+		} finally {
+			channel = null;
+			window = null;
+		}
+		this.regions = Collections.unmodifiableList(found);
+	}
+
+	/**
+	 * Determines if the markup of a file in the specified character set can be located by a byte scan.
+	 *
+	 * @param charset
+	 *            character set of the file
+	 *
+	 * @return true if the character set encodes the markup characters as ASCII does; false otherwise.
+	 */
+	static boolean isSupported(Charset charset) {
+		String markup = "<!-[]?>/=\"' \t\r\nCDATAnamespacedata-objectddm";
+		return charset.canEncode() && Arrays.equals(markup.getBytes(charset), ascii(markup));
+	}
+
+	/**
+	 * Returns the regions of the file in document order.
+	 *
+	 * @return list of regions.
+	 */
+	List<Region> getRegions() {
+		return regions;
+	}
+
+	/**
+	 * Returns the total number of data objects in the file.
+	 *
+	 * @return number of data objects.
+	 */
+	long getDataObjectCount() {
+		long count = 0;
+		for (Region region : regions) {
+			count += region.count;
+		}
+		return count;
+	}
+
+	/**
+	 * Opens a region for parsing as a stand-alone document. The bytes of the region are read from a memory mapping of
+	 * the file.
+	 *
+	 * @param region
+	 *            the region to open
+	 *
+	 * @return an input stream for the region document.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 */
+	InputStream open(Region region) throws IOException {
+		return open(file, region.namespaceTag, region.start, region.end);
+	}
+
+	/**
+	 * Opens a range of data objects of a DIF file for parsing as a stand-alone document. The bytes of the range are
+	 * read from a memory mapping of the file.
+	 *
+	 * @param file
+	 *            the DIF file
+	 * @param namespaceTag
+	 *            the start tag of the namespace the data objects belong to
+	 * @param start
+	 *            file position of the first data object
+	 * @param end
+	 *            file position after the last data object
+	 *
+	 * @return an input stream for the document.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be mapped
+	 */
+	static InputStream open(Path file, byte[] namespaceTag, long start, long end) throws IOException {
+		ByteBuffer bytes;
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			bytes = fc.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		}
+		InputStream head = new SequenceInputStream(new ByteArrayInputStream(ROOT),
+				new ByteArrayInputStream(namespaceTag));
+		InputStream body = new SequenceInputStream(head, new ByteBufferInputStream(bytes));
+		return new SequenceInputStream(body, new ByteArrayInputStream(REGION_END));
+	}
+
+	/**
+	 * Scans the file and adds the regions found to the list.
+	 */
+	private void scan(List<Region> found, long regionSize) throws IOException, XMLStreamException {
+		long pos = 0;
+		byte[] namespaceTag = null;
+		String namespace = null;
+		int ordinal = -1;
+		long regionStart = -1;
+		int count = 0;
+		while ((pos = indexOf('<', pos)) >= 0) {
+			if (startsWith(pos, COMMENT)) {
+				pos = skipPast(pos + COMMENT.length, COMMENT_END);
+			} else if (startsWith(pos, CDATA)) {
+				pos = skipPast(pos + CDATA.length, CDATA_END);
+			} else if (byteAt(pos + 1) == '?') {
+				pos = skipPast(pos + 2, PI_END);
+			} else if (byteAt(pos + 1) == '!') {
+				pos = skipDeclaration(pos + 2);
+			} else if (isTag(pos, NAMESPACE)) {
+				long tagEnd = skipTag(pos + NAMESPACE.length);
+				ordinal++;
+				if (byteAt(tagEnd - 2) == '/') {
+					// An empty namespace has no data objects
+					namespaceTag = null;
+				} else {
+					namespaceTag = bytes(pos, tagEnd);
+					namespace = parseNamespace(namespaceTag);
+				}
+				regionStart = -1;
+				count = 0;
+				pos = tagEnd;
+			} else if (isTag(pos, NAMESPACE_END)) {
+				if (regionStart >= 0) {
+					found.add(new Region(namespace, ordinal, namespaceTag, regionStart, pos, count));
+				}
+				namespaceTag = null;
+				regionStart = -1;
+				pos = skipTag(pos + NAMESPACE_END.length);
+			} else if (namespaceTag != null && isTag(pos, DATA_OBJECT)) {
+				if (regionStart < 0) {
+					regionStart = pos;
+				} else if (pos - regionStart >= regionSize) {
+					found.add(new Region(namespace, ordinal, namespaceTag, regionStart, pos, count));
+					regionStart = pos;
+					count = 0;
+				}
+				count++;
+				pos = skipTag(pos + DATA_OBJECT.length);
+			} else {
+				pos = skipTag(pos + 1);
+			}
+		}
+	}
+
+	/**
+	 * Extracts the namespace name from a namespace start tag.
+	 */
+	private String parseNamespace(byte[] tag) throws XMLStreamException {
+		InputStream in = new SequenceInputStream(new ByteArrayInputStream(tag),
+				new ByteArrayInputStream(ascii("</namespace>")));
+		XMLEventReader reader = XMLInputFactory.newInstance().createXMLEventReader(new InputStreamReader(in, charset));
+		try {
+			while (reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (event.isStartElement()) {
+					return event.asStartElement().getAttributeByName(QName.valueOf("name")).getValue();
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return "";
+	}
+
+	/**
+	 * Determines if a start or end tag with the specified name begins at a position.
+	 */
+	private boolean isTag(long pos, byte[] name) throws IOException {
+		if (!startsWith(pos, name)) {
+			return false;
+		}
+		int next = byteAt(pos + name.length);
+		return next == '>' || next == '/' || next == ' ' || next == '\t' || next == '\r' || next == '\n';
+	}
+
+	/**
+	 * Skips to the end of a tag honouring quoted attribute values.
+	 *
+	 * @return the position after the closing '>' or the file size if the tag is not closed.
+	 */
+	private long skipTag(long pos) throws IOException {
+		int quote = 0;
+		for (; pos < size; pos++) {
+			int b = byteAt(pos);
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return pos + 1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Skips a declaration such as the document type declaration, including any internal subset in brackets.
+	 *
+	 * @return the position after the closing '>' or the file size if the declaration is not closed.
+	 */
+	private long skipDeclaration(long pos) throws IOException {
+		int depth = 0;
+		int quote = 0;
+		for (; pos < size; pos++) {
+			int b = byteAt(pos);
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '[') {
+				depth++;
+			} else if (b == ']') {
+				depth--;
+			} else if (b == '>' && depth <= 0) {
+				return pos + 1;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Skips past the next occurrence of a terminator.
+	 *
+	 * @return the position after the terminator or the file size if there is none.
+	 */
+	private long skipPast(long pos, byte[] terminator) throws IOException {
+		while ((pos = indexOf(terminator[0], pos)) >= 0) {
+			if (startsWith(pos, terminator)) {
+				return pos + terminator.length;
+			}
+			pos++;
+		}
+		return size;
+	}
+
+	/**
+	 * Finds the next occurrence of a byte.
+	 *
+	 * @return the position of the byte or -1 if there is none.
+	 */
+	private long indexOf(int b, long pos) throws IOException {
+		for (; pos < size; pos++) {
+			if (byteAt(pos) == b) {
+				return pos;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Determines if the bytes at a position match a prefix.
+	 */
+	private boolean startsWith(long pos, byte[] prefix) throws IOException {
+		if (pos + prefix.length > size) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (byteAt(pos + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Copies a range of bytes of the file.
+	 */
+	private byte[] bytes(long from, long to) throws IOException {
+		byte[] copy = new byte[(int) (to - from)];
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = (byte) byteAt(from + i);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the byte at a position of the file, mapping the window that contains it if necessary.
+	 *
+	 * @return the byte as an unsigned value or -1 if the position is past the end of the file.
+	 */
+	private int byteAt(long pos) throws IOException {
+		if (pos >= size) {
+			return -1;
+		}
+		if (window == null || pos < windowStart || pos >= windowStart + window.limit()) {
+			windowStart = pos;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(WINDOW_SIZE, size - pos));
+		}
+		return window.get((int) (pos - windowStart)) & 0xff;
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * A run of whole data-object elements of one namespace.
+	 */
+	static final class Region {
+
+		private final String namespace;
+		private final int ordinal;
+		private final byte[] namespaceTag;
+		private final long start;
+		private final long end;
+		private final int count;
+
+		Region(String namespace, int ordinal, byte[] namespaceTag, long start, long end, int count) {
+			this.namespace = namespace;
+			this.ordinal = ordinal;
+			this.namespaceTag = namespaceTag;
+			this.start = start;
+			this.end = end;
+			this.count = count;
+		}
+
+		/**
+		 * Returns the name of the namespace as it appears in the file.
+		 */
+		String getNamespace() {
+			return namespace;
+		}
+
+		/**
+		 * Returns the position of the namespace in document order starting at zero.
+		 */
+		int getOrdinal() {
+			return ordinal;
+		}
+
+		/**
+		 * Returns the file position of the first data object.
+		 */
+		long getStart() {
+			return start;
+		}
+
+		/**
+		 * Returns the file position after the last data object.
+		 */
+		long getEnd() {
+			return end;
+		}
+
+		/**
+		 * Returns the number of data objects in the region.
+		 */
+		int getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * An input stream over the remaining bytes of a buffer.
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+	}
+}
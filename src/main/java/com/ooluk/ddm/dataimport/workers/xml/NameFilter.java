@@ -0,0 +1,98 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.xml;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * NameFilter selects namespaces or data objects by name. A filter is specified either as a regular expression prefixed
+ * with "regex:", which must match the whole name, or as a comma separated list of names where a name ending with '*'
+ * matches all names with that prefix.
+ *
+ * <p>
+ * Examples: "SALES", "SALES, HR_*", "regex:(SALES|HR)_[0-9]+"
+ * </p>
+ *
+ * <p>
+ * Names are matched as they appear in the file, i.e. case sensitively and before any case conversion.
+ * </p>
+ *
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ */
+final class NameFilter {
+
+	private static final String REGEX_PREFIX = "regex:";
+
+	// Name separator: a comma with any surrounding whitespace
+	private static final Pattern SEPARATOR = Pattern.compile("(\\s)*,(\\s)*");
+
+	private final Pattern regex;
+	private final Set<String> names = new HashSet<>();
+	private final List<String> prefixes = new ArrayList<>();
+
+	/**
+	 * Constructs a NameFilter from its specification.
+	 *
+	 * @param spec
+	 *            the filter specification
+	 *
+	 * @throws java.util.regex.PatternSyntaxException
+	 *             if the regular expression is invalid
+	 */
+	NameFilter(String spec) {
+		String trimmed = spec.trim();
+		if (trimmed.startsWith(REGEX_PREFIX)) {
+			regex = Pattern.compile(trimmed.substring(REGEX_PREFIX.length()));
+			return;
+		}
+		regex = null;
+		for (String name : SEPARATOR.split(trimmed)) {
+			if (name.endsWith("*")) {
+				prefixes.add(name.substring(0, name.length() - 1));
+			} else if (!name.isEmpty()) {
+				names.add(name);
+			}
+		}
+	}
+
+	/**
+	 * Determines if the filter accepts a name.
+	 *
+	 * @param name
+	 *            the name to test
+	 *
+	 * @return true if the name is selected by the filter; false otherwise.
+	 */
+	boolean accepts(String name) {
+		if (regex != null) {
+			return regex.matcher(name).matches();
+		}
+		if (names.contains(name)) {
+			return true;
+		}
+		for (String prefix : prefixes) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
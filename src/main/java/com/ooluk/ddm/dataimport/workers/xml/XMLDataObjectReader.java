@@ -15,13 +15,36 @@
  */
 package com.ooluk.ddm.dataimport.workers.xml;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
@@ -35,6 +58,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.ooluk.ddm.dataimport.CaseMode;
+import com.ooluk.ddm.dataimport.ImportException;
 import com.ooluk.ddm.dataimport.MessageKey;
 import com.ooluk.ddm.dataimport.Messages;
 import com.ooluk.ddm.dataimport.data.ScannedAttribute;
@@ -43,19 +67,41 @@ import com.ooluk.ddm.dataimport.data.ScannedAttributeSource;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 import com.ooluk.ddm.dataimport.data.ScannedDataObjectSource;
 import com.ooluk.ddm.dataimport.workers.AbstractDataObjectReader;
+import com.ooluk.ddm.dataimport.workers.ResumableDataObjectReader;
+import com.ooluk.ddm.dataimport.workers.SingleByteReader;
 
 
 /**
  * XMLDataObjectReader is an implementation of the DataObjectReader for reading data from DIF (Data Import Format) XML
  * file. This implementation uses StAX (Streaming API for XML) available in java.xml.stream.
  * 
+ * <p>
+ * With the parameter "concurrency" set to a value greater than one a large file is parsed on that many threads. The
+ * memory-mapped file is first scanned for the byte boundaries of the namespace and data-object elements and divided
+ * into regions of whole data objects. The regions are parsed concurrently, each by its own StAX parser, and read()
+ * returns the data objects in document order. A file in a character set that does not encode the markup as ASCII does,
+ * such as UTF-16 or EBCDIC, is read sequentially.
+ * 
+ * <p>
+ * The parameters "namespaceFilter" and "nameFilter" restrict the read to the namespaces and data objects with matching
+ * names (see {@link NameFilter} for the syntax). A namespace that does not match is skipped at its start element and,
+ * in concurrent mode, its regions are not parsed at all. A data object whose name does not match is skipped from its
+ * name element on without building its attributes.
+ * 
  * @author Siddhesh Prabhu
  * @since 1.0
  * 
  */
-public class XMLDataObjectReader extends AbstractDataObjectReader {
+public class XMLDataObjectReader extends AbstractDataObjectReader implements ResumableDataObjectReader {
 	
 	private final Logger log = LogManager.getLogger();
+	
+	// Bounds of the size of a region parsed concurrently
+	private static final long MIN_REGION_SIZE = 64L * 1024;
+	private static final long MAX_REGION_SIZE = 4L * 1024 * 1024;
+	
+	// Tag separator: a comma with any surrounding whitespace
+	private static final Pattern TAG_SEPARATOR = Pattern.compile("(\\s)*,(\\s)*");
 
     /*
      * Parameters passed on call to init(...) that need to be saved.
@@ -66,6 +112,9 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 	// The XML file path and name
     private String xmlFile;    
     
+    // The character set of the XML file is optional and defaults to the platform default
+    private Charset charset;
+    
     /*
      * Member variables
      */
@@ -75,8 +124,49 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
     // A flag used to signal the completion of initial configuration	
     private boolean configured = false;
     
-    // The XML reader
+    // The XML reader and the character stream it parses
     private XMLEventReader reader;
+    private Reader input;
+    
+	// Ordinal of the namespace being processed. Namespaces are numbered in document order starting at zero.
+    private int nsOrdinal = -1;
+    
+    // Number of data object elements up to the last data object read and its name. These form the resume position.
+    private int dObjCount = 0;
+    private String lastName;
+    
+    // Number of data object elements passed including those skipped by the filters
+    private int dObjPassed = 0;
+    
+    // Namespace and data object name filters; null if not filtered
+    private NameFilter namespaceFilter;
+    private NameFilter nameFilter;
+    
+    // Index file given by the "index" parameter and the index, loaded on the first indexed read
+    private String indexPath;
+    private DIFIndex index;
+    
+    // Number of threads parsing regions of the file; one denotes a sequential read
+    private int concurrency = 1;
+    
+    /*
+     * Concurrent and split mode: regions of the file, the next region to parse, the end of the regions read by this
+     * reader, the number of data object elements before the next region and the regions being parsed in read order. A
+     * reader in split mode has no executor and parses one region at a time on the calling thread.
+     */
+    private DataObjectRegions regions;
+    private int nextRegion = 0;
+    private int regionEnd = Integer.MAX_VALUE;
+    private int regionBase = 0;
+    private ExecutorService executor;
+    private final Deque<PendingRegion> pending = new ArrayDeque<>();
+    
+    // Concurrent mode: the region being returned and the index of its next data object
+    private PendingRegion current;
+    private int parsedIdx = 0;
+    
+    // Concurrent mode: data object elements of the first region to drop after a resume
+    private int resumeSkip = 0;
         
     /**
 	 * Parameterless constructor 
@@ -95,8 +185,12 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 		
 		XMLInputFactory factory = XMLInputFactory.newInstance();	
 		try {
-			reader = factory.createXMLEventReader(new FileReader(xmlFile));
-		} catch (FileNotFoundException | XMLStreamException e) {
+			if (concurrency > 1 && openRegions()) {
+				return;
+			}
+			input = openFile();
+			reader = factory.createXMLEventReader(input);
+		} catch (IOException | XMLStreamException e) {
 			log.error(e.getMessage(), e);
 			String msg = Messages.getMessage(MessageKey.XML_FILE_OPEN_ERR, e.getMessage());
 			super.appendStatusLine(msg);
@@ -108,6 +202,11 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 	public void init(Map<String, Object> params) {
     	
 		extractXmlFile(params);
+		extractCharset(params);
+		extractConcurrency(params);
+		namespaceFilter = extractFilter(params, "namespaceFilter");
+		nameFilter = extractFilter(params, "nameFilter");
+		indexPath = (String) params.get("index");
     	configured = true;
         init();
         extractCaseMode(params);
@@ -133,6 +232,177 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
     	}
 	}
 
+	/**
+	 * Extracts the character set of the XML file from the initialization parameters. The character set is optional;
+	 * without it the file is read in the platform default character set.
+	 * 
+	 * <p>
+	 * The character set is specified with the parameter name "charset". Files in a single-byte character set, such as
+	 * the EBCDIC code pages "Cp037" and "Cp1047", are decoded through a table while they are parsed.
+	 * </p>
+	 * 
+	 * @param params
+	 *            initialization parameters
+	 */
+	private void extractCharset(Map<String, Object> params) {
+
+		String name = (String) params.get("charset");
+		if (name != null) {
+			try {
+				charset = Charset.forName(name.trim());
+			} catch (IllegalArgumentException ex) {
+				String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, "charset");
+				super.appendStatusLine(msg);
+				throwImportException(msg);
+			}
+		}
+	}
+
+	/**
+	 * Extracts the number of threads parsing the file from the initialization parameters. The parameter "concurrency"
+	 * is optional and defaults to one, i.e. a sequential read.
+	 * 
+	 * @param params
+	 *            initialization parameters
+	 */
+	private void extractConcurrency(Map<String, Object> params) {
+
+		Object value = params.get("concurrency");
+		if (value != null) {
+			try {
+				concurrency = Integer.parseInt(value.toString().trim());
+			} catch (NumberFormatException ex) {
+				concurrency = 0;
+			}
+			if (concurrency < 1) {
+				String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, "concurrency");
+				super.appendStatusLine(msg);
+				throwImportException(msg);
+			}
+		}
+	}
+
+	/**
+	 * Extracts a name filter from the initialization parameters. The filters are optional.
+	 * 
+	 * <p>
+	 * The namespace filter is specified with the parameter name "namespaceFilter" and the data object name filter with
+	 * the parameter name "nameFilter".
+	 * </p>
+	 * 
+	 * @param params
+	 *            initialization parameters
+	 * @param param
+	 *            the name of the filter parameter
+	 * 
+	 * @return the filter or null if the parameter is absent.
+	 */
+	private NameFilter extractFilter(Map<String, Object> params, String param) {
+
+		String spec = (String) params.get(param);
+		if (spec == null) {
+			return null;
+		}
+		try {
+			return new NameFilter(spec);
+		} catch (PatternSyntaxException ex) {
+			String msg = Messages.getMessage(MessageKey.WORKER_PARAM_INVALID, param);
+			super.appendStatusLine(msg);
+			throwImportException(msg);
+		}
+		return null;
+	}
+
+	/**
+	 * Opens the XML file for reading in the configured character set.
+	 * 
+	 * @return a reader for the XML file.
+	 * 
+	 * @throws IOException
+	 */
+	private Reader openFile() throws IOException {
+		if (charset == null) {
+			return new FileReader(xmlFile);
+		}
+		return openReader(new FileInputStream(xmlFile));
+	}
+
+	/**
+	 * Creates a reader that decodes a byte stream of the XML file in the configured character set.
+	 * 
+	 * @param in
+	 *            the byte stream
+	 * 
+	 * @return a reader for the byte stream.
+	 */
+	private Reader openReader(InputStream in) {
+		Charset cs = getFileCharset();
+		if (SingleByteReader.isSingleByte(cs)) {
+			return new SingleByteReader(in, cs);
+		}
+		return new BufferedReader(new InputStreamReader(in, cs));
+	}
+
+	/**
+	 * Returns the character set the XML file is read in.
+	 * 
+	 * @return the configured character set or the platform default.
+	 */
+	private Charset getFileCharset() {
+		return charset == null ? Charset.defaultCharset() : charset;
+	}
+
+	/**
+	 * Scans the file for regions that can be parsed concurrently and creates the executor that parses them.
+	 * 
+	 * @return true if the file is read concurrently; false if it must be read sequentially.
+	 * 
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	private boolean openRegions() throws IOException, XMLStreamException {
+		regions = scanRegions(concurrency);
+		if (regions == null) {
+			return false;
+		}
+		executor = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+			
+			private final AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "dif-parser-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		return true;
+	}
+
+	/**
+	 * Scans the file for regions to be parsed by the specified number of threads. Regions are ended at the first data
+	 * object after a quarter of the file's share per thread, within bounds that keep the parsing overhead and the
+	 * memory held by parsed regions low.
+	 * 
+	 * @param threads
+	 *            number of threads parsing the regions
+	 * 
+	 * @return the regions or null if the markup of the file cannot be scanned in its character set.
+	 * 
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	private DataObjectRegions scanRegions(int threads) throws IOException, XMLStreamException {
+		Charset cs = getFileCharset();
+		if (!DataObjectRegions.isSupported(cs)) {
+			log.info("Reading " + xmlFile + " sequentially as its markup cannot be scanned in " + cs.name());
+			return null;
+		}
+		long regionSize = Files.size(Paths.get(xmlFile)) / (threads * 4L);
+		regionSize = Math.max(MIN_REGION_SIZE, Math.min(MAX_REGION_SIZE, regionSize));
+		return new DataObjectRegions(Paths.get(xmlFile), cs, regionSize);
+	}
+
 	/**
 	 * Extracts the case mode from the initialization parameters. The case mode is optional.
 	 * 
@@ -160,19 +430,459 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
     
 	@Override
 	public ScannedDataObject read() {  
-    	ScannedDataObject dObj = readDataObject();
+    	ScannedDataObject dObj = regions == null ? readDataObject() : nextConcurrent();
     	return dObj;
 	}
 
+	/**
+	 * Reads up to {@code max} data objects from the XML event stream in a single pass.
+	 */
+	@Override
+	public List<ScannedDataObject> read(int max) {
+		List<ScannedDataObject> batch = createBatch(max);
+		while (batch.size() < max) {
+			ScannedDataObject dObj = read();
+			if (dObj == null) {
+				break;
+			}
+			batch.add(dObj);
+		}
+		return batch;
+	}
+
 	@Override
 	public void close() {   
 		
+		for (PendingRegion region : pending) {
+			region.future.cancel(true);
+		}
+		pending.clear();
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+		closeParser();
+	}
+
+	/**
+	 * Closes the sequential parser and the file it reads.
+	 */
+	private void closeParser() {
 		try {
 			if (reader != null)
 				reader.close();
+			if (input != null)
+				input.close();
+		} catch (XMLStreamException | IOException e) {
+			log.error(e.getMessage(), e);
+		}
+		reader = null;
+		input = null;
+	}
+
+	/**
+	 * Returns the position after the last data object read. The position comprises the number of data object elements
+	 * read ("dataObjects") and the namespace ("namespace") and name ("name") of the last data object read.
+	 */
+	@Override
+	public Map<String, String> getPosition() {
+		Map<String, String> position = new HashMap<>();
+		if (dObjCount > 0) {
+			position.put("dataObjects", String.valueOf(dObjCount));
+			position.put("namespace", namespace);
+			position.put("name", lastName);
+		}
+		return position;
+	}
+
+	/**
+	 * Positions the reader after the data object identified by the position. The data object elements already read are
+	 * skipped without building data objects, although a sequential reader still tokenizes them; a reader in concurrent
+	 * mode passes over whole regions without reading them. If the file has changed such that the namespace of the last
+	 * skipped data object differs from the saved namespace, the reader starts from the beginning.
+	 */
+	@Override
+	public void resume(Map<String, String> position) {
+		
+		String count = position.get("dataObjects");
+		if (count == null) {
+			return;
+		}
+		String fullName = position.get("namespace") + "." + position.get("name");
+		super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUMING, fullName));
+		int target = Integer.parseInt(count);
+		if (regions != null) {
+			resumeRegions(target, position, fullName);
+			return;
+		}
+		try {
+			while (dObjCount < target && reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (event.isStartElement()) {
+					StartElement elStart = event.asStartElement();
+					switch (elStart.getName().toString()) {
+						case "namespace":
+							nsOrdinal++;
+							namespace = extractNamespace(elStart);
+							break;
+						case "data-object":
+							skipElement();
+							dObjCount++;
+							break;
+					}
+				}
+			}
+		} catch (XMLStreamException e) {
+			log.error(e.getMessage(), e);
+			throwImportException(e);
+		}
+		if (dObjCount < target || !namespace.equals(position.get("namespace"))) {
+			super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUME_NOT_FOUND, fullName));
+			close();
+			namespace = "";
+			nsOrdinal = -1;
+			dObjCount = 0;
+			init();
+			return;
+		}
+		dObjPassed = dObjCount;
+		lastName = position.get("name");
+	}
+
+	/**
+	 * Positions a reader in concurrent mode after the data object identified by the position. The regions before it are
+	 * passed over using the data object counts found by the scan, so no data objects are parsed. 
+	 * 
+	 * @param target
+	 *            number of data objects read
+	 * @param position
+	 *            the position to resume from
+	 * @param fullName
+	 *            full name of the last data object read, for the status log
+	 */
+	private void resumeRegions(int target, Map<String, String> position, String fullName) {
+		
+		long skipped = 0;
+		List<DataObjectRegions.Region> list = regions.getRegions();
+		for (int i = 0; i < list.size(); i++) {
+			DataObjectRegions.Region region = list.get(i);
+			if (skipped + region.getCount() >= target) {
+				if (!region.getNamespace().equals(position.get("namespace"))) {
+					break;
+				}
+				resumeSkip = (int) (target - skipped);
+				nextRegion = i;
+				regionBase = (int) skipped;
+				if (resumeSkip == region.getCount()) {
+					resumeSkip = 0;
+					nextRegion++;
+					regionBase = target;
+				}
+				nsOrdinal = region.getOrdinal();
+				namespace = region.getNamespace();
+				dObjCount = target;
+				dObjPassed = target;
+				lastName = position.get("name");
+				return;
+			}
+			skipped += region.getCount();
+		}
+		super.appendStatusLine(Messages.getMessage(MessageKey.READ_RESUME_NOT_FOUND, fullName));
+	}
+
+	/**
+	 * Returns the next data object in concurrent mode. Regions are submitted for parsing up to twice as many as there
+	 * are threads ahead of the region being returned.
+	 * 
+	 * @return the next data object or null if all regions have been read.
+	 */
+	private ScannedDataObject nextConcurrent() {
+		
+		while (current == null || parsedIdx >= current.dObjs.size()) {
+			fillPending();
+			PendingRegion next = pending.poll();
+			if (next == null) {
+				return null;
+			}
+			try {
+				next.dObjs = next.future.get();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof ImportException) {
+					close();
+					throw (ImportException) cause;
+				}
+				log.error(cause.getMessage(), cause);
+				throwImportException(cause instanceof Exception ? (Exception) cause : e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throwImportException(e);
+			}
+			current = next;
+			parsedIdx = 0;
+			while (parsedIdx < next.dObjs.size() && next.ordinals.get(parsedIdx) <= resumeSkip) {
+				parsedIdx++;
+			}
+			resumeSkip = 0;
+			nsOrdinal = next.region.getOrdinal();
+			namespace = next.region.getNamespace();
+		}
+		dObjCount = current.base + current.ordinals.get(parsedIdx);
+		dObjPassed = dObjCount;
+		ScannedDataObject dObj = current.dObjs.get(parsedIdx++);
+		lastName = dObj.getName();
+		return dObj;
+	}
+
+	/**
+	 * Submits the next regions for parsing until the read-ahead limit is reached. Regions of namespaces rejected by the
+	 * namespace filter are passed over without being parsed. In split mode the next region is parsed on the calling
+	 * thread.
+	 */
+	private void fillPending() {
+		
+		List<DataObjectRegions.Region> list = regions.getRegions();
+		int limit = executor == null ? 1 : concurrency * 2;
+		int end = Math.min(regionEnd, list.size());
+		while (pending.size() < limit && nextRegion < end) {
+			final DataObjectRegions.Region region = list.get(nextRegion++);
+			int base = regionBase;
+			regionBase += region.getCount();
+			if (namespaceFilter != null && !namespaceFilter.accepts(region.getNamespace())) {
+				continue;
+			}
+			final PendingRegion next = new PendingRegion(region, base);
+			FutureTask<List<ScannedDataObject>> task = new FutureTask<>(new Callable<List<ScannedDataObject>>() {
+				
+				@Override
+				public List<ScannedDataObject> call() throws Exception {
+					return parseRegion(next);
+				}
+			});
+			next.future = task;
+			if (executor == null) {
+				task.run();
+			} else {
+				executor.execute(task);
+			}
+			pending.add(next);
+		}
+	}
+
+	/**
+	 * Parses the data objects of a region with a reader of its own and records the number of data object elements in
+	 * the region up to each data object returned. In concurrent mode this method runs on the executor's threads.
+	 * 
+	 * @param next
+	 *            the region to parse
+	 * 
+	 * @return the data objects of the region in document order.
+	 * 
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	private List<ScannedDataObject> parseRegion(PendingRegion next) throws IOException, XMLStreamException {
+		
+		XMLDataObjectReader part = openPart(regions.open(next.region));
+		part.nameFilter = nameFilter;
+		try {
+			List<ScannedDataObject> dObjs = new ArrayList<>();
+			ScannedDataObject dObj;
+			while ((dObj = part.readDataObject()) != null) {
+				dObjs.add(dObj);
+				next.ordinals.add(part.dObjCount);
+			}
+			return dObjs;
+		} finally {
+			part.close();
+		}
+	}
+
+	/**
+	 * Creates a reader of its own for a part of the file opened as a stand-alone document.
+	 * 
+	 * @param in
+	 *            the part of the file
+	 * 
+	 * @return a reader for the part with the settings of this reader.
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private XMLDataObjectReader openPart(InputStream in) throws XMLStreamException {
+		
+		XMLDataObjectReader part = new XMLDataObjectReader();
+		copySettings(part);
+		part.caseMode = caseMode;
+		part.input = openReader(in);
+		try {
+			part.reader = XMLInputFactory.newInstance().createXMLEventReader(part.input);
 		} catch (XMLStreamException e) {
+			part.close();
+			throw e;
+		}
+		return part;
+	}
+
+	/**
+	 * Reads a single data object using the index of the XML file (see {@link DIFIndex}). Only the bytes of the data
+	 * object are parsed. The index is loaded on the first call from the file given by the parameter "index" or, if
+	 * the parameter is absent, from the index file written alongside the XML file. This method does not change the
+	 * position of read() and requires a character set that encodes the markup as ASCII does, such as the UTF-8 written
+	 * by the DIFWriter.
+	 * 
+	 * @param namespace
+	 *            namespace of the data object as it appears in the file
+	 * @param name
+	 *            name of the data object as it appears in the file
+	 * 
+	 * @return the data object or null if the index has no such data object.
+	 * 
+	 * @throws ImportException
+	 *             if the index cannot be read or does not match the XML file or the data object cannot be parsed
+	 */
+	public ScannedDataObject readIndexed(String namespace, String name) {
+		
+		Charset cs = getFileCharset();
+		try {
+			if (index == null) {
+				index = loadIndex();
+			}
+			DIFIndex.Range range = index.get(namespace, name);
+			if (range == null) {
+				return null;
+			}
+			byte[] tag = ("<namespace name=\"" + escape(namespace) + "\">").getBytes(cs);
+			XMLDataObjectReader part = openPart(DataObjectRegions.open(Paths.get(xmlFile), tag, range.getOffset(),
+					range.getOffset() + range.getLength()));
+			try {
+				return part.readDataObject();
+			} finally {
+				part.close();
+			}
+		} catch (IOException | XMLStreamException e) {
 			log.error(e.getMessage(), e);
+			String msg = Messages.getMessage(MessageKey.XML_FILE_OPEN_ERR, e.getMessage());
+			super.appendStatusLine(msg);
+			throw new ImportException(msg, e);
+		}
+	}
+
+	/**
+	 * Loads the index of the XML file and verifies that it was written for the file in its current state.
+	 * 
+	 * @return the index.
+	 * 
+	 * @throws IOException
+	 */
+	private DIFIndex loadIndex() throws IOException {
+		
+		String indexFile = indexPath != null ? indexPath : DIFIndex.getIndexFile(xmlFile);
+		DIFIndex loaded = new DIFIndex(indexFile);
+		loaded.load();
+		Path path = Paths.get(xmlFile);
+		if (loaded.getDifSize() != Files.size(path) 
+				|| loaded.getDifModified() != Files.getLastModifiedTime(path).toMillis()) {
+			String msg = Messages.getMessage(MessageKey.XML_INDEX_STALE, indexFile, xmlFile);
+			super.appendStatusLine(msg);
+			throw new ImportException(msg);
 		}
+		return loaded;
+	}
+
+	/**
+	 * Escapes the characters of a value that cannot appear in a quoted XML attribute.
+	 * 
+	 * @param value
+	 *            the attribute value
+	 * 
+	 * @return the escaped value.
+	 */
+	private static String escape(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			switch (ch) {
+				case '&':
+					sb.append("&amp;");
+					break;
+				case '<':
+					sb.append("&lt;");
+					break;
+				case '"':
+					sb.append("&quot;");
+					break;
+				default:
+					sb.append(ch);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Splits off the lower half of the regions not yet read into a reader of its own. On the first split the file is
+	 * scanned once for data object regions (see {@link DataObjectRegions}) and the sequential parser of this reader is
+	 * closed, so each part of the file is parsed by exactly one reader. A reader that has started reading is not split.
+	 * A reader in concurrent mode already parses on several threads and is not split either, nor is a file whose
+	 * markup cannot be scanned in its character set.
+	 */
+	@Override
+	protected AbstractDataObjectReader trySplit() {
+		
+		if (executor != null || nsOrdinal >= 0 || current != null || !pending.isEmpty()) {
+			return null;
+		}
+		if (regions == null) {
+			try {
+				regions = scanRegions(ForkJoinPool.getCommonPoolParallelism());
+			} catch (IOException | XMLStreamException e) {
+				log.error(e.getMessage(), e);
+				return null;
+			}
+			if (regions == null) {
+				return null;
+			}
+			closeParser();
+		}
+		List<DataObjectRegions.Region> list = regions.getRegions();
+		int hi = Math.min(regionEnd, list.size());
+		if (hi - nextRegion < 2) {
+			return null;
+		}
+		int mid = nextRegion + (hi - nextRegion) / 2;
+		XMLDataObjectReader split = new XMLDataObjectReader();
+		copySettings(split);
+		split.caseMode = caseMode;
+		split.xmlFile = xmlFile;
+		split.charset = charset;
+		split.namespaceFilter = namespaceFilter;
+		split.nameFilter = nameFilter;
+		split.configured = true;
+		split.regions = regions;
+		split.nextRegion = nextRegion;
+		split.regionEnd = mid;
+		split.regionBase = regionBase;
+		for (int i = nextRegion; i < mid; i++) {
+			regionBase += list.get(i).getCount();
+		}
+		nextRegion = mid;
+		return split;
+	}
+
+	/**
+	 * Returns the number of data object elements in the regions not yet read in concurrent or split mode. This
+	 * includes data objects rejected by the filters.
+	 */
+	@Override
+	protected long estimateRemaining() {
+		if (regions == null) {
+			return Long.MAX_VALUE;
+		}
+		List<DataObjectRegions.Region> list = regions.getRegions();
+		long count = 0;
+		for (int i = nextRegion; i < Math.min(regionEnd, list.size()); i++) {
+			count += list.get(i).getCount();
+		}
+		return count;
 	}
 
 	/**
@@ -214,7 +924,13 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 						switch(elStartName) {
 							
 							case "namespace":
-								namespace = extractNamespace(elStart);
+								nsOrdinal++;
+								String nsName = extractNamespace(elStart);
+								if (namespaceFilter != null && !namespaceFilter.accepts(nsName)) {
+									dObjPassed += skipElement();
+									break;
+								}
+								namespace = nsName;
 								break;
 								
 							case "data-object":
@@ -250,9 +966,23 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 									dObj.setAttributes(Collections.<ScannedAttribute> emptyList());
 								}
 								// We return on encountering </data-object> as we only process one data object at a time. 
+								dObjPassed++;
+								dObjCount = dObjPassed;
+								lastName = dObj.getName();
 								return dObj;
+								
+							case "name":
+								if (nameFilter != null && !nameFilter.accepts(sb.toString())) {
+									// Skip the rest of the data object without building it
+									skipElement();
+									dObjPassed++;
+									dObj = null;
+								}
+								break;
+						}
+						if (dObj != null) {
+							processDataObjectElementEnd(elEndName, dObj, sb.toString());
 						}
-						processDataObjectElementEnd(elEndName, dObj, sb.toString());
 						processing = false;
 						sb.delete(0, sb.length());
 						break;
@@ -271,6 +1001,30 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 		return dObj;
 	}
 	
+	/**
+	 * Skips the remainder of the element whose start element was the last event read.
+	 * 
+	 * @return the number of data object elements skipped.
+	 * 
+	 * @throws XMLStreamException
+	 */
+	private int skipElement() throws XMLStreamException {
+		int depth = 1;
+		int dObjs = 0;
+		while (depth > 0 && reader.hasNext()) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				depth++;
+				if (event.asStartElement().getName().getLocalPart().equals("data-object")) {
+					dObjs++;
+				}
+			} else if (event.isEndElement()) {
+				depth--;
+			}
+		}
+		return dObjs;
+	}
+	
 	/**
 	 * Extracts the namespace from the "namespace" element.
 	 * 
@@ -362,7 +1116,7 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 		        break;
 		        
 			case "tags":
-				dObj.setTags(Arrays.asList(data.split("(\\s)*,(\\s)*")));
+				dObj.setTags(Arrays.asList(TAG_SEPARATOR.split(data)));
 		        break;
 		        
 			case "external-sources":
@@ -580,11 +1334,20 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 				break;
 				
 			case "tags":
-				attr.setTags(Arrays.asList(data.split("(\\s)*,(\\s)*")));
+				attr.setTags(Arrays.asList(TAG_SEPARATOR.split(data)));
 				break;
 		}
 	}
 
+	/**
+	 * Returns the number of threads parsing the file. A value of one denotes a sequential read.
+	 * 
+	 * @return number of parsing threads.
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
 	/**
 	 * Returns the case mode configured for this data object reader.
 	 * 
@@ -602,4 +1365,26 @@ public class XMLDataObjectReader extends AbstractDataObjectReader {
 	public String getXMLFile() {
 		return xmlFile;
 	}
- }
\ No newline at end of file
+
+	/**
+	 * A region of the file being parsed concurrently.
+	 */
+	private static final class PendingRegion {
+		
+		private final DataObjectRegions.Region region;
+		
+		// Number of data object elements in the file before the region
+		private final int base;
+		
+		// Number of data object elements in the region up to each data object parsed, filled in by the parsing thread
+		private final List<Integer> ordinals = new ArrayList<>();
+		
+		private Future<List<ScannedDataObject>> future;
+		private List<ScannedDataObject> dObjs;
+		
+		PendingRegion(DataObjectRegions.Region region, int base) {
+			this.region = region;
+			this.base = base;
+		}
+	}
+ }
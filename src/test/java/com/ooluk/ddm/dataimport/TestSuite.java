@@ -29,13 +29,26 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    com.ooluk.ddm.dataimport.diff.DataObjectDiffTest.class,
+    com.ooluk.ddm.dataimport.index.ReferenceIndexTest.class,
     com.ooluk.ddm.dataimport.rule.RuleMapTest.class,
     com.ooluk.ddm.dataimport.rule.RuleStoreTest.class,
     com.ooluk.ddm.dataimport.rule.RulesEngineTest.class,
+    com.ooluk.ddm.dataimport.store.DataObjectStoreTest.class,
+    com.ooluk.ddm.dataimport.workers.ChangedOnlyDataObjectReaderTest.class,
+    com.ooluk.ddm.dataimport.workers.DataObjectPublisherTest.class,
+    com.ooluk.ddm.dataimport.workers.ImportCheckpointTest.class,
+    com.ooluk.ddm.dataimport.workers.TypeCountsTest.class,
+    com.ooluk.ddm.dataimport.workers.TypeMetaDataTest.class,
     com.ooluk.ddm.dataimport.workers.cobol.COBOLDataObjectReaderTest.class,
     com.ooluk.ddm.dataimport.workers.cobol.COBOLSyntaxTest.class,
+    com.ooluk.ddm.dataimport.workers.cobol.CopybookReaderTest.class,
+    com.ooluk.ddm.dataimport.workers.cobol.CopybookCacheTest.class,
+    com.ooluk.ddm.dataimport.workers.cobol.RecordLayoutTest.class,
+    com.ooluk.ddm.dataimport.workers.cobol.CopybookWatcherTest.class,
     com.ooluk.ddm.dataimport.workers.cobol.COBOLDataObjectReaderTest.class,
     com.ooluk.ddm.dataimport.workers.jdbc.JDBCDataObjectReaderTest.class,
+    com.ooluk.ddm.dataimport.workers.xml.NameFilterTest.class,
     com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReaderTest.class
 })
 
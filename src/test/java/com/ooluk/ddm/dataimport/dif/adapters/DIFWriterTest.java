@@ -15,7 +15,29 @@
  */
 package com.ooluk.ddm.dataimport.dif.adapters;
 
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.ImportCheckpoint;
+import com.ooluk.ddm.dataimport.workers.xml.DIFIndex;
+import com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReader;
 
 /**
  * @author Siddhesh Prabhu
@@ -23,6 +45,198 @@ import org.junit.Test;
  *
  */
 public class DIFWriterTest {
+
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A DIFWriter that writes the name and summary of a data object with the stream writer instead of JAXB.
+	 */
+	private static class ElementWriter extends DIFWriter {
+
+		@Override
+		protected void writeElement(ScannedDataObject obj, XMLStreamWriter writer) throws XMLStreamException {
+			writer.writeStartElement("data-object");
+			writer.writeStartElement("name");
+			writer.writeCharacters(obj.getName());
+			writer.writeEndElement();
+			writer.writeStartElement("summary");
+			writer.writeCharacters(obj.getName() + " \u00e9t\u00e9");
+			writer.writeEndElement();
+			writer.writeEndElement();
+		}
+	}
+
+	private ScannedDataObject createDataObject(String name) {
+		ScannedDataObject dObj = new ScannedDataObject();
+		dObj.setName(name);
+		return dObj;
+	}
+
+	/**
+	 * Reads the data objects of a DIF file as namespace.name
+	 */
+	private List<String> readNames(File file) {
+		XMLDataObjectReader reader = new XMLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		params.put("charset", "UTF-8");
+		reader.init(params);
+		List<String> names = new ArrayList<>();
+		for (ScannedDataObject dObj : reader.read(Integer.MAX_VALUE)) {
+			names.add(dObj.getNamespace() + "." + dObj.getName());
+		}
+		reader.close();
+		return names;
+	}
+
+	/**
+	 * Writes A.OBJ_1, A.OBJ_2, B.OBJ<3> and B.OBJ_4 and abandons the writer after flushing, as an interrupted import
+	 * would, and creates a checkpoint recording the specified data object as the last of three written.
+	 */
+	private ImportCheckpoint createInterruptedImport(File file, String lastName) throws Exception {
+		DIFWriter writer = new ElementWriter();
+		writer.init(file.getPath());
+		writer.beginNamespace("A");
+		writer.writeDataObject(createDataObject("OBJ_1"));
+		writer.writeDataObject(createDataObject("OBJ_2"));
+		writer.endNamespace();
+		writer.beginNamespace("B");
+		writer.writeDataObject(createDataObject("OBJ<3>"));
+		writer.writeDataObject(createDataObject("OBJ_4"));
+		writer.flush();
+		
+		File ckp = folder.newFile("import.ckp");
+		String props = "written=3\nlast.namespace=B\nlast.name=" + lastName + "\n";
+		Files.write(ckp.toPath(), props.getBytes(StandardCharsets.ISO_8859_1));
+		ImportCheckpoint checkpoint = new ImportCheckpoint(ckp.getPath(), 10);
+		checkpoint.resume(new XMLDataObjectReader());
+		return checkpoint;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.1] 
+	 * ----------------------------------
+	 * Test resume() for success
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The data objects after the last one recorded by the checkpoint should be dropped and the writer should continue
+	 * in its namespace. The index should cover the data objects kept and those written after the resume.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testResumeForSuccess() throws Exception {
+		File file = folder.newFile("import.xml");
+		ImportCheckpoint checkpoint = createInterruptedImport(file, "OBJ<3>");
+		DIFWriter writer = new ElementWriter();
+		writer.resume(file.getPath(), true, checkpoint);
+		writer.writeDataObject(createDataObject("OBJ_5"));
+		writer.endNamespace();
+		writer.beginNamespace("C");
+		writer.writeDataObject(createDataObject("OBJ_6"));
+		writer.endNamespace();
+		writer.close();
+		
+		List<String> expected = new ArrayList<>();
+		expected.add("A.OBJ_1");
+		expected.add("A.OBJ_2");
+		expected.add("B.OBJ<3>");
+		expected.add("B.OBJ_5");
+		expected.add("C.OBJ_6");
+		assertEquals(expected, readNames(file));
+		
+		XMLDataObjectReader reader = new XMLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		params.put("charset", "UTF-8");
+		reader.init(params);
+		assertEquals("OBJ<3>", reader.readIndexed("B", "OBJ<3>").getName());
+		assertEquals("OBJ_5 \u00e9t\u00e9", reader.readIndexed("B", "OBJ_5").getSummary());
+		assertEquals("OBJ_1", reader.readIndexed("A", "OBJ_1").getName());
+		assertEquals(null, reader.readIndexed("B", "OBJ_4"));
+		reader.close();
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.2] 
+	 * ----------------------------------
+	 * Test resume() for a file that does not match the checkpoint
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException should be thrown
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testResumeForMismatch() throws Exception {
+		File file = folder.newFile("import.xml");
+		ImportCheckpoint checkpoint = createInterruptedImport(file, "OBJ_4");
+		exception.expect(ImportException.class);
+		new ElementWriter().resume(file.getPath(), false, checkpoint);
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.3] 
+	 * ----------------------------------
+	 * Test init() for an indexed file
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The index should record the byte range of each data object, counted in bytes of the encoded file rather than in
+	 * characters, and the size and last modified time of the file. Each data object should be readable through the
+	 * index alone.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testIndexForOffsets() throws Exception {
+		File file = folder.newFile("indexed.xml");
+		DIFWriter writer = new ElementWriter();
+		writer.init(file.getPath(), true);
+		writer.beginNamespace("A");
+		writer.writeDataObject(createDataObject("OBJ_1"));
+		writer.writeDataObject(createDataObject("OBJ_2"));
+		writer.endNamespace();
+		writer.beginNamespace("B");
+		writer.writeDataObject(createDataObject("OBJ_3"));
+		writer.endNamespace();
+		writer.close();
+		
+		DIFIndex index = new DIFIndex(DIFIndex.getIndexFile(file.getPath()));
+		index.load();
+		assertEquals(3, index.size());
+		assertEquals(file.length(), index.getDifSize());
+		assertEquals(file.lastModified(), index.getDifModified());
+		
+		XMLDataObjectReader reader = new XMLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		params.put("charset", "UTF-8");
+		reader.init(params);
+		// Each summary holds two characters encoded in two bytes each, shifting the data objects that follow
+		assertEquals("OBJ_1 \u00e9t\u00e9", reader.readIndexed("A", "OBJ_1").getSummary());
+		assertEquals("OBJ_2 \u00e9t\u00e9", reader.readIndexed("A", "OBJ_2").getSummary());
+		assertEquals("OBJ_3 \u00e9t\u00e9", reader.readIndexed("B", "OBJ_3").getSummary());
+		reader.close();
+	}
 	
     /**
 	 * <pre>
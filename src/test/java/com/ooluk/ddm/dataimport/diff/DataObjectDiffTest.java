@@ -0,0 +1,198 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.AbstractDataObjectReader;
+import com.ooluk.ddm.dataimport.workers.DataObjectReader;
+import com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReader;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class DataObjectDiffTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A reader over a fixed list of data objects.
+	 */
+	private static class ListReader extends AbstractDataObjectReader {
+
+		private final Iterator<ScannedDataObject> iter;
+
+		ListReader(List<ScannedDataObject> dObjs) {
+			iter = dObjs.iterator();
+		}
+
+		@Override
+		public void init() {
+		}
+
+		@Override
+		public void init(Map<String, Object> params) {
+		}
+
+		@Override
+		public ScannedDataObject read() {
+			return iter.hasNext() ? iter.next() : null;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private XMLDataObjectReader getXMLReader() {
+		XMLDataObjectReader reader = new XMLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		URL url = this.getClass().getResource("/dif.xml");
+		params.put("file", url.getFile());
+		reader.init(params);
+		return reader;
+	}
+
+	private ScannedDataObject createDataObject(String namespace, String name, String... attrs) {
+		ScannedDataObject dObj = new ScannedDataObject();
+		dObj.setNamespace(namespace);
+		dObj.setName(name);
+		int seq = 1;
+		for (String attrName : attrs) {
+			ScannedAttribute attr = new ScannedAttribute();
+			attr.setName(attrName);
+			attr.setSeqNo(seq++);
+			attr.setDataType("CHAR(10)");
+			dObj.getAttributes().add(attr);
+		}
+		return dObj;
+	}
+
+	private List<DataObjectChange> diff(DataObjectDiff diff, DataObjectReader oldReader, DataObjectReader newReader) {
+		final List<DataObjectChange> changes = new ArrayList<>();
+		diff.diff(oldReader, newReader, new DiffListener() {
+			@Override
+			public void changed(DataObjectChange change) {
+				changes.add(change);
+			}
+		});
+		return changes;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test diff() for identical snapshots
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Comparing a DIF file with itself should report no differences
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void diff_For_Identical_Snapshots() {
+		XMLDataObjectReader oldReader = getXMLReader();
+		XMLDataObjectReader newReader = getXMLReader();
+		List<DataObjectChange> changes = diff(new DataObjectDiff(), oldReader, newReader);
+		oldReader.close();
+		newReader.close();
+		assertTrue(changes.isEmpty());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test diff() for added, removed and modified data objects with external sorting
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Unordered snapshots larger than the run size should be sorted externally. The differences should be reported 
+	 * in (namespace, name) order with the attribute changes of the modified data object.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void diff_For_Changes_With_External_Sort() throws Exception {
+		List<ScannedDataObject> oldObjs = Arrays.asList(
+				createDataObject("NS2", "D", "A1"),
+				createDataObject("NS1", "C", "A1", "A2", "A3"),
+				createDataObject("NS1", "A", "A1"),
+				createDataObject("NS1", "B", "A1"),
+				createDataObject("NS2", "E", "A1"));
+		ScannedDataObject modified = createDataObject("NS1", "C", "A1", "A3", "A4");
+		modified.getAttributes().get(1).setDataType("CHAR(20)");
+		List<ScannedDataObject> newObjs = Arrays.asList(
+				createDataObject("NS2", "E", "A1"),
+				createDataObject("NS2", "F", "A1"),
+				modified,
+				createDataObject("NS1", "A", "A1"),
+				createDataObject("NS2", "D", "A1"));
+		
+		DataObjectDiff diff = new DataObjectDiff(2, folder.getRoot().toPath());
+		List<DataObjectChange> changes = diff(diff, new ListReader(oldObjs), new ListReader(newObjs));
+		
+		assertEquals(3, changes.size());
+		assertEquals(ChangeType.REMOVED, changes.get(0).getType());
+		assertEquals("B", changes.get(0).getDataObject().getName());
+		
+		DataObjectChange change = changes.get(1);
+		assertEquals(ChangeType.MODIFIED, change.getType());
+		assertEquals("C", change.getDataObject().getName());
+		assertFalse(change.isPropertiesChanged());
+		List<AttributeChange> attrChanges = change.getAttributeChanges();
+		assertEquals(3, attrChanges.size());
+		assertEquals(ChangeType.MODIFIED, attrChanges.get(0).getType());
+		assertEquals("A3", attrChanges.get(0).getName());
+		assertEquals(ChangeType.ADDED, attrChanges.get(1).getType());
+		assertEquals("A4", attrChanges.get(1).getName());
+		assertEquals(ChangeType.REMOVED, attrChanges.get(2).getType());
+		assertEquals("A2", attrChanges.get(2).getName());
+		
+		assertEquals(ChangeType.ADDED, changes.get(2).getType());
+		assertEquals("F", changes.get(2).getDataObject().getName());
+		
+		// Temporary sort runs are deleted
+		assertEquals(0, folder.getRoot().list().length);
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ooluk.ddm.dataimport.data.Fingerprint;
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+import com.ooluk.ddm.dataimport.data.ScannedAttributeSource;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class ReferenceIndexTest {
+
+	private ScannedDataObject createDataObject(String namespace, String name, String... attrs) {
+		ScannedDataObject dObj = new ScannedDataObject();
+		dObj.setNamespace(namespace);
+		dObj.setName(name);
+		for (String attrName : attrs) {
+			ScannedAttribute attr = new ScannedAttribute();
+			attr.setName(attrName);
+			dObj.getAttributes().add(attr);
+		}
+		return dObj;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test finish() for forward, backward and dangling references
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * References to attributes indexed before or after the referring data object should resolve, including targets 
+	 * in dotted namespaces. References to attributes not in the import should be reported as dangling.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void finish_For_References() {
+		ReferenceIndex index = new ReferenceIndex(4);
+		
+		ScannedDataObject orders = createDataObject("DB.SALES", "ORDERS", "ID", "CUSTOMER_ID", "PRODUCT_ID");
+		// Forward reference to a data object that follows
+		orders.getAttributes().get(1).setParentAttribute("DB.SALES.CUSTOMER.ID");
+		// Reference to a data object not in the import
+		orders.getAttributes().get(2).setParentAttribute("DB.STOCK.PRODUCT.ID");
+		index.add(orders);
+		
+		ScannedDataObject customer = createDataObject("DB.SALES", "CUSTOMER", "ID", "NAME");
+		ScannedAttributeSource source = new ScannedAttributeSource();
+		source.setNamespace("DB.SALES");
+		source.setObjectName("ORDERS");
+		source.setAttributeName("ID");
+		customer.getAttributes().get(1).getLocalSources().add(source);
+		ScannedAttributeSource missing = new ScannedAttributeSource();
+		missing.setNamespace("DB.SALES");
+		missing.setObjectName("ORDERS");
+		missing.setAttributeName("MISSING");
+		customer.getAttributes().get(1).getLocalSources().add(missing);
+		index.add(customer);
+		
+		List<DanglingReference> dangling = index.finish();
+		assertEquals(5, index.getAttributeCount());
+		assertEquals(4, index.getReferenceCount());
+		assertEquals(2, index.getResolvedCount());
+		assertEquals(2, dangling.size());
+		assertEquals(DanglingReference.Type.PARENT_ATTRIBUTE, dangling.get(0).getType());
+		assertEquals("PRODUCT_ID", dangling.get(0).getAttributeName());
+		assertEquals("DB.STOCK.PRODUCT.ID", dangling.get(0).getTarget());
+		assertEquals(DanglingReference.Type.SOURCE, dangling.get(1).getType());
+		assertEquals("CUSTOMER", dangling.get(1).getObjectName());
+		assertEquals("DB.SALES.ORDERS.MISSING", dangling.get(1).getTarget());
+		
+		assertEquals(3, index.resolve("DB.SALES", "CUSTOMER", "ID"));
+		assertEquals(-1, index.resolve("DB.SALES", "CUSTOMER", "MISSING"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.1] 
+	 * ----------------------------------
+	 * Test AttributeKeyMap beyond its initial capacity
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * All keys should be retrievable after the map has resized
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void attributeKeyMap_For_Resize() {
+		AttributeKeyMap map = new AttributeKeyMap(16);
+		for (int i = 0; i < 10000; i++) {
+			map.put(Fingerprint.ofIdentity("NS", "OBJ", "A" + i), i);
+		}
+		assertEquals(10000, map.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, map.get(Fingerprint.ofIdentity("NS", "OBJ", "A" + i)));
+		}
+		assertFalse(map.containsKey(Fingerprint.ofIdentity("NS", "OBJ", "B")));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ooluk.ddm.dataimport.ScannedDataObjectComparator;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReader;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class DataObjectStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private List<ScannedDataObject> readAll() {
+		XMLDataObjectReader reader = new XMLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		URL url = this.getClass().getResource("/dif.xml");
+		params.put("file", url.getFile());
+		reader.init(params);
+		List<ScannedDataObject> dObjs = new ArrayList<>();
+		ScannedDataObject dObj;
+		while ((dObj = reader.read()) != null) {
+			dObjs.add(dObj);
+		}
+		reader.close();
+		return dObjs;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test put() and get() across several small segments
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Every data object should be found by namespace and name and decode to a data object equal to the original. 
+	 * Attributes should be available individually.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void get_For_Stored_Data_Objects() throws Exception {
+		List<ScannedDataObject> dObjs = readAll();
+		Path file = folder.newFile("store.dat").toPath();
+		try (DataObjectStore store = new DataObjectStore(file, 512, false)) {
+			for (ScannedDataObject dObj : dObjs) {
+				store.put(dObj);
+			}
+			assertEquals(dObjs.size(), store.size());
+			for (ScannedDataObject dObj : dObjs) {
+				DataObjectView view = store.get(dObj.getNamespace(), dObj.getName());
+				assertEquals(dObj.getName(), view.getName());
+				ScannedDataObjectComparator.compare(dObj, view.toDataObject());
+				assertEquals(dObj.getAttributes().size(), view.getAttributeCount());
+				int last = dObj.getAttributes().size() - 1;
+				if (last >= 0) {
+					assertEquals(dObj.getAttributes().get(last).getName(), view.getAttribute(last).getName());
+				}
+			}
+			assertFalse(store.contains("UNKNOWN", "UNKNOWN"));
+			assertNull(store.get("UNKNOWN", "UNKNOWN"));
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test views() for a temporary store
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The views should be returned in the order stored using a single flyweight instance and the temporary file 
+	 * should be deleted on close.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void views_For_Temporary_Store() throws Exception {
+		List<ScannedDataObject> dObjs = readAll();
+		DataObjectStore store = DataObjectStore.createTemporary(folder.getRoot().toPath());
+		for (ScannedDataObject dObj : dObjs) {
+			store.put(dObj);
+		}
+		int i = 0;
+		DataObjectView first = null;
+		for (DataObjectView view : store.views()) {
+			if (first == null) {
+				first = view;
+			}
+			assertSame(first, view);
+			assertEquals(dObjs.get(i++).getName(), view.getName());
+		}
+		assertEquals(dObjs.size(), i);
+		Path file = store.getFile();
+		assertTrue(file.toFile().exists());
+		store.close();
+		assertFalse(file.toFile().exists());
+	}
+}
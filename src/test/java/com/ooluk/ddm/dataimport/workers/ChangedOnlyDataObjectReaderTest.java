@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ooluk.ddm.dataimport.data.Fingerprint;
+import com.ooluk.ddm.dataimport.data.ScannedAttribute;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReader;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class ChangedOnlyDataObjectReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private ChangedOnlyDataObjectReader getReader(FingerprintIndex index) {
+		ChangedOnlyDataObjectReader reader = new ChangedOnlyDataObjectReader(new XMLDataObjectReader(), index);
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		URL url = this.getClass().getResource("/dif.xml");
+		params.put("file", url.getFile());
+		reader.init(params);
+		return reader;
+	}
+
+	private ScannedDataObject createDataObject() {
+		ScannedDataObject dObj = new ScannedDataObject();
+		dObj.setNamespace("NS");
+		dObj.setName("OBJECT");
+		ScannedAttribute attr = new ScannedAttribute();
+		attr.setName("ATTR");
+		attr.setDataType("CHAR(10)");
+		attr.getExtendedProperties().put("a", "1");
+		attr.getExtendedProperties().put("b", "2");
+		dObj.getAttributes().add(attr);
+		return dObj;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test Fingerprint.of() for equal and different content
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Equal content should produce equal fingerprints regardless of extended property order. A change to any attribute 
+	 * field or to a field boundary should produce a different fingerprint.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void fingerprint_For_Content() {
+		ScannedDataObject dObj1 = createDataObject();
+		ScannedDataObject dObj2 = createDataObject();
+		Map<String, String> props = new HashMap<>();
+		props.put("b", "2");
+		props.put("a", "1");
+		dObj2.getAttributes().get(0).setExtendedProperties(props);
+		assertEquals(Fingerprint.of(dObj1), Fingerprint.of(dObj2));
+		assertEquals(Fingerprint.of(dObj1), Fingerprint.parse(Fingerprint.of(dObj1).toString()));
+		
+		dObj2.getAttributes().get(0).setRequired(true);
+		assertNotEquals(Fingerprint.of(dObj1), Fingerprint.of(dObj2));
+		
+		ScannedDataObject dObj3 = createDataObject();
+		dObj3.setNamespace("NSO");
+		dObj3.setName("BJECT");
+		assertNotEquals(Fingerprint.of(dObj1), Fingerprint.of(dObj3));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.1] 
+	 * ----------------------------------
+	 * Test read() across two runs over an unchanged source
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The first run should return all data objects. After the index is saved the second run should return none and 
+	 * report all data objects as unchanged.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_Unchanged_Source() throws Exception {
+		String file = new File(folder.getRoot(), "import.fpi").getPath();
+		
+		ChangedOnlyDataObjectReader reader = getReader(new FingerprintIndex(file));
+		int count = 0;
+		while (reader.read() != null) {
+			count++;
+		}
+		reader.close();
+		assertEquals(4, count);
+		assertEquals(0, reader.getUnchangedCount());
+		reader.getIndex().save();
+		
+		reader = getReader(new FingerprintIndex(file));
+		assertNull(reader.read());
+		reader.close();
+		assertEquals(4, reader.getUnchangedCount());
+		assertTrue(reader.getIndex().getRemoved().isEmpty());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.2] 
+	 * ----------------------------------
+	 * Test FingerprintIndex for changed and removed data objects
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A modified data object should be changed and a data object not checked in the current run should be removed.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void index_For_Changed_And_Removed() throws Exception {
+		String file = new File(folder.getRoot(), "import.fpi").getPath();
+		FingerprintIndex index = new FingerprintIndex(file);
+		index.load();
+		ScannedDataObject dObj = createDataObject();
+		ScannedDataObject other = createDataObject();
+		other.setName("OTHER");
+		assertTrue(index.isChanged(dObj));
+		assertTrue(index.isChanged(other));
+		index.save();
+		
+		index = new FingerprintIndex(file);
+		index.load();
+		assertFalse(index.isChanged(dObj));
+		dObj.getAttributes().get(0).setDataType("CHAR(20)");
+		assertTrue(index.isChanged(dObj));
+		Map<String, Set<String>> removed = index.getRemoved();
+		assertEquals(1, removed.size());
+		assertTrue(removed.get("NS").contains("OTHER"));
+	}
+}
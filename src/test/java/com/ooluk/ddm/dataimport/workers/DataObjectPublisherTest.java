@@ -0,0 +1,229 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import org.junit.Test;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReader;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class DataObjectPublisherTest {
+
+	// Runs the reads on the calling thread so that the signals can be checked deterministically
+	private final Executor direct = new Executor() {
+
+		@Override
+		public void execute(Runnable task) {
+			task.run();
+		}
+	};
+
+	private XMLDataObjectReader getReader() {
+		XMLDataObjectReader reader = new XMLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		URL url = this.getClass().getResource("/dif.xml");
+		params.put("file", url.getFile());
+		reader.init(params);
+		return reader;
+	}
+
+	/**
+	 * A writer collecting the data objects written that fails on the specified write.
+	 */
+	private static class ListWriter extends AbstractDataObjectWriter {
+
+		private final List<ScannedDataObject> written = new ArrayList<>();
+		private final List<Integer> batches = new ArrayList<>();
+		private final int failAt;
+
+		ListWriter(int failAt) {
+			this.failAt = failAt;
+		}
+
+		@Override
+		public void init() {
+		}
+
+		@Override
+		public void init(Map<String, Object> params) {
+		}
+
+		@Override
+		public void write(ScannedDataObject dObj) {
+			if (written.size() + 1 == failAt) {
+				throw new ImportException("Write failed");
+			}
+			written.add(dObj);
+		}
+
+		@Override
+		public void writeAll(List<ScannedDataObject> dObjs) {
+			batches.add(dObjs.size());
+			super.writeAll(dObjs);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test publishing all data objects to a writer
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * All data objects should be written in read order in batches of at most the batch size and the completion should
+	 * report the number of data objects written.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void publish_To_Writer() throws Exception {
+		XMLDataObjectReader reader = getReader();
+		List<ScannedDataObject> expected = new ArrayList<>();
+		ScannedDataObject dObj;
+		while ((dObj = reader.read()) != null) {
+			expected.add(dObj);
+		}
+		reader.close();
+
+		reader = getReader();
+		ListWriter writer = new ListWriter(0);
+		DataObjectSubscriber subscriber = new DataObjectSubscriber(writer, 3);
+		new DataObjectPublisher(reader, direct).subscribe(subscriber);
+		reader.close();
+		assertEquals(Long.valueOf(4), subscriber.getCompletion().get());
+		assertEquals(expected, writer.written);
+		assertEquals(2, writer.batches.size());
+		assertEquals(Integer.valueOf(3), writer.batches.get(0));
+		assertEquals(Integer.valueOf(1), writer.batches.get(1));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test that data objects are only read on demand
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A subscriber that requests one data object should receive exactly one data object until it requests more.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void publish_For_Demand() {
+		XMLDataObjectReader reader = getReader();
+		final List<ScannedDataObject> received = new ArrayList<>();
+		final Flow.Subscription[] subscription = new Flow.Subscription[1];
+		final boolean[] completed = new boolean[1];
+		new DataObjectPublisher(reader, direct).subscribe(new Flow.Subscriber<ScannedDataObject>() {
+
+			@Override
+			public void onSubscribe(Flow.Subscription s) {
+				subscription[0] = s;
+				s.request(1);
+			}
+
+			@Override
+			public void onNext(ScannedDataObject dObj) {
+				received.add(dObj);
+			}
+
+			@Override
+			public void onError(Throwable throwable) {
+			}
+
+			@Override
+			public void onComplete() {
+				completed[0] = true;
+			}
+		});
+		assertEquals(1, received.size());
+		subscription[0].request(2);
+		assertEquals(3, received.size());
+		subscription[0].request(Long.MAX_VALUE);
+		assertEquals(4, received.size());
+		assertTrue(completed[0]);
+		reader.close();
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.3] 
+	 * ----------------------------------
+	 * Test a second subscription and a writer failure
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A second subscriber should receive an IllegalStateException. A writer failure should complete the subscriber
+	 * exceptionally and stop reading.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void publish_For_Errors() throws Exception {
+		XMLDataObjectReader reader = getReader();
+		ListWriter writer = new ListWriter(2);
+		DataObjectSubscriber subscriber = new DataObjectSubscriber(writer, 2);
+		DataObjectPublisher publisher = new DataObjectPublisher(reader, direct);
+		publisher.subscribe(subscriber);
+		assertTrue(subscriber.getCompletion().isCompletedExceptionally());
+		assertEquals(1, writer.written.size());
+		assertNotNull(reader.read());
+		reader.close();
+
+		DataObjectSubscriber second = new DataObjectSubscriber(new ListWriter(0), 2);
+		publisher.subscribe(second);
+		try {
+			second.getCompletion().get();
+		} catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+			return;
+		}
+		throw new AssertionError("Second subscription accepted");
+	}
+}
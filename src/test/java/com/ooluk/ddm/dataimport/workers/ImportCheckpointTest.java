@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.workers.xml.XMLDataObjectReader;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class ImportCheckpointTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private XMLDataObjectReader getXMLReader() {
+		XMLDataObjectReader reader = new XMLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		HashMap<String, Object> params = new HashMap<>();
+		URL url = this.getClass().getResource("/dif.xml");
+		params.put("file", url.getFile());
+		reader.init(params);
+		return reader;
+	}
+
+	/**
+	 * Reads all remaining data objects from a reader.
+	 */
+	private List<String> readNames(DataObjectReader reader) {
+		List<String> names = new ArrayList<>();
+		ScannedDataObject dObj;
+		while ((dObj = reader.read()) != null) {
+			names.add(dObj.getName());
+		}
+		return names;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test resume() without a checkpoint
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should start from the beginning and no data objects should be reported as written
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void resume_Without_Checkpoint() throws Exception {
+		File file = new File(folder.getRoot(), "import.ckp");
+		ImportCheckpoint checkpoint = new ImportCheckpoint(file.getPath(), 1);
+		XMLDataObjectReader reader = getXMLReader();
+		assertFalse(checkpoint.exists());
+		assertEquals(0, checkpoint.resume(reader));
+		assertEquals(4, readNames(reader).size());
+		reader.close();
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test resume() of an XMLDataObjectReader
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Three data objects are written and checkpointed. A new reader resumed from the checkpoint should return only the 
+	 * fourth data object. The checkpoint should be deleted on completion.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void resume_For_XML() throws Exception {
+		File file = new File(folder.getRoot(), "import.ckp");
+		
+		XMLDataObjectReader reader = getXMLReader();
+		List<String> all = readNames(reader);
+		reader.close();
+		
+		ImportCheckpoint checkpoint = new ImportCheckpoint(file.getPath(), 2);
+		reader = getXMLReader();
+		checkpoint.written(reader, reader.read());
+		assertFalse(checkpoint.exists());
+		checkpoint.written(reader, reader.read(2));
+		assertTrue(checkpoint.exists());
+		reader.close();
+		
+		checkpoint = new ImportCheckpoint(file.getPath(), 2);
+		reader = getXMLReader();
+		assertEquals(3, checkpoint.resume(reader));
+		assertEquals(all.get(2), checkpoint.getLastName());
+		List<String> rest = readNames(reader);
+		reader.close();
+		assertEquals(all.subList(3, 4), rest);
+		
+		checkpoint.complete();
+		assertFalse(checkpoint.exists());
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class TypeCountsTest {
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test add() for repeated combinations
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Each distinct combination should be stored once, in the order first added, with the number of times it was added
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void add_For_Repeated_Combinations() {
+		TypeCounts counts = new TypeCounts("type", "size", "scale");
+		counts.add("VARCHAR", "10", "0");
+		counts.add("INT4", "10", "0");
+		counts.add("VARCHAR", "10", "0");
+		counts.add("VARCHAR", "20", "0");
+		counts.add(5, "INT4", "10", "0");
+		assertEquals(3, counts.size());
+		assertEquals("VARCHAR", counts.getValue(0, 0));
+		assertEquals(2, counts.getCount(0));
+		assertEquals("INT4", counts.getValue(1, 0));
+		assertEquals(6, counts.getCount(1));
+		assertEquals("20", counts.getValue(2, 1));
+		assertEquals(1, counts.getCount("VARCHAR", "20", "0"));
+		assertEquals(0, counts.getCount("VARCHAR", "30", "0"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test add() beyond the initial capacity and addAll()
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * All combinations should remain retrievable after the storage grows and merging should add up the counts
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void add_For_Growth() {
+		TypeCounts counts = new TypeCounts("type", "size");
+		for (int i = 0; i < 1000; i++) {
+			counts.add("CHAR", String.valueOf(i % 300));
+		}
+		assertEquals(300, counts.size());
+		assertEquals(4, counts.getCount("CHAR", "0"));
+		assertEquals(3, counts.getCount("CHAR", "299"));
+		
+		TypeCounts other = new TypeCounts("type", "size");
+		other.add("CHAR", "0");
+		other.add("DATE", "0");
+		counts.addAll(other);
+		assertEquals(301, counts.size());
+		assertEquals(5, counts.getCount("CHAR", "0"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.1] 
+	 * ----------------------------------
+	 * Test toTypeMetaData()
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * There should be one property-value mapping per combination including the count property
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void toTypeMetaData() {
+		TypeCounts counts = new TypeCounts("type", "size", "scale");
+		counts.add("NUMERIC", "10", "6");
+		counts.add("NUMERIC", "10", "6");
+		TypeMetaData md = counts.toTypeMetaData("count");
+		assertEquals(4, md.getProperties().size());
+		assertEquals(1, md.getTypeMetaData().size());
+		Map<String, String> type = md.getTypeMetaData().get(0);
+		assertEquals("NUMERIC", type.get("type"));
+		assertEquals("10", type.get("size"));
+		assertEquals("6", type.get("scale"));
+		assertEquals("2", type.get("count"));
+	}
+}
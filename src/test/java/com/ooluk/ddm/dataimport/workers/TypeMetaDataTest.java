@@ -0,0 +1,119 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class TypeMetaDataTest {
+
+	private static final List<String> PROPERTIES = Arrays.asList("attribute", "type", "size");
+
+	private Map<String, String> createMap(String attribute, String type, String size) {
+		Map<String, String> map = new HashMap<>();
+		map.put("attribute", attribute);
+		map.put("type", type);
+		map.put("size", size);
+		return map;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test add() with maps and with property values
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The list view should return maps equal to the maps added and to maps built from the property values added
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void add_For_Maps_And_Values() {
+		TypeMetaData md = new TypeMetaData();
+		md.add(createMap("A", "CHAR", "10"));
+		md.add(PROPERTIES, "B", "CHAR", "20");
+		Map<String, String> partial = new HashMap<>();
+		partial.put("attribute", "C");
+		md.add(partial);
+		
+		List<Map<String, String>> list = md.getTypeMetaData();
+		assertEquals(3, list.size());
+		assertEquals(3, md.size());
+		assertEquals(createMap("A", "CHAR", "10"), list.get(0));
+		assertEquals(createMap("B", "CHAR", "20"), list.get(1));
+		assertEquals(partial, list.get(2));
+		assertFalse(list.get(2).containsKey("type"));
+		assertNull(list.get(2).get("type"));
+		assertEquals("20", md.getValue(1, "size"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test modifying the list view
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Clearing a sub list, replacing, inserting and removing elements should be reflected in the type metadata
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void modify_For_List_View() {
+		TypeMetaData md = new TypeMetaData();
+		for (int i = 0; i < 40; i++) {
+			md.add(PROPERTIES, "A" + i, "CHAR", String.valueOf(i % 3));
+		}
+		List<Map<String, String>> list = md.getTypeMetaData();
+		list.subList(10, list.size()).clear();
+		assertEquals(10, md.size());
+		
+		list.set(0, createMap("X", "DATE", "8"));
+		list.add(1, createMap("Y", "TIME", "6"));
+		assertEquals(createMap("X", "DATE", "8"), list.get(0));
+		assertEquals(createMap("Y", "TIME", "6"), list.get(1));
+		assertEquals("A1", list.get(2).get("attribute"));
+		
+		assertEquals(createMap("Y", "TIME", "6"), list.remove(1));
+		assertEquals("A1", list.get(1).get("attribute"));
+		
+		md.truncate(2);
+		assertEquals(2, list.size());
+		md.setTypeMetaData(list);
+		assertEquals(createMap("X", "DATE", "8"), list.get(0));
+		assertEquals(createMap("A1", "CHAR", "1"), list.get(1));
+	}
+}
@@ -17,18 +17,35 @@ package com.ooluk.ddm.dataimport.workers.cobol;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import com.ooluk.ddm.dataimport.CaseMode;
 import com.ooluk.ddm.dataimport.ImportException;
@@ -52,6 +69,9 @@ public class COBOLDataObjectReaderTest {
 	@Rule
 	public ExpectedException exception = ExpectedException.none();
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Before
 	public void setUp() {	
 		ruleStore = new RuleStore();
@@ -477,6 +497,57 @@ public class COBOLDataObjectReaderTest {
 		reader.init(params);
 	}
 	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1.15] 
+	 * ----------------------------------
+	 * Test init() for a character set a copybook cannot be read in
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException ["Initialization error: invalid value for parameter [charset]"]
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void init_For_Invalid_Charset() {
+		COBOLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "copybook");
+		params.put("copybookFile", getFile("/copybook"));
+		params.put("charset", "UTF-16");
+		exception.expect(ImportException.class);
+		exception.expectMessage(equalTo("Initialization error: invalid value for parameter [charset]"));
+		reader.init(params);
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1.16] 
+	 * ----------------------------------
+	 * Test init() without a character set
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The copybooks should be read in the platform default character set
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void init_For_Default_Charset() {
+		COBOLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "copybook");
+		params.put("copybookFile", getFile("/copybook"));
+		reader.init(params);
+		assertEquals(Charset.defaultCharset(), reader.getCharset());
+		reader.close();
+	}
+	
 	/**
 	 * <pre>
 	 * ----------------------------------
@@ -560,6 +631,543 @@ public class COBOLDataObjectReaderTest {
 		assertNull(reader.read());	
 	}
 
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.3] 
+	 * ----------------------------------
+	 * Test read(max) for success for PDS scope
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should read all copybooks in the PDS in batches of at most max copybooks.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_Batch_For_PDS() {
+		COBOLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", getFile("/pds"));
+		reader.init(params);
+		List<ScannedDataObject> batch = reader.read(COPYBOOKS_IN_PDS - 1);
+		assertEquals(COPYBOOKS_IN_PDS - 1, batch.size());
+		batch = reader.read(COPYBOOKS_IN_PDS - 1);
+		assertEquals(1, batch.size());
+		assertEquals(FIELDS_IN_COPYBOOK, batch.get(0).getAttributes().size());
+		assertEquals(0, reader.read(COPYBOOKS_IN_PDS - 1).size());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.4] 
+	 * ----------------------------------
+	 * Test read(max) for success for COPYBOOK scope
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should return a single data object followed by an empty batch.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_Batch_For_Copybook() {
+		COBOLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "copybook");
+		params.put("copybookFile", getFile("/copybook"));
+		reader.init(params);
+		List<ScannedDataObject> batch = reader.read(10);
+		assertEquals(1, batch.size());
+		assertEquals("copybook", batch.get(0).getName());
+		assertEquals(0, reader.read(10).size());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.5] 
+	 * ----------------------------------
+	 * Test stream() for success with a parallel stream for PDS scope
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should be split by PDS member and every copybook should be read exactly once.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void stream_Parallel_For_PDS() {
+		COBOLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", getFile("/pds"));
+		reader.init(params);
+		Set<String> names = new HashSet<>();
+		try (Stream<ScannedDataObject> stream = reader.stream()) {
+			for (ScannedDataObject dObj : stream.parallel().collect(Collectors.<ScannedDataObject> toList())) {
+				assertEquals(FIELDS_IN_COPYBOOK, dObj.getAttributes().size());
+				names.add(dObj.getName());
+			}
+		}
+		reader.close();
+		assertEquals(COPYBOOKS_IN_PDS, names.size());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.6] 
+	 * ----------------------------------
+	 * Test resume() for PDS
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A reader resumed from the position of another reader after the first copybook should read the remaining 
+	 * copybooks only, also if the member index of the position is corrupt.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void resume_For_PDS() {
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", getFile("/pds"));
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		String first = reader.read().getName();
+		Map<String, String> position = reader.getPosition();
+		reader.close();
+		
+		reader = getReader();
+		reader.init(params);
+		reader.resume(position);
+		Set<String> names = new HashSet<>();
+		ScannedDataObject dObj;
+		while ((dObj = reader.read()) != null) {
+			names.add(dObj.getName());
+		}
+		reader.close();
+		assertEquals(COPYBOOKS_IN_PDS - 1, names.size());
+		assertFalse(names.contains(first));
+
+		position.put("memberIndex", "1x");
+		reader = getReader();
+		reader.init(params);
+		reader.resume(position);
+		names.clear();
+		while ((dObj = reader.read()) != null) {
+			names.add(dObj.getName());
+		}
+		reader.close();
+		assertEquals(COPYBOOKS_IN_PDS - 1, names.size());
+		assertFalse(names.contains(first));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.7] 
+	 * ----------------------------------
+	 * Test read() for an EBCDIC copybook
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The copybook converted to Cp1047 read with charset = "Cp1047" should produce the same data object as the 
+	 * original copybook.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_EBCDIC_Copybook() throws Exception {
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "copybook");
+		params.put("copybookFile", getFile("/copybook"));
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		ScannedDataObject expected = reader.read();
+		reader.close();
+		
+		String content = new String(Files.readAllBytes(Paths.get(getFile("/copybook"))), StandardCharsets.US_ASCII);
+		File ebcdic = new File(folder.getRoot(), "copybook");
+		Files.write(ebcdic.toPath(), content.replace("\r\n", "\n").replace('\n', '\u0085')
+				.getBytes(Charset.forName("Cp1047")));
+		params.put("copybookFile", ebcdic.getPath());
+		params.put("charset", "Cp1047");
+		reader = getReader();
+		reader.init(params);
+		ScannedDataObject actual = reader.read();
+		reader.close();
+		assertEquals(FIELDS_IN_COPYBOOK, actual.getAttributes().size());
+		assertEquals(expected.getAttributes(), actual.getAttributes());
+		for (int i = 0; i < FIELDS_IN_COPYBOOK; i++) {
+			assertEquals(expected.getAttributes().get(i).getDataType(), actual.getAttributes().get(i).getDataType());
+			assertEquals(expected.getAttributes().get(i).getDefaultValue(), 
+					actual.getAttributes().get(i).getDefaultValue());
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.8] 
+	 * ----------------------------------
+	 * Test read() for a PDS with COPY statements
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * COPY statements should be replaced by the declarations of the copied member with the REPLACING phrase applied.
+	 * Nested COPY statements should be expanded, a missing member ignored and a member copied by several copybooks
+	 * parsed once.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_PDS_With_Copy() throws Exception {
+		File pds = folder.newFolder("pds");
+		Files.write(new File(pds, "ADDR.cpy").toPath(), (
+				  "000100     05  :P:-STREET  PIC X(30).\n"
+				+ "000200     COPY ZIP.\n").getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "ZIP").toPath(), 
+				"000100     05  :P:-ZIP     PIC 9(5).\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "CUST").toPath(), (
+				  "000100 01  CUST.\n"
+				+ "000200     05  CUST-ID     PIC 9(8).\n"
+				+ "000300     COPY ADDR REPLACING ==:P:== BY ==CUST==.\n"
+				+ "000400     COPY MISSING.\n").getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "SUPP").toPath(), (
+				  "000100 01  SUPP.\n"
+				+ "000200     COPY ADDR\n"
+				+ "000300         REPLACING ==:P:== BY ==SUPP==.\n").getBytes(StandardCharsets.US_ASCII));
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", pds.getPath());
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(10);
+		reader.close();
+		
+		assertEquals(4, dObjs.size());
+		ScannedDataObject cust = dObjs.get(1);
+		assertEquals("CUST", cust.getName());
+		assertEquals(Arrays.asList("CUST-ID", "CUST-STREET", "CUST-ZIP"), attributeNames(cust));
+		ScannedDataObject supp = dObjs.get(2);
+		assertEquals("SUPP", supp.getName());
+		assertEquals(Arrays.asList("SUPP-STREET", "SUPP-ZIP"), attributeNames(supp));
+		// ADDR and ZIP are each parsed once for the five COPY statements
+		assertEquals(2, reader.getCopybookCache().getMisses());
+		assertEquals(3, reader.getCopybookCache().getHits());
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.9] 
+	 * ----------------------------------
+	 * Test read() with the record layout enabled
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Attributes should carry their offset, length, occurrences, strides and redefined item as extended properties and
+	 * the data object the record length.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_Record_Layout() throws Exception {
+		File copybook = folder.newFile("REC");
+		Files.write(copybook.toPath(), (
+				  "000100 01  REC.\n"
+				+ "000200     05  ID          PIC 9(6) COMP-3.\n"
+				+ "000300     05  LINES       OCCURS 3.\n"
+				+ "000400         10  QTY     PIC S9(4) COMP.\n"
+				+ "000500         10  CODE    PIC X(2).\n"
+				+ "000600     05  DATE-X      PIC X(8).\n"
+				+ "000700     05  DATE-N      REDEFINES DATE-X PIC 9(8).\n").getBytes(StandardCharsets.US_ASCII));
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "copybook");
+		params.put("copybookFile", copybook.getPath());
+		params.put("recordLayout", "Yes");
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		ScannedDataObject dObj = reader.read();
+		reader.close();
+		
+		assertEquals("24", dObj.getExtendedProperties().get("recordLength"));
+		List<ScannedAttribute> attrs = dObj.getAttributes();
+		assertEquals(5, attrs.size());
+		assertEquals("0", attrs.get(0).getExtendedProperties().get("offset"));
+		assertEquals("4", attrs.get(0).getExtendedProperties().get("length"));
+		assertNull(attrs.get(0).getExtendedProperties().get("occurs"));
+		Map<String, String> code = attrs.get(2).getExtendedProperties();
+		assertEquals("6", code.get("offset"));
+		assertEquals("2", code.get("length"));
+		assertEquals("3", code.get("occurs"));
+		assertEquals("4", code.get("stride"));
+		Map<String, String> dateN = attrs.get(4).getExtendedProperties();
+		assertEquals("16", dateN.get("offset"));
+		assertEquals("8", dateN.get("length"));
+		assertEquals("DATE-X", dateN.get("redefines"));
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.10] 
+	 * ----------------------------------
+	 * Test read() for a PDS with a manifest
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The first run should read all members. After the manifest has been saved a run should only read new and
+	 * changed members; a member that has only been touched is unchanged and a deleted member is reported.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_PDS_With_Manifest() throws Exception {
+		File pds = folder.newFolder("pds");
+		File a = new File(pds, "A");
+		File b = new File(pds, "B");
+		File c = new File(pds, "C");
+		Files.write(a.toPath(), "000100 01  A-1 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(b.toPath(), "000100 01  B-1 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(c.toPath(), "000100 01  C-1 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", pds.getPath());
+		params.put("manifest", new File(folder.getRoot(), "pds.manifest").getPath());
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		assertEquals(3, reader.read(10).size());
+		reader.close();
+		reader.getManifest().save();
+		
+		// A touched, B changed, C deleted, D added
+		a.setLastModified(a.lastModified() + 2000);
+		Files.write(b.toPath(), "000100 01  B-2 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		b.setLastModified(b.lastModified() + 2000);
+		c.delete();
+		Files.write(new File(pds, "D").toPath(), "000100 01  D-1 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(10);
+		reader.close();
+		assertEquals(2, dObjs.size());
+		assertEquals("B", dObjs.get(0).getName());
+		assertEquals("D", dObjs.get(1).getName());
+		assertEquals(new HashSet<>(Arrays.asList("C")), reader.getManifest().getRemoved());
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.11] 
+	 * ----------------------------------
+	 * Test read() for a recursive PDS with a member pattern
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Subdirectories should only be traversed with recursion, only members matching the pattern should be read and the
+	 * member position should be the path relative to the PDS directory. COPY statements should find members in
+	 * subdirectories, including members not matching the pattern. A symbolic link to a parent directory should not be
+	 * followed.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_Recursive_PDS() throws Exception {
+		File pds = folder.newFolder("pds");
+		File sub = new File(pds, "sub");
+		sub.mkdir();
+		Files.write(new File(pds, "A.cpy").toPath(), "000100 01  A-1 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "B.txt").toPath(), "000100 01  B-1 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(sub, "C.cpy").toPath(), "000100 01  C-1 PIC X.\n".getBytes(StandardCharsets.US_ASCII));
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", pds.getPath());
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		assertEquals(2, reader.read(10).size());
+		reader.close();
+
+		params.put("recursive", "Yes");
+		params.put("memberPattern", "**.cpy");
+		reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(10);
+		assertEquals(2, dObjs.size());
+		assertEquals("A.cpy", dObjs.get(0).getName());
+		assertEquals("C.cpy", dObjs.get(1).getName());
+		assertEquals("sub/C.cpy", reader.getPosition().get("member"));
+		reader.close();
+
+		params.put("memberPattern", "*.cpy");
+		reader = getReader();
+		reader.init(params);
+		dObjs = reader.read(10);
+		reader.close();
+		assertEquals(1, dObjs.size());
+		assertEquals("A.cpy", dObjs.get(0).getName());
+		
+		// A COPY statement is resolved against the subdirectories as well, whatever the member pattern
+		Files.write(new File(sub, "ADDR.txt").toPath(), "000100     05  STREET PIC X(30).\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "CUST.cpy").toPath(), "000100 01  CUST.\n000200     COPY ADDR.\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		params.put("memberPattern", "**.cpy");
+		reader = getReader();
+		reader.init(params);
+		dObjs = reader.read(10);
+		reader.close();
+		assertEquals(3, dObjs.size());
+		assertEquals("CUST.cpy", dObjs.get(1).getName());
+		assertEquals(Arrays.asList("STREET"), attributeNames(dObjs.get(1)));
+
+		Files.createSymbolicLink(new File(sub, "parent").toPath(), pds.toPath());
+		reader = getReader();
+		reader.init(params);
+		dObjs = reader.read(10);
+		reader.close();
+		assertEquals(3, dObjs.size());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.12] 
+	 * ----------------------------------
+	 * Test read() for a PDS in zip archives
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * An archive specified as the PDS should be read like a directory, including COPY statements. Archives in a PDS
+	 * directory should only be read if enabled.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_PDS_Archive() throws Exception {
+		File zip = new File(folder.newFolder("drop"), "drop.zip");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+			out.putNextEntry(new ZipEntry("ADDR"));
+			out.write("000100     05  STREET PIC X(30).\n".getBytes(StandardCharsets.US_ASCII));
+			out.putNextEntry(new ZipEntry("CUST"));
+			out.write("000100 01  CUST.\n000200     COPY ADDR.\n".getBytes(StandardCharsets.US_ASCII));
+			out.closeEntry();
+		}
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", zip.getPath());
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(10);
+		reader.close();
+		assertEquals(2, dObjs.size());
+		assertEquals("CUST", dObjs.get(1).getName());
+		assertEquals(Arrays.asList("STREET"), attributeNames(dObjs.get(1)));
+
+		params.put("copybookDirectory", zip.getParent());
+		reader = getReader();
+		reader.init(params);
+		assertEquals(1, reader.read(10).size());
+		reader.close();
+		
+		params.put("archives", "Yes");
+		reader = getReader();
+		reader.init(params);
+		assertEquals(2, reader.read(10).size());
+		assertEquals("drop.zip!/CUST", reader.getPosition().get("member"));
+		reader.close();
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.13] 
+	 * ----------------------------------
+	 * Test read() for a PDS with a manifest and COPY statements
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A member should be read again when a member it copies, directly or through another copied member, has changed or
+	 * has been removed, even if the copied member is not a member of the PDS itself.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void read_For_PDS_With_Manifest_And_Copied_Members() throws Exception {
+		File pds = folder.newFolder("pds");
+		File addr = new File(pds, "ADDR.cpy");
+		File hdr = new File(pds, "HDR.cpy");
+		Files.write(addr.toPath(), "000100     05  STREET PIC X(30).\n".getBytes(StandardCharsets.US_ASCII));
+		Files.write(hdr.toPath(), "000100     05  ID PIC 9(6).\n000200     COPY ADDR.\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "CUST.cbl").toPath(), "000100 01  CUST.\n000200     COPY ADDR.\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "ORDER.cbl").toPath(), "000100 01  ORDER.\n000200     COPY HDR.\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		Files.write(new File(pds, "PLAIN.cbl").toPath(), "000100 01  PLAIN PIC X.\n"
+				.getBytes(StandardCharsets.US_ASCII));
+		HashMap<String, Object> params = this.getCommonParams();
+		params.put("scope", "pds");
+		params.put("copybookDirectory", pds.getPath());
+		params.put("memberPattern", "*.cbl");
+		params.put("manifest", new File(folder.getRoot(), "pds.manifest").getPath());
+		COBOLDataObjectReader reader = getReader();
+		reader.init(params);
+		assertEquals(3, reader.read(10).size());
+		reader.close();
+		reader.getManifest().save();
+		
+		// ADDR is copied by CUST and, through HDR, by ORDER
+		Files.write(addr.toPath(), "000100     05  STREET PIC X(40).\n".getBytes(StandardCharsets.US_ASCII));
+		addr.setLastModified(addr.lastModified() + 2000);
+		reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(10);
+		reader.close();
+		reader.getManifest().save();
+		assertEquals(2, dObjs.size());
+		assertEquals("CUST.cbl", dObjs.get(0).getName());
+		assertEquals("ORDER.cbl", dObjs.get(1).getName());
+		
+		reader = getReader();
+		reader.init(params);
+		assertEquals(0, reader.read(10).size());
+		reader.close();
+		reader.getManifest().save();
+		
+		hdr.delete();
+		reader = getReader();
+		reader.init(params);
+		dObjs = reader.read(10);
+		reader.close();
+		assertEquals(1, dObjs.size());
+		assertEquals("ORDER.cbl", dObjs.get(0).getName());
+	}
+	
+	private List<String> attributeNames(ScannedDataObject dObj) {
+		List<String> names = new ArrayList<>();
+		for (ScannedAttribute attr : dObj.getAttributes()) {
+			names.add(attr.getName());
+		}
+		return names;
+	}
+
 	/**
 	 * <pre>
 	 * ----------------------------------
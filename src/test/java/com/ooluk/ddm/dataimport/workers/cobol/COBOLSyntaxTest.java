@@ -19,6 +19,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -160,6 +161,36 @@ public class COBOLSyntaxTest {
 		assertEquals("COMP", COBOLSyntax.getUsagePhrase(tokens));		
 		tokens = Arrays.asList(new String[] {"01", "data-name", "PIC", "9(5)"});
 		assertEquals("", COBOLSyntax.getUsagePhrase(tokens));
+		tokens = Arrays.asList(new String[] {"01", "data-name", "PIC", "9(5)", "PACKED-DECIMAL"});
+		assertEquals("PACKED-DECIMAL", COBOLSyntax.getUsagePhrase(tokens));
+		tokens = Arrays.asList(new String[] {"01", "data-name", "PIC", "N(5)", "NATIONAL"});
+		assertEquals("NATIONAL", COBOLSyntax.getUsagePhrase(tokens));
+		tokens = Arrays.asList(new String[] {"01", "data-name", "PIC", "G(5)", "DISPLAY-1"});
+		assertEquals("DISPLAY-1", COBOLSyntax.getUsagePhrase(tokens));
+		tokens = Arrays.asList(new String[] {"01", "data-name", "INDEX"});
+		assertEquals("INDEX", COBOLSyntax.getUsagePhrase(tokens));
+		tokens = Arrays.asList(new String[] {"01", "data-name", "POINTER"});
+		assertEquals("POINTER", COBOLSyntax.getUsagePhrase(tokens));
+	}
+		
+	@Test
+	public void testGetOccurs() {
+		List<String> tokens = Arrays.asList(new String[] {"05", "data-name", "PIC", "X", "OCCURS", "12", "TIMES"});
+		assertEquals(12, COBOLSyntax.getOccurs(tokens));
+		tokens = Arrays.asList(new String[] {"05", "data-name", "OCCURS", "1", "TO", "20", "DEPENDING", "ON", "N"});
+		assertEquals(20, COBOLSyntax.getOccurs(tokens));
+		tokens = Arrays.asList(new String[] {"05", "data-name", "PIC", "X"});
+		assertEquals(1, COBOLSyntax.getOccurs(tokens));
+	}
+		
+	@Test
+	public void testGetRedefinedName() {
+		List<String> tokens = Arrays.asList(new String[] {"05", "data-name", "REDEFINES", "other-name", "PIC", "X"});
+		assertEquals("other-name", COBOLSyntax.getRedefinedName(tokens));
+		tokens = Arrays.asList(new String[] {"05", "REDEFINES", "other-name", "PIC", "X"});
+		assertEquals("other-name", COBOLSyntax.getRedefinedName(tokens));
+		tokens = Arrays.asList(new String[] {"05", "data-name", "PIC", "X"});
+		assertEquals("", COBOLSyntax.getRedefinedName(tokens));
 	}
 		
 	@Test
@@ -172,6 +203,25 @@ public class COBOLSyntaxTest {
 		assertEquals("", COBOLSyntax.getValue(tokens));		
 	}
 	
+	@Test
+	public void testIndexClauses() {
+		List<String> tokens = Arrays.asList(new String[] {"05", "data-name", "PIC", "S9(5)", "COMP-3", "BINARY",
+				"SIGN", "SEPARATE", "VALUES", "ARE", "1", "2"});
+		int[] clauses = COBOLSyntax.indexClauses(tokens);
+		assertEquals(2, clauses[COBOLSyntax.PIC]);
+		assertEquals(-1, clauses[COBOLSyntax.PICTURE]);
+		assertEquals(-1, clauses[COBOLSyntax.USAGE]);
+		assertEquals(7, clauses[COBOLSyntax.SEPARATE]);
+		assertEquals(8, clauses[COBOLSyntax.VALUES]);
+		assertEquals("S9(5)", COBOLSyntax.getPictureString(tokens, clauses));
+		// The USAGE phrase takes the precedence of the supported USAGE phrases, not the token order
+		assertEquals("BINARY", COBOLSyntax.getUsagePhrase(tokens, clauses));
+		assertEquals("1 2", COBOLSyntax.getValue(tokens, clauses));
+		assertEquals(1, COBOLSyntax.getOccurs(tokens, clauses));
+		assertEquals("", COBOLSyntax.getRedefinedName(tokens, clauses));
+		assertTrue(COBOLSyntax.isSignSeparate(clauses));
+	}
+	
 	@Test
 	public void testIsNumericPlus() {
 		assertTrue(COBOLSyntax.isNumericPlus("99"));
@@ -308,4 +358,33 @@ public class COBOLSyntaxTest {
 		assertEquals(2, COBOLSyntax.getMantissaDigits("999.99"));
 		assertEquals(2, COBOLSyntax.getMantissaDigits("999V99"));
 	}			
-}
\ No newline at end of file
+	
+	@Test  
+	public void testClassificationMatchesGrammar() {
+		// Every picture string of up to 4 symbols is classified exactly as by the regular expression grammar
+		String symbols = "AXSZV9B0/.+-ax";
+		List<String> pictures = new ArrayList<>();
+		pictures.add("");
+		for (int from = 0, len = 1; len <= 4; len++) {
+			int to = pictures.size();
+			for (int i = from; i < to; i++) {
+				for (int j = 0; j < symbols.length(); j++) {
+					pictures.add(pictures.get(i) + symbols.charAt(j));
+				}
+			}
+			from = to;
+		}
+		for (String picture : pictures) {
+			String upper = picture.toUpperCase();
+			boolean numeric = upper.matches("([S+-]?)([0Z9.V])+[+-]?");
+			assertEquals(picture, numeric, COBOLSyntax.isNumericPlus(picture));
+			assertEquals(picture, upper.matches("A+"), COBOLSyntax.isAlphabetic(picture));
+			assertEquals(picture, upper.matches("[AX9]*X{1}[AX9]*"), COBOLSyntax.isAlphanumeric(picture));
+			assertEquals(picture, upper.matches("[AX90B/]*(([AX]{1}9*[B0/]{1})|([B0/]{1}9*[AX]{1}))[AX90B/]*"),
+					COBOLSyntax.isAlphanumericEdited(picture));
+			if (numeric) {
+				assertEquals(picture, picture.matches("(.)*[S+-](.)*"), COBOLSyntax.isSigned(picture));
+			}
+		}
+	}
+}
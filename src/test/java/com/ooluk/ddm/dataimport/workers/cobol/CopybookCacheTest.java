@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class CopybookCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File createMember(String name, String... declarations) throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (String declaration : declarations) {
+			content.append("000100     ").append(declaration).append(".\n");
+		}
+		File file = new File(folder.getRoot(), name);
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test parse() for COPY statements
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The member name should be extracted from words and literals; other declarations are not COPY statements.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void parse_For_Copy_Statements() {
+		assertEquals("ADDR", CopyStatement.parse("COPY ADDR").getMember());
+		assertEquals("addr.cpy", CopyStatement.parse("copy 'addr.cpy' OF SYSLIB SUPPRESS").getMember());
+		assertFalse(CopyStatement.parse("COPY ADDR").isReplacing());
+		assertNull(CopyStatement.parse("05  COPY-FLAG PIC X"));
+		assertNull(CopyStatement.parse("COPYRIGHT"));
+		assertNull(CopyStatement.parse("COPY"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test replace() for the REPLACING phrase
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Pseudo-text delimited by non-word characters should match inside words, words should only match whole words,
+	 * LEADING and TRAILING should match word boundaries and replaced text should not be scanned again.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void replace_For_Operands() {
+		CopyStatement copy = CopyStatement.parse(
+				"COPY ADDR REPLACING ==:P:== BY ==CUST==, ZIP BY POSTCODE; LEADING ==WS== BY ==LS== "
+				+ "TRAILING ==-X== BY ==-Y== ==PIC  X(5)== BY ==PIC X(9)== CUST BY ZIP");
+		assertEquals("05 CUST-STREET PIC X(30)", copy.replace("05 :P:-STREET PIC X(30)"));
+		assertEquals("05 CUST-ZIP PIC 9(5)", copy.replace("05 :P:-ZIP PIC 9(5)"));
+		assertEquals("05 POSTCODE PIC 9(5)", copy.replace("05 ZIP PIC 9(5)"));
+		assertEquals("05 ZIPCODE PIC 9(5)", copy.replace("05 ZIPCODE PIC 9(5)"));
+		assertEquals("05 LS-WSNAME-Y PIC X(9)", copy.replace("05 WS-WSNAME-X pic x(5)"));
+		assertEquals("05 ZIP PIC X", copy.replace("05 CUST PIC X"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.1] 
+	 * ----------------------------------
+	 * Test getDeclarations() for member resolution and caching
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Members should be found by name with or without extension ignoring case and parsed once. A missing member should
+	 * return null.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void getDeclarations_For_Cached_Members() throws IOException {
+		createMember("addr.cpy", "05  STREET PIC X(30)", "05  ZIP PIC 9(5)");
+		CopybookCache cache = new CopybookCache(folder.getRoot().toPath(), StandardCharsets.ISO_8859_1, 10);
+		List<String> declarations = cache.getDeclarations("ADDR");
+		assertEquals(Arrays.asList("05  STREET PIC X(30)", "05  ZIP PIC 9(5)"), declarations);
+		assertSame(declarations, cache.getDeclarations("addr"));
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertNull(cache.getDeclarations("MISSING"));
+		assertEquals(1, cache.size());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.2] 
+	 * ----------------------------------
+	 * Test getDeclarations() for a modified member
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A member whose modification time or length has changed should be parsed again.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void getDeclarations_For_Modified_Member() throws IOException {
+		File file = createMember("ADDR", "05  STREET PIC X(30)");
+		CopybookCache cache = new CopybookCache(folder.getRoot().toPath(), StandardCharsets.ISO_8859_1, 10);
+		cache.getDeclarations("ADDR");
+		createMember("ADDR", "05  STREET PIC X(30)", "05  ZIP PIC 9(5)");
+		file.setLastModified(file.lastModified() + 2000);
+		assertEquals(2, cache.getDeclarations("ADDR").size());
+		assertEquals(2, cache.getMisses());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.3] 
+	 * ----------------------------------
+	 * Test getDeclarations() for a full cache
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The least recently used member should be evicted.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void getDeclarations_For_Eviction() throws IOException {
+		createMember("A", "05  A PIC X");
+		createMember("B", "05  B PIC X");
+		createMember("C", "05  C PIC X");
+		CopybookCache cache = new CopybookCache(folder.getRoot().toPath(), StandardCharsets.ISO_8859_1, 2);
+		cache.getDeclarations("A");
+		cache.getDeclarations("B");
+		cache.getDeclarations("A");
+		cache.getDeclarations("C");
+		assertEquals(2, cache.size());
+		cache.getDeclarations("A");
+		assertEquals(3, cache.getMisses());
+		cache.getDeclarations("B");
+		assertEquals(4, cache.getMisses());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.4] 
+	 * ----------------------------------
+	 * Test getDeclarations() for the files of subdirectories
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Members should be found among the files supplied, by file name, and a file closer to the directory should take
+	 * precedence.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void getDeclarations_For_Supplied_Files() throws IOException {
+		new File(folder.getRoot(), "a").mkdir();
+		new File(folder.getRoot(), "a/b").mkdir();
+		File addr = createMember("a/b/ADDR.cpy", "05  STREET PIC X(30)");
+		File zip = createMember("a/ZIP.cpy", "05  ZIP PIC 9(5)");
+		File deepZip = createMember("a/b/ZIP.cpy", "05  ZIP PIC X(5)");
+		Map<String, Path> files = new HashMap<>();
+		files.put("a/b/ADDR.cpy", addr.toPath());
+		files.put("a/ZIP.cpy", zip.toPath());
+		files.put("a/b/ZIP.cpy", deepZip.toPath());
+		CopybookCache cache = new CopybookCache(folder.getRoot().toPath(), files, StandardCharsets.ISO_8859_1, 10);
+		assertEquals(Arrays.asList("05  STREET PIC X(30)"), cache.getDeclarations("ADDR"));
+		assertEquals(Arrays.asList("05  ZIP PIC 9(5)"), cache.getDeclarations("zip.cpy"));
+	}
+}
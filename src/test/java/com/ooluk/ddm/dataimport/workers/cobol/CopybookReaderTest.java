@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class CopybookReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path createCopybook(String content, Charset charset) throws IOException {
+		File file = folder.newFile();
+		Files.write(file.toPath(), content.getBytes(charset));
+		return file.toPath();
+	}
+
+	// Returns a line with the text in columns 8-72 followed by an identification area
+	private String line(String text) {
+		StringBuilder line = new StringBuilder("000100 ").append(text);
+		while (line.length() < 72) {
+			line.append(' ');
+		}
+		return line.append("IDENT001").toString();
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test nextDeclaration() for comments, continued declarations and the identification area
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Comment, short and blank lines should be skipped, text beyond column 72 ignored and continued lines joined. The
+	 * declarations should be returned trimmed without the period.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void nextDeclaration_For_Reference_Format() throws IOException {
+		String content = 
+				  line("  01  GRP.") + "\r\n"
+				+ "000200*  03  COMMENTED PIC X.\n"
+				+ "000300/\n"
+				+ "\n"
+				+ "0004\n"
+				+ line("  03  FLD-1 PIC X(10)") + "\r"
+				+ line("      VALUE 'A'.") + "\n"
+				+ "000700   03  FLD-2 PIC 9(5) .   ";
+		CopybookReader reader = new CopybookReader(createCopybook(content, StandardCharsets.ISO_8859_1), 
+				StandardCharsets.ISO_8859_1);
+		assertEquals("01  GRP", reader.nextDeclaration());
+		assertEquals("03  FLD-1 PIC X(10)" + line("").substring(28, 72) + "      VALUE 'A'", reader.nextDeclaration());
+		assertEquals("03  FLD-2 PIC 9(5) ", reader.nextDeclaration());
+		assertNull(reader.nextDeclaration());
+		assertNull(reader.nextDeclaration());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test nextDeclaration() for an EBCDIC copybook and an unterminated declaration
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * EBCDIC NEL should terminate lines and the text should be decoded. A declaration not terminated by a period
+	 * before the end of the file should be discarded.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void nextDeclaration_For_EBCDIC() throws IOException {
+		Charset cp037 = Charset.forName("Cp037");
+		String content = 
+				  "000100   01  REC.\u0085"
+				+ "000200   03  AMT PIC S9(7)V99 COMP-3.\u0085"
+				+ "000300   03  NAME PIC X(20)\u0085";
+		CopybookReader reader = new CopybookReader(createCopybook(content, cp037), cp037);
+		assertEquals("01  REC", reader.nextDeclaration());
+		assertEquals("03  AMT PIC S9(7)V99 COMP-3", reader.nextDeclaration());
+		assertNull(reader.nextDeclaration());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.3] 
+	 * ----------------------------------
+	 * Test nextDeclaration() for a UTF-8 copybook with characters encoded with a 0x85 byte
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The 0x85 byte of a multi-byte character should not terminate a line. Comments should be skipped, the text
+	 * decoded and columns counted in characters.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void nextDeclaration_For_UTF8() throws IOException {
+		String content = 
+				  line("  01  REC.") + "\n"
+				+ "000200* \u0445\u0440\u0430\u043d\u0435\u043d\u0438\u0435 03 SKIPPED PIC X.\n"
+				+ line("  03  CITY PIC X(10) VALUE '\u00c5RHUS'.") + "\n"
+				+ line("  03  CODE PIC X(2).") + "\n";
+		CopybookReader reader = new CopybookReader(createCopybook(content, StandardCharsets.UTF_8), 
+				StandardCharsets.UTF_8);
+		assertEquals("01  REC", reader.nextDeclaration());
+		assertEquals("03  CITY PIC X(10) VALUE '\u00c5RHUS'", reader.nextDeclaration());
+		assertEquals("03  CODE PIC X(2)", reader.nextDeclaration());
+		assertNull(reader.nextDeclaration());
+	}
+}
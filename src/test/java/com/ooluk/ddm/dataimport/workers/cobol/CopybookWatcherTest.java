@@ -0,0 +1,409 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.data.ScannedDataObject;
+import com.ooluk.ddm.dataimport.rule.RuleStore;
+import com.ooluk.ddm.dataimport.workers.AbstractDataObjectWriter;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class CopybookWatcherTest {
+
+	private static final long TIMEOUT = 10000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+
+	/**
+	 * A writer collecting the names of the data objects written.
+	 */
+	private static class ListWriter extends AbstractDataObjectWriter {
+
+		private final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+		private final List<Integer> batches = Collections.synchronizedList(new ArrayList<Integer>());
+
+		@Override
+		public void init() {
+		}
+
+		@Override
+		public void init(Map<String, Object> params) {
+		}
+
+		@Override
+		public void write(ScannedDataObject dObj) {
+			written.add(dObj.getName());
+		}
+
+		@Override
+		public void writeAll(List<ScannedDataObject> dObjs) {
+			batches.add(dObjs.size());
+			super.writeAll(dObjs);
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private void writeMember(File pds, String name, String declaration) throws IOException {
+		Files.write(new File(pds, name).toPath(), ("000100     " + declaration + ".\n").getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private HashMap<String, Object> getParams(File pds) {
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("namespacePrefix", "TEMP_SPACE");
+		params.put("ruleStore", new RuleStore());
+		params.put("scope", "pds");
+		params.put("copybookDirectory", pds.getPath());
+		return params;
+	}
+
+	private void awaitWritten(ListWriter writer, int count) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (writer.written.size() < count && System.currentTimeMillis() < end) {
+			Thread.sleep(20);
+		}
+		assertEquals(count, writer.written.size());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test run() for changes to the PDS directory
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * All members should be imported first. A new member should then be imported, and a change to a copied member
+	 * should import the members that copy it.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void run_For_Changes() throws Exception {
+		File pds = folder.newFolder("pds");
+		writeMember(pds, "ADDR.cpy", "05  STREET PIC X(30)");
+		writeMember(pds, "CUST", "COPY ADDR");
+		writeMember(pds, "ORDER", "05  ORDER-ID PIC 9(8)");
+
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("namespacePrefix", "TEMP_SPACE");
+		params.put("ruleStore", new RuleStore());
+		params.put("scope", "pds");
+		params.put("copybookDirectory", pds.getPath());
+		COBOLDataObjectReader reader = new COBOLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		reader.init(params);
+		ListWriter writer = new ListWriter();
+		CopybookWatcher watcher = new CopybookWatcher(reader, writer, 100);
+		Thread thread = new Thread(watcher);
+		thread.start();
+		try {
+			awaitWritten(writer, 3);
+
+			writeMember(pds, "SUPP", "05  SUPP-ID PIC 9(8)");
+			awaitWritten(writer, 4);
+			assertEquals("SUPP", writer.written.get(3));
+
+			writeMember(pds, "ADDR.cpy", "05  STREET PIC X(40)");
+			awaitWritten(writer, 6);
+			assertTrue(writer.written.subList(4, 6).contains("ADDR.cpy"));
+			assertTrue(writer.written.subList(4, 6).contains("CUST"));
+		} finally {
+			watcher.close();
+			thread.join(TIMEOUT);
+		}
+		assertEquals(6, watcher.getImportedCount());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test run() for a PDS larger than a batch
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The members should be imported in batches of at most 256 data objects.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void run_For_Batches() throws Exception {
+		File pds = folder.newFolder("pds");
+		for (int i = 0; i < 300; i++) {
+			writeMember(pds, String.format("M%03d", i), "01  F" + i + " PIC X");
+		}
+		COBOLDataObjectReader reader = new COBOLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		reader.init(getParams(pds));
+		ListWriter writer = new ListWriter();
+		CopybookWatcher watcher = new CopybookWatcher(reader, writer, 100);
+		Thread thread = new Thread(watcher);
+		thread.start();
+		try {
+			awaitWritten(writer, 300);
+		} finally {
+			watcher.close();
+			thread.join(TIMEOUT);
+		}
+		assertEquals(Arrays.asList(256, 44), writer.batches);
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.3] 
+	 * ----------------------------------
+	 * Test run() for files that are not members
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Files not matching the member pattern, the manifest saved in the PDS directory and its temporary files should
+	 * not be imported.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void run_For_Non_Members() throws Exception {
+		File pds = folder.newFolder("pds");
+		writeMember(pds, "A.cpy", "01  A-1 PIC X");
+		writeMember(pds, "NOTES.txt", "01  N-1 PIC X");
+
+		HashMap<String, Object> params = getParams(pds);
+		params.put("memberPattern", "*.{cpy,manifest,tmp}");
+		params.put("manifest", new File(pds, "pds.manifest").getPath());
+		COBOLDataObjectReader reader = new COBOLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		reader.init(params);
+		ListWriter writer = new ListWriter();
+		CopybookWatcher watcher = new CopybookWatcher(reader, writer, 100);
+		Thread thread = new Thread(watcher);
+		thread.start();
+		try {
+			awaitWritten(writer, 1);
+
+			// The manifest is saved after each batch of changes
+			writeMember(pds, "NOTES.txt", "01  N-2 PIC X");
+			writeMember(pds, "B.cpy", "01  B-1 PIC X");
+			awaitWritten(writer, 2);
+			writeMember(pds, "C.cpy", "01  C-1 PIC X");
+			awaitWritten(writer, 3);
+			Thread.sleep(500);
+		} finally {
+			watcher.close();
+			thread.join(TIMEOUT);
+		}
+		assertEquals(Arrays.asList("A.cpy", "B.cpy", "C.cpy"), writer.written);
+		assertTrue(new File(pds, "pds.manifest").isFile());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.4] 
+	 * ----------------------------------
+	 * Test run() for a recursive PDS
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Changes in subdirectories, including a subdirectory created while watching, should be imported. A change to a
+	 * copied member in a subdirectory should import the members that copy it. Symbolic links to a parent directory
+	 * should not be followed.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void run_For_Recursive_PDS() throws Exception {
+		File pds = folder.newFolder("pds");
+		File sub = new File(pds, "sub");
+		sub.mkdir();
+		writeMember(sub, "ADDR.cpy", "05  STREET PIC X(30)");
+		writeMember(pds, "CUST.cpy", "COPY ADDR");
+		Files.createSymbolicLink(new File(sub, "parent").toPath(), pds.toPath());
+
+		HashMap<String, Object> params = getParams(pds);
+		params.put("recursive", "Yes");
+		params.put("memberPattern", "**.cpy");
+		COBOLDataObjectReader reader = new COBOLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		reader.init(params);
+		ListWriter writer = new ListWriter();
+		CopybookWatcher watcher = new CopybookWatcher(reader, writer, 100);
+		Thread thread = new Thread(watcher);
+		thread.start();
+		try {
+			awaitWritten(writer, 2);
+
+			writeMember(sub, "ADDR.cpy", "05  STREET PIC X(40)");
+			awaitWritten(writer, 4);
+			assertTrue(writer.written.subList(2, 4).contains("ADDR.cpy"));
+			assertTrue(writer.written.subList(2, 4).contains("CUST.cpy"));
+
+			File added = new File(pds, "added");
+			added.mkdir();
+			writeMember(added, "SUPP.cpy", "05  SUPP-ID PIC 9(8)");
+			awaitWritten(writer, 5);
+			assertEquals("SUPP.cpy", writer.written.get(4));
+			writeMember(added, "SUPP.cpy", "05  SUPP-ID PIC 9(9)");
+			awaitWritten(writer, 6);
+			assertEquals("SUPP.cpy", writer.written.get(5));
+
+			Files.createSymbolicLink(new File(added, "parent").toPath(), pds.toPath());
+			writeMember(pds, "ORDER.cpy", "05  ORDER-ID PIC 9(8)");
+			awaitWritten(writer, 7);
+			Thread.sleep(500);
+			assertEquals(Arrays.asList("ORDER.cpy"), writer.written.subList(6, writer.written.size()));
+		} finally {
+			watcher.close();
+			thread.join(TIMEOUT);
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.5] 
+	 * ----------------------------------
+	 * Test CopybookWatcher() for members in archives
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException ["Cannot watch &lt;directory&gt;: members in zip or jar archives cannot be watched"]
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void constructor_For_Archives() throws Exception {
+		File pds = folder.newFolder("pds");
+		writeMember(pds, "A.cpy", "01  A-1 PIC X");
+		HashMap<String, Object> params = getParams(pds);
+		params.put("archives", "Yes");
+		COBOLDataObjectReader reader = new COBOLDataObjectReader();
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		reader.init(params);
+		exception.expect(ImportException.class);
+		exception.expectMessage(equalTo("Cannot watch " + pds.getPath() 
+				+ ": members in zip or jar archives cannot be watched"));
+		new CopybookWatcher(reader, new ListWriter(), 100);
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.6] 
+	 * ----------------------------------
+	 * Test run() for a manifest and a member that cannot be read
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The manifest should be saved after the initial import. A member that cannot be read should not be recorded in the
+	 * saved manifest so that it is changed in the next run.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void run_For_Manifest() throws Exception {
+		File pds = folder.newFolder("pds");
+		writeMember(pds, "A.cpy", "01  A-1 PIC X");
+		File manifestFile = new File(folder.getRoot(), "pds.manifest");
+
+		HashMap<String, Object> params = getParams(pds);
+		params.put("manifest", manifestFile.getPath());
+		final Set<String> failing = Collections.synchronizedSet(new HashSet<>(Arrays.asList("B.cpy")));
+		COBOLDataObjectReader reader = new COBOLDataObjectReader() {
+			@Override
+			ScannedDataObject readMember(String name, Path member) {
+				if (failing.remove(name)) {
+					throw new ImportException("Cannot read " + name);
+				}
+				return super.readMember(name, member);
+			}
+		};
+		reader.setLogWriter(new OutputStreamWriter(System.out));
+		reader.init(params);
+		ListWriter writer = new ListWriter();
+		CopybookWatcher watcher = new CopybookWatcher(reader, writer, 100);
+		Thread thread = new Thread(watcher);
+		thread.start();
+		try {
+			awaitWritten(writer, 1);
+			long end = System.currentTimeMillis() + TIMEOUT;
+			while (!manifestFile.isFile() && System.currentTimeMillis() < end) {
+				Thread.sleep(20);
+			}
+			assertTrue(manifestFile.isFile());
+
+			writeMember(pds, "B.cpy", "01  B-1 PIC X");
+			while (!failing.isEmpty() && System.currentTimeMillis() < end) {
+				Thread.sleep(20);
+			}
+			writeMember(pds, "C.cpy", "01  C-1 PIC X");
+			awaitWritten(writer, 2);
+		} finally {
+			watcher.close();
+			thread.join(TIMEOUT);
+		}
+		assertEquals(Arrays.asList("A.cpy", "C.cpy"), writer.written);
+		PdsManifest manifest = new PdsManifest(manifestFile.getPath());
+		manifest.load();
+		assertFalse(manifest.isChanged("A.cpy", new File(pds, "A.cpy").toPath()));
+		assertTrue(manifest.isChanged("B.cpy", new File(pds, "B.cpy").toPath()));
+		assertFalse(manifest.isChanged("C.cpy", new File(pds, "C.cpy").toPath()));
+	}
+}
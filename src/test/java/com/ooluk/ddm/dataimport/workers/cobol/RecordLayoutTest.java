@@ -0,0 +1,195 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.cobol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class RecordLayoutTest {
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test storageLength() for each usage
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The storage length should follow the usage of the item.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void storageLength_For_Usages() {
+		assertEquals(10, RecordLayout.storageLength("X(10)", "", false));
+		assertEquals(7, RecordLayout.storageLength("S9(5)V99", "", false));
+		assertEquals(8, RecordLayout.storageLength("S9(5)V99", "", true));
+		assertEquals(10, RecordLayout.storageLength("-ZZ,ZZ9.99", "", false));
+		assertEquals(2, RecordLayout.storageLength("S9(4)", "COMP", false));
+		assertEquals(4, RecordLayout.storageLength("9(9)", "COMP-5", false));
+		assertEquals(8, RecordLayout.storageLength("S9(10)", "BINARY", false));
+		assertEquals(4, RecordLayout.storageLength("S9(5)V99", "COMP-3", false));
+		assertEquals(3, RecordLayout.storageLength("S9(4)", "PACKED-DECIMAL", false));
+		assertEquals(4, RecordLayout.storageLength("", "COMP-1", false));
+		assertEquals(8, RecordLayout.storageLength("", "COMP-2", false));
+		assertEquals(20, RecordLayout.storageLength("N(10)", "NATIONAL", false));
+		assertEquals(0, RecordLayout.storageLength("", "", false));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.1] 
+	 * ----------------------------------
+	 * Test add() for groups, OCCURS and REDEFINES
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Offsets should account for the storage of preceding items, tables and redefinitions; the strides of tables of
+	 * groups should be known once the group ends.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void add_For_Record() {
+		RecordLayout layout = new RecordLayout();
+		RecordLayout.Field rec = layout.add(new COBOLMetaData("01 REC"));
+		RecordLayout.Field id = layout.add(new COBOLMetaData("05 ID PIC 9(6) COMP-3"));
+		RecordLayout.Field amounts = layout.add(new COBOLMetaData("05 AMOUNTS USAGE COMP-3"));
+		RecordLayout.Field amount = layout.add(new COBOLMetaData("10 AMOUNT PIC S9(7)V99 OCCURS 12 TIMES"));
+		RecordLayout.Field date = layout.add(new COBOLMetaData("05 DATE-X PIC X(8)"));
+		layout.add(new COBOLMetaData("05 DATE-P REDEFINES DATE-X"));
+		RecordLayout.Field year = layout.add(new COBOLMetaData("10 YEAR PIC 9(4)"));
+		assertNull(layout.add(new COBOLMetaData("88 LEAP-YEAR VALUE 2000")));
+		RecordLayout.Field lines = layout.add(new COBOLMetaData("05 LINES OCCURS 1 TO 3 DEPENDING ON N"));
+		RecordLayout.Field code = layout.add(new COBOLMetaData("10 CODE PIC X(2)"));
+		RecordLayout.Field qty = layout.add(new COBOLMetaData("10 QTY PIC S9(4) COMP OCCURS 2"));
+		RecordLayout.Field flag = layout.add(new COBOLMetaData("05 FLAG PIC X"));
+		assertEquals(91, layout.finish());
+
+		assertTrue(rec.isGroup());
+		assertEquals(91, rec.getLength());
+		assertFalse(id.isGroup());
+		assertEquals(0, id.getOffset());
+		assertEquals(4, id.getLength());
+		assertTrue(amounts.isGroup());
+		assertEquals(60, amounts.getLength());
+		assertEquals(4, amount.getOffset());
+		assertEquals(5, amount.getLength());
+		assertEquals("12", amount.getOccurs());
+		assertEquals("5", amount.getStrides());
+		assertEquals(64, date.getOffset());
+		assertEquals(8, date.getLength());
+		assertEquals(64, year.getOffset());
+		assertEquals("DATE-X", year.getRedefines());
+		assertTrue(lines.isGroup());
+		assertEquals(6, lines.getLength());
+		assertEquals(72, code.getOffset());
+		assertEquals("3", code.getOccurs());
+		assertEquals("6", code.getStrides());
+		assertEquals(74, qty.getOffset());
+		assertEquals("3,2", qty.getOccurs());
+		assertEquals("6,2", qty.getStrides());
+		assertEquals(90, flag.getOffset());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.2] 
+	 * ----------------------------------
+	 * Test add() for USAGE phrases written without the USAGE keyword
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * PACKED-DECIMAL, NATIONAL, DISPLAY-1, INDEX and POINTER should be recognized without the USAGE keyword.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void add_For_Implicit_Usages() {
+		RecordLayout layout = new RecordLayout();
+		layout.add(new COBOLMetaData("01 REC"));
+		RecordLayout.Field packed = layout.add(new COBOLMetaData("05 PACKED PIC S9(4) PACKED-DECIMAL"));
+		RecordLayout.Field national = layout.add(new COBOLMetaData("05 NAT PIC N(10) NATIONAL"));
+		RecordLayout.Field dbcs = layout.add(new COBOLMetaData("05 DBCS PIC G(5) DISPLAY-1"));
+		RecordLayout.Field index = layout.add(new COBOLMetaData("05 IDX INDEX"));
+		RecordLayout.Field pointer = layout.add(new COBOLMetaData("05 PTR POINTER"));
+		assertEquals(41, layout.finish());
+
+		assertEquals(3, packed.getLength());
+		assertEquals(20, national.getLength());
+		assertEquals(10, dbcs.getLength());
+		assertFalse(index.isGroup());
+		assertEquals(33, index.getOffset());
+		assertEquals(4, index.getLength());
+		assertFalse(pointer.isGroup());
+		assertEquals(37, pointer.getOffset());
+		assertEquals(4, pointer.getLength());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.3] 
+	 * ----------------------------------
+	 * Test add() for a group with a USAGE that gives an elementary item storage
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A group declaring USAGE COMP-1 should be a group because the next entry has a greater level-number; its items
+	 * should inherit the usage. An elementary item declaring USAGE COMP-1 should take 4 bytes.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void add_For_Group_With_Usage() {
+		RecordLayout layout = new RecordLayout();
+		layout.add(new COBOLMetaData("01 REC"));
+		RecordLayout.Field group = layout.add(new COBOLMetaData("05 G USAGE COMP-1"));
+		RecordLayout.Field f1 = layout.add(new COBOLMetaData("10 F1"));
+		assertNull(layout.add(new COBOLMetaData("88 F1-ZERO VALUE 0")));
+		RecordLayout.Field f2 = layout.add(new COBOLMetaData("10 F2"));
+		RecordLayout.Field single = layout.add(new COBOLMetaData("05 S USAGE COMP-1"));
+		assertEquals(12, layout.finish());
+
+		assertTrue(group.isGroup());
+		assertEquals(0, group.getOffset());
+		assertEquals(8, group.getLength());
+		assertFalse(f1.isGroup());
+		assertEquals(0, f1.getOffset());
+		assertEquals(4, f1.getLength());
+		assertEquals(4, f2.getOffset());
+		assertEquals(4, f2.getLength());
+		assertFalse(single.isGroup());
+		assertEquals(8, single.getOffset());
+		assertEquals(4, single.getLength());
+	}
+}
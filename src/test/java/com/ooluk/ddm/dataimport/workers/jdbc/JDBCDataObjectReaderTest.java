@@ -18,6 +18,7 @@ package com.ooluk.ddm.dataimport.workers.jdbc;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
@@ -36,6 +37,7 @@ import org.junit.rules.ExpectedException;
 
 import com.ooluk.ddm.dataimport.CaseMode;
 import com.ooluk.ddm.dataimport.ImportException;
+import com.ooluk.ddm.dataimport.ScannedDataObjectComparator;
 import com.ooluk.ddm.dataimport.data.ScannedAttribute;
 import com.ooluk.ddm.dataimport.data.ScannedDataObject;
 import com.ooluk.ddm.dataimport.rule.RuleStore;
@@ -474,6 +476,125 @@ public class JDBCDataObjectReaderTest {
 		reader.init(params);
 	}
 	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.4.1] 
+	 * ----------------------------------
+	 * Test init() for per-table fault isolation
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should be initialized with fault isolation enabled and the specified retry settings
+	 * 
+	 * </pre>
+	 */  
+	@Test
+	public void init_For_Fault_Isolation() {
+		JDBCDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("scope", "database");
+		params.put("isolateTableErrors", "Yes");
+		params.put("tableRetries", "5");
+		params.put("retryDelay", "100");
+		reader.init(params);
+		assertTrue(reader.isIsolatingTableErrors());
+		assertEquals(5, reader.getTableRetries());
+		assertEquals(100, reader.getRetryDelay());
+		assertTrue(reader.getSkippedTables().isEmpty());
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.4.2] 
+	 * ----------------------------------
+	 * Test init() for an invalid number of retries
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException ["Initialization error: invalid value for parameter [tableRetries]"]
+	 * 
+	 * </pre>
+	 */  
+	@Test
+	public void init_For_Fault_Isolation_For_Invalid_Retries() {
+		JDBCDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("scope", "database");
+		params.put("isolateTableErrors", "Yes");
+		params.put("tableRetries", "-1");
+		exception.expect(ImportException.class);
+		exception.expectMessage(equalTo("Initialization error: invalid value for parameter [tableRetries]"));
+		reader.init(params);
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.5.1] 
+	 * ----------------------------------
+	 * Test init() for concurrent table reads
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should be initialized with the specified concurrency and return the same tables, attributes, keys and 
+ * extended properties as a sequential read
+	 * 
+	 * </pre>
+	 */  
+	@Test
+	public void init_For_Concurrency() {
+		JDBCDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("scope", "database");
+		params.put("concurrency", "4");
+		reader.init(params);
+		assertEquals(4, reader.getConcurrency());
+		List<ScannedDataObject> concurrent = reader.read(Integer.MAX_VALUE);
+		reader.close();
+		
+		reader = getReader();
+		params = getCommonParams();
+		params.put("scope", "database");
+		reader.init(params);
+		assertEquals(1, reader.getConcurrency());
+		List<ScannedDataObject> sequential = reader.read(Integer.MAX_VALUE);
+		reader.close();
+		assertEquals(sequential.size(), concurrent.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			ScannedDataObjectComparator.compare(sequential.get(i), concurrent.get(i));
+		}
+	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.5.2] 
+	 * ----------------------------------
+	 * Test init() for an invalid concurrency
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException ["Initialization error: invalid value for parameter [concurrency]"]
+	 * 
+	 * </pre>
+	 */  
+	@Test
+	public void init_For_Invalid_Concurrency() {
+		JDBCDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("scope", "database");
+		params.put("concurrency", "0");
+		exception.expect(ImportException.class);
+		exception.expectMessage(equalTo("Initialization error: invalid value for parameter [concurrency]"));
+		reader.init(params);
+	}
+	
 	/**
 	 * <pre>
 	 * ----------------------------------
@@ -693,6 +814,46 @@ public class JDBCDataObjectReaderTest {
 		//}	
 	}
 
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.5] 
+	 * ----------------------------------
+	 * Resume for schema scope from a position without a schema index
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The schema should be located by name and the reader should continue after the last table read, as for a position
+	 * saved in another scope or by an older version.
+	 * 
+	 * </pre>
+	 */ 
+	@Test
+	public void resume_For_Position_Without_Schema_Index() {
+		JDBCDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("scope", "schema");
+		params.put("schemas", "ddm, test");
+		reader.init(params);
+		List<ScannedDataObject> expected = reader.read(Integer.MAX_VALUE);
+		reader.close();
+		
+		reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(DDM_SCHEMA_OBJ_COUNT + 1);
+		Map<String, String> position = reader.getPosition();
+		reader.close();
+		position.remove("schemaIndex");
+		
+		reader = getReader();
+		reader.init(params);
+		reader.resume(position);
+		dObjs.addAll(reader.read(Integer.MAX_VALUE));
+		reader.close();
+		assertEquals(expected, dObjs);
+	}
+
 	
 	/**
 	 * <pre>
@@ -782,4 +943,42 @@ public class JDBCDataObjectReaderTest {
 		//System.out.println(md);
 		verifyTypeMetaData(this.getPostgreSQLTypeMetaData(), md);
 	}
+	
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [3.2] 
+	 * ----------------------------------
+	 * Test getTypeMetaData method for SCHEMA scope
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Schema = "test". The type metadata should list each distinct (type, size, scale) combination of table 
+	 * "data_type_test" once with its number of columns.
+	 * 
+	 * </pre>
+	 */ 	
+	@Test
+	public void getTypeMetaData_For_Schema() {
+		JDBCDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("scope", "schema");
+		params.put("schemas", "test");
+		reader.enableForTypeMode();
+		reader.init(params);
+		while (reader.read() != null) {
+			// Type metadata is collected while reading
+		}
+		TypeMetaData md = reader.getTypeMetaData();
+		assertTrue(md.getProperties().contains("count"));
+		Map<String, String> numeric = null;
+		for (Map<String, String> type : md.getTypeMetaData()) {
+			if (type.get("type").equals("NUMERIC") && type.get("size").equals("10") && type.get("scale").equals("6")) {
+				assertEquals(null, numeric);
+				numeric = type;
+			}
+		}
+		assertTrue(Long.parseLong(numeric.get("count")) >= 2);
+	}
 }
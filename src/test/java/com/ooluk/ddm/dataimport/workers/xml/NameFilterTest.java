@@ -0,0 +1,99 @@
+/*
+ *  Copyright 2015 Ooluk Corporation
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ooluk.ddm.dataimport.workers.xml;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+/**
+ * @author Siddhesh Prabhu
+ * @since 1.0
+ * 
+ */
+public class NameFilterTest {
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.1] 
+	 * ----------------------------------
+	 * Test accepts() for a list of exact names and prefixes
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Exact names should match whole names only and names ending with '*' should match by prefix, case sensitively.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void accepts_For_Names_And_Prefixes() {
+		NameFilter filter = new NameFilter(" SALES ,HR_* , FIN");
+		assertTrue(filter.accepts("SALES"));
+		assertTrue(filter.accepts("FIN"));
+		assertTrue(filter.accepts("HR_"));
+		assertTrue(filter.accepts("HR_PAYROLL"));
+		assertFalse(filter.accepts("SALES_2"));
+		assertFalse(filter.accepts("sales"));
+		assertFalse(filter.accepts("HR"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.2] 
+	 * ----------------------------------
+	 * Test accepts() for a regular expression
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The expression should match the whole name and may contain commas.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void accepts_For_Regex() {
+		NameFilter filter = new NameFilter("regex:(SALES|HR)_[0-9]{1,2}");
+		assertTrue(filter.accepts("SALES_1"));
+		assertTrue(filter.accepts("HR_12"));
+		assertFalse(filter.accepts("HR_123"));
+		assertFalse(filter.accepts("XSALES_1"));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [1.3] 
+	 * ----------------------------------
+	 * Test the constructor for an invalid regular expression
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * PatternSyntaxException should be thrown
+	 * 
+	 * </pre>
+	 */
+	@Test(expected = PatternSyntaxException.class)
+	public void constructor_For_Invalid_Regex() {
+		new NameFilter("regex:(SALES");
+	}
+}
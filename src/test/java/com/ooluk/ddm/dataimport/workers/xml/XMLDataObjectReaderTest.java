@@ -16,23 +16,36 @@
 package com.ooluk.ddm.dataimport.workers.xml;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 
+import java.io.File;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import com.ooluk.ddm.dataimport.CaseMode;
 import com.ooluk.ddm.dataimport.ImportException;
@@ -55,6 +68,9 @@ public class XMLDataObjectReaderTest {
 	@Rule
 	public ExpectedException exception = ExpectedException.none();
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	@Before
 	public void setUp() {
 	}
@@ -328,4 +344,493 @@ public class XMLDataObjectReaderTest {
 			ScannedDataObjectComparator.compare(expObj, dObj);
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.2] 
+	 * ----------------------------------
+	 * Test read(max) for success
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should return the data objects in batches of at most max objects and an empty batch at the end. A max
+	 * of Integer.MAX_VALUE should read the remaining data objects.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadBatchForSuccess() {
+		XMLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		reader.init(params);
+		buildDataMap();
+		List<ScannedDataObject> batch = reader.read(3);
+		assertEquals(3, batch.size());
+		for (int i = 1; i <= 3; i++) {
+			ScannedDataObjectComparator.compare(data.get(i), batch.get(i - 1));
+		}
+		batch = reader.read(Integer.MAX_VALUE);
+		assertEquals(1, batch.size());
+		ScannedDataObjectComparator.compare(data.get(4), batch.get(0));
+		assertEquals(0, reader.read(3).size());
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.3] 
+	 * ----------------------------------
+	 * Test stream() for success with a parallel stream
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should be split by the data object regions of the file and the data objects should be returned in
+	 * document order. A small file forms a single region and is not split.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testParallelStreamForSuccess() throws Exception {
+		XMLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		reader.init(params);
+		buildDataMap();
+		List<ScannedDataObject> dObjs;
+		try (Stream<ScannedDataObject> stream = reader.stream()) {
+			dObjs = stream.parallel().collect(Collectors.<ScannedDataObject> toList());
+		}
+		reader.close();
+		assertEquals(4, dObjs.size());
+		for (int i = 1; i <= 4; i++) {
+			ScannedDataObjectComparator.compare(data.get(i), dObjs.get(i - 1));
+		}
+		
+		File file = createLargeFile();
+		params.put("file", file.getPath());
+		XMLDataObjectReader sequential = getReader();
+		sequential.init(params);
+		List<ScannedDataObject> expected = sequential.read(Integer.MAX_VALUE);
+		sequential.close();
+		
+		reader = getReader();
+		reader.init(params);
+		XMLDataObjectReader split = (XMLDataObjectReader) reader.trySplit();
+		assertThat(split, notNullValue());
+		dObjs = split.read(Integer.MAX_VALUE);
+		split.close();
+		dObjs.addAll(reader.read(Integer.MAX_VALUE));
+		reader.close();
+		assertEquals(expected.size(), dObjs.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ScannedDataObjectComparator.compare(expected.get(i), dObjs.get(i));
+		}
+		
+		reader = getReader();
+		reader.init(params);
+		try (Stream<ScannedDataObject> stream = reader.stream()) {
+			dObjs = stream.parallel().collect(Collectors.<ScannedDataObject> toList());
+		}
+		reader.close();
+		assertEquals(expected.size(), dObjs.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ScannedDataObjectComparator.compare(expected.get(i), dObjs.get(i));
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.4] 
+	 * ----------------------------------
+	 * Test read() for an EBCDIC encoded file
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The file should be decoded with the charset parameter and the data objects should match those in the
+	 * original file.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadForEBCDICFile() throws Exception {
+		String xml = new String(Files.readAllBytes(Paths.get(this.getClass().getResource("/dif.xml").toURI())),
+				StandardCharsets.UTF_8);
+		xml = xml.replaceFirst("encoding=\"[^\"]*\"", "encoding=\"Cp037\"");
+		File file = folder.newFile("dif-ebcdic.xml");
+		Files.write(file.toPath(), xml.getBytes(Charset.forName("Cp037")));
+		XMLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		params.put("charset", "Cp037");
+		reader.init(params);
+		buildDataMap();
+		List<ScannedDataObject> batch = reader.read(10);
+		reader.close();
+		assertEquals(4, batch.size());
+		for (int i = 1; i <= 4; i++) {
+			ScannedDataObjectComparator.compare(data.get(i), batch.get(i - 1));
+		}
+	}
+
+	/**
+	 * Writes a DIF file with the data objects of the test file repeated so that the namespaces span several regions.
+	 * The file also contains markup that the region scan must pass over.
+	 * 
+	 * @return the file.
+	 */
+	private File createLargeFile() throws Exception {
+		String xml = new String(Files.readAllBytes(Paths.get(this.getClass().getResource("/dif.xml").toURI())),
+				StandardCharsets.UTF_8);
+		int ns2 = xml.indexOf("<namespace name=\"TEMP_SPACE2\">");
+		String body1 = xml.substring(xml.indexOf("<data-object>"), xml.lastIndexOf("</namespace>", ns2));
+		String body2 = xml.substring(xml.indexOf("<data-object>", ns2), xml.lastIndexOf("</namespace>"));
+		StringBuilder sb = new StringBuilder(xml.substring(0, xml.indexOf("<namespace")));
+		sb.append("<!-- <namespace name=\"COMMENTED\"><data-object> -->\n");
+		sb.append("<namespace name=\"TEMP_SPACE1\">\n");
+		for (int i = 0; i < 100; i++) {
+			sb.append(body1);
+		}
+		sb.append("</namespace>\n<namespace name=\"EMPTY\"/>\n<?note <namespace name=\"PI\">?>\n");
+		sb.append("<namespace name=\"TEMP_SPACE2\">\n");
+		for (int i = 0; i < 50; i++) {
+			sb.append(body2);
+		}
+		sb.append("</namespace>\n</ddm>\n");
+		File file = folder.newFile("dif-large.xml");
+		Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.5] 
+	 * ----------------------------------
+	 * Test read() for success with concurrent parsing
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The file should be divided into regions within the namespaces, commented markup and processing instructions
+	 * should be ignored and the data objects should match those of a sequential read in document order.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadConcurrentForSuccess() throws Exception {
+		File file = createLargeFile();
+		DataObjectRegions regions = new DataObjectRegions(file.toPath(), StandardCharsets.UTF_8, 64 * 1024);
+		assertEquals(300, regions.getDataObjectCount());
+		assertThat(regions.getRegions().size(), greaterThan(2));
+		
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		params.put("charset", "UTF-8");
+		XMLDataObjectReader sequential = getReader();
+		sequential.init(params);
+		List<ScannedDataObject> expected = sequential.read(1000);
+		sequential.close();
+		assertEquals(300, expected.size());
+		
+		params.put("concurrency", "4");
+		XMLDataObjectReader reader = getReader();
+		reader.init(params);
+		assertEquals(4, reader.getConcurrency());
+		List<ScannedDataObject> dObjs = reader.read(1000);
+		reader.close();
+		assertEquals(expected.size(), dObjs.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ScannedDataObjectComparator.compare(expected.get(i), dObjs.get(i));
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.6] 
+	 * ----------------------------------
+	 * Test resume() with concurrent parsing
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * A reader resumed from the position of another concurrent reader should continue with the next data object,
+	 * including when the position lies inside a region.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testResumeConcurrentForSuccess() throws Exception {
+		File file = createLargeFile();
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		params.put("concurrency", "2");
+		XMLDataObjectReader reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> expected = reader.read(1000);
+		reader.close();
+		for (int count : new int[] { 1, 150, 250 }) {
+			reader = getReader();
+			reader.init(params);
+			reader.read(count);
+			Map<String, String> position = reader.getPosition();
+			reader.close();
+			
+			XMLDataObjectReader resumed = getReader();
+			resumed.init(params);
+			resumed.resume(position);
+			List<ScannedDataObject> rest = resumed.read(1000);
+			resumed.close();
+			assertEquals(expected.size() - count, rest.size());
+			ScannedDataObjectComparator.compare(expected.get(count), rest.get(0));
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.7] 
+	 * ----------------------------------
+	 * Test init() for an invalid concurrency
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException should be thrown
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testInitForInvalidConcurrency() {
+		exception.expect(ImportException.class);
+		XMLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("concurrency", "0");
+		reader.init(params);
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.8] 
+	 * ----------------------------------
+	 * Test read() with namespace and name filters
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * Only the data objects of the matching namespaces with matching names should be returned.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadWithFiltersForSuccess() {
+		buildDataMap();
+		XMLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("namespaceFilter", "TEMP_SPACE2");
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(10);
+		reader.close();
+		assertEquals(2, dObjs.size());
+		ScannedDataObjectComparator.compare(data.get(3), dObjs.get(0));
+		ScannedDataObjectComparator.compare(data.get(4), dObjs.get(1));
+		
+		reader = getReader();
+		params = getCommonParams();
+		params.put("namespaceFilter", "TEMP_*");
+		params.put("nameFilter", "regex:OBJECT_[13]");
+		reader.init(params);
+		dObjs = reader.read(10);
+		reader.close();
+		assertEquals(2, dObjs.size());
+		ScannedDataObjectComparator.compare(data.get(1), dObjs.get(0));
+		ScannedDataObjectComparator.compare(data.get(3), dObjs.get(1));
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.9] 
+	 * ----------------------------------
+	 * Test read() and resume() with filters and concurrent parsing
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The data objects should match those of a filtered sequential read and a resumed reader should continue with the
+	 * next matching data object.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadConcurrentWithFiltersForSuccess() throws Exception {
+		File file = createLargeFile();
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		params.put("namespaceFilter", "regex:TEMP_SPACE[2]");
+		params.put("nameFilter", "OBJECT_4");
+		XMLDataObjectReader sequential = getReader();
+		sequential.init(params);
+		List<ScannedDataObject> expected = sequential.read(1000);
+		Map<String, String> position = sequential.getPosition();
+		sequential.close();
+		assertEquals(50, expected.size());
+		assertEquals("300", position.get("dataObjects"));
+		
+		params.put("concurrency", "3");
+		XMLDataObjectReader reader = getReader();
+		reader.init(params);
+		List<ScannedDataObject> dObjs = reader.read(20);
+		position = reader.getPosition();
+		reader.close();
+		
+		XMLDataObjectReader resumed = getReader();
+		resumed.init(params);
+		resumed.resume(position);
+		dObjs.addAll(resumed.read(1000));
+		resumed.close();
+		assertEquals(expected.size(), dObjs.size());
+		for (int i = 0; i < expected.size(); i++) {
+			ScannedDataObjectComparator.compare(expected.get(i), dObjs.get(i));
+		}
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.10] 
+	 * ----------------------------------
+	 * Test init() for an invalid name filter
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException should be thrown
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testInitForInvalidNameFilter() {
+		exception.expect(ImportException.class);
+		XMLDataObjectReader reader = getReader();
+		HashMap<String, Object> params = getCommonParams();
+		params.put("nameFilter", "regex:[OBJECT");
+		reader.init(params);
+	}
+
+	/**
+	 * Copies the test XML file and indexes the data objects in it as the DIFWriter would.
+	 * 
+	 * @return the copied XML file
+	 */
+	private File createIndexedFile() throws Exception {
+		byte[] bytes = Files.readAllBytes(Paths.get(this.getClass().getResource("/dif.xml").toURI()));
+		File file = folder.newFile("dif-indexed.xml");
+		Files.write(file.toPath(), bytes);
+		// ISO-8859-1 maps each byte to one character so string positions are byte offsets
+		String xml = new String(bytes, StandardCharsets.ISO_8859_1);
+		DIFIndex index = new DIFIndex(DIFIndex.getIndexFile(file.getPath()));
+		int start = xml.indexOf("<data-object>");
+		while (start >= 0) {
+			int nsStart = xml.lastIndexOf("<namespace name=\"", start) + "<namespace name=\"".length();
+			String namespace = xml.substring(nsStart, xml.indexOf('"', nsStart));
+			String name = xml.substring(xml.indexOf("<name>", start) + "<name>".length(), xml.indexOf("</name>", start));
+			int end = xml.indexOf("</data-object>", start) + "</data-object>".length();
+			index.add(namespace, name, start, end - start);
+			start = xml.indexOf("<data-object>", end);
+		}
+		index.save(bytes.length, Files.getLastModifiedTime(file.toPath()).toMillis());
+		return file;
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.11] 
+	 * ----------------------------------
+	 * Test readIndexed() for success
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * The reader should read the requested data objects in any order without changing the position of read(). An
+	 * unknown data object should return null.
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadIndexedForSuccess() throws Exception {
+		File file = createIndexedFile();
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		XMLDataObjectReader reader = getReader();
+		reader.init(params);
+		buildDataMap();
+		ScannedDataObjectComparator.compare(data.get(4), reader.readIndexed("TEMP_SPACE2", "OBJECT_4"));
+		ScannedDataObjectComparator.compare(data.get(1), reader.readIndexed("TEMP_SPACE1", "OBJECT_1"));
+		ScannedDataObjectComparator.compare(data.get(3), reader.readIndexed("TEMP_SPACE2", "OBJECT_3"));
+		assertNull(reader.readIndexed("TEMP_SPACE1", "OBJECT_4"));
+		ScannedDataObjectComparator.compare(data.get(1), reader.read());
+		reader.close();
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.12] 
+	 * ----------------------------------
+	 * Test readIndexed() for an index of a modified XML file
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException should be thrown
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadIndexedForStaleIndex() throws Exception {
+		File file = createIndexedFile();
+		Files.write(file.toPath(), "<!-- modified -->".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		XMLDataObjectReader reader = getReader();
+		reader.init(params);
+		exception.expect(ImportException.class);
+		reader.readIndexed("TEMP_SPACE1", "OBJECT_1");
+	}
+
+	/**
+	 * <pre>
+	 * ----------------------------------
+	 * Case: [2.13] 
+	 * ----------------------------------
+	 * Test readIndexed() for an index of an XML file rewritten with the same size
+	 * 
+	 * ----------------------------------
+	 * Action & Expectation
+	 * ----------------------------------
+	 * ImportException should be thrown
+	 * 
+	 * </pre>
+	 */
+	@Test
+	public void testReadIndexedForRewrittenFile() throws Exception {
+		File file = createIndexedFile();
+		long modified = file.lastModified();
+		Files.write(file.toPath(), Files.readAllBytes(file.toPath()));
+		file.setLastModified(modified + 2000);
+		HashMap<String, Object> params = new HashMap<>();
+		params.put("file", file.getPath());
+		XMLDataObjectReader reader = getReader();
+		reader.init(params);
+		exception.expect(ImportException.class);
+		reader.readIndexed("TEMP_SPACE1", "OBJECT_1");
+	}
+}